@@ -0,0 +1,71 @@
+package no.shz.projjava.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import no.shz.projjava.SpatialReferences;
+import no.shz.projjava.coordinateSystems.transformations.ApproximateTransform;
+import no.shz.projjava.coordinateSystems.transformations.CoordinateTransformationFactory;
+import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
+
+/**
+ * Warping a 1024x1024 raster with an ApproximateTransform, against the exact transform. The raster covers
+ * a square of the given size in degrees from 10E 50N, transformed from EPSG:4326 to EPSG:32633, and the
+ * tolerance is 1/8 of a pixel. Scores are per pixel.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ApproximateBenchmark {
+    private static final int SIZE = 1024;
+    private static final int NUM_PTS = SIZE * SIZE;
+
+    @Param({"0.1", "1", "10"})
+    public double degrees;
+
+    private IMathTransform _exact;
+    private IMathTransform _approximate;
+    private double[] _source;
+    private double[] _target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        _exact = new CoordinateTransformationFactory().createFromCoordinateSystems(SpatialReferences.getByEpsg(4326), SpatialReferences.getByEpsg(32633)).getMathTransform();
+        //About 111 km per degree of latitude
+        double pixelSize = degrees * 111000 / SIZE;
+        _approximate = new ApproximateTransform(_exact, 10, 50, 10 + degrees, 50 + degrees, pixelSize / 8);
+        _source = new double[2 * NUM_PTS];
+        for (int j = 0, k = 0; j < SIZE; j++) {
+            for (int i = 0; i < SIZE; i++, k += 2) {
+                _source[k] = 10 + (i + 0.5) * degrees / SIZE;
+                _source[k + 1] = 50 + (j + 0.5) * degrees / SIZE;
+            }
+        }
+        _target = new double[_source.length];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PTS)
+    public double[] exact() {
+        _exact.transform(_source, 0, _target, 0, NUM_PTS, 2);
+        return _target;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PTS)
+    public double[] approximate() {
+        _approximate.transform(_source, 0, _target, 0, NUM_PTS, 2);
+        return _target;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,137 @@
+package no.shz.projjava.jmh;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import no.shz.projjava.SpatialReferences;
+import no.shz.projjava.coordinateSystems.AngularUnit;
+import no.shz.projjava.coordinateSystems.AxisInfo;
+import no.shz.projjava.coordinateSystems.AxisOrientationEnum;
+import no.shz.projjava.coordinateSystems.CoordinateSystemFactory;
+import no.shz.projjava.coordinateSystems.HorizontalDatum;
+import no.shz.projjava.coordinateSystems.ICoordinateSystem;
+import no.shz.projjava.coordinateSystems.IGeographicCoordinateSystem;
+import no.shz.projjava.coordinateSystems.IProjectedCoordinateSystem;
+import no.shz.projjava.coordinateSystems.IProjection;
+import no.shz.projjava.coordinateSystems.LinearUnit;
+import no.shz.projjava.coordinateSystems.PrimeMeridian;
+import no.shz.projjava.coordinateSystems.ProjectionParameter;
+import no.shz.projjava.coordinateSystems.Wgs84ConversionInfo;
+import no.shz.projjava.coordinateSystems.transformations.CoordinateTransformationFactory;
+import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
+
+/**
+ * Throughput and latency of complete transformations between coordinate systems, as built by the
+ * CoordinateTransformationFactory, for single points and batches. Batch scores are per point.
+ * <ul>
+ * <li>ED50_UTM32_to_WGS84_UTM32: inverse projection, datum shift through geocentric coordinates and
+ * projection, as in CoordinateTransformTests.TestDatumTransform.</li>
+ * <li>EPSG2001_to_EPSG4326: Antigua grid to WGS84 geographic, with a TOWGS84 shift.</li>
+ * <li>EPSG4326_to_EPSG32633: WGS84 geographic to UTM zone 33N, without datum shift.</li>
+ * </ul>
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChainBenchmark {
+    private static final int DIM = 2;
+
+    @Param({"ED50_UTM32_to_WGS84_UTM32", "EPSG2001_to_EPSG4326", "EPSG4326_to_EPSG32633"})
+    public String chain;
+
+    private IMathTransform _transform;
+    private double[] _point;
+    private double[] _source;
+    private double[] _target;
+    private double[] _xs;
+    private double[] _ys;
+    private double[] _columnX;
+    private double[] _columnY;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        CoordinateTransformationFactory ctFac = new CoordinateTransformationFactory();
+        switch (chain) {
+            case "ED50_UTM32_to_WGS84_UTM32": {
+                IProjectedCoordinateSystem[] utm = createUtm32();
+                _transform = ctFac.createFromCoordinateSystems(utm[0], utm[1]).getMathTransform();
+                _source = Points.around(Points.BATCH_SIZE, DIM, new double[] {600000, 6100000}, new double[] {100000, 100000});
+                break;
+            }
+            case "EPSG2001_to_EPSG4326": {
+                ICoordinateSystem antigua = SpatialReferences.getByEpsg(2001);
+                _transform = ctFac.createFromCoordinateSystems(antigua, SpatialReferences.getByEpsg(4326)).getMathTransform();
+                _source = Points.around(Points.BATCH_SIZE, DIM, new double[] {430000, 1890000}, new double[] {20000, 20000});
+                break;
+            }
+            case "EPSG4326_to_EPSG32633": {
+                _transform = ctFac.createFromCoordinateSystems(SpatialReferences.getByEpsg(4326), SpatialReferences.getByEpsg(32633)).getMathTransform();
+                _source = Points.around(Points.BATCH_SIZE, DIM, new double[] {15, 50}, new double[] {3, 5});
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown chain " + chain);
+        }
+        _point = new double[] {_source[0], _source[1]};
+        _target = new double[_source.length];
+        _xs = Points.column(_source, DIM, 0);
+        _ys = Points.column(_source, DIM, 1);
+        _columnX = new double[_xs.length];
+        _columnY = new double[_ys.length];
+    }
+
+    /**
+     * Creates UTM zone 32N on ED50 (with the TOWGS84 parameters for Denmark) and on WGS84.
+     */
+    private static IProjectedCoordinateSystem[] createUtm32() {
+        CoordinateSystemFactory cFac = new CoordinateSystemFactory();
+        HorizontalDatum ed50 = HorizontalDatum.getED50();
+        ed50.setWgs84Parameters(new Wgs84ConversionInfo(-81.0703, -89.3603, -115.7526, -0.48488, -0.02436, -0.41321, -0.540645));
+        IGeographicCoordinateSystem gcsED50 = cFac.createGeographicCoordinateSystem("ED50 Geographic", AngularUnit.getDegrees(), ed50, PrimeMeridian.getGreenwich(), new AxisInfo("East", AxisOrientationEnum.East), new AxisInfo("North", AxisOrientationEnum.North));
+        IGeographicCoordinateSystem gcsWGS84 = cFac.createGeographicCoordinateSystem("WGS84 Geographic", AngularUnit.getDegrees(), HorizontalDatum.getWGS84(), PrimeMeridian.getGreenwich(), new AxisInfo("East", AxisOrientationEnum.East), new AxisInfo("North", AxisOrientationEnum.North));
+
+        ArrayList<ProjectionParameter> parameters = new ArrayList<>(5);
+        parameters.add(new ProjectionParameter("latitude_of_origin", 0));
+        parameters.add(new ProjectionParameter("central_meridian", 9));
+        parameters.add(new ProjectionParameter("scale_factor", 0.9996));
+        parameters.add(new ProjectionParameter("false_easting", 500000));
+        parameters.add(new ProjectionParameter("false_northing", 0));
+        IProjection projection = cFac.createProjection("Transverse Mercator", "Transverse_Mercator", parameters);
+        IProjectedCoordinateSystem utmED50 = cFac.createProjectedCoordinateSystem("ED50 UTM Zone 32N", gcsED50, projection, LinearUnit.getMetre(), new AxisInfo("East", AxisOrientationEnum.East), new AxisInfo("North", AxisOrientationEnum.North));
+        IProjectedCoordinateSystem utmWGS84 = cFac.createProjectedCoordinateSystem("WGS84 UTM Zone 32N", gcsWGS84, projection, LinearUnit.getMetre(), new AxisInfo("East", AxisOrientationEnum.East), new AxisInfo("North", AxisOrientationEnum.North));
+        return new IProjectedCoordinateSystem[] {utmED50, utmWGS84};
+    }
+
+    @Benchmark
+    public double[] singlePoint() {
+        return _transform.transform(_point);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Points.BATCH_SIZE)
+    public double[] packedBatch() {
+        _transform.transform(_source, 0, _target, 0, Points.BATCH_SIZE, DIM);
+        return _target;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Points.BATCH_SIZE)
+    public double[] columnBatch() {
+        System.arraycopy(_xs, 0, _columnX, 0, _xs.length);
+        System.arraycopy(_ys, 0, _columnY, 0, _ys.length);
+        _transform.transform(_columnX, _columnY, null, 0, Points.BATCH_SIZE);
+        return _columnY;
+    }
+}
\ No newline at end of file
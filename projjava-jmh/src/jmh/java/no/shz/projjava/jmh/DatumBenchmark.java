@@ -0,0 +1,111 @@
+package no.shz.projjava.jmh;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import no.shz.projjava.coordinateSystems.Ellipsoid;
+import no.shz.projjava.coordinateSystems.ProjectionParameter;
+import no.shz.projjava.coordinateSystems.Wgs84ConversionInfo;
+import no.shz.projjava.coordinateSystems.transformations.DatumTransform;
+import no.shz.projjava.coordinateSystems.transformations.GeocentricTransform;
+import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
+
+/**
+ * Forward and inverse throughput and latency of the geocentric conversion and the Helmert datum shift,
+ * for single points and batches of 3-dimensional points. Batch scores are per point.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DatumBenchmark {
+    private static final int DIM = 3;
+
+    @Param({"GeocentricTransform", "DatumTransform"})
+    public String transform;
+
+    @Param({"forward", "inverse"})
+    public String direction;
+
+    private IMathTransform _transform;
+    private double[] _point;
+    private double[] _source;
+    private double[] _target;
+    private double[] _xs;
+    private double[] _ys;
+    private double[] _zs;
+    private double[] _columnX;
+    private double[] _columnY;
+    private double[] _columnZ;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Ellipsoid international = Ellipsoid.getInternational1924();
+        ArrayList<ProjectionParameter> parameters = new ArrayList<>(2);
+        parameters.add(new ProjectionParameter("semi_major", international.getSemiMajorAxis()));
+        parameters.add(new ProjectionParameter("semi_minor", international.getSemiMinorAxis()));
+        GeocentricTransform geocentric = new GeocentricTransform(parameters);
+
+        //Geographic points in Denmark, and their geocentric coordinates on ED50
+        double[] lonLats = Points.around(Points.BATCH_SIZE, DIM, new double[] {10, 56, 50}, new double[] {2, 1.5, 50});
+        double[] geocentricPoints = Points.transform(geocentric, lonLats, DIM);
+
+        IMathTransform forward;
+        double[] forwardSource;
+        if (transform.equals("GeocentricTransform")) {
+            forward = geocentric;
+            forwardSource = lonLats;
+        } else {
+            //ED50 to WGS84, parameters for Denmark
+            forward = new DatumTransform(new Wgs84ConversionInfo(-81.0703, -89.3603, -115.7526, -0.48488, -0.02436, -0.41321, -0.540645));
+            forwardSource = geocentricPoints;
+        }
+        if (direction.equals("forward")) {
+            _transform = forward;
+            _source = forwardSource;
+        } else {
+            _transform = forward.inverse();
+            _source = Points.transform(forward, forwardSource, DIM);
+        }
+        _point = new double[] {_source[0], _source[1], _source[2]};
+        _target = new double[_source.length];
+        _xs = Points.column(_source, DIM, 0);
+        _ys = Points.column(_source, DIM, 1);
+        _zs = Points.column(_source, DIM, 2);
+        _columnX = new double[_xs.length];
+        _columnY = new double[_ys.length];
+        _columnZ = new double[_zs.length];
+    }
+
+    @Benchmark
+    public double[] singlePoint() {
+        return _transform.transform(_point);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Points.BATCH_SIZE)
+    public double[] packedBatch() {
+        _transform.transform(_source, 0, _target, 0, Points.BATCH_SIZE, DIM);
+        return _target;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Points.BATCH_SIZE)
+    public double[] columnBatch() {
+        System.arraycopy(_xs, 0, _columnX, 0, _xs.length);
+        System.arraycopy(_ys, 0, _columnY, 0, _ys.length);
+        System.arraycopy(_zs, 0, _columnZ, 0, _zs.length);
+        _transform.transform(_columnX, _columnY, _columnZ, 0, Points.BATCH_SIZE);
+        return _columnZ;
+    }
+}
\ No newline at end of file
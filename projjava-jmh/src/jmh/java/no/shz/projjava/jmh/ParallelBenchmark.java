@@ -0,0 +1,73 @@
+package no.shz.projjava.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import no.shz.projjava.SpatialReferences;
+import no.shz.projjava.coordinateSystems.ICoordinateSystem;
+import no.shz.projjava.coordinateSystems.transformations.CoordinateTransformationFactory;
+import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
+import no.shz.projjava.coordinateSystems.transformations.ParallelTransformer;
+
+/**
+ * Throughput of large batches run by a ParallelTransformer, against the same batches run on one thread.
+ * The transformation is EPSG:2001 to EPSG:4326, with a datum shift. Scores are per point.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ParallelBenchmark {
+    private static final int DIM = 2;
+    private static final int NUM_PTS = 1 << 20;
+
+    @Param({"1", "2", "4"})
+    public int threads;
+
+    private IMathTransform _transform;
+    private ForkJoinPool _pool;
+    private ParallelTransformer _parallel;
+    private double[] _source;
+    private double[] _target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ICoordinateSystem antigua = SpatialReferences.getByEpsg(2001);
+        _transform = new CoordinateTransformationFactory().createFromCoordinateSystems(antigua, SpatialReferences.getByEpsg(4326)).getMathTransform();
+        _source = Points.around(NUM_PTS, DIM, new double[] {430000, 1890000}, new double[] {20000, 20000});
+        _target = new double[_source.length];
+        _pool = new ForkJoinPool(threads);
+        _parallel = new ParallelTransformer(_pool, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        _pool.shutdown();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PTS)
+    public double[] sequential() {
+        _transform.transform(_source, 0, _target, 0, NUM_PTS, DIM);
+        return _target;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NUM_PTS)
+    public double[] parallel() {
+        _parallel.transform(_transform, _source, 0, _target, 0, NUM_PTS, DIM);
+        return _target;
+    }
+}
\ No newline at end of file
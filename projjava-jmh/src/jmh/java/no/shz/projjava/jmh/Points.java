@@ -0,0 +1,59 @@
+package no.shz.projjava.jmh;
+
+import java.util.Random;
+
+import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
+
+/**
+ * Reproducible input points for the benchmarks.
+ */
+final class Points {
+    /**
+     * Number of points transformed by one invocation of a batch benchmark.
+     */
+    static final int BATCH_SIZE = 4096;
+
+    private static final long SEED = 20161212L;
+
+    private Points() {
+    }
+
+    /**
+     * Creates packed points scattered around a center.
+     *
+     * @param numPts  number of points
+     * @param dim     number of ordinates per point
+     * @param center  center of the points, one value per ordinate
+     * @param spread  largest distance from the center, one value per ordinate
+     * @return the packed points
+     */
+    static double[] around(int numPts, int dim, double[] center, double[] spread) {
+        Random random = new Random(SEED);
+        double[] points = new double[numPts * dim];
+        for (int i = 0; i < points.length; i++) {
+            int d = i % dim;
+            points[i] = center[d] + (2 * random.nextDouble() - 1) * spread[d];
+        }
+        return points;
+    }
+
+    /**
+     * Transforms packed points into a new array.
+     */
+    static double[] transform(IMathTransform transform, double[] points, int dim) {
+        double[] result = new double[points.length];
+        transform.transform(points, 0, result, 0, points.length / dim, dim);
+        return result;
+    }
+
+    /**
+     * Copies one ordinate of packed points into its own array.
+     */
+    static double[] column(double[] points, int dim, int ordinate) {
+        double[] column = new double[points.length / dim];
+        for (int i = 0; i < column.length; i++) {
+            column[i] = points[i * dim + ordinate];
+        }
+        return column;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,126 @@
+package no.shz.projjava.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import no.shz.projjava.SpatialReferences;
+import no.shz.projjava.coordinateSystems.IProjectedCoordinateSystem;
+import no.shz.projjava.coordinateSystems.transformations.CoordinateTransformationFactory;
+import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
+import no.shz.projjava.coordinateSystems.transformations.TransverseMercatorMethod;
+
+/**
+ * Forward and inverse throughput and latency of the map projections, for single points and batches.
+ * KrugerTransverseMercator is the Transverse Mercator of EPSG:32633 computed with the Kruger series, and
+ * PseudoMercator the web map projection of EPSG:3857.
+ * Batch scores are per point.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProjectionBenchmark {
+    private static final int DIM = 2;
+
+    @Param({"Mercator", "TransverseMercator", "KrugerTransverseMercator", "AlbersProjection", "LambertConformalConic2SP", "KrovakProjection", "PseudoMercator"})
+    public String projection;
+
+    @Param({"forward", "inverse"})
+    public String direction;
+
+    private IMathTransform _transform;
+    private double[] _point;
+    private double[] _source;
+    private double[] _target;
+    private double[] _xs;
+    private double[] _ys;
+    private double[] _columnX;
+    private double[] _columnY;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        int epsg;
+        double[] center;
+        switch (projection) {
+            case "Mercator":
+                epsg = 3001;
+                center = new double[] {110, -2};
+                break;
+            case "TransverseMercator":
+            case "KrugerTransverseMercator":
+                epsg = 32633;
+                center = new double[] {15, 50};
+                break;
+            case "AlbersProjection":
+                epsg = 3005;
+                center = new double[] {-125, 53};
+                break;
+            case "LambertConformalConic2SP":
+                epsg = 2154;
+                center = new double[] {3, 46};
+                break;
+            case "KrovakProjection":
+                epsg = 2065;
+                center = new double[] {32.5, 49.5};
+                break;
+            case "PseudoMercator":
+                epsg = 3857;
+                center = new double[] {10, 60};
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown projection " + projection);
+        }
+        IProjectedCoordinateSystem pcs = (IProjectedCoordinateSystem) SpatialReferences.getByEpsg(epsg);
+        CoordinateTransformationFactory factory = new CoordinateTransformationFactory();
+        if (projection.equals("KrugerTransverseMercator")) {
+            factory.setTransverseMercatorMethod(TransverseMercatorMethod.KRUGER);
+        }
+        IMathTransform forward = factory.createFromCoordinateSystems(pcs.getGeographicCoordinateSystem(), pcs).getMathTransform();
+        double[] lonLats = Points.around(Points.BATCH_SIZE, DIM, center, new double[] {2, 2});
+
+        if (direction.equals("forward")) {
+            _transform = forward;
+            _source = lonLats;
+        } else {
+            _transform = forward.inverse();
+            _source = Points.transform(forward, lonLats, DIM);
+        }
+        _point = new double[] {_source[0], _source[1]};
+        _target = new double[_source.length];
+        _xs = Points.column(_source, DIM, 0);
+        _ys = Points.column(_source, DIM, 1);
+        _columnX = new double[_xs.length];
+        _columnY = new double[_ys.length];
+    }
+
+    @Benchmark
+    public double[] singlePoint() {
+        return _transform.transform(_point);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Points.BATCH_SIZE)
+    public double[] packedBatch() {
+        _transform.transform(_source, 0, _target, 0, Points.BATCH_SIZE, DIM);
+        return _target;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Points.BATCH_SIZE)
+    public double[] columnBatch() {
+        System.arraycopy(_xs, 0, _columnX, 0, _xs.length);
+        System.arraycopy(_ys, 0, _columnY, 0, _ys.length);
+        _transform.transform(_columnX, _columnY, null, 0, Points.BATCH_SIZE);
+        return _columnY;
+    }
+}
\ No newline at end of file
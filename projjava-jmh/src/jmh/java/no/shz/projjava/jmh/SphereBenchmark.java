@@ -0,0 +1,103 @@
+package no.shz.projjava.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import no.shz.projjava.SpatialReferences;
+import no.shz.projjava.coordinateSystems.AxisInfo;
+import no.shz.projjava.coordinateSystems.AxisOrientationEnum;
+import no.shz.projjava.coordinateSystems.CoordinateSystemFactory;
+import no.shz.projjava.coordinateSystems.DatumType;
+import no.shz.projjava.coordinateSystems.Ellipsoid;
+import no.shz.projjava.coordinateSystems.IGeographicCoordinateSystem;
+import no.shz.projjava.coordinateSystems.IHorizontalDatum;
+import no.shz.projjava.coordinateSystems.IProjectedCoordinateSystem;
+import no.shz.projjava.coordinateSystems.transformations.CoordinateTransformationFactory;
+import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
+
+/**
+ * Batch throughput of the map projections on their ellipsoid and on the GRS 1980 authalic sphere, where
+ * they use their spherical formulas. The projections are those of {@link ProjectionBenchmark}, with the
+ * same parameters on both figures. Scores are per point.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SphereBenchmark {
+    private static final int DIM = 2;
+
+    @Param({"Mercator", "TransverseMercator", "AlbersProjection", "LambertConformalConic2SP"})
+    public String projection;
+
+    @Param({"forward", "inverse"})
+    public String direction;
+
+    @Param({"ellipsoid", "sphere"})
+    public String figure;
+
+    private IMathTransform _transform;
+    private double[] _source;
+    private double[] _target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        int epsg;
+        double[] center;
+        switch (projection) {
+            case "Mercator":
+                epsg = 3001;
+                center = new double[] {110, -2};
+                break;
+            case "TransverseMercator":
+                epsg = 32633;
+                center = new double[] {15, 50};
+                break;
+            case "AlbersProjection":
+                epsg = 3005;
+                center = new double[] {-125, 53};
+                break;
+            case "LambertConformalConic2SP":
+                epsg = 2154;
+                center = new double[] {3, 46};
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown projection " + projection);
+        }
+        IProjectedCoordinateSystem pcs = (IProjectedCoordinateSystem) SpatialReferences.getByEpsg(epsg);
+        if (figure.equals("sphere")) {
+            CoordinateSystemFactory cFac = new CoordinateSystemFactory();
+            IHorizontalDatum datum = cFac.createHorizontalDatum("Sphere", DatumType.HD_Geocentric, Ellipsoid.getSphere(), null);
+            IGeographicCoordinateSystem gcs = cFac.createGeographicCoordinateSystem("Sphere", pcs.getGeographicCoordinateSystem().getAngularUnit(), datum, pcs.getGeographicCoordinateSystem().getPrimeMeridian(), new AxisInfo("Lon", AxisOrientationEnum.East), new AxisInfo("Lat", AxisOrientationEnum.North));
+            pcs = cFac.createProjectedCoordinateSystem(pcs.getName() + " on a sphere", gcs, pcs.getProjection(), pcs.getLinearUnit(), new AxisInfo("East", AxisOrientationEnum.East), new AxisInfo("North", AxisOrientationEnum.North));
+        }
+        IMathTransform forward = new CoordinateTransformationFactory().createFromCoordinateSystems(pcs.getGeographicCoordinateSystem(), pcs).getMathTransform();
+        double[] lonLats = Points.around(Points.BATCH_SIZE, DIM, center, new double[] {2, 2});
+
+        if (direction.equals("forward")) {
+            _transform = forward;
+            _source = lonLats;
+        } else {
+            _transform = forward.inverse();
+            _source = Points.transform(forward, lonLats, DIM);
+        }
+        _target = new double[_source.length];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Points.BATCH_SIZE)
+    public double[] packedBatch() {
+        _transform.transform(_source, 0, _target, 0, Points.BATCH_SIZE, DIM);
+        return _target;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,84 @@
+package no.shz.projjava.jmh;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import no.shz.projjava.SpatialReferences;
+import no.shz.projjava.coordinateSystems.transformations.CoordinateTransformationFactory;
+import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
+import no.shz.projjava.coordinateSystems.transformations.TileCoordinateSink;
+
+/**
+ * Encoding the points of a vector tile from EPSG:4326, as zigzag encoded deltas of tile coordinates with an
+ * extent of 4096: projecting the points to EPSG:3857 and converting them in a second pass, against the fused
+ * TileCoordinateSink. The points are encoded in geometries of the given number of points. Scores are per
+ * point.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TileBenchmark {
+    private static final int DIM = 2;
+    private static final int ZOOM = 12;
+    private static final int TILE_X = 2154;
+    private static final int TILE_Y = 1231;
+
+    @Param({"16", "4096"})
+    public int geometrySize;
+
+    private IMathTransform _transform;
+    private TileCoordinateSink _sink;
+    private double[] _source;
+    private int[] _target;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        _transform = new CoordinateTransformationFactory().createFromCoordinateSystems(SpatialReferences.getByEpsg(4326), SpatialReferences.getByEpsg(3857)).getMathTransform();
+        _sink = new TileCoordinateSink(_transform, ZOOM, TILE_X, TILE_Y);
+        _source = Points.around(Points.BATCH_SIZE, DIM, new double[] {9.36, 48.76}, new double[] {0.05, 0.05});
+        _target = new int[Points.BATCH_SIZE * DIM];
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Points.BATCH_SIZE)
+    public int[] twoPasses() {
+        double tileSize = 2 * TileCoordinateSink.WEB_MERCATOR_HALF_SIZE / (1 << ZOOM);
+        double scale = TileCoordinateSink.DEFAULT_EXTENT / tileSize;
+        for (int first = 0; first < Points.BATCH_SIZE; first += geometrySize) {
+            double[] projected = new double[geometrySize * DIM];
+            _transform.transform(_source, first * DIM, projected, 0, geometrySize, DIM);
+            int cursorX = 0, cursorY = 0;
+            for (int i = 0, k = first * DIM; i < projected.length; i += DIM) {
+                int x = (int) Math.round((projected[i] + TileCoordinateSink.WEB_MERCATOR_HALF_SIZE) * scale - TILE_X * TileCoordinateSink.DEFAULT_EXTENT);
+                int y = (int) Math.round((TileCoordinateSink.WEB_MERCATOR_HALF_SIZE - projected[i + 1]) * scale - TILE_Y * TileCoordinateSink.DEFAULT_EXTENT);
+                int dx = x - cursorX, dy = y - cursorY;
+                _target[k++] = (dx << 1) ^ (dx >> 31);
+                _target[k++] = (dy << 1) ^ (dy >> 31);
+                cursorX = x;
+                cursorY = y;
+            }
+        }
+        return _target;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Points.BATCH_SIZE)
+    public int[] fused() {
+        for (int first = 0; first < Points.BATCH_SIZE; first += geometrySize) {
+            _sink.resetCursor();
+            _sink.writeDeltas(_source, first * DIM, geometrySize, DIM, _target, first * DIM, true);
+        }
+        return _target;
+    }
+}
\ No newline at end of file
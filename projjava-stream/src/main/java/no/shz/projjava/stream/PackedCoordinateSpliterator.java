@@ -0,0 +1,129 @@
+package no.shz.projjava.stream;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
+
+/**
+ * A spliterator over the transformed points of a packed coordinate buffer.
+ * <p>
+ * The points are read from the source buffer, which is not modified, and transformed in blocks of
+ * {@link TransformStreams#BLOCK_SIZE} points into a block buffer reused for the whole traversal, with
+ * one batch call per block. Each point is handed out as a new array holding its transformed ordinates.
+ * The spliterator splits at block boundaries, so the points of a parallel stream are transformed in
+ * whole blocks on every thread.
+ * <p>
+ * Points that can not be transformed are handed out with NaN ordinates instead of ending the traversal,
+ * see {@link IMathTransform#transform(double[], int, double[], int, int, int, byte[], int)}.
+ */
+public final class PackedCoordinateSpliterator implements Spliterator<double[]> {
+    /**
+     * Smallest number of points a spliterator keeps for itself when it is split.
+     */
+    private static final int MIN_SPLIT = 4 * TransformStreams.BLOCK_SIZE;
+
+    private final IMathTransform _transform;
+    private final double[] _src;
+    private final int _srcOff;
+    private final int _dim;
+    private final int _end;
+    private int _next;
+    private double[] _block;
+    private int _blockFirst;
+    private int _blockCount;
+
+    /**
+     * Creates a spliterator over packed points.
+     *
+     * @param transform the transform applied to the points
+     * @param src       array holding the source points
+     * @param srcOff    offset of the first ordinate in the source array
+     * @param numPts    number of points
+     * @param dim       number of ordinates per point, at least 2
+     */
+    public PackedCoordinateSpliterator(IMathTransform transform, double[] src, int srcOff, int numPts, int dim) {
+        this(transform, src, srcOff, dim, 0, numPts);
+        if (dim < 2) {
+            throw new IllegalArgumentException("A packed point must have at least 2 ordinates, got " + dim);
+        }
+        if (srcOff < 0 || numPts < 0 || srcOff + (long) numPts * dim > src.length) {
+            throw new IllegalArgumentException(numPts + " points of " + dim + " ordinates do not fit into the array");
+        }
+    }
+
+    private PackedCoordinateSpliterator(IMathTransform transform, double[] src, int srcOff, int dim, int first, int end) {
+        _transform = transform;
+        _src = src;
+        _srcOff = srcOff;
+        _dim = dim;
+        _next = first;
+        _end = end;
+    }
+
+    /**
+     * Transforms the block of points starting at the next point.
+     */
+    private void fill() {
+        if (_block == null) {
+            _block = new double[Math.min(_end - _next, TransformStreams.BLOCK_SIZE) * _dim];
+        }
+        _blockFirst = _next;
+        _blockCount = Math.min(_end - _next, TransformStreams.BLOCK_SIZE);
+        _transform.transform(_src, _srcOff + _next * _dim, _block, 0, _blockCount, _dim, null, 0);
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super double[]> action) {
+        if (_next >= _end) {
+            return false;
+        }
+        if (_next >= _blockFirst + _blockCount) {
+            fill();
+        }
+        int off = (_next - _blockFirst) * _dim;
+        _next++;
+        action.accept(Arrays.copyOfRange(_block, off, off + _dim));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super double[]> action) {
+        while (_next < _end) {
+            if (_next >= _blockFirst + _blockCount) {
+                fill();
+            }
+            int blockEnd = _blockFirst + _blockCount;
+            for (int off = (_next - _blockFirst) * _dim; _next < blockEnd; _next++, off += _dim) {
+                action.accept(Arrays.copyOfRange(_block, off, off + _dim));
+            }
+        }
+    }
+
+    /**
+     * Splits off the first half of the remaining points, rounded to whole blocks.
+     */
+    @Override
+    public Spliterator<double[]> trySplit() {
+        int remaining = _end - _next;
+        if (remaining < 2 * MIN_SPLIT) {
+            return null;
+        }
+        int middle = _next + remaining / 2 / TransformStreams.BLOCK_SIZE * TransformStreams.BLOCK_SIZE;
+        PackedCoordinateSpliterator prefix = new PackedCoordinateSpliterator(_transform, _src, _srcOff, _dim, _next, middle);
+        _next = middle;
+        _blockCount = 0;
+        return prefix;
+    }
+
+    @Override
+    public long estimateSize() {
+        return _end - _next;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
\ No newline at end of file
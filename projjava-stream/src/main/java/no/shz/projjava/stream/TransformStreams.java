@@ -0,0 +1,56 @@
+package no.shz.projjava.stream;
+
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
+
+/**
+ * Transforms streams of coordinate points with java.util.stream.
+ * <p>
+ * The streams are lazy and transform their points in blocks of {@link #BLOCK_SIZE} points with the batch
+ * methods of the transform, reusing one block buffer per spliterator, so a stream over a source larger than
+ * the memory, such as the lines of a file, is transformed with a bounded footprint. Only the transformed
+ * points handed to the stream are new arrays. Points that can not be transformed come out with NaN
+ * ordinates instead of ending the stream.
+ * <p>
+ * The core library keeps the Java 7 / Android baseline, so the stream support lives in this module, which
+ * needs Java 8.
+ */
+public final class TransformStreams {
+    /**
+     * Number of points transformed with one batch call, the block size of the library's batch transforms.
+     */
+    public static final int BLOCK_SIZE = 256;
+
+    private TransformStreams() {
+    }
+
+    /**
+     * Transforms a stream of points. The returned stream is parallel if the source stream is, and closing
+     * it closes the source stream.
+     *
+     * @param transform the transform applied to the points
+     * @param points    the points, each one an array of at least 2 ordinates which is not modified
+     * @return a stream of the transformed points, in the same order
+     */
+    public static Stream<double[]> transformStream(IMathTransform transform, Stream<double[]> points) {
+        Stream<double[]> stream = StreamSupport.stream(new TransformingSpliterator(transform, points.spliterator()), points.isParallel());
+        return stream.onClose(points::close);
+    }
+
+    /**
+     * Creates a stream of the transformed points of a packed coordinate buffer, see {@link PackedCoordinateSpliterator}.
+     *
+     * @param transform the transform applied to the points
+     * @param src       array holding the source points, which is not modified
+     * @param srcOff    offset of the first ordinate in the source array
+     * @param numPts    number of points
+     * @param dim       number of ordinates per point, at least 2
+     * @param parallel  whether the stream is parallel
+     * @return a stream of the transformed points, in the same order
+     */
+    public static Stream<double[]> transformStream(IMathTransform transform, double[] src, int srcOff, int numPts, int dim, boolean parallel) {
+        return StreamSupport.stream(new PackedCoordinateSpliterator(transform, src, srcOff, numPts, dim), parallel);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,126 @@
+package no.shz.projjava.stream;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
+
+/**
+ * A spliterator transforming the points of another spliterator.
+ * <p>
+ * The points are pulled from the source in blocks of up to {@link TransformStreams#BLOCK_SIZE} points,
+ * packed into a block buffer reused for the whole traversal and transformed with one batch call per block,
+ * so no more than one block is held at a time however many points the source delivers. A block holds
+ * points with the same number of ordinates; a point of another size starts a new block.
+ */
+final class TransformingSpliterator implements Spliterator<double[]> {
+    private final IMathTransform _transform;
+    private final Spliterator<double[]> _source;
+    private final Consumer<double[]> _collector;
+    private double[] _block = new double[TransformStreams.BLOCK_SIZE * 3];
+    private int _dim;
+    private int _count;
+    private int _next;
+    private double[] _pending;
+
+    TransformingSpliterator(IMathTransform transform, Spliterator<double[]> source) {
+        _transform = transform;
+        _source = source;
+        _collector = new Consumer<double[]>() {
+            @Override
+            public void accept(double[] point) {
+                collect(point);
+            }
+        };
+    }
+
+    /**
+     * Adds a point pulled from the source to the block, or keeps it for the next block if its size differs.
+     */
+    private void collect(double[] point) {
+        if (point == null || point.length < 2) {
+            throw new IllegalArgumentException("A point must have at least 2 ordinates");
+        }
+        if (_count == 0) {
+            _dim = point.length;
+            if (_block.length < TransformStreams.BLOCK_SIZE * _dim) {
+                _block = new double[TransformStreams.BLOCK_SIZE * _dim];
+            }
+        } else if (point.length != _dim) {
+            _pending = point;
+            return;
+        }
+        System.arraycopy(point, 0, _block, _count * _dim, _dim);
+        _count++;
+    }
+
+    /**
+     * Pulls the next block of points from the source and transforms it.
+     *
+     * @return false if the source has no more points
+     */
+    private boolean fill() {
+        _count = 0;
+        _next = 0;
+        if (_pending != null) {
+            double[] point = _pending;
+            _pending = null;
+            collect(point);
+        }
+        while (_count < TransformStreams.BLOCK_SIZE && _pending == null && _source.tryAdvance(_collector)) {
+            //collect does the work
+        }
+        if (_count == 0) {
+            return false;
+        }
+        _transform.transform(_block, 0, _block, 0, _count, _dim, null, 0);
+        return true;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super double[]> action) {
+        if (_next >= _count && !fill()) {
+            return false;
+        }
+        int off = _next * _dim;
+        _next++;
+        action.accept(Arrays.copyOfRange(_block, off, off + _dim));
+        return true;
+    }
+
+    @Override
+    public void forEachRemaining(Consumer<? super double[]> action) {
+        while (_next < _count || fill()) {
+            for (int off = _next * _dim; _next < _count; _next++, off += _dim) {
+                action.accept(Arrays.copyOfRange(_block, off, off + _dim));
+            }
+        }
+    }
+
+    /**
+     * Splits the source, as long as no points of the source are held in the block.
+     */
+    @Override
+    public Spliterator<double[]> trySplit() {
+        if (_next < _count || _pending != null) {
+            return null;
+        }
+        Spliterator<double[]> prefix = _source.trySplit();
+        return prefix == null ? null : new TransformingSpliterator(_transform, prefix);
+    }
+
+    @Override
+    public long estimateSize() {
+        long size = _source.estimateSize();
+        if (size == Long.MAX_VALUE) {
+            return size;
+        }
+        return size + (_count - _next) + (_pending != null ? 1 : 0);
+    }
+
+    @Override
+    public int characteristics() {
+        return (_source.characteristics() & (ORDERED | SIZED | SUBSIZED)) | NONNULL;
+    }
+}
\ No newline at end of file
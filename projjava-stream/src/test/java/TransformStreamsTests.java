@@ -0,0 +1,80 @@
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import no.shz.projjava.SpatialReferences;
+import no.shz.projjava.coordinateSystems.transformations.CoordinateTransformationFactory;
+import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
+import no.shz.projjava.stream.TransformStreams;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TransformStreamsTests {
+
+    private static IMathTransform createTransform() throws IOException {
+        return new CoordinateTransformationFactory().createFromCoordinateSystems(SpatialReferences.getByEpsg(4326), SpatialReferences.getByEpsg(32633)).getMathTransform();
+    }
+
+    @Test
+    public final void TestTransformStream() throws IOException {
+        IMathTransform transform = createTransform();
+
+        //Mixed 2D and 3D points, more than one block
+        List<double[]> points = new ArrayList<double[]>();
+        for (int i = 0; i < 1000; i++) {
+            double lon = 10 + (i % 100) * 0.08;
+            double lat = 50 + (i / 100) * 0.7;
+            points.add(i % 7 == 0 ? new double[]{lon, lat, i} : new double[]{lon, lat});
+        }
+        List<double[]> result = TransformStreams.transformStream(transform, points.stream()).collect(Collectors.toList());
+        assertEquals(points.size(), result.size());
+        for (int i = 0; i < points.size(); i++) {
+            double[] expected = transform.transform(points.get(i));
+            assertTrue(Arrays.equals(expected, result.get(i)));
+        }
+
+        List<double[]> parallel = TransformStreams.transformStream(transform, points.parallelStream()).collect(Collectors.toList());
+        for (int i = 0; i < points.size(); i++) {
+            assertTrue(Arrays.equals(result.get(i), parallel.get(i)));
+        }
+
+        double[] nan = TransformStreams.transformStream(transform, Stream.of(new double[]{Double.NaN, 60})).findFirst().get();
+        assertTrue(Double.isNaN(nan[0]) && Double.isNaN(nan[1]));
+    }
+
+    @Test
+    public final void TestPackedCoordinateStream() throws IOException {
+        IMathTransform transform = createTransform();
+
+        int n = 10000;
+        double[] packed = new double[3 * n];
+        for (int i = 0; i < n; i++) {
+            packed[3 * i] = 10 + (i % 100) * 0.08;
+            packed[3 * i + 1] = 50 + (i / 100) * 0.07;
+            packed[3 * i + 2] = i % 50;
+        }
+        double[] copy = packed.clone();
+        double[] expected = new double[3 * n];
+        transform.transform(packed, 0, expected, 0, n, 3);
+
+        List<double[]> result = TransformStreams.transformStream(transform, packed, 0, n, 3, true).collect(Collectors.toList());
+        assertTrue(Arrays.equals(copy, packed));
+        assertEquals(n, result.size());
+        for (int i = 0; i < n; i++) {
+            assertTrue(Arrays.equals(Arrays.copyOfRange(expected, 3 * i, 3 * i + 3), result.get(i)));
+        }
+
+        long count = TransformStreams.transformStream(transform, packed, 3, n - 1, 3, true).skip(100).limit(5000).count();
+        assertEquals(5000, count);
+
+        double sum = IntStream.range(0, n).mapToDouble(i -> expected[3 * i]).sum();
+        assertEquals(sum, TransformStreams.transformStream(transform, packed, 0, n, 3, false).mapToDouble(p -> p[0]).sum(), 1e-3);
+    }
+}
@@ -1,7 +1,6 @@
 package no.shz.projjava.converters.wellKnownText;
 
 import java.io.IOException;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Locale;
 
@@ -31,7 +30,6 @@ import no.shz.projjava.coordinateSystems.ProjectionParameter;
 import no.shz.projjava.coordinateSystems.Unit;
 import no.shz.projjava.coordinateSystems.Wgs84ConversionInfo;
 import no.shz.utilities.Ref;
-import no.shz.utilities.TextReader;
 
 /**
  * Copyright 2005 - 2009 - Morten Nielsen (www.sharpgis.net)
@@ -99,9 +97,7 @@ public class CoordinateSystemWktReader {
      */
     public static IInfo parse(String wkt) throws IOException {
         IInfo returnObject;
-        StringReader stringReader = new StringReader(wkt);
-        TextReader reader = new TextReader(stringReader);
-        WktStreamTokenizer tokenizer = new WktStreamTokenizer(reader);
+        WktStreamTokenizer tokenizer = new WktStreamTokenizer(wkt);
         tokenizer.nextToken();
         String objectName = tokenizer.getStringValue();
         switch (objectName) {
@@ -130,9 +126,6 @@ public class CoordinateSystemWktReader {
                 throw new IllegalArgumentException(String.format("'%1$s' is not recognized.", objectName));
 
         }
-        reader.close();
-        stringReader.close();
-
         return returnObject;
     }
 
@@ -151,7 +144,7 @@ public class CoordinateSystemWktReader {
         String authority = "";
         long authorityCode = -1;
         tokenizer.nextToken();
-        if (tokenizer.getStringValue().equals(",")) {
+        if (tokenizer.isToken(",")) {
             Ref<String> tempRef_authority = new Ref<>(authority);
             Ref<Long> tempRef_authorityCode = new Ref<>(authorityCode);
             tokenizer.readAuthority(tempRef_authority, tempRef_authorityCode);
@@ -177,7 +170,7 @@ public class CoordinateSystemWktReader {
         String authority = "";
         long authorityCode = -1;
         tokenizer.nextToken();
-        if (tokenizer.getStringValue().equals(",")) {
+        if (tokenizer.isToken(",")) {
             Ref<String> tempRef_authority = new Ref<>(authority);
             Ref<Long> tempRef_authorityCode = new Ref<>(authorityCode);
             tokenizer.readAuthority(tempRef_authority, tempRef_authorityCode);
@@ -203,7 +196,7 @@ public class CoordinateSystemWktReader {
         String authority = "";
         long authorityCode = -1;
         tokenizer.nextToken();
-        if (tokenizer.getStringValue().equals(",")) {
+        if (tokenizer.isToken(",")) {
             Ref<String> tempRef_authority = new Ref<>(authority);
             Ref<Long> tempRef_authorityCode = new Ref<>(authorityCode);
             tokenizer.readAuthority(tempRef_authority, tempRef_authorityCode);
@@ -221,7 +214,7 @@ public class CoordinateSystemWktReader {
      * @return An AxisInfo object.
      */
     private static AxisInfo readAxis(WktStreamTokenizer tokenizer) throws IOException {
-        if (!tokenizer.getStringValue().equals("AXIS")) {
+        if (!tokenizer.isToken("AXIS")) {
             tokenizer.readToken("AXIS");
         }
         tokenizer.readToken("[");
@@ -288,7 +281,7 @@ public class CoordinateSystemWktReader {
         tokenizer.nextToken();
         info.Dz = tokenizer.getNumericValue();
         tokenizer.nextToken();
-        if (tokenizer.getStringValue().equals(",")) {
+        if (tokenizer.isToken(",")) {
             tokenizer.nextToken();
             info.Ex = tokenizer.getNumericValue();
 
@@ -301,12 +294,12 @@ public class CoordinateSystemWktReader {
             info.Ez = tokenizer.getNumericValue();
 
             tokenizer.nextToken();
-            if (tokenizer.getStringValue().equals(",")) {
+            if (tokenizer.isToken(",")) {
                 tokenizer.nextToken();
                 info.Ppm = tokenizer.getNumericValue();
             }
         }
-        if (!tokenizer.getStringValue().equals("]")) {
+        if (!tokenizer.isToken("]")) {
             tokenizer.readToken("]");
         }
         return info;
@@ -332,7 +325,7 @@ public class CoordinateSystemWktReader {
 
         long authorityCode = -1;
 
-        if (tokenizer.getStringValue().equals(","))
+        if (tokenizer.isToken(","))
         {
             Ref<String> tempRef_authority = new Ref<>(authority);
             Ref<Long> tempRef_authorityCode = new Ref<>(authorityCode);
@@ -357,7 +350,7 @@ public class CoordinateSystemWktReader {
         tokenizer.readToken(",");
         tokenizer.readToken("PARAMETER");
         ArrayList<ProjectionParameter> paramList = new ArrayList<>();
-        while (tokenizer.getStringValue().equals("PARAMETER")) {
+        while (tokenizer.isToken("PARAMETER")) {
             tokenizer.readToken("[");
             String paramName = tokenizer.readDoubleQuotedWord();
             tokenizer.readToken(",");
@@ -392,19 +385,19 @@ public class CoordinateSystemWktReader {
         long authorityCode = -1;
         tokenizer.nextToken();
         ArrayList<AxisInfo> axes = new ArrayList<>(2);
-        if (tokenizer.getStringValue().equals(",")) {
+        if (tokenizer.isToken(",")) {
             tokenizer.nextToken();
-            while (tokenizer.getStringValue().equals("AXIS")) {
+            while (tokenizer.isToken("AXIS")) {
                 axes.add(readAxis(tokenizer));
                 tokenizer.nextToken();
-                if (tokenizer.getStringValue().equals(",")) {
+                if (tokenizer.isToken(",")) {
                     tokenizer.nextToken();
                 }
             }
-            if (tokenizer.getStringValue().equals(",")) {
+            if (tokenizer.isToken(",")) {
                 tokenizer.nextToken();
             }
-            if (tokenizer.getStringValue().equals("AUTHORITY")) {
+            if (tokenizer.isToken("AUTHORITY")) {
                 Ref<String> tempRef_authority = new Ref<>(authority);
                 Ref<Long> tempRef_authorityCode = new Ref<>(authorityCode);
                 tokenizer.readAuthority(tempRef_authority, tempRef_authorityCode);
@@ -442,19 +435,19 @@ public class CoordinateSystemWktReader {
         long authorityCode = -1;
         tokenizer.nextToken();
         ArrayList<AxisInfo> info = new ArrayList<>(2);
-        if (tokenizer.getStringValue().equals(",")) {
+        if (tokenizer.isToken(",")) {
             tokenizer.nextToken();
-            while (tokenizer.getStringValue().equals("AXIS")) {
+            while (tokenizer.isToken("AXIS")) {
                 info.add(readAxis(tokenizer));
                 tokenizer.nextToken();
-                if (tokenizer.getStringValue().equals(",")) {
+                if (tokenizer.isToken(",")) {
                     tokenizer.nextToken();
                 }
             }
-            if (tokenizer.getStringValue().equals(",")) {
+            if (tokenizer.isToken(",")) {
                 tokenizer.nextToken();
             }
-            if (tokenizer.getStringValue().equals("AUTHORITY")) {
+            if (tokenizer.isToken("AUTHORITY")) {
                 Ref<String> tempRef_authority;
                 tempRef_authority = new Ref<>(authority);
                 Ref<Long> tempRef_authorityCode;
@@ -489,12 +482,12 @@ public class CoordinateSystemWktReader {
         tokenizer.readToken("SPHEROID");
         IEllipsoid ellipsoid = readEllipsoid(tokenizer);
         tokenizer.nextToken();
-        while (tokenizer.getStringValue().equals(",")) {
+        while (tokenizer.isToken(",")) {
             tokenizer.nextToken();
-            if (tokenizer.getStringValue().equals("TOWGS84")) {
+            if (tokenizer.isToken("TOWGS84")) {
                 wgsInfo = readWGS84ConversionInfo(tokenizer);
                 tokenizer.nextToken();
-            } else if (tokenizer.getStringValue().equals("AUTHORITY")) {
+            } else if (tokenizer.isToken("AUTHORITY")) {
                 Ref<String> tempRef_authority = new Ref<>(authority);
                 Ref<Long> tempRef_authorityCode = new Ref<>(authorityCode);
                 tokenizer.readAuthority(tempRef_authority, tempRef_authorityCode);
@@ -522,7 +515,7 @@ public class CoordinateSystemWktReader {
         tokenizer.nextToken();
         String authority = "";
         long authorityCode = -1;
-        if (tokenizer.getStringValue().equals(",")) {
+        if (tokenizer.isToken(",")) {
             Ref<String> tempRef_authority;
             tempRef_authority = new Ref<>(authority);
             Ref<Long> tempRef_authorityCode = new Ref<>(authorityCode);
@@ -0,0 +1,337 @@
+package no.shz.projjava.converters.wellKnownText.io;
+
+import java.nio.CharBuffer;
+import java.util.Locale;
+
+import no.shz.projjava.converters.wellKnownText.TokenType;
+
+/**
+ * ProjJava - ported by imshz (https://github.com/imshz/projjava)
+ *
+ * ProjJava is a android compatible point-to-point coordinate conversions java library.
+ *
+ * This library is a port of Proj.NET - ProjNet is free software published under
+ * the terms of GNU Lesser General Public License, as published by
+ * the Free Software Foundation; either version 2 of the License, or
+ * (at your option) any later version.
+ *
+ * ProjJava is published under the same license and will allways follow the same
+ * restrictions as the original project.
+ */
+
+/**
+ * Splits Well-Known Text held in memory into tokens.
+ * <p>
+ * The lexer scans the characters directly and describes the current token by its offset and length in
+ * the text, so reading a token allocates nothing. The token text is only copied into a String when
+ * {@link #getStringValue()} is called, and numbers are parsed straight from the text.
+ * <p>
+ * The tokens are the same as those of {@link StreamTokenizer}: a word is a letter followed by letters,
+ * digits or underscores, a number is an optional sign, digits, an optional fraction and an optional
+ * exponent, and every other character that is not white space is a symbol of its own. White space is
+ * skipped.
+ */
+public class WktLexer {
+    /**
+     * Largest integer up to which every integer is exactly representable as a double.
+     */
+    private static final long MAX_EXACT_SIGNIFICAND = 1L << 53;
+
+    /**
+     * Powers of ten that are exactly representable as a double.
+     */
+    private static final double[] EXACT_POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final CharSequence _text;
+    private final int _length;
+
+    private int _position;
+    private TokenType _tokenType = TokenType.Eof;
+    private int _tokenOffset;
+    private int _tokenLength;
+    private String _tokenString = "";
+
+    /**
+     * Initializes a lexer over a character sequence.
+     *
+     * @param text The Well-Known Text.
+     */
+    public WktLexer(CharSequence text) {
+        if (text == null) {
+            throw new IllegalArgumentException("text");
+        }
+        _text = text;
+        _length = text.length();
+    }
+
+    /**
+     * Initializes a lexer over part of a character array. The array is not copied.
+     *
+     * @param chars  Array holding the Well-Known Text.
+     * @param offset Offset of the text in the array.
+     * @param length Number of characters of the text.
+     */
+    public WktLexer(char[] chars, int offset, int length) {
+        this(CharBuffer.wrap(chars, offset, length).slice());
+    }
+
+    /**
+     * Reads the next token that is not white space.
+     *
+     * @return The TokenType of the token, {@link TokenType#Eof} at the end of the text.
+     */
+    public final TokenType nextToken() {
+        int pos = _position;
+        while (pos < _length && isWhitespace(_text.charAt(pos))) {
+            pos++;
+        }
+        _tokenOffset = pos;
+        _tokenString = null;
+        if (pos >= _length) {
+            _position = pos;
+            _tokenLength = 0;
+            _tokenType = TokenType.Eof;
+            return _tokenType;
+        }
+
+        char c = _text.charAt(pos);
+        if (isLetter(c)) {
+            pos++;
+            while (pos < _length) {
+                char next = _text.charAt(pos);
+                if (!isLetter(next) && !isDigit(next) && next != '_') {
+                    break;
+                }
+                pos++;
+            }
+            _tokenType = TokenType.Word;
+        } else if (isAsciiDigit(c) || ((c == '-' || c == '+') && pos + 1 < _length && isAsciiDigit(_text.charAt(pos + 1)))) {
+            pos = scanNumber(pos);
+            _tokenType = TokenType.Number;
+        } else {
+            pos++;
+            _tokenType = TokenType.Symbol;
+        }
+        _tokenLength = pos - _tokenOffset;
+        _position = pos;
+        return _tokenType;
+    }
+
+    private int scanNumber(int pos) {
+        pos++;
+        pos = skipDigits(pos);
+        if (pos + 1 < _length && _text.charAt(pos) == '.' && isAsciiDigit(_text.charAt(pos + 1))) {
+            pos = skipDigits(pos + 1);
+        }
+        if (pos + 1 < _length && (_text.charAt(pos) == 'E' || _text.charAt(pos) == 'e')) {
+            int exponent = pos + 1;
+            if ((_text.charAt(exponent) == '-' || _text.charAt(exponent) == '+') && exponent + 1 < _length) {
+                exponent++;
+            }
+            if (isAsciiDigit(_text.charAt(exponent))) {
+                pos = skipDigits(exponent);
+            }
+        }
+        return pos;
+    }
+
+    private int skipDigits(int pos) {
+        while (pos < _length && isAsciiDigit(_text.charAt(pos))) {
+            pos++;
+        }
+        return pos;
+    }
+
+    /**
+     * Reads the text up to the next occurrence of a character, which becomes the current token.
+     * White space in the text is preserved.
+     *
+     * @param terminator The character to read up to.
+     * @return The text between the current token and the terminator.
+     * @throws IllegalArgumentException The terminator does not occur in the rest of the text.
+     */
+    protected final String readUntil(char terminator) {
+        int start = _position;
+        int pos = start;
+        while (pos < _length && _text.charAt(pos) != terminator) {
+            pos++;
+        }
+        if (pos >= _length) {
+            _tokenOffset = pos;
+            _tokenLength = 0;
+            _tokenType = TokenType.Eof;
+            _tokenString = "";
+            _position = pos;
+            throw new IllegalArgumentException(String.format(Locale.US, "Expecting ('%1$s') but reached the end of the text at line %2$s column %3$s.", terminator, getLineNumber(), getColumn()));
+        }
+        _tokenOffset = pos;
+        _tokenLength = 1;
+        _tokenType = TokenType.Symbol;
+        _tokenString = null;
+        _position = pos + 1;
+        return _text.subSequence(start, pos).toString();
+    }
+
+    /**
+     * Gets the token type of the current token.
+     */
+    public final TokenType getTokenType() {
+        return _tokenType;
+    }
+
+    /**
+     * Gets the offset of the current token in the text.
+     */
+    public final int getTokenOffset() {
+        return _tokenOffset;
+    }
+
+    /**
+     * Gets the number of characters of the current token.
+     */
+    public final int getTokenLength() {
+        return _tokenLength;
+    }
+
+    /**
+     * Checks whether the current token is a given text, without copying the token.
+     *
+     * @param text The text to compare with.
+     * @return True if the current token consists of exactly the characters of the text.
+     */
+    public final boolean isToken(CharSequence text) {
+        int length = text.length();
+        if (length != _tokenLength) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (_text.charAt(_tokenOffset + i) != text.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the text of the current token. The String is created on the first call for each token.
+     */
+    public final String getStringValue() {
+        String value = _tokenString;
+        if (value == null) {
+            value = _text.subSequence(_tokenOffset, _tokenOffset + _tokenLength).toString();
+            _tokenString = value;
+        }
+        return value;
+    }
+
+    /**
+     * Gets the value of the current token, which must be a number.
+     * <p>
+     * Numbers with at most 53 bits of significand and a decimal exponent of at most 22 are converted
+     * with a single exact multiplication or division, which is correctly rounded. Other numbers are
+     * handed to {@link Double#parseDouble(String)}.
+     *
+     * @throws IllegalArgumentException Current token is not a number.
+     */
+    public final double getNumericValue() {
+        if (_tokenType != TokenType.Number) {
+            String s = String.format(Locale.US, "The token '%1$s' is not a number at line %2$s column %3$s.", getStringValue(), getLineNumber(), getColumn());
+            throw new IllegalArgumentException(s);
+        }
+        int pos = _tokenOffset;
+        int end = _tokenOffset + _tokenLength;
+        boolean negative = false;
+        char c = _text.charAt(pos);
+        if (c == '-' || c == '+') {
+            negative = c == '-';
+            pos++;
+        }
+
+        long significand = 0;
+        int exponent = 0;
+        boolean exact = true;
+        boolean fraction = false;
+        for (; pos < end; pos++) {
+            c = _text.charAt(pos);
+            if (c == '.') {
+                fraction = true;
+                continue;
+            }
+            if (!isAsciiDigit(c)) {
+                break;
+            }
+            if (significand >= MAX_EXACT_SIGNIFICAND / 10) {
+                exact = false;
+                break;
+            }
+            significand = significand * 10 + (c - '0');
+            if (fraction) {
+                exponent--;
+            }
+        }
+        if (exact && pos < end) {
+            //Exponent
+            pos++;
+            boolean negativeExponent = false;
+            c = _text.charAt(pos);
+            if (c == '-' || c == '+') {
+                negativeExponent = c == '-';
+                pos++;
+            }
+            int value = 0;
+            for (; pos < end && value < 1000; pos++) {
+                value = value * 10 + (_text.charAt(pos) - '0');
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+
+        if (exact && exponent >= -22 && exponent <= 22) {
+            double value = exponent < 0 ? significand / EXACT_POWERS_OF_TEN[-exponent] : significand * EXACT_POWERS_OF_TEN[exponent];
+            return negative ? -value : value;
+        }
+        return Double.parseDouble(getStringValue());
+    }
+
+    /**
+     * The line number of the current token.
+     */
+    public final int getLineNumber() {
+        int line = 1;
+        for (int i = 0; i < _tokenOffset; i++) {
+            if (_text.charAt(i) == '\n') {
+                line++;
+            }
+        }
+        return line;
+    }
+
+    /**
+     * The column number just after the current token.
+     */
+    public final int getColumn() {
+        int lineStart = _tokenOffset;
+        while (lineStart > 0 && _text.charAt(lineStart - 1) != '\n') {
+            lineStart--;
+        }
+        return _tokenOffset + _tokenLength - lineStart + 1;
+    }
+
+    private static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isDigit(char c) {
+        return isAsciiDigit(c) || c > 0x7f && Character.isDigit(c);
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c > 0x7f && Character.isLetter(c);
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t' || Character.isWhitespace(c) || Character.isISOControl(c);
+    }
+}
\ No newline at end of file
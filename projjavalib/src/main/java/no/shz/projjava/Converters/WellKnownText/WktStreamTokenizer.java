@@ -1,12 +1,9 @@
 package no.shz.projjava.converters.wellKnownText;
 
-import java.io.IOException;
-import java.text.NumberFormat;
 import java.util.Locale;
 
-import no.shz.projjava.converters.wellKnownText.io.StreamTokenizer;
+import no.shz.projjava.converters.wellKnownText.io.WktLexer;
 import no.shz.utilities.Ref;
-import no.shz.utilities.TextReader;
 
 /**
  * Copyright 2005 - 2009 - Morten Nielsen (www.sharpgis.net)
@@ -62,18 +59,18 @@ import no.shz.utilities.TextReader;
  */
 
 /**
- * Reads a stream of Well Known Text (wkt) string and returns a stream of tokens.
+ * Reads a Well Known Text (wkt) string and returns a stream of tokens.
  */
-class WktStreamTokenizer extends StreamTokenizer {
+class WktStreamTokenizer extends WktLexer {
 
     /**
      * Initializes a new instance of the WktStreamTokenizer class.
-     * The WktStreamTokenizer class ais in reading WKT streams.
+     * The WktStreamTokenizer class ais in reading WKT strings.
      *
-     * @param reader A TextReader that contains
+     * @param wkt The Well-Known Text to read.
      */
-    WktStreamTokenizer(TextReader reader) {
-        super(reader, true);
+    WktStreamTokenizer(CharSequence wkt) {
+        super(wkt);
     }
 
     /**
@@ -81,9 +78,9 @@ class WktStreamTokenizer extends StreamTokenizer {
      *
      * @param expectedToken The expected token.
      */
-    final void readToken(String expectedToken) throws IOException {
+    final void readToken(String expectedToken) {
         this.nextToken();
-        if (!this.getStringValue().equals(expectedToken)) {
+        if (!this.isToken(expectedToken)) {
             throw new IllegalArgumentException(String.format(Locale.US, "Expecting ('%4$s') but got a '%1$s' at line %2$s column %3$s.", this.getStringValue(), this.getLineNumber(), this.getColumn(), expectedToken));
         }
     }
@@ -94,34 +91,33 @@ class WktStreamTokenizer extends StreamTokenizer {
      *
      * @return The string inside the double quotes.
      */
-    final String readDoubleQuotedWord() throws IOException {
-        String word = "";
+    final String readDoubleQuotedWord() {
         readToken("\"");
-        nextToken(false);
-        while (!getStringValue().equals("\"")) {
-            word = word + this.getStringValue();
-            nextToken(false);
-        }
-        return word;
+        return readUntil('"');
     }
 
     /**
      * Reads the authority and authority code.
      *
      * @param authority     String to place the authority in.
-     * @param authorityCode String to place the authority code in.
+     * @param authorityCode String to place the authority code in. Left unchanged if the code does not start with a number.
      */
-    final void readAuthority(Ref<String> authority, Ref<Long> authorityCode) throws IOException {
-        if (!getStringValue().equals("AUTHORITY")) {
+    final void readAuthority(Ref<String> authority, Ref<Long> authorityCode) {
+        if (!isToken("AUTHORITY")) {
             readToken("AUTHORITY");
         }
         readToken("[");
         authority.value = this.readDoubleQuotedWord();
         readToken(",");
 
+        String code = this.readDoubleQuotedWord().trim();
+        int end = code.startsWith("-") ? 1 : 0;
+        while (end < code.length() && code.charAt(end) >= '0' && code.charAt(end) <= '9') {
+            end++;
+        }
         try {
-            authorityCode.value = NumberFormat.getNumberInstance().parse(this.readDoubleQuotedWord()).longValue();
-        } catch (Exception ignored) {
+            authorityCode.value = Long.parseLong(code.substring(0, end));
+        } catch (NumberFormatException ignored) {
         }
         readToken("]");
     }
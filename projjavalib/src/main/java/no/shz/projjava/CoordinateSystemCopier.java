@@ -0,0 +1,160 @@
+package no.shz.projjava;
+
+import java.util.ArrayList;
+
+import no.shz.projjava.coordinateSystems.AngularUnit;
+import no.shz.projjava.coordinateSystems.AxisInfo;
+import no.shz.projjava.coordinateSystems.CoordinateSystem;
+import no.shz.projjava.coordinateSystems.Ellipsoid;
+import no.shz.projjava.coordinateSystems.GeographicCoordinateSystem;
+import no.shz.projjava.coordinateSystems.HorizontalDatum;
+import no.shz.projjava.coordinateSystems.IAngularUnit;
+import no.shz.projjava.coordinateSystems.ICoordinateSystem;
+import no.shz.projjava.coordinateSystems.IEllipsoid;
+import no.shz.projjava.coordinateSystems.IGeographicCoordinateSystem;
+import no.shz.projjava.coordinateSystems.IHorizontalDatum;
+import no.shz.projjava.coordinateSystems.ILinearUnit;
+import no.shz.projjava.coordinateSystems.IPrimeMeridian;
+import no.shz.projjava.coordinateSystems.IProjection;
+import no.shz.projjava.coordinateSystems.LinearUnit;
+import no.shz.projjava.coordinateSystems.PrimeMeridian;
+import no.shz.projjava.coordinateSystems.ProjectedCoordinateSystem;
+import no.shz.projjava.coordinateSystems.Projection;
+import no.shz.projjava.coordinateSystems.ProjectionParameter;
+import no.shz.projjava.coordinateSystems.Wgs84ConversionInfo;
+
+/**
+ * Deep copies of the coordinate systems read from the Well-Known Text of the EPSG codes, so that
+ * {@link SpatialReferences} can parse a code once and still give each caller an instance of its own.
+ * <p>
+ * Copying builds the same objects the Well-Known Text reader builds, without lexing and parsing the text
+ * again. The geographic and projected coordinate systems are copied, which are all the EPSG definitions;
+ * for any other kind of coordinate system {@link #copy} returns null.
+ */
+final class CoordinateSystemCopier {
+    private CoordinateSystemCopier() {
+    }
+
+    /**
+     * Copies a coordinate system and all the objects it refers to.
+     *
+     * @param cs coordinate system
+     * @return the copy, or null if the kind of coordinate system can not be copied
+     */
+    static ICoordinateSystem copy(ICoordinateSystem cs) {
+        if (cs instanceof ProjectedCoordinateSystem) {
+            return copy((ProjectedCoordinateSystem) cs);
+        }
+        if (cs instanceof GeographicCoordinateSystem) {
+            return copy((GeographicCoordinateSystem) cs);
+        }
+        return null;
+    }
+
+    private static ProjectedCoordinateSystem copy(ProjectedCoordinateSystem pcs) {
+        IGeographicCoordinateSystem gcs = pcs.getGeographicCoordinateSystem();
+        IGeographicCoordinateSystem gcsCopy = gcs instanceof GeographicCoordinateSystem ? copy((GeographicCoordinateSystem) gcs) : gcs;
+        IHorizontalDatum datum = pcs.getHorizontalDatum();
+        //The reader gives the projected coordinate system the datum of its geographic coordinate system
+        IHorizontalDatum datumCopy = gcs != null && datum == gcs.getHorizontalDatum() ? gcsCopy.getHorizontalDatum() : copy(datum);
+        ProjectedCoordinateSystem copy = new ProjectedCoordinateSystem(datumCopy, gcsCopy, copy(pcs.getLinearUnit()), copy(pcs.getProjection()), copyAxes(pcs),
+                pcs.getName(), pcs.getAuthority(), pcs.getAuthorityCode(), pcs.getAlias(), pcs.getRemarks(), pcs.getAbbreviation());
+        copyEnvelope(pcs, copy);
+        return copy;
+    }
+
+    private static GeographicCoordinateSystem copy(GeographicCoordinateSystem gcs) {
+        GeographicCoordinateSystem copy = new GeographicCoordinateSystem(copy(gcs.getAngularUnit()), copy(gcs.getHorizontalDatum()), copy(gcs.getPrimeMeridian()), copyAxes(gcs),
+                gcs.getName(), gcs.getAuthority(), gcs.getAuthorityCode(), gcs.getAlias(), gcs.getAbbreviation(), gcs.getRemarks());
+        ArrayList<Wgs84ConversionInfo> conversions = gcs.getWGS84ConversionInfo();
+        if (conversions != null) {
+            ArrayList<Wgs84ConversionInfo> conversionsCopy = new ArrayList<>(conversions.size());
+            for (Wgs84ConversionInfo conversion : conversions) {
+                conversionsCopy.add(copy(conversion));
+            }
+            copy.setWGS84ConversionInfo(conversionsCopy);
+        }
+        copyEnvelope(gcs, copy);
+        return copy;
+    }
+
+    private static ArrayList<AxisInfo> copyAxes(CoordinateSystem cs) {
+        ArrayList<AxisInfo> axes = cs.getAxisInfo();
+        if (axes == null) {
+            return null;
+        }
+        ArrayList<AxisInfo> copy = new ArrayList<>(axes.size());
+        for (AxisInfo axis : axes) {
+            copy.add(axis == null ? null : new AxisInfo(axis.getName(), axis.getOrientation()));
+        }
+        return copy;
+    }
+
+    private static void copyEnvelope(CoordinateSystem cs, CoordinateSystem copy) {
+        double[] envelope = cs.getDefaultEnvelope();
+        if (envelope != null) {
+            copy.setDefaultEnvelope(envelope.clone());
+        }
+    }
+
+    private static IHorizontalDatum copy(IHorizontalDatum datum) {
+        if (!(datum instanceof HorizontalDatum)) {
+            return datum;
+        }
+        return new HorizontalDatum(copy(datum.getEllipsoid()), copy(datum.getWgs84Parameters()), datum.getDatumType(),
+                datum.getName(), datum.getAuthority(), datum.getAuthorityCode(), datum.getAlias(), datum.getRemarks(), datum.getAbbreviation());
+    }
+
+    private static Wgs84ConversionInfo copy(Wgs84ConversionInfo info) {
+        if (info == null) {
+            return null;
+        }
+        return new Wgs84ConversionInfo(info.Dx, info.Dy, info.Dz, info.Ex, info.Ey, info.Ez, info.Ppm, info.AreaOfUse);
+    }
+
+    private static IEllipsoid copy(IEllipsoid ellipsoid) {
+        if (!(ellipsoid instanceof Ellipsoid)) {
+            return ellipsoid;
+        }
+        return new Ellipsoid(ellipsoid.getSemiMajorAxis(), ellipsoid.getSemiMinorAxis(), ellipsoid.getInverseFlattening(), ellipsoid.getIsIvfDefinitive(), copy(ellipsoid.getAxisUnit()),
+                ellipsoid.getName(), ellipsoid.getAuthority(), ellipsoid.getAuthorityCode(), ellipsoid.getAlias(), ellipsoid.getAbbreviation(), ellipsoid.getRemarks());
+    }
+
+    private static IPrimeMeridian copy(IPrimeMeridian primeMeridian) {
+        if (!(primeMeridian instanceof PrimeMeridian)) {
+            return primeMeridian;
+        }
+        return new PrimeMeridian(primeMeridian.getLongitude(), copy(primeMeridian.getAngularUnit()),
+                primeMeridian.getName(), primeMeridian.getAuthority(), primeMeridian.getAuthorityCode(), primeMeridian.getAlias(), primeMeridian.getAbbreviation(), primeMeridian.getRemarks());
+    }
+
+    private static IAngularUnit copy(IAngularUnit unit) {
+        if (!(unit instanceof AngularUnit)) {
+            return unit;
+        }
+        return new AngularUnit(unit.getRadiansPerUnit(), unit.getName(), unit.getAuthority(), unit.getAuthorityCode(), unit.getAlias(), unit.getAbbreviation(), unit.getRemarks());
+    }
+
+    private static ILinearUnit copy(ILinearUnit unit) {
+        if (!(unit instanceof LinearUnit)) {
+            return unit;
+        }
+        return new LinearUnit(unit.getMetersPerUnit(), unit.getName(), unit.getAuthority(), unit.getAuthorityCode(), unit.getAlias(), unit.getAbbreviation(), unit.getRemarks());
+    }
+
+    private static IProjection copy(IProjection projection) {
+        if (!(projection instanceof Projection)) {
+            return projection;
+        }
+        ArrayList<ProjectionParameter> parameters = ((Projection) projection).getParameters();
+        ArrayList<ProjectionParameter> parametersCopy = null;
+        if (parameters != null) {
+            parametersCopy = new ArrayList<>(parameters.size());
+            for (ProjectionParameter parameter : parameters) {
+                parametersCopy.add(new ProjectionParameter(parameter.getName(), parameter.getValue()));
+            }
+        }
+        return new Projection(projection.getClassName(), parametersCopy,
+                projection.getName(), projection.getAuthority(), projection.getAuthorityCode(), projection.getAlias(), projection.getRemarks(), projection.getAbbreviation());
+    }
+}
\ No newline at end of file
@@ -113,7 +113,7 @@ public class AngularUnit extends Info implements IAngularUnit {
     @Override
     public String getWKT() {
         StringBuilder sb = new StringBuilder();
-        sb.append(String.format(Locale.US, "UNIT[\"%1$s\", %2$s", getName(), _nfi.format(getRadiansPerUnit())));
+        sb.append(String.format(Locale.US, "UNIT[\"%1$s\", %2$s", getName(), StringUtility.formatNumber(getRadiansPerUnit())));
         if (!StringUtility.isNullOrEmpty(getAuthority()) && getAuthorityCode() > 0) {
             sb.append(String.format(", AUTHORITY[\"%1$s\", \"%2$s\"]", getAuthority(), getAuthorityCode()));
         }
@@ -126,7 +126,7 @@ public class AngularUnit extends Info implements IAngularUnit {
      */
     @Override
     public String getXML() {
-        return String.format(Locale.US, "<CS_AngularUnit RadiansPerUnit=\"%1$s\">%2$s</CS_AngularUnit>", _nfi.format(getRadiansPerUnit()), getInfoXml());
+        return String.format(Locale.US, "<CS_AngularUnit RadiansPerUnit=\"%1$s\">%2$s</CS_AngularUnit>", StringUtility.formatNumber(getRadiansPerUnit()), getInfoXml());
     }
 
     /**
@@ -213,7 +213,7 @@ public class Ellipsoid extends Info implements IEllipsoid {
     @Override
     public String getWKT() {
         StringBuilder sb = new StringBuilder();
-        sb.append(String.format(Locale.US, "SPHEROID[\"%1$s\", %2$s, %3$s", getName(), _nfi.format(getSemiMajorAxis()), _nfi.format(getInverseFlattening())));
+        sb.append(String.format(Locale.US, "SPHEROID[\"%1$s\", %2$s, %3$s", getName(), StringUtility.formatNumber(getSemiMajorAxis()), StringUtility.formatNumber(getInverseFlattening())));
         if (!StringUtility.isNullOrEmpty(getAuthority()) && getAuthorityCode() > 0) {
             sb.append(String.format(", AUTHORITY[\"%1$s\", \"%2$s\"]", getAuthority(), getAuthorityCode()));
         }
@@ -226,7 +226,7 @@ public class Ellipsoid extends Info implements IEllipsoid {
      */
     @Override
     public String getXML() {
-        return String.format(Locale.US, "<CS_Ellipsoid SemiMajorAxis=\"%1$s\" SemiMinorAxis=\"%2$s\" InverseFlattening=\"%3$s\" IvfDefinitive=\"%4$s\">%5$s%6$s</CS_Ellipsoid>", _nfi.format(getSemiMajorAxis()), _nfi.format(getSemiMinorAxis()), _nfi.format(getInverseFlattening()), (getIsIvfDefinitive() ? 1 : 0), getInfoXml(), getAxisUnit().getXML());
+        return String.format(Locale.US, "<CS_Ellipsoid SemiMajorAxis=\"%1$s\" SemiMinorAxis=\"%2$s\" InverseFlattening=\"%3$s\" IvfDefinitive=\"%4$s\">%5$s%6$s</CS_Ellipsoid>", StringUtility.formatNumber(getSemiMajorAxis()), StringUtility.formatNumber(getSemiMinorAxis()), StringUtility.formatNumber(getInverseFlattening()), (getIsIvfDefinitive() ? 1 : 0), getInfoXml(), getAxisUnit().getXML());
     }
 
     /**
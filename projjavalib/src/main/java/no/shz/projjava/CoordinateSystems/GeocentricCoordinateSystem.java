@@ -139,7 +139,7 @@ public class GeocentricCoordinateSystem extends CoordinateSystem implements IGeo
     @Override
     public String getXML() {
         StringBuilder sb = new StringBuilder();
-        sb.append(String.format(Locale.US, "<CS_CoordinateSystem Dimension=\"%1$s\"><CS_GeocentricCoordinateSystem>%2$s", _nfi.format(this.getDimension()), getInfoXml()));
+        sb.append(String.format(Locale.US, "<CS_CoordinateSystem Dimension=\"%1$s\"><CS_GeocentricCoordinateSystem>%2$s", StringUtility.formatNumber(this.getDimension()), getInfoXml()));
         for (AxisInfo ai : this.getAxisInfo()) {
             sb.append(ai.getXML());
         }
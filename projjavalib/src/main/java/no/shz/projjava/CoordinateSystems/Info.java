@@ -32,8 +32,6 @@ package no.shz.projjava.coordinateSystems;
  * restrictions as the original project.
  */
 
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.util.Locale;
 
 import no.shz.utilities.StringUtility;
@@ -43,8 +41,6 @@ import no.shz.utilities.StringUtility;
  * stored with spatial reference objects
  */
 public abstract class Info implements IInfo {
-    protected DecimalFormat _nfi = new DecimalFormat("0.################", new DecimalFormatSymbols(Locale.US));
-
     private String _name;
     private String _authority;
     private long _code;
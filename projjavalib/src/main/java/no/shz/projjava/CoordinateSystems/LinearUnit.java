@@ -116,7 +116,7 @@ public class LinearUnit extends Info implements ILinearUnit {
     @Override
     public String getWKT() {
         StringBuilder sb = new StringBuilder();
-        sb.append(String.format(Locale.US, "UNIT[\"%1$s\", %2$s", getName(), _nfi.format(getMetersPerUnit())));
+        sb.append(String.format(Locale.US, "UNIT[\"%1$s\", %2$s", getName(), StringUtility.formatNumber(getMetersPerUnit())));
         if (!StringUtility.isNullOrEmpty(getAuthority()) && getAuthorityCode() > 0) {
             sb.append(String.format(", AUTHORITY[\"%1$s\", \"%2$s\"]", getAuthority(), getAuthorityCode()));
         }
@@ -129,7 +129,7 @@ public class LinearUnit extends Info implements ILinearUnit {
      */
     @Override
     public String getXML() {
-        return String.format(Locale.US, "<CS_LinearUnit MetersPerUnit=\"%1$s\">%2$s</CS_LinearUnit>", _nfi.format(getMetersPerUnit()), getInfoXml());
+        return String.format(Locale.US, "<CS_LinearUnit MetersPerUnit=\"%1$s\">%2$s</CS_LinearUnit>", StringUtility.formatNumber(getMetersPerUnit()), getInfoXml());
     }
 
     /**
@@ -186,7 +186,7 @@ public class PrimeMeridian extends Info implements IPrimeMeridian {
     @Override
     public String getWKT() {
         StringBuilder sb = new StringBuilder();
-        sb.append(String.format(Locale.US, "PRIMEM[\"%1$s\", %2$s", getName(), _nfi.format(getLongitude())));
+        sb.append(String.format(Locale.US, "PRIMEM[\"%1$s\", %2$s", getName(), StringUtility.formatNumber(getLongitude())));
         if (!StringUtility.isNullOrEmpty(getAuthority()) && getAuthorityCode() > 0) {
             sb.append(String.format(", AUTHORITY[\"%1$s\", \"%2$s\"]", getAuthority(), getAuthorityCode()));
         }
@@ -199,7 +199,7 @@ public class PrimeMeridian extends Info implements IPrimeMeridian {
      */
     @Override
     public String getXML() {
-        return String.format(Locale.US, "<CS_PrimeMeridian Longitude=\"%1$s\" >%2$s%3$s</CS_PrimeMeridian>", _nfi.format(getLongitude()), getInfoXml(), getAngularUnit().getXML());
+        return String.format(Locale.US, "<CS_PrimeMeridian Longitude=\"%1$s\" >%2$s%3$s</CS_PrimeMeridian>", StringUtility.formatNumber(getLongitude()), getInfoXml(), getAngularUnit().getXML());
     }
 
     /**
@@ -32,10 +32,10 @@ package no.shz.projjava.coordinateSystems;
  * restrictions as the original project.
  */
 
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.util.Locale;
 
+import no.shz.utilities.StringUtility;
+
 /**
  * A named projection parameter value.
  * <p>
@@ -46,8 +46,6 @@ import java.util.Locale;
  * where the units are always meters and degrees.)
  */
 public class ProjectionParameter {
-    protected DecimalFormat _nfi = new DecimalFormat("0.################", new DecimalFormatSymbols(Locale.US));
-
     private String _name;
     private double _value;
 
@@ -94,13 +92,13 @@ public class ProjectionParameter {
      * as defined in the simple features specification.
      */
     public final String getWKT() {
-        return String.format(Locale.US, "PARAMETER[\"%1$s\", %2$s]", getName(), _nfi.format(getValue()));
+        return String.format(Locale.US, "PARAMETER[\"%1$s\", %2$s]", getName(), StringUtility.formatNumber(getValue()));
     }
 
     /**
      * Gets an XML representation of this object
      */
     public final String getXML() {
-        return String.format(Locale.US, "<CS_ProjectionParameter Name=\"%1$s\" Value=\"%2$s\"/>", getName(), _nfi.format(getValue()));
+        return String.format(Locale.US, "<CS_ProjectionParameter Name=\"%1$s\" Value=\"%2$s\"/>", getName(), StringUtility.formatNumber(getValue()));
     }
 }
\ No newline at end of file
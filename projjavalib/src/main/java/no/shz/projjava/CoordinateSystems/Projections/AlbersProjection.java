@@ -3,7 +3,7 @@ package no.shz.projjava.coordinateSystems.projections;
 import java.util.ArrayList;
 
 import no.shz.projjava.coordinateSystems.ProjectionParameter;
-import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
+import no.shz.projjava.coordinateSystems.transformations.PointStatus;
 
 /**
  * Copyright 2005 - 2009 - Morten Nielsen (www.sharpgis.net)
@@ -73,14 +73,15 @@ import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
  * direction, distance and shape somewhat.</p>
  */
 public class AlbersProjection extends MapProjection {
-    private double _falseEasting;
-    private double _falseNorthing;
-    private double _c; //constant c
-    private double _e; //eccentricity
-    private double _eSq = 0;
-    private double _ro0;
-    private double _n;
-    private double _lonCenter; //center longitude
+    private final double _falseEasting;
+    private final double _falseNorthing;
+    private final double _c; //constant c
+    private final double _e; //eccentricity
+    private final double _eSq;
+    private final double _ro0;
+    private final double _n;
+    private final double _lonCenter; //center longitude
+    private final double _tolerance; //tolerance of the latitude iteration
 
     /**
      * Creates an instance of an Albers projection object.
@@ -102,6 +103,16 @@ public class AlbersProjection extends MapProjection {
         this(parameters, false);
     }
 
+    /**
+     * Creates an instance of an Albers projection object.
+     *
+     * @param parameters List of parameters to initialize the projection.
+     * @param isInverse  Indicates whether the projection forward (meters to degrees or degrees to meters).
+     */
+    public AlbersProjection(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
+        this(parameters, isInverse, 0);
+    }
+
     /**
      * Creates an instance of an Albers projection object.
      * <p>
@@ -119,9 +130,10 @@ public class AlbersProjection extends MapProjection {
      *
      * @param parameters List of parameters to initialize the projection.
      * @param isInverse  Indicates whether the projection forward (meters to degrees or degrees to meters).
+     * @param precision  Accuracy wanted on the ground in meters, or 0 for the full accuracy of the formulas.
      */
-    public AlbersProjection(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
-        super(parameters, isInverse);
+    public AlbersProjection(ArrayList<ProjectionParameter> parameters, boolean isInverse, double precision) {
+        super(parameters, isInverse, precision);
         this.setName("Albers_Conic_Equal_Area");
 
         ProjectionParameter longitude_of_center = getParameter("longitude_of_center");
@@ -169,6 +181,8 @@ public class AlbersProjection extends MapProjection {
 
         _eSq = 1.0 - Math.pow(this._semiMinor / this._semiMajor, 2);
         _e = Math.sqrt(_eSq);
+        //Newton's iteration: the error left after a step is of the order of the square of the step
+        _tolerance = _precision > 0 ? Math.sqrt(0.1 * _precision / this._semiMajor) : 0.000001;
 
         double alpha1 = alpha(lat1);
         double alpha2 = alpha(lat2);
@@ -176,8 +190,8 @@ public class AlbersProjection extends MapProjection {
         double m1 = Math.cos(lat1) / Math.sqrt(1 - _eSq * Math.pow(Math.sin(lat1), 2));
         double m2 = Math.cos(lat2) / Math.sqrt(1 - _eSq * Math.pow(Math.sin(lat2), 2));
 
-        _n = (Math.pow(m1, 2) - Math.pow(m2, 2)) / (alpha2 - alpha1);
-        _c = Math.pow(m1, 2) + (_n * alpha1);
+        _n = (m1 * m1 - m2 * m2) / (alpha2 - alpha1);
+        _c = m1 * m1 + (_n * alpha1);
 
         _ro0 = ro(alpha(lat0));
     }
@@ -185,71 +199,78 @@ public class AlbersProjection extends MapProjection {
     /**
      * Converts coordinates in decimal degrees to projected meters.
      *
-     * @param lonlat The point in decimal degrees.
-     * @return Point in projected meters
+     * @param p      Array holding the point in decimal degrees.
+     * @param offset Offset of the point in the array
+     * @return {@link PointStatus#OK}, or the reason the point could not be transformed
      */
     @Override
-    public double[] degreesToMeters(double[] lonlat) {
-        double dLongitude = degrees2Radians(lonlat[0]);
-        double dLatitude = degrees2Radians(lonlat[1]);
+    protected int degreesToMeters(double[] p, int offset) {
+        double dLongitude = degrees2Radians(p[offset]);
+        double dLatitude = degrees2Radians(p[offset + 1]);
 
         double a = alpha(dLatitude);
         double ro = ro(a);
         double theta = _n * (dLongitude - _lonCenter);
         dLongitude = _falseEasting + ro * Math.sin(theta);
         dLatitude = _falseNorthing + _ro0 - (ro * Math.cos(theta));
-        if (lonlat.length == 2) {
-            return new double[]{dLongitude / _metersPerUnit, dLatitude / _metersPerUnit};
-        } else {
-            return new double[]{dLongitude / _metersPerUnit, dLatitude / _metersPerUnit, lonlat[2]};
-        }
+        p[offset] = dLongitude / _metersPerUnit;
+        p[offset + 1] = dLatitude / _metersPerUnit;
+        return PointStatus.OK;
     }
 
     /**
      * Converts coordinates in projected meters to decimal degrees.
      *
-     * @param p Point in meters
-     * @return Transformed point in decimal degrees
+     * @param p      Array holding the point in meters
+     * @param offset Offset of the point in the array
+     * @return {@link PointStatus#OK}, or the reason the point could not be transformed
      */
     @Override
-    public double[] metersToDegrees(double[] p) {
-        double theta = Math.atan((p[0] * _metersPerUnit - _falseEasting) / (_ro0 - (p[1] * _metersPerUnit - _falseNorthing)));
-        double ro = Math.sqrt(Math.pow(p[0] * _metersPerUnit - _falseEasting, 2) + Math.pow(_ro0 - (p[1] * _metersPerUnit - _falseNorthing), 2));
-        double q = (_c - Math.pow(ro, 2) * Math.pow(_n, 2) / Math.pow(this._semiMajor, 2)) / _n;
-        double b = Math.sin(q / (1 - ((1 - _eSq) / (2 * _e)) * Math.log((1 - _e) / (1 + _e))));
+    protected int metersToDegrees(double[] p, int offset) {
+        double dx = p[offset] * _metersPerUnit - _falseEasting;
+        double dy = _ro0 - (p[offset + 1] * _metersPerUnit - _falseNorthing);
+        double theta = Math.atan(dx / dy);
+        double ro = Math.sqrt(dx * dx + dy * dy);
+        double q = (_c - ro * ro * _n * _n / (this._semiMajor * this._semiMajor)) / _n;
 
-        double lat = Math.asin(q * 0.5);
-        double preLat = Double.MAX_VALUE;
+        double lat;
+        double preLat;
+        if (_isSpherical) {
+            //The latitude is asin(q / 2), computed with the cheaper atan
+            double sin = q * 0.5;
+            lat = Math.atan(sin / Math.sqrt(1 - sin * sin));
+            preLat = lat;
+        } else {
+            lat = Math.asin(q * 0.5);
+            preLat = Double.MAX_VALUE;
+        }
         int iterationCounter = 0;
-        while (Math.abs(lat - preLat) > 0.000001) {
+        while (Math.abs(lat - preLat) > _tolerance) {
             preLat = lat;
             double sin = Math.sin(lat);
-            double e2sin2 = _eSq * Math.pow(sin, 2);
-            lat += (Math.pow(1 - e2sin2, 2) / (2 * Math.cos(lat))) * ((q / (1 - _eSq)) - sin / (1 - e2sin2) + 1 / (2 * _e) * Math.log((1 - _e * sin) / (1 + _e * sin)));
+            double e2sin2 = _eSq * sin * sin;
+            lat += ((1 - e2sin2) * (1 - e2sin2) / (2 * Math.cos(lat))) * ((q / (1 - _eSq)) - sin / (1 - e2sin2) + 1 / (2 * _e) * Math.log((1 - _e * sin) / (1 + _e * sin)));
             iterationCounter++;
             if (iterationCounter > 25) {
-                throw new IllegalArgumentException("Transformation failed to converge in Albers backwards transformation");
+                return PointStatus.NO_CONVERGENCE;
             }
         }
         double lon = _lonCenter + (theta / _n);
-        if (p.length == 2) {
-            return new double[]{radians2Degrees(lon), radians2Degrees(lat)};
-        } else {
-            return new double[]{radians2Degrees(lon), radians2Degrees(lat), p[2]};
-        }
+        p[offset] = radians2Degrees(lon);
+        p[offset + 1] = radians2Degrees(lat);
+        return PointStatus.OK;
     }
 
     /**
-     * Returns the inverse of this projection.
+     * Creates a projection of the same kind with other parameters.
      *
-     * @return IMathTransform that is the reverse of the current projection.
+     * @param parameters projection parameters
+     * @param isInverse  whether the projection runs from projected to geographic coordinates
+     * @return the projection
      */
     @Override
-    public IMathTransform inverse() {
-        if (_inverse == null) {
-            _inverse = new AlbersProjection(this._parameters, !_isInverse);
-        }
-        return _inverse;
+    protected MapProjection create(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
+        return new AlbersProjection(parameters, isInverse, _precision);
     }
 
     //private double ToAuthalic(double lat)
@@ -264,7 +285,10 @@ public class AlbersProjection extends MapProjection {
     //}
     private double alpha(double lat) {
         double sin = Math.sin(lat);
-        double sinsq = Math.pow(sin, 2);
+        if (_isSpherical) {
+            return 2 * sin;
+        }
+        double sinsq = sin * sin;
         return (1 - _eSq) * (((sin / (1 - _eSq * sinsq)) - 1 / (2 * _e) * Math.log((1 - _e * sin) / (1 + _e * sin))));
     }
 
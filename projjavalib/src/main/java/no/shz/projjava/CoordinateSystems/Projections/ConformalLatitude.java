@@ -0,0 +1,141 @@
+package no.shz.projjava.coordinateSystems.projections;
+
+import java.util.Arrays;
+import java.util.List;
+
+import no.shz.utilities.LruCache;
+
+/**
+ * Conversions between the geodetic and the conformal latitude of an ellipsoid, with trigonometric series in
+ * the third flattening n to the 6th order.
+ * <p>
+ * The conformal projections compute their inverse as a conformal latitude, or an equivalent such as the
+ * isometric latitude or Snyder's t, which has to be converted to the geodetic latitude. Solving the relation
+ * with a fixed-point iteration costs a power and an arctangent per step and some steps per point; the series
+ * costs two trigonometric functions and a few multiplications, needs no iteration, and is accurate to about
+ * 1e-15 radians for the ellipsoids of the Earth. When a coarser accuracy is enough, the terms below it are
+ * left out. The coefficients only depend on the ellipsoid: the instances are immutable and shared between the
+ * projections on the same ellipsoid with the same number of terms, see {@link #forEllipsoid}.
+ * <p>
+ * Reference: Karsten Engsager and Knud Poder, A highly accurate world wide algorithm for the transverse
+ * Mercator mapping (almost), Proceedings of XXIII International Cartographic Conference, 2007.
+ */
+final class ConformalLatitude {
+    /**
+     * Number of terms of the series.
+     */
+    private static final int ORDER = 6;
+
+    /**
+     * Instances by third flattening and number of terms.
+     */
+    private static final LruCache<List<Number>, ConformalLatitude> CACHE = new LruCache<>(32);
+
+    /**
+     * Number of terms summed, at most {@link #ORDER}.
+     */
+    private final int _order;
+
+    /**
+     * Geodetic to conformal latitude and conformal to geodetic latitude.
+     */
+    private final double[] _cbg = new double[ORDER];
+    private final double[] _cgb = new double[ORDER];
+
+    private ConformalLatitude(double n, double semiMajor, double precision) {
+        double np = n * n;
+        _cbg[0] = n * (-2 + n * (2 / 3.0 + n * (4 / 3.0 + n * (-82 / 45.0 + n * (32 / 45.0 + n * (4642 / 4725.0))))));
+        _cbg[1] = np * (5 / 3.0 + n * (-16 / 15.0 + n * (-13 / 9.0 + n * (904 / 315.0 + n * (-1522 / 945.0)))));
+        _cgb[0] = n * (2 + n * (-2 / 3.0 + n * (-2 + n * (116 / 45.0 + n * (26 / 45.0 + n * (-2854 / 675.0))))));
+        _cgb[1] = np * (7 / 3.0 + n * (-8 / 5.0 + n * (-227 / 45.0 + n * (2704 / 315.0 + n * (2323 / 945.0)))));
+        np *= n;
+        _cbg[2] = np * (-26 / 15.0 + n * (34 / 21.0 + n * (8 / 5.0 + n * (-12686 / 2835.0))));
+        _cgb[2] = np * (56 / 15.0 + n * (-136 / 35.0 + n * (-1262 / 105.0 + n * (73814 / 2835.0))));
+        np *= n;
+        _cbg[3] = np * (1237 / 630.0 + n * (-12 / 5.0 + n * (-24832 / 14175.0)));
+        _cgb[3] = np * (4279 / 630.0 + n * (-332 / 35.0 + n * (-399572 / 14175.0)));
+        np *= n;
+        _cbg[4] = np * (-734 / 315.0 + n * (109598 / 31185.0));
+        _cgb[4] = np * (4174 / 315.0 + n * (-144838 / 6237.0));
+        np *= n;
+        _cbg[5] = np * (444337 / 155925.0);
+        _cgb[5] = np * (601676 / 22275.0);
+
+        //Leave out the last terms as long as they change the latitude by less than the precision on the ground
+        int order = ORDER;
+        double dropped = 0;
+        while (order > 1) {
+            dropped += Math.max(Math.abs(_cbg[order - 1]), Math.abs(_cgb[order - 1]));
+            if (dropped * semiMajor > precision) {
+                break;
+            }
+            order--;
+        }
+        _order = order;
+    }
+
+    /**
+     * Returns the conversions for an ellipsoid.
+     *
+     * @param semiMajor semi-major axis, in meters
+     * @param semiMinor semi-minor axis, in meters
+     * @param precision accuracy wanted on the ground, in meters, or 0 for the full series
+     * @return the conversions, shared with the other callers for the same ellipsoid
+     */
+    static ConformalLatitude forEllipsoid(double semiMajor, double semiMinor, double precision) {
+        double f = 1 - semiMinor / semiMajor;
+        double n = f / (2 - f);
+        ConformalLatitude conformal = new ConformalLatitude(n, semiMajor, precision);
+        List<Number> key = Arrays.<Number>asList(n, conformal._order);
+        ConformalLatitude cached = CACHE.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        return CACHE.getOrPut(key, conformal);
+    }
+
+    /**
+     * Converts a geodetic latitude to the conformal latitude.
+     *
+     * @param phi geodetic latitude in radians
+     * @return conformal latitude in radians
+     */
+    double toConformal(double phi) {
+        return gatg(_cbg, phi);
+    }
+
+    /**
+     * Converts a conformal latitude to the geodetic latitude.
+     *
+     * @param chi conformal latitude in radians
+     * @return geodetic latitude in radians
+     */
+    double fromConformal(double chi) {
+        return gatg(_cgb, chi);
+    }
+
+    /**
+     * Converts Snyder's t, tan(pi/4 - chi/2) for the conformal latitude chi, to the geodetic latitude. This
+     * is the non-iterative replacement of {@link MapProjection#phi2z}.
+     *
+     * @param ts the value t
+     * @return geodetic latitude in radians
+     */
+    double fromTs(double ts) {
+        return gatg(_cgb, MapProjection.HALF_PI - 2 * Math.atan(ts));
+    }
+
+    /**
+     * Sums the first terms of the series B + sum(p[k] * sin(2 * (k + 1) * B)) with Clenshaw's method.
+     */
+    private double gatg(double[] p, double b) {
+        double twoCos2B = 2 * Math.cos(2 * b);
+        double h = p[_order - 1], h1 = 0, h2;
+        for (int k = _order - 2; k >= 0; k--) {
+            h2 = h1;
+            h1 = h;
+            h = -h2 + twoCos2B * h1 + p[k];
+        }
+        return b + h * Math.sin(2 * b);
+    }
+}
\ No newline at end of file
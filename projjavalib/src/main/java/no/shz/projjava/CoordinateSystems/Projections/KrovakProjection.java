@@ -3,7 +3,7 @@ package no.shz.projjava.coordinateSystems.projections;
 import java.util.ArrayList;
 
 import no.shz.projjava.coordinateSystems.ProjectionParameter;
-import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
+import no.shz.projjava.coordinateSystems.transformations.PointStatus;
 
 /**
  * Copyright 2005 - 2009 - Morten Nielsen (www.sharpgis.net)
@@ -68,14 +68,6 @@ import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
  */
 public class KrovakProjection extends MapProjection {
 
-    /**
-     * Maximum number of iterations for iterative computations.
-     */
-    private static final int MAXIMUM_ITERATIONS = 15;
-    /**
-     * When to stop the iteration.
-     */
-    private static final double ITERATION_TOLERANCE = 1E-11;
     /**
      * Useful constant - 45� in radians.
      */
@@ -85,20 +77,24 @@ public class KrovakProjection extends MapProjection {
      * This is equals to the co-latitude of the cone axis at point of intersection
      * with the ellipsoid.
      */
-    protected double _azimuth;
+    protected final double _azimuth;
     /**
      * Latitude of pseudo standard parallel.
      */
-    protected double _pseudoStandardParallel;
-    protected double _centralMeridian;
-    protected double _latitudeOfOrigin;
-    protected double _scaleFactor;
-    protected double _excentricitySquared;
-    protected double _excentricity;
+    protected final double _pseudoStandardParallel;
+    protected final double _centralMeridian;
+    protected final double _latitudeOfOrigin;
+    protected final double _scaleFactor;
+    protected final double _excentricitySquared;
+    protected final double _excentricity;
     /**
      * Useful variables calculated from parameters defined by user.
      */
-    private double _sinAzim, _cosAzim, _n, _tanS2, _alfa, _hae, _k1, _ka, _ro0, _rop;
+    private final double _sinAzim, _cosAzim, _n, _tanS2, _alfa, _hae, _k1, _ka, _ro0, _rop;
+    /**
+     * Latitude from conformal latitude.
+     */
+    private final ConformalLatitude _conformal;
 
     /**
      * Creates an instance of an LambertConformalConic2SPProjection projection object.
@@ -121,6 +117,16 @@ public class KrovakProjection extends MapProjection {
         this(parameters, false);
     }
 
+    /**
+     * Creates an instance of an Albers projection object.
+     *
+     * @param parameters List of parameters to initialize the projection.
+     * @param isInverse  Indicates whether the projection forward (meters to degrees or degrees to meters).
+     */
+    public KrovakProjection(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
+        this(parameters, isInverse, 0);
+    }
+
     /**
      * Creates an instance of an Albers projection object.
      * <p>
@@ -138,9 +144,10 @@ public class KrovakProjection extends MapProjection {
      *
      * @param parameters List of parameters to initialize the projection.
      * @param isInverse  Indicates whether the projection forward (meters to degrees or degrees to meters).
+     * @param precision  Accuracy wanted on the ground in meters, or 0 for the full accuracy of the formulas.
      */
-    public KrovakProjection(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
-        super(parameters, isInverse);
+    public KrovakProjection(ArrayList<ProjectionParameter> parameters, boolean isInverse, double precision) {
+        super(parameters, isInverse, precision);
         this.setName("Krovak");
         this.setAuthority("EPSG");
         this.setAuthorityCode(9819);
@@ -183,6 +190,7 @@ public class KrovakProjection extends MapProjection {
 
         _excentricitySquared = 1.0 - (super._semiMinor * super._semiMinor) / (super._semiMajor * super._semiMajor);
         _excentricity = Math.sqrt(_excentricitySquared);
+        _conformal = ConformalLatitude.forEllipsoid(super._semiMajor, super._semiMinor, _precision);
 
         _sinAzim = Math.sin(_azimuth);
         _cosAzim = Math.cos(_azimuth);
@@ -210,13 +218,14 @@ public class KrovakProjection extends MapProjection {
     /**
      * Converts coordinates in decimal degrees to projected meters.
      *
-     * @param lonlat The point in decimal degrees.
-     * @return Point in projected meters
+     * @param p      Array holding the point in decimal degrees.
+     * @param offset Offset of the point in the array
+     * @return {@link PointStatus#OK}, or the reason the point could not be transformed
      */
     @Override
-    public double[] degreesToMeters(double[] lonlat) {
-        double lambda = degrees2Radians(lonlat[0]) - _centralMeridian;
-        double phi = degrees2Radians(lonlat[1]);
+    protected int degreesToMeters(double[] p, int offset) {
+        double lambda = degrees2Radians(p[offset]) - _centralMeridian;
+        double phi = degrees2Radians(p[offset + 1]);
 
         double esp = _excentricity * Math.sin(phi);
         double gfi = Math.pow(((1.0 - esp) / (1.0 + esp)), _hae);
@@ -231,19 +240,22 @@ public class KrovakProjection extends MapProjection {
         double y = -(ro * Math.cos(eps)) * this._semiMajor;
         double x = -(ro * Math.sin(eps)) * this._semiMajor;
 
-        return new double[]{x, y};
+        p[offset] = x;
+        p[offset + 1] = y;
+        return PointStatus.OK;
     }
 
     /**
      * Converts coordinates in projected meters to decimal degrees.
      *
-     * @param p Point in meters
-     * @return Transformed point in decimal degrees
+     * @param p      Array holding the point in meters
+     * @param offset Offset of the point in the array
+     * @return {@link PointStatus#OK}, or the reason the point could not be transformed
      */
     @Override
-    public double[] metersToDegrees(double[] p) {
-        double x = p[0] / this._semiMajor;
-        double y = p[1] / this._semiMajor;
+    protected int metersToDegrees(double[] p, int offset) {
+        double x = p[offset] / this._semiMajor;
+        double y = p[offset + 1] / this._semiMajor;
 
         double ro = Math.sqrt(x * x + y * y);
         double eps = Math.atan2(-x, -y);
@@ -254,36 +266,31 @@ public class KrovakProjection extends MapProjection {
         double kau = _ka * Math.pow(Math.tan((u / 2.0) + S45), 1 / _alfa);
         double deltav = Math.asin((cs * Math.sin(d)) / Math.cos(u));
         double lambda = -deltav / _alfa;
-        double phi = 0;
-        double fi1 = u;
-
-        for (int i = MAXIMUM_ITERATIONS; ; ) {
-            fi1 = phi;
-            double esf = _excentricity * Math.sin(fi1);
-            phi = 2.0 * (Math.atan(kau * Math.pow((1.0 + esf) / (1.0 - esf), _excentricity / 2.0)) - S45);
-            if (Math.abs(fi1 - phi) <= ITERATION_TOLERANCE) {
-                break;
-            }
+        //kau is tan(chi / 2 + 45 degrees) for the conformal latitude chi
+        double phi = _conformal.fromConformal(2.0 * (Math.atan(kau) - S45));
 
-            if (--i < 0) {
-                break;
-            }
-        }
+        p[offset] = radians2Degrees(lambda + _centralMeridian);
+        p[offset + 1] = radians2Degrees(phi);
+        return PointStatus.OK;
+    }
 
-        return new double[]{radians2Degrees(lambda + _centralMeridian), radians2Degrees(phi)};
+    /**
+     * Returns null, as this projection works in metres and ignores the unit and false origin parameters.
+     */
+    @Override
+    public MapProjection scaleProjected(double scale, double offsetX, double offsetY) {
+        return null;
     }
 
     /**
-     * Returns the inverse of this projection.
+     * Creates a projection of the same kind with other parameters.
      *
-     * @return IMathTransform that is the reverse of the current projection.
+     * @param parameters projection parameters
+     * @param isInverse  whether the projection runs from projected to geographic coordinates
+     * @return the projection
      */
     @Override
-    public IMathTransform inverse() {
-        if (_inverse == null) {
-            _inverse = new KrovakProjection(this._parameters, !_isInverse);
-        }
-
-        return _inverse;
+    protected MapProjection create(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
+        return new KrovakProjection(parameters, isInverse, _precision);
     }
 }
\ No newline at end of file
@@ -0,0 +1,289 @@
+package no.shz.projjava.coordinateSystems.projections;
+
+import java.util.ArrayList;
+
+import no.shz.projjava.coordinateSystems.ProjectionParameter;
+import no.shz.projjava.coordinateSystems.transformations.PointStatus;
+
+/**
+ * Transverse Mercator projection computed with the Kruger series in the third flattening n, to the 6th
+ * order, in the form given by Poder and Engsager.
+ * <p>
+ * The geodetic latitude is converted to the conformal (Gaussian) latitude, projected with the spherical
+ * transverse Mercator in complex form, and the result is mapped to the ellipsoid with a trigonometric
+ * series. Both directions are closed-form: unlike the Snyder series of {@link TransverseMercator}, the
+ * inverse has no footpoint latitude iteration, and the error stays below a millimeter up to several
+ * thousand kilometers from the central meridian instead of growing quickly past a few degrees. The series
+ * coefficients only depend on the ellipsoid and are computed once per projection; the series are summed
+ * with Clenshaw's method, so each point costs a handful of trigonometric and hyperbolic functions.
+ * <p>
+ * The projection has the same name and parameters as {@link TransverseMercator}, and is selected with
+ * {@link no.shz.projjava.coordinateSystems.transformations.CoordinateTransformationFactory#setTransverseMercatorMethod}.
+ * <p>
+ * Reference: Karsten Engsager and Knud Poder, A highly accurate world wide algorithm for the transverse
+ * Mercator mapping (almost), Proceedings of XXIII International Cartographic Conference, 2007; Charles F.
+ * F. Karney, Transverse Mercator with an accuracy of a few nanometers, Journal of Geodesy 85, 2011.
+ */
+public class KrugerTransverseMercator extends MapProjection {
+    /**
+     * Number of terms of the series.
+     */
+    private static final int ORDER = 6;
+
+    /**
+     * Largest normalized easting handled, about 150 degrees of spherical longitude from the central meridian.
+     */
+    private static final double MAX_EASTING = 2.623395162778;
+
+    private final double _centralMeridian;
+    private final double _falseEasting;
+    private final double _falseNorthing;
+
+    /**
+     * Scale factor times the radius of the rectifying sphere.
+     */
+    private final double _qn;
+
+    /**
+     * Opposite of the northing of the latitude of origin, added to the northings.
+     */
+    private final double _zb;
+
+    /**
+     * Geodetic to conformal latitude and back.
+     */
+    private final ConformalLatitude _conformal;
+
+    /**
+     * The Kruger series in both directions.
+     */
+    private final double[] _gtu = new double[ORDER];
+    private final double[] _utg = new double[ORDER];
+
+    /**
+     * Creates an instance of the projection.
+     *
+     * @param parameters List of parameters to initialize the projection.
+     */
+    public KrugerTransverseMercator(ArrayList<ProjectionParameter> parameters) {
+        this(parameters, false);
+    }
+
+    /**
+     * Creates an instance of the projection.
+     *
+     * @param parameters List of parameters to initialize the projection.
+     * @param inverse    Flag indicating wether is a forward/projection (false) or an inverse projection (true).
+     */
+    public KrugerTransverseMercator(ArrayList<ProjectionParameter> parameters, boolean inverse) {
+        this(parameters, inverse, 0);
+    }
+
+    /**
+     * Creates an instance of the projection.
+     *
+     * @param parameters List of parameters to initialize the projection: scale_factor, central_meridian,
+     *                   latitude_of_origin, false_easting and false_northing, as for {@link TransverseMercator}.
+     * @param inverse    Flag indicating wether is a forward/projection (false) or an inverse projection (true).
+     * @param precision  Accuracy wanted on the ground in meters, or 0 for the full accuracy of the formulas.
+     */
+    public KrugerTransverseMercator(ArrayList<ProjectionParameter> parameters, boolean inverse, double precision) {
+        super(parameters, inverse, precision);
+        this.setName("Transverse_Mercator");
+        this.setAuthority("EPSG");
+        this.setAuthorityCode(9807);
+
+        ProjectionParameter par_scale_factor = getParameter("scale_factor");
+        ProjectionParameter par_central_meridian = getParameter("central_meridian");
+        ProjectionParameter par_latitude_of_origin = getParameter("latitude_of_origin");
+        ProjectionParameter par_false_easting = getParameter("false_easting");
+        ProjectionParameter par_false_northing = getParameter("false_northing");
+
+        if (par_scale_factor == null) {
+            throw new IllegalArgumentException("Missing projection parameter 'scale_factor'");
+        }
+        if (par_central_meridian == null) {
+            throw new IllegalArgumentException("Missing projection parameter 'central_meridian'");
+        }
+        if (par_latitude_of_origin == null) {
+            throw new IllegalArgumentException("Missing projection parameter 'latitude_of_origin'");
+        }
+        if (par_false_easting == null) {
+            throw new IllegalArgumentException("Missing projection parameter 'false_easting'");
+        }
+        if (par_false_northing == null) {
+            throw new IllegalArgumentException("Missing projection parameter 'false_northing'");
+        }
+
+        double scaleFactor = par_scale_factor.getValue();
+        _centralMeridian = degrees2Radians(par_central_meridian.getValue());
+        double latOrigin = degrees2Radians(par_latitude_of_origin.getValue());
+        _falseEasting = par_false_easting.getValue() * _metersPerUnit;
+        _falseNorthing = par_false_northing.getValue() * _metersPerUnit;
+
+        //Third flattening
+        double f = 1 - this._semiMinor / this._semiMajor;
+        double n = f / (2 - f);
+        double np = n * n;
+
+        _conformal = ConformalLatitude.forEllipsoid(this._semiMajor, this._semiMinor, _precision);
+        //Spherical to ellipsoidal and ellipsoidal to spherical Kruger series
+        _gtu[0] = n * (0.5 + n * (-2 / 3.0 + n * (5 / 16.0 + n * (41 / 180.0 + n * (-127 / 288.0 + n * (7891 / 37800.0))))));
+        _gtu[1] = np * (13 / 48.0 + n * (-3 / 5.0 + n * (557 / 1440.0 + n * (281 / 630.0 + n * (-1983433 / 1935360.0)))));
+        _utg[0] = n * (-0.5 + n * (2 / 3.0 + n * (-37 / 96.0 + n * (1 / 360.0 + n * (81 / 512.0 + n * (-96199 / 604800.0))))));
+        _utg[1] = np * (-1 / 48.0 + n * (-1 / 15.0 + n * (437 / 1440.0 + n * (-46 / 105.0 + n * (1118711 / 3870720.0)))));
+        np *= n;
+        _gtu[2] = np * (61 / 240.0 + n * (-103 / 140.0 + n * (15061 / 26880.0 + n * (167603 / 181440.0))));
+        _utg[2] = np * (-17 / 480.0 + n * (37 / 840.0 + n * (209 / 4480.0 + n * (-5569 / 90720.0))));
+        np *= n;
+        _gtu[3] = np * (49561 / 161280.0 + n * (-179 / 168.0 + n * (6601661 / 7257600.0)));
+        _utg[3] = np * (-4397 / 161280.0 + n * (11 / 504.0 + n * (830251 / 7257600.0)));
+        np *= n;
+        _gtu[4] = np * (34729 / 80640.0 + n * (-3418889 / 1995840.0));
+        _utg[4] = np * (-4583 / 161280.0 + n * (108847 / 3991680.0));
+        np *= n;
+        _gtu[5] = np * (212378941 / 319334400.0);
+        _utg[5] = np * (-20648693 / 638668800.0);
+
+        //Radius of the rectifying sphere
+        np = n * n;
+        _qn = scaleFactor * this._semiMajor / (1 + n) * (1 + np * (1 / 4.0 + np * (1 / 64.0 + np / 256.0)));
+        double z = _conformal.toConformal(latOrigin);
+        _zb = -_qn * (z + clens(_gtu, 2 * z));
+    }
+
+    /**
+     * Sums the series sum(a[k] * sin((k + 1) * arg)).
+     */
+    private static double clens(double[] a, double arg) {
+        double r = 2 * Math.cos(arg);
+        double hr = a[ORDER - 1], hr1 = 0, hr2;
+        for (int k = ORDER - 2; k >= 0; k--) {
+            hr2 = hr1;
+            hr1 = hr;
+            hr = -hr2 + r * hr1 + a[k];
+        }
+        return Math.sin(arg) * hr;
+    }
+
+    /**
+     * Converts coordinates in decimal degrees to projected meters.
+     *
+     * @param p      Array holding the point in decimal degrees.
+     * @param offset Offset of the point in the array
+     * @return {@link PointStatus#OK}, or the reason the point could not be transformed
+     */
+    @Override
+    protected int degreesToMeters(double[] p, int offset) {
+        double lon = adjustLon(degrees2Radians(p[offset]) - _centralMeridian);
+        double lat = degrees2Radians(p[offset + 1]);
+
+        //Geodetic to conformal latitude, then to the complementary spherical latitude cn and the tangent t
+        //of the complementary spherical longitude
+        double chi = _conformal.toConformal(lat);
+        double sinChi = Math.sin(chi);
+        double cosChi = Math.cos(chi);
+        double u = Math.cos(lon) * cosChi;
+        double q2 = sinChi * sinChi + u * u;
+        double cn = Math.atan2(sinChi, u);
+        double t = Math.sin(lon) * cosChi / Math.sqrt(q2);
+
+        //Normalized spherical easting ce = asinh(t), and the functions of 2 * (cn + i ce) the series needs
+        double s = Math.sqrt(1 + t * t);
+        double ce = Math.log(Math.abs(t) + s);
+        if (t < 0) {
+            ce = -ce;
+        }
+        double sinR = 2 * sinChi * u / q2;
+        double cosR = (u * u - sinChi * sinChi) / q2;
+        double sinhI = 2 * t * s;
+        double coshI = 1 + 2 * t * t;
+
+        //Clenshaw summation of sum(_gtu[k] * sin(2 * (k + 1) * (cn + i ce))), in complex numbers
+        double r = 2 * cosR * coshI;
+        double i = -2 * sinR * sinhI;
+        double[] a = _gtu;
+        double hr = a[ORDER - 1], hr1 = 0, hr2;
+        double hi = 0, hi1 = 0, hi2;
+        for (int k = ORDER - 2; k >= 0; k--) {
+            hr2 = hr1;
+            hi2 = hi1;
+            hr1 = hr;
+            hi1 = hi;
+            hr = -hr2 + r * hr1 - i * hi1 + a[k];
+            hi = -hi2 + i * hr1 + r * hi1;
+        }
+        cn += sinR * coshI * hr - cosR * sinhI * hi;
+        ce += sinR * coshI * hi + cosR * sinhI * hr;
+        if (Math.abs(ce) > MAX_EASTING) {
+            return PointStatus.OUT_OF_DOMAIN;
+        }
+        p[offset] = (_qn * ce + _falseEasting) / _metersPerUnit;
+        p[offset + 1] = (_qn * cn + _zb + _falseNorthing) / _metersPerUnit;
+        return PointStatus.OK;
+    }
+
+    /**
+     * Converts coordinates in projected meters to decimal degrees.
+     *
+     * @param p      Array holding the point in meters
+     * @param offset Offset of the point in the array
+     * @return {@link PointStatus#OK}, or the reason the point could not be transformed
+     */
+    @Override
+    protected int metersToDegrees(double[] p, int offset) {
+        double ce = (p[offset] * _metersPerUnit - _falseEasting) / _qn;
+        double cn = (p[offset + 1] * _metersPerUnit - _falseNorthing - _zb) / _qn;
+        if (Math.abs(ce) > MAX_EASTING) {
+            return PointStatus.OUT_OF_DOMAIN;
+        }
+
+        //Ellipsoidal to spherical normalized northing and easting
+        double sinR = Math.sin(2 * cn);
+        double cosR = Math.cos(2 * cn);
+        double exp = Math.exp(2 * ce);
+        double sinhI = 0.5 * (exp - 1 / exp);
+        double coshI = 0.5 * (exp + 1 / exp);
+        //Clenshaw summation of sum(_utg[k] * sin(2 * (k + 1) * (cn + i ce))), in complex numbers
+        double r = 2 * cosR * coshI;
+        double i = -2 * sinR * sinhI;
+        double[] a = _utg;
+        double hr = a[ORDER - 1], hr1 = 0, hr2;
+        double hi = 0, hi1 = 0, hi2;
+        for (int k = ORDER - 2; k >= 0; k--) {
+            hr2 = hr1;
+            hi2 = hi1;
+            hr1 = hr;
+            hi1 = hi;
+            hr = -hr2 + r * hr1 - i * hi1 + a[k];
+            hi = -hi2 + i * hr1 + r * hi1;
+        }
+        cn += sinR * coshI * hr - cosR * sinhI * hi;
+        ce += sinR * coshI * hi + cosR * sinhI * hr;
+
+        //Spherical northing and easting to conformal latitude and longitude, then to geodetic latitude.
+        //The complementary spherical longitude is atan(sinh(ce)), whose sine and cosine are tanh(ce) and 1 / cosh(ce).
+        exp = Math.exp(ce);
+        double sinhE = 0.5 * (exp - 1 / exp);
+        double sinCn = Math.sin(cn);
+        double cosCn = Math.cos(cn);
+        double lon = Math.atan2(sinhE, cosCn);
+        double lat = _conformal.fromConformal(Math.atan2(sinCn, Math.sqrt(sinhE * sinhE + cosCn * cosCn)));
+
+        p[offset] = radians2Degrees(adjustLon(lon + _centralMeridian));
+        p[offset + 1] = radians2Degrees(lat);
+        return PointStatus.OK;
+    }
+
+    /**
+     * Creates a projection of the same kind with other parameters.
+     *
+     * @param parameters projection parameters
+     * @param isInverse  whether the projection runs from projected to geographic coordinates
+     * @return the projection
+     */
+    @Override
+    protected MapProjection create(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
+        return new KrugerTransverseMercator(parameters, isInverse, _precision);
+    }
+}
\ No newline at end of file
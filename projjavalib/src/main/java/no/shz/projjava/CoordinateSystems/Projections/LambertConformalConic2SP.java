@@ -3,8 +3,7 @@ package no.shz.projjava.coordinateSystems.projections;
 import java.util.ArrayList;
 
 import no.shz.projjava.coordinateSystems.ProjectionParameter;
-import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
-import no.shz.utilities.Ref;
+import no.shz.projjava.coordinateSystems.transformations.PointStatus;
 
 /**
  * Copyright 2005 - 2009 - Morten Nielsen (www.sharpgis.net)
@@ -70,14 +69,15 @@ import no.shz.utilities.Ref;
  */
 public class LambertConformalConic2SP extends MapProjection {
 
-    private double _falseEasting;
-    private double _falseNorthing;
+    private final double _falseEasting;
+    private final double _falseNorthing;
 
-    private double e = 0; // eccentricity
-    private double center_lon = 0; // center longituted
-    private double ns = 0; // ratio of angle between meridian
-    private double f0 = 0; // flattening of ellipsoid
-    private double rh = 0; // height above ellipsoid
+    private final double e; // eccentricity
+    private final double center_lon; // center longituted
+    private final double ns; // ratio of angle between meridian
+    private final double f0; // flattening of ellipsoid
+    private final double rh; // height above ellipsoid
+    private final ConformalLatitude _conformal; // latitude from conformal latitude
 
     /**
      * Creates an instance of an LambertConformalConic2SPProjection projection object.
@@ -100,6 +100,16 @@ public class LambertConformalConic2SP extends MapProjection {
         this(parameters, false);
     }
 
+    /**
+     * Creates an instance of an Albers projection object.
+     *
+     * @param parameters List of parameters to initialize the projection.
+     * @param isInverse  Indicates whether the projection forward (meters to degrees or degrees to meters).
+     */
+    public LambertConformalConic2SP(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
+        this(parameters, isInverse, 0);
+    }
+
     /**
      * Creates an instance of an Albers projection object.
      * <p>
@@ -117,9 +127,10 @@ public class LambertConformalConic2SP extends MapProjection {
      *
      * @param parameters List of parameters to initialize the projection.
      * @param isInverse  Indicates whether the projection forward (meters to degrees or degrees to meters).
+     * @param precision  Accuracy wanted on the ground in meters, or 0 for the full accuracy of the formulas.
      */
-    public LambertConformalConic2SP(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
-        super(parameters, isInverse);
+    public LambertConformalConic2SP(ArrayList<ProjectionParameter> parameters, boolean isInverse, double precision) {
+        super(parameters, isInverse, precision);
         this.setName("Lambert_Conformal_Conic_2SP");
         this.setAuthority("EPSG");
         this.setAuthorityCode(9802);
@@ -172,21 +183,16 @@ public class LambertConformalConic2SP extends MapProjection {
 
         double es = 1.0 - Math.pow(this._semiMinor / this._semiMajor, 2);
         e = Math.sqrt(es);
+        _conformal = ConformalLatitude.forEllipsoid(this._semiMajor, this._semiMinor, _precision);
 
         center_lon = c_lon;
-        Ref<Double> tempRef_sin_po = new Ref<>(sin_po);
-        Ref<Double> tempRef_cos_po = new Ref<>(cos_po);
-        sincos(lat1, tempRef_sin_po, tempRef_cos_po);
-        cos_po = tempRef_cos_po.value;
-        sin_po = tempRef_sin_po.value;
+        sin_po = Math.sin(lat1);
+        cos_po = Math.cos(lat1);
         con = sin_po;
         ms1 = msfnz(e, sin_po, cos_po);
         ts1 = tsfnz(e, lat1, sin_po);
-        Ref<Double> tempRef_sin_po2 = new Ref<>(sin_po);
-        Ref<Double> tempRef_cos_po2 = new Ref<>(cos_po);
-        sincos(lat2, tempRef_sin_po2, tempRef_cos_po2);
-        cos_po = tempRef_cos_po2.value;
-        sin_po = tempRef_sin_po2.value;
+        sin_po = Math.sin(lat2);
+        cos_po = Math.cos(lat2);
         ms2 = msfnz(e, sin_po, cos_po);
         ts2 = tsfnz(e, lat2, sin_po);
         sin_po = Math.sin(c_lat);
@@ -204,13 +210,14 @@ public class LambertConformalConic2SP extends MapProjection {
     /**
      * Converts coordinates in decimal degrees to projected meters.
      *
-     * @param lonlat The point in decimal degrees.
-     * @return Point in projected meters
+     * @param p      Array holding the point in decimal degrees.
+     * @param offset Offset of the point in the array
+     * @return {@link PointStatus#OK}, or the reason the point could not be transformed
      */
     @Override
-    public double[] degreesToMeters(double[] lonlat) {
-        double dLongitude = degrees2Radians(lonlat[0]);
-        double dLatitude = degrees2Radians(lonlat[1]);
+    protected int degreesToMeters(double[] p, int offset) {
+        double dLongitude = degrees2Radians(p[offset]);
+        double dLatitude = degrees2Radians(p[offset + 1]);
 
         double con;
         double rh1;
@@ -220,34 +227,38 @@ public class LambertConformalConic2SP extends MapProjection {
 
         con = Math.abs(Math.abs(dLatitude) - HALF_PI);
         if (con > EPSLN) {
-            sinphi = Math.sin(dLatitude);
-            ts = tsfnz(e, dLatitude, sinphi);
+            if (_isSpherical) {
+                ts = Math.tan(.5 * (HALF_PI - dLatitude));
+            } else {
+                sinphi = Math.sin(dLatitude);
+                ts = tsfnz(e, dLatitude, sinphi);
+            }
             rh1 = this._semiMajor * f0 * Math.pow(ts, ns);
         } else {
             con = dLatitude * ns;
             if (con <= 0) {
-                throw new IllegalArgumentException();
+                //The pole on the side of the apex of the cone
+                return PointStatus.OUT_OF_DOMAIN;
             }
             rh1 = 0;
         }
         theta = ns * adjustLon(dLongitude - center_lon);
         dLongitude = rh1 * Math.sin(theta) + this._falseEasting;
         dLatitude = rh - rh1 * Math.cos(theta) + this._falseNorthing;
-        if (lonlat.length == 2) {
-            return new double[]{dLongitude / _metersPerUnit, dLatitude / _metersPerUnit};
-        } else {
-            return new double[]{dLongitude / _metersPerUnit, dLatitude / _metersPerUnit, lonlat[2]};
-        }
+        p[offset] = dLongitude / _metersPerUnit;
+        p[offset + 1] = dLatitude / _metersPerUnit;
+        return PointStatus.OK;
     }
 
     /**
      * Converts coordinates in projected meters to decimal degrees.
      *
-     * @param p Point in meters
-     * @return Transformed point in decimal degrees
+     * @param p      Array holding the point in meters
+     * @param offset Offset of the point in the array
+     * @return {@link PointStatus#OK}, or the reason the point could not be transformed
      */
     @Override
-    public double[] metersToDegrees(double[] p) {
+    protected int metersToDegrees(double[] p, int offset) {
         double dLongitude;
         double dLatitude;
 
@@ -255,11 +266,9 @@ public class LambertConformalConic2SP extends MapProjection {
         double con;
         double ts;
         double theta;
-        long flag;
 
-        flag = 0;
-        double dX = p[0] * _metersPerUnit - this._falseEasting;
-        double dY = rh - p[1] * _metersPerUnit + this._falseNorthing;
+        double dX = p[offset] * _metersPerUnit - this._falseEasting;
+        double dY = rh - p[offset + 1] * _metersPerUnit + this._falseNorthing;
         if (ns > 0) {
             rh1 = Math.sqrt(dX * dX + dY * dY);
             con = 1.0;
@@ -274,34 +283,26 @@ public class LambertConformalConic2SP extends MapProjection {
         if ((rh1 != 0) || (ns > 0.0)) {
             con = 1.0 / ns;
             ts = Math.pow((rh1 / (this._semiMajor * f0)), con);
-            Ref<Long> tempRef_flag = new Ref<>(flag);
-            dLatitude = phi2z(e, ts, tempRef_flag);
-            flag = tempRef_flag.value;
-            if (flag != 0) {
-                throw new IllegalArgumentException();
-            }
+            dLatitude = _isSpherical ? HALF_PI - 2 * Math.atan(ts) : _conformal.fromTs(ts);
         } else {
             dLatitude = -HALF_PI;
         }
 
         dLongitude = adjustLon(theta / ns + center_lon);
-        if (p.length == 2) {
-            return new double[]{radians2Degrees(dLongitude), radians2Degrees(dLatitude)};
-        } else {
-            return new double[]{radians2Degrees(dLongitude), radians2Degrees(dLatitude), p[2]};
-        }
+        p[offset] = radians2Degrees(dLongitude);
+        p[offset + 1] = radians2Degrees(dLatitude);
+        return PointStatus.OK;
     }
 
     /**
-     * Returns the inverse of this projection.
+     * Creates a projection of the same kind with other parameters.
      *
-     * @return IMathTransform that is the reverse of the current projection.
+     * @param parameters projection parameters
+     * @param isInverse  whether the projection runs from projected to geographic coordinates
+     * @return the projection
      */
     @Override
-    public IMathTransform inverse() {
-        if (_inverse == null) {
-            _inverse = new LambertConformalConic2SP(this._parameters, !_isInverse);
-        }
-        return _inverse;
+    protected MapProjection create(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
+        return new LambertConformalConic2SP(parameters, isInverse, _precision);
     }
 }
\ No newline at end of file
@@ -1,11 +1,13 @@
 package no.shz.projjava.coordinateSystems.projections;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 
 import no.shz.projjava.coordinateSystems.IProjection;
 import no.shz.projjava.coordinateSystems.ProjectionParameter;
+import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
 import no.shz.projjava.coordinateSystems.transformations.MathTransform;
-import no.shz.utilities.Ref;
+import no.shz.projjava.coordinateSystems.transformations.PointStatus;
 
 /**
  * Copyright 2005 - 2009 - Morten Nielsen (www.sharpgis.net)
@@ -62,6 +64,9 @@ import no.shz.utilities.Ref;
 
 /**
  * projections inherit from this abstract class to get access to useful mathematical functions.
+ * <p>
+ * A projection computes all its constants when it is created and does not change afterwards,
+ * so it can be shared between threads.
  */
 public abstract class MapProjection extends MathTransform implements IProjection {
 
@@ -74,13 +79,24 @@ public abstract class MapProjection extends MathTransform implements IProjection
     protected static final double prjMAXLONG = 2147483647;
     protected static final double DBLLONG = 4.61168601e18;
 
-    protected boolean _isInverse = false;
-    protected double _es;
-    protected double _semiMajor;
-    protected double _semiMinor;
-    protected double _metersPerUnit;
-    protected ArrayList<ProjectionParameter> _parameters;
-    protected MathTransform _inverse;
+    protected final boolean _isInverse;
+    protected final double _es;
+    /**
+     * Whether the ellipsoid is a sphere. The projections then use closed-form spherical formulas, without
+     * the eccentricity terms, series and iterations of the ellipsoidal ones.
+     */
+    protected final boolean _isSpherical;
+    protected final double _semiMajor;
+    protected final double _semiMinor;
+    protected final double _metersPerUnit;
+    /**
+     * Accuracy wanted on the ground, in meters, given to the constructor, or 0 for the full accuracy of the
+     * formulas. The iterations and series of the projections stop where they would only improve the result
+     * below this accuracy. It is not one of the projection parameters, so it is not written to the WKT.
+     */
+    protected final double _precision;
+    protected final ArrayList<ProjectionParameter> _parameters;
+    private volatile MapProjection _inverse;
     private String _abbreviation;
     private String _alias;
     private String _authority;
@@ -93,14 +109,20 @@ public abstract class MapProjection extends MathTransform implements IProjection
      * @param isInverse boolean
      */
     protected MapProjection(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
-        this(parameters);
-        _isInverse = isInverse;
+        this(parameters, isInverse, 0);
     }
 
     /**
      * @param parameters ArrayList
+     * @param isInverse  boolean
+     * @param precision  accuracy wanted on the ground in meters, or 0 for the full accuracy
      */
-    protected MapProjection(ArrayList<ProjectionParameter> parameters) {
+    protected MapProjection(ArrayList<ProjectionParameter> parameters, boolean isInverse, double precision) {
+        if (!(precision >= 0) || Double.isInfinite(precision)) {
+            throw new IllegalArgumentException("The precision must be a finite number of meters, at least 0, got " + precision);
+        }
+        _isInverse = isInverse;
+        _precision = precision;
         _parameters = parameters;
 
         ProjectionParameter semimajor = getParameter("semi_major");
@@ -118,6 +140,14 @@ public abstract class MapProjection extends MathTransform implements IProjection
         _metersPerUnit = unit.getValue();
 
         this._es = 1.0 - (_semiMinor * _semiMinor) / (_semiMajor * _semiMajor);
+        this._isSpherical = _es == 0;
+    }
+
+    /**
+     * @param parameters ArrayList
+     */
+    protected MapProjection(ArrayList<ProjectionParameter> parameters) {
+        this(parameters, false);
     }
 
     /**
@@ -126,7 +156,7 @@ public abstract class MapProjection extends MathTransform implements IProjection
      * @param x double
      */
     protected static double cube(double x) {
-        return Math.pow(x, 3); // x^3
+        return x * x * x; // x^3
     }
 
     /**
@@ -135,7 +165,7 @@ public abstract class MapProjection extends MathTransform implements IProjection
      * @param x double
      */
     protected static double quad(double x) {
-        return Math.pow(x, 4); // x^4
+        return (x * x) * (x * x); // x^4
     }
 
     /**
@@ -143,8 +173,8 @@ public abstract class MapProjection extends MathTransform implements IProjection
      * @param b double
      * @return
      */
-    protected static double gmax(Ref<Double> a, Ref<Double> b) {
-        return Math.max(a.value, b.value); // assign maximum of a and b
+    protected static double gmax(double a, double b) {
+        return Math.max(a, b); // assign maximum of a and b
     }
 
     /**
@@ -152,8 +182,8 @@ public abstract class MapProjection extends MathTransform implements IProjection
      * @param b
      * @return
      */
-    protected static double gmin(Ref<Double> a, Ref<Double> b) {
-        return ((a.value) < (b.value) ? (a.value) : (b.value)); // assign minimum of a and b
+    protected static double gmin(double a, double b) {
+        return Math.min(a, b); // assign minimum of a and b
     }
 
     /**
@@ -241,17 +271,6 @@ public abstract class MapProjection extends MathTransform implements IProjection
         }
     }
 
-    /**
-     * Function to calculate the sine and cosine in one call.  Some computer
-     * systems have implemented this function, resulting in a faster implementation
-     * than calling each function separately.  It is provided here for those
-     * computer systems which don`t implement this function
-     */
-    protected static void sincos(double val, Ref<Double> sinVal, Ref<Double> cosVal) {
-        sinVal.value = Math.sin(val);
-        cosVal.value = Math.cos(val);
-    }
-
     /**
      * Function to compute the constant small t for use in the forward
      * computations in the Lambert Conformal Conic and the Polar
@@ -267,20 +286,21 @@ public abstract class MapProjection extends MathTransform implements IProjection
     }
 
     /**
-     * @param eccent
-     * @param qs
-     * @param flag
-     * @return
+     * Function to compute the latitude angle, phi1, for the inverse of the
+     * Albers Conical Equal-Area projection.
+     *
+     * @param eccent Spheroid eccentricity
+     * @param qs     Constant value q
+     * @return the latitude, or NaN if the iteration does not converge
      */
-    protected static double phi1z(double eccent, double qs, Ref<Long> flag) {
+    protected static double phi1z(double eccent, double qs) {
         double eccnts;
         double dphi;
         double con;
         double com;
-        double sinpi = 0;
-        double cospi = 0;
+        double sinpi;
+        double cospi;
         double phi;
-        flag.value = 0l;
         long i;
 
         phi = asinz(.5 * qs);
@@ -289,11 +309,8 @@ public abstract class MapProjection extends MathTransform implements IProjection
         }
         eccnts = eccent * eccent;
         for (i = 1; i <= 25; i++) {
-            Ref<Double> tempRef_sinpi = new Ref<Double>(sinpi);
-            Ref<Double> tempRef_cospi = new Ref<Double>(cospi);
-            sincos(phi, tempRef_sinpi, tempRef_cospi);
-            cospi = tempRef_cospi.value;
-            sinpi = tempRef_sinpi.value;
+            sinpi = Math.sin(phi);
+            cospi = Math.cos(phi);
             con = eccent * sinpi;
             com = 1.0 - con * con;
             dphi = .5 * com * com / cospi * (qs / (1.0 - eccnts) - sinpi / com + .5 / eccent * Math.log((1.0 - con) / (1.0 + con)));
@@ -303,7 +320,7 @@ public abstract class MapProjection extends MathTransform implements IProjection
             }
         }
 
-        throw new IllegalArgumentException("Convergence error.");
+        return Double.NaN;
     }
 
     /**
@@ -326,15 +343,14 @@ public abstract class MapProjection extends MathTransform implements IProjection
      *
      * @param eccent Spheroid eccentricity
      * @param ts     Constant value t
-     * @param flag   Error flag number
+     * @return the latitude, or NaN if the iteration does not converge
      */
-    protected static double phi2z(double eccent, double ts, Ref<Long> flag) {
+    protected static double phi2z(double eccent, double ts) {
         double con;
         double dphi;
         double sinpi;
         long i;
 
-        flag.value = 0l;
         double eccnth = .5 * eccent;
         double chi = HALF_PI - 2 * Math.atan(ts);
         for (i = 0; i <= 15; i++) {
@@ -346,7 +362,7 @@ public abstract class MapProjection extends MathTransform implements IProjection
                 return (chi);
             }
         }
-        throw new IllegalArgumentException("Convergence error - phi2z-conv");
+        return Double.NaN;
     }
 
     /**
@@ -473,6 +489,13 @@ public abstract class MapProjection extends MathTransform implements IProjection
         return this._parameters.size();
     }
 
+    /**
+     * Gets the accuracy wanted on the ground, in meters, or 0 for the full accuracy of the formulas.
+     */
+    public final double getPrecision() {
+        return _precision;
+    }
+
     /**
 
      */
@@ -487,7 +510,7 @@ public abstract class MapProjection extends MathTransform implements IProjection
         return _abbreviation;
     }
 
-    public final void setAbbreviation(String value) {
+    protected final void setAbbreviation(String value) {
         _abbreviation = value;
     }
 
@@ -498,7 +521,7 @@ public abstract class MapProjection extends MathTransform implements IProjection
         return _alias;
     }
 
-    public final void setAlias(String value) {
+    protected final void setAlias(String value) {
         _alias = value;
     }
 
@@ -511,7 +534,7 @@ public abstract class MapProjection extends MathTransform implements IProjection
         return _authority;
     }
 
-    public final void setAuthority(String value) {
+    protected final void setAuthority(String value) {
         _authority = value;
     }
 
@@ -522,7 +545,7 @@ public abstract class MapProjection extends MathTransform implements IProjection
         return _code;
     }
 
-    public final void setAuthorityCode(long value) {
+    protected final void setAuthorityCode(long value) {
         _code = value;
     }
 
@@ -533,7 +556,7 @@ public abstract class MapProjection extends MathTransform implements IProjection
         return _name;
     }
 
-    public final void setName(String value) {
+    protected final void setName(String value) {
         _name = value;
     }
 
@@ -544,7 +567,7 @@ public abstract class MapProjection extends MathTransform implements IProjection
         return _remarks;
     }
 
-    public final void setRemarks(String value) {
+    protected final void setRemarks(String value) {
         _remarks = value;
     }
 
@@ -594,16 +617,165 @@ public abstract class MapProjection extends MathTransform implements IProjection
         return sb.toString();
     }
 
-    public abstract double[] metersToDegrees(double[] p);
+    /**
+     * Converts coordinates in projected units to decimal degrees.
+     *
+     * @param p Point in projected units
+     * @return Transformed point in decimal degrees
+     */
+    public double[] metersToDegrees(double[] p) {
+        double[] result = copyPoint(p);
+        throwIfFailed(metersToDegrees(result, 0));
+        return result;
+    }
+
+    /**
+     * Converts coordinates in decimal degrees to projected units.
+     *
+     * @param lonlat The point in decimal degrees.
+     * @return Point in projected units
+     */
+    public double[] degreesToMeters(double[] lonlat) {
+        double[] result = copyPoint(lonlat);
+        throwIfFailed(degreesToMeters(result, 0));
+        return result;
+    }
+
+    /**
+     * Converts the point stored at offset in p from projected units to decimal degrees, in place.
+     * Only the first two ordinates are read and written. A point that can not be converted is
+     * reported by the returned status instead of an exception, so batches can go on with the next point.
+     *
+     * @param p      Array holding the point
+     * @param offset Offset of the point in the array
+     * @return {@link PointStatus#OK}, or the reason the point could not be transformed
+     */
+    protected abstract int metersToDegrees(double[] p, int offset);
+
+    /**
+     * Converts the point stored at offset in p from decimal degrees to projected units, in place.
+     * Only the first two ordinates are read and written. A point that can not be converted is
+     * reported by the returned status instead of an exception, so batches can go on with the next point.
+     *
+     * @param p      Array holding the point
+     * @param offset Offset of the point in the array
+     * @return {@link PointStatus#OK}, or the reason the point could not be transformed
+     */
+    protected abstract int degreesToMeters(double[] p, int offset);
+
+    /**
+     * Throws the exception of the transforms without a status array when a point could not be transformed.
+     *
+     * @param status status returned by {@link #degreesToMeters(double[], int)} or {@link #metersToDegrees(double[], int)}
+     */
+    protected static void throwIfFailed(int status) {
+        if (status != PointStatus.OK) {
+            throw new IllegalArgumentException(PointStatus.getMessage(status));
+        }
+    }
+
+    /**
+     * Projects the x and y values of a {@link #isSeparable() separable} projection on their own, pairing
+     * each of them with a 0 ordinate, which must be valid in both directions.
+     *
+     * @param xs longitudes, or eastings for the inverse projection
+     * @param ys latitudes, or northings for the inverse projection
+     * @throws UnsupportedOperationException if the projection is not separable
+     */
+    @Override
+    protected void transformSeparable(double[] xs, double[] ys) {
+        if (!isSeparable()) {
+            throw new UnsupportedOperationException("The projection is not separable");
+        }
+        double[] p = new double[2];
+        for (int i = 0; i < xs.length; i++) {
+            p[0] = xs[i];
+            p[1] = 0;
+            int status = _isInverse ? metersToDegrees(p, 0) : degreesToMeters(p, 0);
+            xs[i] = status == PointStatus.OK ? p[0] : Double.NaN;
+        }
+        for (int j = 0; j < ys.length; j++) {
+            p[0] = 0;
+            p[1] = ys[j];
+            int status = _isInverse ? metersToDegrees(p, 0) : degreesToMeters(p, 0);
+            ys[j] = status == PointStatus.OK ? p[1] : Double.NaN;
+        }
+    }
 
-    public abstract double[] degreesToMeters(double[] lonlat);
+    private static double[] copyPoint(double[] p) {
+        if (p.length < 3) {
+            return new double[]{p[0], p[1]};
+        } else {
+            return new double[]{p[0], p[1], p[2]};
+        }
+    }
 
     /**
-     * Reverses the transformation
+     * Returns the inverse of this projection.
+     * <p>
+     * The inverse is a separate projection object with the same parameters. It is created once and
+     * cached, and its own inverse is this projection, so both can be shared between threads.
+     *
+     * @return IMathTransform that is the reverse of the current projection.
      */
     @Override
-    public void invert() {
-        _isInverse = !_isInverse;
+    public IMathTransform inverse() {
+        MapProjection inverse = _inverse;
+        if (inverse == null) {
+            inverse = createInverse();
+            inverse._inverse = this;
+            _inverse = inverse;
+        }
+        return inverse;
+    }
+
+    /**
+     * Creates a new projection with the same parameters as this one, running in the opposite direction.
+     *
+     * @return The inverse projection
+     */
+    protected MapProjection createInverse() {
+        return create(_parameters, !_isInverse);
+    }
+
+    /**
+     * Creates a projection of the same kind with other parameters.
+     *
+     * @param parameters projection parameters
+     * @param isInverse  whether the projection runs from projected to geographic coordinates
+     * @return the projection
+     */
+    protected abstract MapProjection create(ArrayList<ProjectionParameter> parameters, boolean isInverse);
+
+    /**
+     * Creates a projection of the same kind whose projected coordinates are those of this projection
+     * multiplied by a factor and shifted by an offset. The factor and offset are folded into the unit and
+     * false origin parameters, so the new projection costs nothing more than this one. This is how an affine
+     * step following a projection, or preceding an inverse projection, is removed from a chain.
+     *
+     * @param scale   factor applied to the projected coordinates, greater than 0
+     * @param offsetX offset added to the first projected coordinate, after scaling
+     * @param offsetY offset added to the second projected coordinate, after scaling
+     * @return the projection, or null if this projection does not use the unit and false origin parameters
+     */
+    public MapProjection scaleProjected(double scale, double offsetX, double offsetY) {
+        if (!(scale > 0) || Double.isInfinite(scale)) {
+            throw new IllegalArgumentException("The scale must be a positive number, got " + scale);
+        }
+        ArrayList<ProjectionParameter> parameters = new ArrayList<>(_parameters.size());
+        for (ProjectionParameter pp : _parameters) {
+            String name = pp.getName();
+            if (name.equalsIgnoreCase("unit")) {
+                parameters.add(new ProjectionParameter(name, pp.getValue() / scale));
+            } else if (name.equalsIgnoreCase("false_easting")) {
+                parameters.add(new ProjectionParameter(name, pp.getValue() * scale + offsetX));
+            } else if (name.equalsIgnoreCase("false_northing")) {
+                parameters.add(new ProjectionParameter(name, pp.getValue() * scale + offsetY));
+            } else {
+                parameters.add(pp);
+            }
+        }
+        return create(parameters, _isInverse);
     }
 
     /**
@@ -623,7 +795,6 @@ public abstract class MapProjection extends MathTransform implements IProjection
      */
     @Override
     public double[] transform(double[] cp) {
-        double[] projectedPoint = new double[]{0, 0, 0};
         if (!_isInverse) {
             return this.degreesToMeters(cp);
         } else {
@@ -631,6 +802,92 @@ public abstract class MapProjection extends MathTransform implements IProjection
         }
     }
 
+    /**
+     * Transforms a packed array of coordinate points without allocating per point.
+     *
+     * @param src    array holding the source points
+     * @param srcOff offset of the first ordinate in the source array
+     * @param dst    array receiving the transformed points
+     * @param dstOff offset of the first ordinate in the destination array
+     * @param numPts number of points to transform
+     * @param dim    number of ordinates per point, at least 2
+     */
+    @Override
+    public void transform(double[] src, int srcOff, double[] dst, int dstOff, int numPts, int dim) {
+        preparePacked(src, srcOff, dst, dstOff, numPts, dim);
+        int end = dstOff + numPts * dim;
+        if (!_isInverse) {
+            for (int off = dstOff; off < end; off += dim) {
+                throwIfFailed(degreesToMeters(dst, off));
+            }
+        } else {
+            for (int off = dstOff; off < end; off += dim) {
+                throwIfFailed(metersToDegrees(dst, off));
+            }
+        }
+    }
+
+    /**
+     * Transforms coordinate points stored as separate arrays of ordinates, in place. The third
+     * ordinates are left unchanged.
+     * <p>
+     * The points are converted one at a time through a two element array, instead of being packed into
+     * blocks as {@link MathTransform} does, so no scratch block is allocated.
+     *
+     * @param xs  first ordinates of the points
+     * @param ys  second ordinates of the points
+     * @param zs  third ordinates of the points, or null
+     * @param off index of the first point
+     * @param n   number of points to transform
+     */
+    @Override
+    public void transform(double[] xs, double[] ys, double[] zs, int off, int n) {
+        checkColumns(xs, ys, zs, off, n);
+        double[] p = new double[2];
+        for (int i = off, end = off + n; i < end; i++) {
+            p[0] = xs[i];
+            p[1] = ys[i];
+            throwIfFailed(_isInverse ? metersToDegrees(p, 0) : degreesToMeters(p, 0));
+            xs[i] = p[0];
+            ys[i] = p[1];
+        }
+    }
+
+    /**
+     * Transforms a packed array of coordinate points, reporting the points that can not be transformed
+     * instead of throwing. No exception is created for a failed point.
+     *
+     * @param src       array holding the source points
+     * @param srcOff    offset of the first ordinate in the source array
+     * @param dst       array receiving the transformed points
+     * @param dstOff    offset of the first ordinate in the destination array
+     * @param numPts    number of points to transform
+     * @param dim       number of ordinates per point, at least 2
+     * @param status    array receiving the {@link PointStatus} of each point, or null
+     * @param statusOff index of the status of the first point
+     * @return the number of points that could not be transformed
+     */
+    @Override
+    public int transform(double[] src, int srcOff, double[] dst, int dstOff, int numPts, int dim, byte[] status, int statusOff) {
+        preparePacked(src, srcOff, dst, dstOff, numPts, dim);
+        checkStatus(status, statusOff, numPts);
+        int failures = 0;
+        for (int i = 0, off = dstOff; i < numPts; i++, off += dim) {
+            int result = _isInverse ? metersToDegrees(dst, off) : degreesToMeters(dst, off);
+            if (result == PointStatus.OK && (Double.isNaN(dst[off]) || Double.isNaN(dst[off + 1]))) {
+                result = PointStatus.OUT_OF_DOMAIN;
+            }
+            if (result != PointStatus.OK) {
+                Arrays.fill(dst, off, off + dim, Double.NaN);
+                failures++;
+            }
+            if (status != null) {
+                status[statusOff + i] = (byte) result;
+            }
+        }
+        return failures;
+    }
+
     /**
      * @param ord ArrayList
      * @return ArrayList
@@ -657,7 +914,18 @@ public abstract class MapProjection extends MathTransform implements IProjection
         if (!(obj instanceof MapProjection)) {
             return false;
         }
-        MapProjection proj = (MapProjection) ((obj instanceof MapProjection) ? obj : null);
+        MapProjection proj = (MapProjection) obj;
+        return equalParameterValues(proj) && this.getIsInverse() == proj.getIsInverse();
+    }
+
+    /**
+     * Checks whether another projection has the same parameters as this one, whatever the direction of
+     * either. A projection and the inverse of a projection with equal parameters undo each other.
+     *
+     * @param proj the other projection
+     * @return True if the parameters are equal
+     */
+    public final boolean equalParameterValues(MapProjection proj) {
         if (proj.getNumParameters() != this.getNumParameters()) {
             return false;
         }
@@ -677,6 +945,6 @@ public abstract class MapProjection extends MathTransform implements IProjection
                 return false;
             }
         }
-        return this.getIsInverse() == proj.getIsInverse();
+        return true;
     }
 }
\ No newline at end of file
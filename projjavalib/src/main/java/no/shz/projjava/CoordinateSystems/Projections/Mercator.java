@@ -3,7 +3,7 @@ package no.shz.projjava.coordinateSystems.projections;
 import java.util.ArrayList;
 
 import no.shz.projjava.coordinateSystems.ProjectionParameter;
-import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
+import no.shz.projjava.coordinateSystems.transformations.PointStatus;
 
 /**
  * Copyright 2005 - 2009 - Morten Nielsen (www.sharpgis.net)
@@ -72,11 +72,12 @@ import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
  * </p>
  */
 public class Mercator extends MapProjection {
-    private double _falseEasting;
-    private double _falseNorthing;
-    private double _lonCenter;
-    private double _e, _e2;
-    private double _k0;
+    private final double _falseEasting;
+    private final double _falseNorthing;
+    private final double _lonCenter;
+    private final double _e, _e2;
+    private final double _k0;
+    private final ConformalLatitude _conformal; // latitude from conformal latitude
 
     /**
      * Initializes the MercatorProjection object with the specified parameters to project points.
@@ -87,6 +88,16 @@ public class Mercator extends MapProjection {
         this(parameters, false);
     }
 
+    /**
+     * Initializes the MercatorProjection object with the specified parameters.
+     *
+     * @param parameters List of parameters to initialize the projection.
+     * @param isInverse  Indicates whether the projection forward (meters to degrees or degrees to meters).
+     */
+    public Mercator(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
+        this(parameters, isInverse, 0);
+    }
+
     /**
      * Initializes the MercatorProjection object with the specified parameters.
      *
@@ -102,9 +113,10 @@ public class Mercator extends MapProjection {
      *                   <item><term>false_easting</term><description>Since the natural origin may be at or near the centre of the projection and under normal coordinate circumstances would thus give rise to negative coordinates over parts of the mapped area, this origin is usually given false coordinates which are large enough to avoid this inconvenience. The False Easting, FE, is the easting value assigned to the abscissa (east).</description></item>
      *                   <item><term>false_northing</term><description>Since the natural origin may be at or near the centre of the projection and under normal coordinate circumstances would thus give rise to negative coordinates over parts of the mapped area, this origin is usually given false coordinates which are large enough to avoid this inconvenience. The False Northing, FN, is the northing value assigned to the ordinate.</description></item>
      *                   </list>
+     * @param precision  Accuracy wanted on the ground in meters, or 0 for the full accuracy of the formulas.
      */
-    public Mercator(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
-        super(parameters, isInverse);
+    public Mercator(ArrayList<ProjectionParameter> parameters, boolean isInverse, double precision) {
+        super(parameters, isInverse, precision);
         this.setAuthority("EPSG");
 
         ProjectionParameter central_meridian = getParameter("central_meridian");
@@ -134,6 +146,7 @@ public class Mercator extends MapProjection {
         double temp = this._semiMinor / this._semiMajor;
         _e2 = 1 - temp * temp;
         _e = Math.sqrt(_e2);
+        _conformal = ConformalLatitude.forEllipsoid(this._semiMajor, this._semiMinor, _precision);
         if (scale_factor == null) {
             _k0 = Math.cos(lat_origin) / Math.sqrt(1.0 - _e2 * Math.sin(lat_origin) * Math.sin(lat_origin));
             this.setAuthorityCode(9805);
@@ -159,72 +172,80 @@ public class Mercator extends MapProjection {
      * <item><term>false_northing</term><description>Since the natural origin may be at or near the centre of the projection and under normal coordinate circumstances would thus give rise to negative coordinates over parts of the mapped area, this origin is usually given false coordinates which are large enough to avoid this inconvenience. The False Northing, FN, is the northing value assigned to the ordinate .</description></item>
      * </list>
      *
-     * @param lonlat The point in decimal degrees.
-     * @return Point in projected meters
+     * @param p      Array holding the point in decimal degrees.
+     * @param offset Offset of the point in the array
+     * @return {@link PointStatus#OK}, or the reason the point could not be transformed
      */
     @Override
-    public double[] degreesToMeters(double[] lonlat) {
-        if (Double.isNaN(lonlat[0]) || Double.isNaN(lonlat[1])) {
-            return new double[]{Double.NaN, Double.NaN};
+    protected int degreesToMeters(double[] p, int offset) {
+        if (Double.isNaN(p[offset]) || Double.isNaN(p[offset + 1])) {
+            p[offset] = Double.NaN;
+            p[offset + 1] = Double.NaN;
+            return PointStatus.OK;
         }
-        double dLongitude = degrees2Radians(lonlat[0]);
-        double dLatitude = degrees2Radians(lonlat[1]);
+        double dLongitude = degrees2Radians(p[offset]);
+        double dLatitude = degrees2Radians(p[offset + 1]);
 
-        if (Math.abs(Math.abs(dLatitude) - HALF_PI) <= EPSLN) {
-            throw new IllegalArgumentException("Transformation cannot be computed at the poles.");
+        if (Math.abs(dLatitude) >= HALF_PI - EPSLN) {
+            //The transformation cannot be computed at the poles, nor past them
+            return PointStatus.OUT_OF_DOMAIN;
         } else {
-            double esinphi = _e * Math.sin(dLatitude);
             double x = _falseEasting + this._semiMajor * _k0 * (dLongitude - _lonCenter);
-            double y = _falseNorthing + this._semiMajor * _k0 * Math.log(Math.tan(PI * 0.25 + dLatitude * 0.5) * Math.pow((1 - esinphi) / (1 + esinphi), _e * 0.5));
-            if (lonlat.length < 3) {
-                return new double[]{x / _metersPerUnit, y / _metersPerUnit};
+            double y;
+            if (_isSpherical) {
+                y = _falseNorthing + this._semiMajor * _k0 * Math.log(Math.tan(PI * 0.25 + dLatitude * 0.5));
             } else {
-                return new double[]{x / _metersPerUnit, y / _metersPerUnit, lonlat[2]};
+                double esinphi = _e * Math.sin(dLatitude);
+                y = _falseNorthing + this._semiMajor * _k0 * Math.log(Math.tan(PI * 0.25 + dLatitude * 0.5) * Math.pow((1 - esinphi) / (1 + esinphi), _e * 0.5));
             }
+            p[offset] = x / _metersPerUnit;
+            p[offset + 1] = y / _metersPerUnit;
         }
+        return PointStatus.OK;
     }
 
     /**
      * Converts coordinates in projected meters to decimal degrees.
      *
-     * @param p Point in meters
-     * @return Transformed point in decimal degrees
+     * @param p      Array holding the point in meters
+     * @param offset Offset of the point in the array
+     * @return {@link PointStatus#OK}, or the reason the point could not be transformed
      */
     @Override
-    public double[] metersToDegrees(double[] p) {
+    protected int metersToDegrees(double[] p, int offset) {
         double dLongitude;
         double dLatitude;
 
-        double dX = p[0] * _metersPerUnit - this._falseEasting;
-        double dY = p[1] * _metersPerUnit - this._falseNorthing;
+        double dX = p[offset] * _metersPerUnit - this._falseEasting;
+        double dY = p[offset + 1] * _metersPerUnit - this._falseNorthing;
         double ts = Math.exp(-dY / (this._semiMajor * _k0)); //t
 
-        double chi = HALF_PI - 2 * Math.atan(ts);
-        double e4 = Math.pow(_e, 4);
-        double e6 = Math.pow(_e, 6);
-        double e8 = Math.pow(_e, 8);
-
-        dLatitude = chi + (_e2 * 0.5 + 5 * e4 / 24 + e6 / 12 + 13 * e8 / 360) * Math.sin(2 * chi) + (7 * e4 / 48 + 29 * e6 / 240 + 811 * e8 / 11520) * Math.sin(4 * chi) + +(7 * e6 / 120 + 81 * e8 / 1120) * Math.sin(6 * chi) + +(4279 * e8 / 161280) * Math.sin(8 * chi);
+        dLatitude = _isSpherical ? HALF_PI - 2 * Math.atan(ts) : _conformal.fromTs(ts);
 
         dLongitude = dX / (this._semiMajor * _k0) + _lonCenter;
 
-        if (p.length < 3) {
-            return new double[]{radians2Degrees(dLongitude), radians2Degrees(dLatitude)};
-        } else {
-            return new double[]{radians2Degrees(dLongitude), radians2Degrees(dLatitude), p[2]};
-        }
+        p[offset] = radians2Degrees(dLongitude);
+        p[offset + 1] = radians2Degrees(dLatitude);
+        return PointStatus.OK;
     }
 
     /**
-     * Returns the inverse of this projection.
+     * The easting only depends on the longitude and the northing on the latitude, in both directions.
+     */
+    @Override
+    protected boolean isSeparable() {
+        return true;
+    }
+
+    /**
+     * Creates a projection of the same kind with other parameters.
      *
-     * @return IMathTransform that is the reverse of the current projection.
+     * @param parameters projection parameters
+     * @param isInverse  whether the projection runs from projected to geographic coordinates
+     * @return the projection
      */
     @Override
-    public IMathTransform inverse() {
-        if (_inverse == null) {
-            _inverse = new Mercator(this._parameters, !_isInverse);
-        }
-        return _inverse;
+    protected MapProjection create(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
+        return new Mercator(parameters, isInverse, _precision);
     }
 }
\ No newline at end of file
@@ -0,0 +1,326 @@
+package no.shz.projjava.coordinateSystems.projections;
+
+import java.util.ArrayList;
+
+import no.shz.projjava.coordinateSystems.ProjectionParameter;
+import no.shz.projjava.coordinateSystems.transformations.PointStatus;
+
+/**
+ * Implements the Popular Visualisation Pseudo Mercator projection (EPSG method 1024), the projection of
+ * web map tiles, EPSG:3857 and the older EPSG:900913.
+ * <p>
+ * The coordinates are those of the ellipsoid, but they are projected with the spherical Mercator formulas on
+ * a sphere of radius the semi-major axis, whatever the flattening: the projection is not conformal, which is
+ * why it is a projection of its own and not the {@link Mercator} on a sphere. Each point costs a sine and a
+ * logarithm forward, an exponential and an arctangent inverse.
+ * <p>
+ * Besides projected coordinates, the projection writes the pixel coordinates and the quadkeys of the web map
+ * tiles at a zoom level directly from longitudes and latitudes, see {@link #toPixels} and
+ * {@link #toQuadKeys}, without a separate affine step.
+ */
+public class PseudoMercator extends MapProjection {
+    /**
+     * Latitude, in decimal degrees, of the top and bottom edges of the square web map: atan(sinh(pi)).
+     */
+    public static final double MAX_LATITUDE = 85.05112877980659;
+
+    /**
+     * Deepest zoom level of the tiles, the last whose quadkey fits in a long.
+     */
+    public static final int MAX_ZOOM = 30;
+
+    /**
+     * Size of the web map tiles, in pixels.
+     */
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    private final double _lonCenter;
+    private final double _falseEasting;
+    private final double _falseNorthing;
+
+    /**
+     * Radius times the scale factor, in projected units.
+     */
+    private final double _radius;
+
+    /**
+     * Initializes the projection with the specified parameters to project points.
+     *
+     * @param parameters ParameterList with the required parameters.
+     */
+    public PseudoMercator(ArrayList<ProjectionParameter> parameters) {
+        this(parameters, false);
+    }
+
+    /**
+     * Initializes the projection with the specified parameters.
+     *
+     * @param parameters List of parameters to initialize the projection.
+     * @param isInverse  Indicates whether the projection forward (meters to degrees or degrees to meters).
+     */
+    public PseudoMercator(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
+        this(parameters, isInverse, 0);
+    }
+
+    /**
+     * Initializes the projection with the specified parameters.
+     *
+     * @param parameters List of parameters to initialize the projection: central_meridian, false_easting,
+     *                   false_northing and optionally scale_factor, 1 if absent. The latitude of origin of
+     *                   the projection is the equator.
+     * @param isInverse  Indicates whether the projection forward (meters to degrees or degrees to meters).
+     * @param precision  Accuracy wanted on the ground in meters, or 0 for the full accuracy of the formulas.
+     */
+    public PseudoMercator(ArrayList<ProjectionParameter> parameters, boolean isInverse, double precision) {
+        super(parameters, isInverse, precision);
+
+        ProjectionParameter central_meridian = getParameter("central_meridian");
+        ProjectionParameter scale_factor = getParameter("scale_factor");
+        ProjectionParameter false_easting = getParameter("false_easting");
+        ProjectionParameter false_northing = getParameter("false_northing");
+
+        if (central_meridian == null) {
+            throw new IllegalArgumentException("Missing projection parameter 'central_meridian'");
+        }
+        if (false_easting == null) {
+            throw new IllegalArgumentException("Missing projection parameter 'false_easting'");
+        }
+        if (false_northing == null) {
+            throw new IllegalArgumentException("Missing projection parameter 'false_northing'");
+        }
+
+        _lonCenter = degrees2Radians(central_meridian.getValue());
+        _falseEasting = false_easting.getValue();
+        _falseNorthing = false_northing.getValue();
+        _radius = this._semiMajor * (scale_factor == null ? 1.0 : scale_factor.getValue()) / _metersPerUnit;
+
+        this.setName("Popular_Visualisation_Pseudo_Mercator");
+        this.setAuthority("EPSG");
+        this.setAuthorityCode(1024);
+    }
+
+    /**
+     * Converts coordinates in decimal degrees to projected meters.
+     *
+     * @param p      Array holding the point in decimal degrees.
+     * @param offset Offset of the point in the array
+     * @return {@link PointStatus#OK}, or the reason the point could not be transformed
+     */
+    @Override
+    protected int degreesToMeters(double[] p, int offset) {
+        double lat = p[offset + 1] * D2R;
+        if (Math.abs(Math.abs(lat) - HALF_PI) <= EPSLN) {
+            //The poles are at infinity
+            return PointStatus.OUT_OF_DOMAIN;
+        }
+        //ln(tan(pi/4 + lat/2)), with a sine instead of the slower tangent
+        double sin = Math.sin(lat);
+        p[offset] = _falseEasting + _radius * (p[offset] * D2R - _lonCenter);
+        p[offset + 1] = _falseNorthing + _radius * 0.5 * Math.log((1.0 + sin) / (1.0 - sin));
+        return PointStatus.OK;
+    }
+
+    /**
+     * Converts coordinates in projected meters to decimal degrees.
+     *
+     * @param p      Array holding the point in meters
+     * @param offset Offset of the point in the array
+     * @return {@link PointStatus#OK}, or the reason the point could not be transformed
+     */
+    @Override
+    protected int metersToDegrees(double[] p, int offset) {
+        double ts = Math.exp((_falseNorthing - p[offset + 1]) / _radius);
+        p[offset] = radians2Degrees((p[offset] - _falseEasting) / _radius + _lonCenter);
+        p[offset + 1] = radians2Degrees(HALF_PI - 2 * Math.atan(ts));
+        return PointStatus.OK;
+    }
+
+    /**
+     * Transforms a packed array of coordinate points, with the formulas inlined in one loop that allocates
+     * nothing.
+     *
+     * @param src    array holding the source points
+     * @param srcOff offset of the first ordinate in the source array
+     * @param dst    array receiving the transformed points
+     * @param dstOff offset of the first ordinate in the destination array
+     * @param numPts number of points to transform
+     * @param dim    number of ordinates per point, at least 2
+     */
+    @Override
+    public void transform(double[] src, int srcOff, double[] dst, int dstOff, int numPts, int dim) {
+        preparePacked(src, srcOff, dst, dstOff, numPts, dim);
+        project(dst, dstOff, dst, dstOff + 1, dim, numPts);
+    }
+
+    /**
+     * Transforms coordinate points stored as separate arrays of ordinates, in place, with the loop of the
+     * packed transform. The third ordinates are left unchanged.
+     *
+     * @param xs  first ordinates of the points
+     * @param ys  second ordinates of the points
+     * @param zs  third ordinates of the points, or null
+     * @param off index of the first point
+     * @param n   number of points to transform
+     */
+    @Override
+    public void transform(double[] xs, double[] ys, double[] zs, int off, int n) {
+        checkColumns(xs, ys, zs, off, n);
+        project(xs, off, ys, off, 1, n);
+    }
+
+    /**
+     * Transforms points in place, the ordinates of the point i being xs[xOff + i * stride] and
+     * ys[yOff + i * stride].
+     */
+    private void project(double[] xs, int xOff, double[] ys, int yOff, int stride, int n) {
+        int end = xOff + n * stride;
+        if (!_isInverse) {
+            double lonOffset = _falseEasting - _radius * _lonCenter;
+            double lonScale = _radius * D2R;
+            double latScale = 0.5 * _radius;
+            for (int i = xOff, j = yOff; i < end; i += stride, j += stride) {
+                double lat = ys[j] * D2R;
+                if (Math.abs(Math.abs(lat) - HALF_PI) <= EPSLN) {
+                    throwIfFailed(PointStatus.OUT_OF_DOMAIN);
+                }
+                double sin = Math.sin(lat);
+                xs[i] = lonOffset + lonScale * xs[i];
+                ys[j] = _falseNorthing + latScale * Math.log((1.0 + sin) / (1.0 - sin));
+            }
+        } else {
+            double invRadius = 1.0 / _radius;
+            double lonOffset = 180.0 / PI * (_lonCenter - _falseEasting * invRadius);
+            double lonScale = 180.0 / PI * invRadius;
+            for (int i = xOff, j = yOff; i < end; i += stride, j += stride) {
+                double ts = Math.exp((_falseNorthing - ys[j]) * invRadius);
+                xs[i] = lonOffset + lonScale * xs[i];
+                ys[j] = 90.0 - 360.0 / PI * Math.atan(ts);
+            }
+        }
+    }
+
+    /**
+     * Projects longitudes and latitudes to the pixel coordinates of the web map at a zoom level, in one pass.
+     * The map is a square of tileSize * 2^zoom pixels centered on the central meridian, with the origin at
+     * its top left corner and y growing southwards; the tile of a point is the integer part of its pixel
+     * coordinates divided by the tile size. The latitudes are clamped to {@link #MAX_LATITUDE}, so all the
+     * points, the poles included, fall on the map. The false origin and unit of the projection do not apply.
+     * <p>
+     * The input is in decimal degrees whichever the direction of this projection.
+     *
+     * @param src      array holding the longitudes and latitudes in decimal degrees
+     * @param srcOff   offset of the first ordinate in the source array
+     * @param dst      array receiving the pixel coordinates
+     * @param dstOff   offset of the first ordinate in the destination array
+     * @param numPts   number of points to transform
+     * @param dim      number of ordinates per point, at least 2; the other ordinates are copied
+     * @param zoom     zoom level, from 0 to {@link #MAX_ZOOM}
+     * @param tileSize size of the tiles in pixels, usually {@link #DEFAULT_TILE_SIZE}
+     */
+    public void toPixels(double[] src, int srcOff, double[] dst, int dstOff, int numPts, int dim, int zoom, int tileSize) {
+        checkZoom(zoom, tileSize);
+        preparePacked(src, srcOff, dst, dstOff, numPts, dim);
+        double size = (double) tileSize * (1L << zoom);
+        double lonOffset = size * (0.5 - _lonCenter / TWO_PI);
+        double lonScale = size / 360.0;
+        double latScale = -size / (4 * PI);
+        for (int off = dstOff, end = dstOff + numPts * dim; off < end; off += dim) {
+            double sin = Math.sin(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, dst[off + 1])) * D2R);
+            dst[off] = lonOffset + lonScale * dst[off];
+            dst[off + 1] = 0.5 * size + latScale * Math.log((1.0 + sin) / (1.0 - sin));
+        }
+    }
+
+    /**
+     * Computes the quadkeys of the web map tiles holding longitudes and latitudes at a zoom level, in one
+     * pass. A quadkey is returned as a number whose base 4 digits, from the most significant, are the digits
+     * of the quadkey string, so that it sorts and prefixes like the string; {@link #quadKeyToString} formats
+     * it. The points are placed on the map as by {@link #toPixels}; the points on the right or bottom edge
+     * of the map, or outside of it in longitude, get the nearest tile.
+     *
+     * @param src     array holding the longitudes and latitudes in decimal degrees, which is not modified
+     * @param srcOff  offset of the first ordinate in the source array
+     * @param numPts  number of points
+     * @param dim     number of ordinates per point, at least 2
+     * @param zoom    zoom level, from 0 to {@link #MAX_ZOOM}
+     * @param keys    array receiving the quadkeys
+     * @param keysOff index of the quadkey of the first point
+     */
+    public void toQuadKeys(double[] src, int srcOff, int numPts, int dim, int zoom, long[] keys, int keysOff) {
+        checkZoom(zoom, 1);
+        if (dim < 2) {
+            throw new IllegalArgumentException("A packed point must have at least 2 ordinates, got " + dim);
+        }
+        int tiles = 1 << zoom;
+        double lonOffset = tiles * (0.5 - _lonCenter / TWO_PI);
+        double lonScale = tiles / 360.0;
+        double latScale = -tiles / (4 * PI);
+        for (int i = 0, off = srcOff; i < numPts; i++, off += dim) {
+            double sin = Math.sin(Math.max(-MAX_LATITUDE, Math.min(MAX_LATITUDE, src[off + 1])) * D2R);
+            int x = (int) Math.max(0, Math.min(tiles - 1, Math.floor(lonOffset + lonScale * src[off])));
+            int y = (int) Math.max(0, Math.min(tiles - 1, Math.floor(0.5 * tiles + latScale * Math.log((1.0 + sin) / (1.0 - sin)))));
+            keys[keysOff + i] = quadKey(x, y, zoom);
+        }
+    }
+
+    /**
+     * Gets the quadkey of a tile as a number, see {@link #toQuadKeys}.
+     *
+     * @param tileX column of the tile, from the west
+     * @param tileY row of the tile, from the north
+     * @param zoom  zoom level, from 0 to {@link #MAX_ZOOM}
+     * @return the quadkey
+     */
+    public static long quadKey(int tileX, int tileY, int zoom) {
+        long key = 0;
+        for (int i = zoom - 1; i >= 0; i--) {
+            key = (key << 2) | (((tileY >> i) & 1) << 1) | ((tileX >> i) & 1);
+        }
+        return key;
+    }
+
+    /**
+     * Formats a quadkey computed by {@link #toQuadKeys} or {@link #quadKey} as the usual string of digits.
+     *
+     * @param key  the quadkey
+     * @param zoom zoom level of the tile, which is the length of the string
+     * @return the quadkey string, empty for zoom 0
+     */
+    public static String quadKeyToString(long key, int zoom) {
+        char[] digits = new char[zoom];
+        for (int i = zoom - 1; i >= 0; i--) {
+            digits[i] = (char) ('0' + (key & 3));
+            key >>>= 2;
+        }
+        return new String(digits);
+    }
+
+    private static void checkZoom(int zoom, int tileSize) {
+        if (zoom < 0 || zoom > MAX_ZOOM) {
+            throw new IllegalArgumentException("The zoom level must be between 0 and " + MAX_ZOOM + ", got " + zoom);
+        }
+        if (tileSize < 1) {
+            throw new IllegalArgumentException("The tile size must be positive, got " + tileSize);
+        }
+    }
+
+    /**
+     * The easting only depends on the longitude and the northing on the latitude, in both directions.
+     */
+    @Override
+    protected boolean isSeparable() {
+        return true;
+    }
+
+    /**
+     * Creates a projection of the same kind with other parameters.
+     *
+     * @param parameters projection parameters
+     * @param isInverse  whether the projection runs from projected to geographic coordinates
+     * @return the projection
+     */
+    @Override
+    protected MapProjection create(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
+        return new PseudoMercator(parameters, isInverse, _precision);
+    }
+}
\ No newline at end of file
@@ -3,8 +3,7 @@ package no.shz.projjava.coordinateSystems.projections;
 import java.util.ArrayList;
 
 import no.shz.projjava.coordinateSystems.ProjectionParameter;
-import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
-import no.shz.utilities.Ref;
+import no.shz.projjava.coordinateSystems.transformations.PointStatus;
 
 /**
  * Copyright 2005 - 2009 - Morten Nielsen (www.sharpgis.net)
@@ -74,14 +73,16 @@ import no.shz.utilities.Ref;
  * U.S. Geological Survey Professional Paper 1395, 1987)</p>
  */
 public class TransverseMercator extends MapProjection {
-    private double _scaleFactor;
-    private double _centralMeridian;
-    private double _e0, e1, e2, e3;
-    private double _es1;
-    private double _esp;
-    private double _ml0;
-    private double _falseNorthing;
-    private double _falseEasting;
+    private final double _scaleFactor;
+    private final double _centralMeridian;
+    private final double _e0, e1, e2, e3;
+    private final double _es1;
+    private final double _esp;
+    private final double _ml0;
+    private final double _tolerance; // tolerance of the footpoint latitude iteration
+    private final double _falseNorthing;
+    private final double _falseEasting;
+    private final double[] _kernelConstants;
 
     /**
      * Creates an instance of an TransverseMercatorProjection projection object.
@@ -93,6 +94,16 @@ public class TransverseMercator extends MapProjection {
 
     }
 
+    /**
+     * Creates an instance of an TransverseMercatorProjection projection object.
+     *
+     * @param parameters List of parameters to initialize the projection.
+     * @param inverse    Flag indicating wether is a forward/projection (false) or an inverse projection (true).
+     */
+    public TransverseMercator(ArrayList<ProjectionParameter> parameters, boolean inverse) {
+        this(parameters, inverse, 0);
+    }
+
     /**
      * Creates an instance of an TransverseMercatorProjection projection object.
      *
@@ -109,9 +120,10 @@ public class TransverseMercator extends MapProjection {
      *                   <item><term>_falseEasting</term><description></description></item>
      *                   <item><term>_falseNorthing</term><description></description></item>
      *                   </list>
+     * @param precision  Accuracy wanted on the ground in meters, or 0 for the full accuracy of the formulas.
      */
-    public TransverseMercator(ArrayList<ProjectionParameter> parameters, boolean inverse) {
-        super(parameters, inverse);
+    public TransverseMercator(ArrayList<ProjectionParameter> parameters, boolean inverse, double precision) {
+        super(parameters, inverse, precision);
         this.setName("Transverse_Mercator");
         this.setAuthority("EPSG");
         this.setAuthorityCode(9807);
@@ -152,18 +164,26 @@ public class TransverseMercator extends MapProjection {
         e3 = e3fn(_es1);
         _ml0 = this._semiMajor * mlfn(_e0, e1, e2, e3, lat_origin);
         _esp = _es1 / (1.0 - _es1);
+        //The iteration converges linearly with a ratio of about es, so the error left is below the last step
+        _tolerance = _precision > 0 ? _precision / this._semiMajor : EPSLN;
+
+        _kernelConstants = transverseMercatorConstants(this._semiMajor, _scaleFactor, _centralMeridian, _es1, _esp, _e0, e1, e2, e3, _ml0, _falseEasting, _falseNorthing, _metersPerUnit, _tolerance);
     }
 
     /**
      * Converts coordinates in decimal degrees to projected meters.
      *
-     * @param lonlat The point in decimal degrees.
-     * @return Point in projected meters
+     * @param p      Array holding the point in decimal degrees.
+     * @param offset Offset of the point in the array
+     * @return {@link PointStatus#OK}, or the reason the point could not be transformed
      */
     @Override
-    public double[] degreesToMeters(double[] lonlat) {
-        double lon = degrees2Radians(lonlat[0]);
-        double lat = degrees2Radians(lonlat[1]);
+    protected int degreesToMeters(double[] p, int offset) {
+        if (_isSpherical) {
+            return sphereDegreesToMeters(p, offset);
+        }
+        double lon = degrees2Radians(p[offset]);
+        double lat = degrees2Radians(p[offset + 1]);
 
         double delta_lon;
         double sin_phi = 0, cos_phi = 0;
@@ -172,38 +192,37 @@ public class TransverseMercator extends MapProjection {
         double con, n, ml;
 
         delta_lon = adjustLon(lon - _centralMeridian);
-        Ref<Double> tempRef_sin_phi = new Ref<>(sin_phi);
-        Ref<Double> tempRef_cos_phi = new Ref<>(cos_phi);
-        sincos(lat, tempRef_sin_phi, tempRef_cos_phi);
-        cos_phi = tempRef_cos_phi.value;
-        sin_phi = tempRef_sin_phi.value;
+        sin_phi = Math.sin(lat);
+        cos_phi = Math.cos(lat);
 
         al = cos_phi * delta_lon;
-        als = Math.pow(al, 2);
-        c = _esp * Math.pow(cos_phi, 2);
+        als = al * al;
+        c = _esp * cos_phi * cos_phi;
         tq = Math.tan(lat);
-        t = Math.pow(tq, 2);
-        con = 1.0 - _es1 * Math.pow(sin_phi, 2);
+        t = tq * tq;
+        con = 1.0 - _es1 * sin_phi * sin_phi;
         n = this._semiMajor / Math.sqrt(con);
         ml = this._semiMajor * mlfn(_e0, e1, e2, e3, lat);
 
-        double x = _scaleFactor * n * al * (1.0 + als / 6.0 * (1.0 - t + c + als / 20.0 * (5.0 - 18.0 * t + Math.pow(t, 2) + 72.0 * c - 58.0 * _esp))) + _falseEasting;
-        double y = _scaleFactor * (ml - _ml0 + n * tq * (als * (0.5 + als / 24.0 * (5.0 - t + 9.0 * c + 4.0 * Math.pow(c, 2) + als / 30.0 * (61.0 - 58.0 * t + Math.pow(t, 2) + 600.0 * c - 330.0 * _esp))))) + _falseNorthing;
-        if (lonlat.length < 3) {
-            return new double[]{x / _metersPerUnit, y / _metersPerUnit};
-        } else {
-            return new double[]{x / _metersPerUnit, y / _metersPerUnit, lonlat[2]};
-        }
+        double x = _scaleFactor * n * al * (1.0 + als / 6.0 * (1.0 - t + c + als / 20.0 * (5.0 - 18.0 * t + t * t + 72.0 * c - 58.0 * _esp))) + _falseEasting;
+        double y = _scaleFactor * (ml - _ml0 + n * tq * (als * (0.5 + als / 24.0 * (5.0 - t + 9.0 * c + 4.0 * c * c + als / 30.0 * (61.0 - 58.0 * t + t * t + 600.0 * c - 330.0 * _esp))))) + _falseNorthing;
+        p[offset] = x / _metersPerUnit;
+        p[offset + 1] = y / _metersPerUnit;
+        return PointStatus.OK;
     }
 
     /**
      * Converts coordinates in projected meters to decimal degrees.
      *
-     * @param p Point in meters
-     * @return Transformed point in decimal degrees
+     * @param p      Array holding the point in meters
+     * @param offset Offset of the point in the array
+     * @return {@link PointStatus#OK}, or the reason the point could not be transformed
      */
     @Override
-    public double[] metersToDegrees(double[] p) {
+    protected int metersToDegrees(double[] p, int offset) {
+        if (_isSpherical) {
+            return sphereMetersToDegrees(p, offset);
+        }
         double con, phi; // temporary angles
         double delta_phi; // difference between longitudes
         long i; // counter variable
@@ -212,66 +231,139 @@ public class TransverseMercator extends MapProjection {
         long max_iter = 6; // maximun number of iterations
 
 
-        double x = p[0] * _metersPerUnit - _falseEasting;
-        double y = p[1] * _metersPerUnit - _falseNorthing;
+        double x = p[offset] * _metersPerUnit - _falseEasting;
+        double y = p[offset + 1] * _metersPerUnit - _falseNorthing;
 
         con = (_ml0 + y / _scaleFactor) / this._semiMajor;
         phi = con;
         for (i = 0; ; i++) {
             delta_phi = ((con + e1 * Math.sin(2.0 * phi) - e2 * Math.sin(4.0 * phi) + e3 * Math.sin(6.0 * phi)) / _e0) - phi;
             phi += delta_phi;
-            if (Math.abs(delta_phi) <= EPSLN) {
+            if (Math.abs(delta_phi) <= _tolerance) {
                 break;
             }
             if (i >= max_iter) {
-                throw new IllegalArgumentException("Latitude failed to converge");
+                return PointStatus.NO_CONVERGENCE;
             }
         }
         if (Math.abs(phi) < HALF_PI) {
-            Ref<Double> tempRef_sin_phi = new Ref<>(sin_phi);
-            Ref<Double> tempRef_cos_phi = new Ref<>(cos_phi);
-            sincos(phi, tempRef_sin_phi, tempRef_cos_phi);
-            cos_phi = tempRef_cos_phi.value;
-            sin_phi = tempRef_sin_phi.value;
+            sin_phi = Math.sin(phi);
+            cos_phi = Math.cos(phi);
             tan_phi = Math.tan(phi);
-            c = _esp * Math.pow(cos_phi, 2);
-            cs = Math.pow(c, 2);
-            t = Math.pow(tan_phi, 2);
-            ts = Math.pow(t, 2);
-            con = 1.0 - _es1 * Math.pow(sin_phi, 2);
+            c = _esp * cos_phi * cos_phi;
+            cs = c * c;
+            t = tan_phi * tan_phi;
+            ts = t * t;
+            con = 1.0 - _es1 * sin_phi * sin_phi;
             n = this._semiMajor / Math.sqrt(con);
             r = n * (1.0 - _es1) / con;
             d = x / (n * _scaleFactor);
-            ds = Math.pow(d, 2);
+            ds = d * d;
 
             double lat = phi - (n * tan_phi * ds / r) * (0.5 - ds / 24.0 * (5.0 + 3.0 * t + 10.0 * c - 4.0 * cs - 9.0 * _esp - ds / 30.0 * (61.0 + 90.0 * t + 298.0 * c + 45.0 * ts - 252.0 * _esp - 3.0 * cs)));
             double lon = adjustLon(_centralMeridian + (d * (1.0 - ds / 6.0 * (1.0 + 2.0 * t + c - ds / 20.0 * (5.0 - 2.0 * c + 28.0 * t - 3.0 * cs + 8.0 * _esp + 24.0 * ts))) / cos_phi));
 
-            if (p.length < 3) {
-                return new double[]{radians2Degrees(lon), radians2Degrees(lat)};
-            } else {
-                return new double[]{radians2Degrees(lon), radians2Degrees(lat), p[2]};
-            }
+            p[offset] = radians2Degrees(lon);
+            p[offset + 1] = radians2Degrees(lat);
         } else {
-            if (p.length < 3) {
-                return new double[]{radians2Degrees(HALF_PI * sign(y)), radians2Degrees(_centralMeridian)};
-            } else {
-                return new double[]{radians2Degrees(HALF_PI * sign(y)), radians2Degrees(_centralMeridian), p[2]};
-            }
+            p[offset] = radians2Degrees(HALF_PI * sign(y));
+            p[offset + 1] = radians2Degrees(_centralMeridian);
+        }
+        return PointStatus.OK;
+    }
 
+    /**
+     * Converts coordinates in decimal degrees to projected meters on a sphere, with the exact closed-form
+     * formulas instead of the series. The angles are computed with atan, which is much cheaper than asin and
+     * atan2, and the quadrant is restored by hand.
+     */
+    private int sphereDegreesToMeters(double[] p, int offset) {
+        double lat = degrees2Radians(p[offset + 1]);
+        double delta_lon = adjustLon(degrees2Radians(p[offset]) - _centralMeridian);
+        double sin_phi = Math.sin(lat);
+        double cos_phi = Math.cos(lat);
+        double b = cos_phi * Math.sin(delta_lon);
+        if (Math.abs(Math.abs(b) - 1.0) <= EPSLN) {
+            //The points on the equator 90 degrees from the central meridian are at infinity
+            return PointStatus.OUT_OF_DOMAIN;
+        }
+        //Angle along the central meridian, atan2(sin_phi, c)
+        double c = cos_phi * Math.cos(delta_lon);
+        double d = Math.atan(sin_phi / c);
+        if (c < 0) {
+            d += sin_phi < 0 ? -PI : PI;
         }
+        double x = 0.5 * this._semiMajor * _scaleFactor * Math.log((1.0 + b) / (1.0 - b)) + _falseEasting;
+        double y = _scaleFactor * (this._semiMajor * d - _ml0) + _falseNorthing;
+        p[offset] = x / _metersPerUnit;
+        p[offset + 1] = y / _metersPerUnit;
+        return PointStatus.OK;
     }
 
     /**
-     * Returns the inverse of this projection.
+     * Converts coordinates in projected meters to decimal degrees on a sphere, with the exact closed-form
+     * formulas instead of the footpoint latitude iteration and the series.
+     */
+    private int sphereMetersToDegrees(double[] p, int offset) {
+        double x = (p[offset] * _metersPerUnit - _falseEasting) / (this._semiMajor * _scaleFactor);
+        double d = (_ml0 + (p[offset + 1] * _metersPerUnit - _falseNorthing) / _scaleFactor) / this._semiMajor;
+        double f = Math.exp(x);
+        double sinh_x = 0.5 * (f - 1.0 / f);
+        double sin_d = Math.sin(d);
+        double cos_d = Math.cos(d);
+        //asin(sin_d / cosh_x), with cosh_x^2 - sin_d^2 = sinh_x^2 + cos_d^2
+        double lat = Math.atan(sin_d / Math.sqrt(sinh_x * sinh_x + cos_d * cos_d));
+        //atan2(sinh_x, cos_d)
+        double lon = sinh_x == 0 && cos_d == 0 ? 0 : Math.atan(sinh_x / cos_d);
+        if (cos_d < 0) {
+            lon += sinh_x < 0 ? -PI : PI;
+        }
+        p[offset] = radians2Degrees(adjustLon(_centralMeridian + lon));
+        p[offset + 1] = radians2Degrees(lat);
+        return PointStatus.OK;
+    }
+
+    /**
+     * Transforms coordinate points stored as separate arrays of ordinates, in place. The third
+     * ordinates are left unchanged.
+     * <p>
+     * The points are handed to the vector kernels first, unless the ellipsoid is a sphere; the points
+     * they leave are transformed one by one.
      *
-     * @return IMathTransform that is the reverse of the current projection.
+     * @param xs  first ordinates of the points
+     * @param ys  second ordinates of the points
+     * @param zs  third ordinates of the points, or null
+     * @param off index of the first point
+     * @param n   number of points to transform
      */
     @Override
-    public IMathTransform inverse() {
-        if (_inverse == null) {
-            _inverse = new TransverseMercator(this._parameters, !_isInverse);
+    public void transform(double[] xs, double[] ys, double[] zs, int off, int n) {
+        checkColumns(xs, ys, zs, off, n);
+        double[] p = new double[2];
+        for (int i = off, end = off + n; i < end; i++) {
+            if (!_isSpherical) {
+                i += transverseMercatorKernel(_kernelConstants, _isInverse, xs, ys, i, end - i);
+                if (i == end) {
+                    break;
+                }
+            }
+            p[0] = xs[i];
+            p[1] = ys[i];
+            throwIfFailed(_isInverse ? metersToDegrees(p, 0) : degreesToMeters(p, 0));
+            xs[i] = p[0];
+            ys[i] = p[1];
         }
-        return _inverse;
+    }
+
+    /**
+     * Creates a projection of the same kind with other parameters.
+     *
+     * @param parameters projection parameters
+     * @param isInverse  whether the projection runs from projected to geographic coordinates
+     * @return the projection
+     */
+    @Override
+    protected MapProjection create(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
+        return new TransverseMercator(parameters, isInverse, _precision);
     }
 }
\ No newline at end of file
@@ -0,0 +1,530 @@
+package no.shz.projjava.coordinateSystems.transformations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import no.shz.projjava.coordinateSystems.ProjectionParameter;
+
+/**
+ * Transforms points by multiplying them with a matrix.
+ * <p>
+ * If the transform's input dimension is M, and output dimension is N, then the matrix has size [N+1][M+1].
+ * The last column holds the translation and the last row is always [0, ..., 0, 1]. Unit conversions, axis
+ * swaps and flips, prime meridian shifts and Helmert datum shifts are all affine transforms, and consecutive
+ * affine steps of a ConcatenatedTransform are merged into a single one.
+ * <p>
+ * Points with fewer ordinates than the input dimension are completed with zeros, ordinates past the
+ * input dimension are left unchanged, and output ordinates that do not fit into a point are not written.
+ * So a 2-dimensional transform applied to 3-dimensional points keeps their height, and a 3-dimensional
+ * transform applied to 2-dimensional points takes their height as 0.
+ * <p>
+ * The matrix does not change once created, so an affine transform can be shared between threads.
+ */
+public class AffineTransform extends MathTransform {
+    private final int _dimSource;
+    private final int _dimTarget;
+
+    /**
+     * The first N rows of the matrix, stored by rows. The last row is not stored.
+     */
+    private final double[] m;
+
+    private volatile AffineTransform _inverse;
+
+    /**
+     * Creates an affine transform from a matrix.
+     *
+     * @param matrix matrix of size [N+1][M+1], with the translation in the last column and [0, ..., 0, 1] as last row
+     */
+    public AffineTransform(double[][] matrix) {
+        this(checkMatrix(matrix), matrix.length - 1, flatten(matrix));
+    }
+
+    /**
+     * Creates an affine transform from the first rows of a matrix, stored by rows. The array is not copied.
+     *
+     * @param dimSource number of input ordinates M
+     * @param dimTarget number of output ordinates N
+     * @param elements  N rows of M+1 values
+     */
+    protected AffineTransform(int dimSource, int dimTarget, double[] elements) {
+        if (elements.length != dimTarget * (dimSource + 1)) {
+            throw new IllegalArgumentException("A " + dimTarget + "x" + (dimSource + 1) + " matrix can not have " + elements.length + " elements");
+        }
+        _dimSource = dimSource;
+        _dimTarget = dimTarget;
+        m = elements;
+    }
+
+    /**
+     * Checks that a matrix is affine and returns its input dimension.
+     */
+    private static int checkMatrix(double[][] matrix) {
+        if (matrix.length < 2 || matrix[0].length < 2) {
+            throw new IllegalArgumentException("An affine matrix must have at least 2 rows and 2 columns");
+        }
+        int columns = matrix[0].length;
+        for (double[] row : matrix) {
+            if (row.length != columns) {
+                throw new IllegalArgumentException("All rows of the matrix must have " + columns + " columns");
+            }
+        }
+        double[] last = matrix[matrix.length - 1];
+        for (int j = 0; j < columns; j++) {
+            if (last[j] != (j == columns - 1 ? 1 : 0)) {
+                throw new IllegalArgumentException("The last row of an affine matrix must be [0, ..., 0, 1]");
+            }
+        }
+        return columns - 1;
+    }
+
+    private static double[] flatten(double[][] matrix) {
+        int columns = matrix[0].length;
+        double[] elements = new double[(matrix.length - 1) * columns];
+        for (int i = 0; i < matrix.length - 1; i++) {
+            System.arraycopy(matrix[i], 0, elements, i * columns, columns);
+        }
+        return elements;
+    }
+
+    /**
+     * Creates a transform multiplying each of the first ordinates by a factor and adding an offset.
+     *
+     * @param scales  factor of each ordinate
+     * @param offsets offset added to each ordinate after scaling
+     * @return the transform
+     */
+    public static AffineTransform createScale(double[] scales, double[] offsets) {
+        if (scales.length != offsets.length) {
+            throw new IllegalArgumentException("There must be as many offsets as scales");
+        }
+        int n = scales.length;
+        double[] elements = new double[n * (n + 1)];
+        for (int i = 0; i < n; i++) {
+            elements[i * (n + 1) + i] = scales[i];
+            elements[i * (n + 1) + n] = offsets[i];
+        }
+        return new AffineTransform(n, n, elements);
+    }
+
+    /**
+     * Gets the dimension of input points.
+     */
+    @Override
+    public int getDimSource() {
+        return _dimSource;
+    }
+
+    /**
+     * Gets the dimension of output points.
+     */
+    @Override
+    public int getDimTarget() {
+        return _dimTarget;
+    }
+
+    /**
+     * Gets a copy of the matrix, of size [N+1][M+1].
+     */
+    public final double[][] getMatrix() {
+        int columns = _dimSource + 1;
+        double[][] matrix = new double[_dimTarget + 1][];
+        for (int i = 0; i < _dimTarget; i++) {
+            matrix[i] = Arrays.copyOfRange(m, i * columns, (i + 1) * columns);
+        }
+        matrix[_dimTarget] = new double[columns];
+        matrix[_dimTarget][_dimSource] = 1;
+        return matrix;
+    }
+
+    /**
+     * Tests whether this transform does not move any points.
+     */
+    @Override
+    public boolean getIdentity() {
+        if (_dimSource != _dimTarget) {
+            return false;
+        }
+        int columns = _dimSource + 1;
+        for (int i = 0; i < _dimTarget; i++) {
+            for (int j = 0; j < columns; j++) {
+                if (m[i * columns + j] != (i == j ? 1 : 0)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets an element of the matrix.
+     */
+    final double getElement(int row, int column) {
+        return row == _dimTarget ? (column == _dimSource ? 1 : 0) : m[row * (_dimSource + 1) + column];
+    }
+
+    /**
+     * Tests whether this transform only scales and translates the first two ordinates, by the same factor.
+     */
+    final boolean isUniformScale2D() {
+        if (_dimSource != 2 || _dimTarget != 2) {
+            return false;
+        }
+        return m[1] == 0 && m[3] == 0 && m[0] == m[4] && m[0] > 0;
+    }
+
+    /**
+     * Tests whether the first two output ordinates are each a scaled and translated copy of the same
+     * input ordinate, without rotation, shear or dependence on the height.
+     */
+    @Override
+    protected boolean isSeparable() {
+        if (_dimSource < 2 || _dimTarget < 2) {
+            return false;
+        }
+        int columns = _dimSource + 1;
+        for (int j = 0; j < _dimSource; j++) {
+            if ((j != 0 && m[j] != 0) || (j != 1 && m[columns + j] != 0)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    protected void transformSeparable(double[] xs, double[] ys) {
+        if (!isSeparable()) {
+            throw new UnsupportedOperationException("The transform is not separable");
+        }
+        int columns = _dimSource + 1;
+        double scaleX = m[0], offsetX = m[_dimSource];
+        double scaleY = m[columns + 1], offsetY = m[columns + _dimSource];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = scaleX * xs[i] + offsetX;
+        }
+        for (int j = 0; j < ys.length; j++) {
+            ys[j] = scaleY * ys[j] + offsetY;
+        }
+    }
+
+    /**
+     * Creates the inverse transform of this object.
+     * <p>
+     * The inverse is created once and cached, and its own inverse is this transform.
+     *
+     * @return the inverse transform
+     * @throws UnsupportedOperationException if the matrix is not square or can not be inverted
+     */
+    @Override
+    public IMathTransform inverse() {
+        AffineTransform inverse = _inverse;
+        if (inverse == null) {
+            inverse = createInverse();
+            inverse._inverse = this;
+            _inverse = inverse;
+        }
+        return inverse;
+    }
+
+    /**
+     * Creates a new transform running in the opposite direction of this one, by inverting the matrix.
+     *
+     * @return the inverse transform
+     */
+    protected AffineTransform createInverse() {
+        if (_dimSource != _dimTarget) {
+            throw new UnsupportedOperationException("A " + _dimTarget + "x" + _dimSource + " affine transform can not be inverted");
+        }
+        int n = _dimSource;
+        int columns = n + 1;
+        //Gauss-Jordan elimination with partial pivoting on [A | I]
+        double[][] a = new double[n][2 * n];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(m, i * columns, a[i], 0, n);
+            a[i][n + i] = 1;
+        }
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            for (int row = col + 1; row < n; row++) {
+                if (Math.abs(a[row][col]) > Math.abs(a[pivot][col])) {
+                    pivot = row;
+                }
+            }
+            if (a[pivot][col] == 0) {
+                throw new UnsupportedOperationException("The affine transform can not be inverted");
+            }
+            double[] swap = a[col];
+            a[col] = a[pivot];
+            a[pivot] = swap;
+            double divisor = a[col][col];
+            for (int j = 0; j < 2 * n; j++) {
+                a[col][j] /= divisor;
+            }
+            for (int row = 0; row < n; row++) {
+                double factor = a[row][col];
+                if (row != col && factor != 0) {
+                    for (int j = 0; j < 2 * n; j++) {
+                        a[row][j] -= factor * a[col][j];
+                    }
+                }
+            }
+        }
+        double[] elements = new double[n * columns];
+        for (int i = 0; i < n; i++) {
+            double t = 0;
+            for (int j = 0; j < n; j++) {
+                double v = a[i][n + j];
+                elements[i * columns + j] = v;
+                t -= v * m[j * columns + n];
+            }
+            elements[i * columns + n] = t;
+        }
+        return new AffineTransform(n, n, elements);
+    }
+
+    /**
+     * Tests whether another affine transform undoes this one.
+     */
+    boolean isInverseOf(AffineTransform other) {
+        return other == _inverse;
+    }
+
+    /**
+     * Creates a single transform equivalent to applying this transform and then the next one.
+     * <p>
+     * Square transforms of different dimensions are merged in the larger dimension, where the smaller one
+     * leaves the extra ordinates unchanged, as it does when applied to points with more ordinates.
+     *
+     * @param next transform applied after this one
+     * @return the merged transform
+     * @throws IllegalArgumentException if the output dimension of this transform does not match the input of the next one
+     */
+    public AffineTransform concatenate(AffineTransform next) {
+        AffineTransform first = this;
+        if (first._dimSource == first._dimTarget && next._dimSource == next._dimTarget) {
+            int n = Math.max(first._dimSource, next._dimSource);
+            first = first.expand(n);
+            next = next.expand(n);
+        }
+        if (first._dimTarget != next._dimSource) {
+            throw new IllegalArgumentException("Can not apply a transform with " + next._dimSource + " input ordinates to " + first._dimTarget + " ordinates");
+        }
+        int inner = first._dimTarget;
+        int columns = first._dimSource + 1;
+        double[] a = first.m;
+        double[] b = next.m;
+        double[] c = new double[next._dimTarget * columns];
+        for (int i = 0; i < next._dimTarget; i++) {
+            for (int j = 0; j < columns; j++) {
+                double sum = 0;
+                for (int k = 0; k < inner; k++) {
+                    sum += b[i * (inner + 1) + k] * a[k * columns + j];
+                }
+                c[i * columns + j] = sum;
+            }
+            c[i * columns + columns - 1] += b[i * (inner + 1) + inner];
+        }
+        return new AffineTransform(first._dimSource, next._dimTarget, c);
+    }
+
+    /**
+     * Returns this square transform in a larger dimension, leaving the extra ordinates unchanged.
+     */
+    private AffineTransform expand(int n) {
+        int d = _dimSource;
+        if (d == n) {
+            return this;
+        }
+        double[] elements = new double[n * (n + 1)];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < n; j++) {
+                elements[i * (n + 1) + j] = i < d && j < d ? m[i * (d + 1) + j] : (i == j ? 1 : 0);
+            }
+            elements[i * (n + 1) + n] = i < d ? m[i * (d + 1) + d] : 0;
+        }
+        return new AffineTransform(n, n, elements);
+    }
+
+    /**
+     * Applies the transform to packed points in place.
+     */
+    private void apply(double[] p, int start, int end, int dim) {
+        if (_dimSource == 2 && _dimTarget == 2) {
+            double m00 = m[0], m01 = m[1], m02 = m[2];
+            double m10 = m[3], m11 = m[4], m12 = m[5];
+            for (int off = start; off < end; off += dim) {
+                double x = p[off];
+                double y = p[off + 1];
+                p[off] = m00 * x + m01 * y + m02;
+                p[off + 1] = m10 * x + m11 * y + m12;
+            }
+        } else if (_dimSource == 3 && _dimTarget == 3) {
+            for (int off = start; off < end; off += dim) {
+                double x = p[off];
+                double y = p[off + 1];
+                double z = dim > 2 ? p[off + 2] : 0;
+                p[off] = m[0] * x + m[1] * y + m[2] * z + m[3];
+                p[off + 1] = m[4] * x + m[5] * y + m[6] * z + m[7];
+                if (dim > 2) {
+                    p[off + 2] = m[8] * x + m[9] * y + m[10] * z + m[11];
+                }
+            }
+        } else {
+            int columns = _dimSource + 1;
+            int rows = Math.min(_dimTarget, dim);
+            double[] in = new double[_dimSource];
+            for (int off = start; off < end; off += dim) {
+                for (int j = 0; j < _dimSource; j++) {
+                    in[j] = j < dim ? p[off + j] : 0;
+                }
+                for (int i = 0; i < rows; i++) {
+                    int row = i * columns;
+                    double sum = m[row] * in[0];
+                    for (int j = 1; j < _dimSource; j++) {
+                        sum += m[row + j] * in[j];
+                    }
+                    p[off + i] = sum + m[row + _dimSource];
+                }
+            }
+        }
+    }
+
+    /**
+     * Transforms a coordinate point. The passed parameter point is not modified.
+     *
+     * @param point
+     * @return the transformed point, with at least as many ordinates as the output dimension
+     */
+    @Override
+    public double[] transform(double[] point) {
+        double[] result = Arrays.copyOf(point, Math.max(point.length, _dimTarget));
+        apply(result, 0, result.length, result.length);
+        return result;
+    }
+
+    /**
+     * Transforms a packed array of coordinate points without allocating per point.
+     *
+     * @param src    array holding the source points
+     * @param srcOff offset of the first ordinate in the source array
+     * @param dst    array receiving the transformed points
+     * @param dstOff offset of the first ordinate in the destination array
+     * @param numPts number of points to transform
+     * @param dim    number of ordinates per point, at least 2
+     */
+    @Override
+    public void transform(double[] src, int srcOff, double[] dst, int dstOff, int numPts, int dim) {
+        preparePacked(src, srcOff, dst, dstOff, numPts, dim);
+        apply(dst, dstOff, dstOff + numPts * dim, dim);
+    }
+
+    /**
+     * Transforms coordinate points stored as separate arrays of ordinates, in place.
+     * When zs is null z is taken as 0 and not written. The 3-dimensional case runs on the
+     * {@link VectorKernels} when they are vectorized.
+     *
+     * @param xs  first ordinates of the points
+     * @param ys  second ordinates of the points
+     * @param zs  third ordinates of the points, or null
+     * @param off index of the first point
+     * @param n   number of points to transform
+     */
+    @Override
+    public void transform(double[] xs, double[] ys, double[] zs, int off, int n) {
+        checkColumns(xs, ys, zs, off, n);
+        int end = off + n;
+        if (_dimSource == 2 && _dimTarget == 2) {
+            double m00 = m[0], m01 = m[1], m02 = m[2];
+            double m10 = m[3], m11 = m[4], m12 = m[5];
+            for (int i = off; i < end; i++) {
+                double x = xs[i];
+                double y = ys[i];
+                xs[i] = m00 * x + m01 * y + m02;
+                ys[i] = m10 * x + m11 * y + m12;
+            }
+        } else if (_dimSource == 3 && _dimTarget == 3) {
+            double m00 = m[0], m01 = m[1], m02 = m[2], m03 = m[3];
+            double m10 = m[4], m11 = m[5], m12 = m[6], m13 = m[7];
+            double m20 = m[8], m21 = m[9], m22 = m[10], m23 = m[11];
+            int start = off + VectorKernels.getInstance().affine3D(m, xs, ys, zs, off, n);
+            if (zs == null) {
+                for (int i = start; i < end; i++) {
+                    double x = xs[i];
+                    double y = ys[i];
+                    xs[i] = m00 * x + m01 * y + m03;
+                    ys[i] = m10 * x + m11 * y + m13;
+                }
+            } else {
+                for (int i = start; i < end; i++) {
+                    double x = xs[i];
+                    double y = ys[i];
+                    double z = zs[i];
+                    xs[i] = m00 * x + m01 * y + m02 * z + m03;
+                    ys[i] = m10 * x + m11 * y + m12 * z + m13;
+                    zs[i] = m20 * x + m21 * y + m22 * z + m23;
+                }
+            }
+        } else {
+            super.transform(xs, ys, zs, off, n);
+        }
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values.
+     *
+     * @param points
+     * @return the transformed points
+     */
+    @Override
+    public ArrayList<double[]> transformList(ArrayList<double[]> points) {
+        ArrayList<double[]> pnts = new ArrayList<>(points.size());
+        for (double[] p : points) {
+            pnts.add(transform(p));
+        }
+        return pnts;
+    }
+
+    private ArrayList<ProjectionParameter> getParameters() {
+        int columns = _dimSource + 1;
+        ArrayList<ProjectionParameter> parameters = new ArrayList<>();
+        parameters.add(new ProjectionParameter("num_row", _dimTarget + 1));
+        parameters.add(new ProjectionParameter("num_col", columns));
+        for (int i = 0; i < _dimTarget; i++) {
+            for (int j = 0; j < columns; j++) {
+                double value = m[i * columns + j];
+                if (value != (i == j ? 1 : 0)) {
+                    parameters.add(new ProjectionParameter("elt_" + i + "_" + j, value));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Returns the Well-known text for this object
+     * as defined in the simple features specification. Only the matrix elements that differ
+     * from the identity matrix are listed.
+     */
+    @Override
+    public String getWKT() {
+        StringBuilder sb = new StringBuilder("PARAM_MT[\"Affine\"");
+        for (ProjectionParameter parameter : getParameters()) {
+            sb.append(", ").append(parameter.getWKT());
+        }
+        sb.append("]");
+        return sb.toString();
+    }
+
+    /**
+     * Gets an XML representation of this object
+     */
+    @Override
+    public String getXML() {
+        StringBuilder sb = new StringBuilder("<CT_MathTransform><CT_ParameterizedMathTransform Name=\"Affine\">");
+        for (ProjectionParameter parameter : getParameters()) {
+            sb.append(parameter.getXML());
+        }
+        sb.append("</CT_ParameterizedMathTransform></CT_MathTransform>");
+        return sb.toString();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,458 @@
+package no.shz.projjava.coordinateSystems.transformations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Approximates another transform over a rectangle by bilinear interpolation, for raster warping and
+ * tile reprojection where millions of close points are transformed.
+ * <p>
+ * The exact transform is evaluated on a coarse mesh of cells covering the rectangle. Each cell is checked
+ * by transforming the middles of its edges and its center exactly and comparing them with the bilinear
+ * interpolation of its corners; where an ordinate differs by more than the tolerance, the cell is split
+ * into four and the children are checked the same way, down to a maximum depth. Points inside the
+ * rectangle are then transformed by locating their cell and interpolating between its corners, which
+ * costs a few multiplications instead of the trigonometry of the exact transform.
+ * <p>
+ * The tolerance is given in target units, for warping usually a fraction of the target pixel size such
+ * as 0.125 pixel. The check is made on sample points, so the error bound holds for transforms which are
+ * smooth over a cell, which is the case of the projections away from their singularities. Points outside
+ * the rectangle, and points in cells where the exact transform fails or the tolerance is not met at the
+ * maximum depth, are transformed with the exact transform. A cell with a corner or a sample the exact
+ * transform fails on, such as a cell crossing a pole or leaving the domain of a projection, is not split
+ * but left to the exact transform at once.
+ * <p>
+ * The approximation covers the first two ordinates: the exact transform must take 2-dimensional points,
+ * and ordinates past the second are left unchanged. The mesh is built by the constructor and does not
+ * change afterwards, so an approximate transform can be shared between threads.
+ */
+public class ApproximateTransform extends MathTransform {
+    /**
+     * Default number of cells of the initial mesh along each axis.
+     */
+    public static final int DEFAULT_MESH_SIZE = 8;
+
+    /**
+     * Default number of times a cell of the initial mesh can be split.
+     */
+    public static final int DEFAULT_MAX_DEPTH = 10;
+
+    /**
+     * Child index of a cell interpolated between its corners.
+     */
+    private static final int LEAF = -1;
+
+    /**
+     * Child index of a cell transformed with the exact transform.
+     */
+    private static final int EXACT = -2;
+
+    private final IMathTransform _exact;
+    private final double _xMin;
+    private final double _yMin;
+    private final double _xMax;
+    private final double _yMax;
+    private final double _tolerance;
+    private final int _nx;
+    private final int _ny;
+    private final double _cellWidth;
+    private final double _cellHeight;
+    private final double _xScale;
+    private final double _yScale;
+    private final int _maxDepth;
+
+    /**
+     * Index of the first of the four children of each cell, or LEAF or EXACT. The cells of the initial
+     * mesh come first, by rows, and the children are stored south-west, south-east, north-west, north-east.
+     */
+    private int[] _children;
+
+    /**
+     * Transformed corners of each cell, x and y of the south-west, south-east, north-west and north-east corners.
+     */
+    private double[] _corners;
+
+    private int _cellCount;
+
+    /**
+     * Creates an approximation of a transform over a rectangle, with the default mesh size and depth.
+     *
+     * @param exact     the transform to approximate, taking 2-dimensional points
+     * @param xMin      smallest x of the rectangle
+     * @param yMin      smallest y of the rectangle
+     * @param xMax      largest x of the rectangle
+     * @param yMax      largest y of the rectangle
+     * @param tolerance largest difference allowed between an interpolated and an exact ordinate, in target units
+     */
+    public ApproximateTransform(IMathTransform exact, double xMin, double yMin, double xMax, double yMax, double tolerance) {
+        this(exact, xMin, yMin, xMax, yMax, tolerance, DEFAULT_MESH_SIZE, DEFAULT_MAX_DEPTH);
+    }
+
+    /**
+     * Creates an approximation of a transform over a rectangle.
+     *
+     * @param exact     the transform to approximate, taking 2-dimensional points
+     * @param xMin      smallest x of the rectangle
+     * @param yMin      smallest y of the rectangle
+     * @param xMax      largest x of the rectangle
+     * @param yMax      largest y of the rectangle
+     * @param tolerance largest difference allowed between an interpolated and an exact ordinate, in target units
+     * @param meshSize  number of cells of the initial mesh along each axis
+     * @param maxDepth  number of times a cell of the initial mesh can be split
+     */
+    public ApproximateTransform(IMathTransform exact, double xMin, double yMin, double xMax, double yMax, double tolerance, int meshSize, int maxDepth) {
+        if (exact == null) {
+            throw new IllegalArgumentException("The exact transform can not be null");
+        }
+        if (!(xMin < xMax && yMin < yMax)) {
+            throw new IllegalArgumentException("Invalid rectangle: " + xMin + ", " + yMin + ", " + xMax + ", " + yMax);
+        }
+        if (!(tolerance > 0)) {
+            throw new IllegalArgumentException("The tolerance must be positive, got " + tolerance);
+        }
+        if (meshSize < 1 || maxDepth < 0 || maxDepth > 30) {
+            throw new IllegalArgumentException("Invalid mesh size " + meshSize + " or depth " + maxDepth);
+        }
+        _exact = exact;
+        _xMin = xMin;
+        _yMin = yMin;
+        _xMax = xMax;
+        _yMax = yMax;
+        _tolerance = tolerance;
+        _nx = meshSize;
+        _ny = meshSize;
+        _cellWidth = (xMax - xMin) / meshSize;
+        _cellHeight = (yMax - yMin) / meshSize;
+        _xScale = meshSize / (xMax - xMin);
+        _yScale = meshSize / (yMax - yMin);
+        _maxDepth = maxDepth;
+        buildMesh();
+    }
+
+    /**
+     * Transforms the nodes of the initial mesh and refines each of its cells.
+     */
+    private void buildMesh() {
+        int cells = _nx * _ny;
+        _children = new int[cells * 4];
+        _corners = new double[cells * 4 * 8];
+        _cellCount = cells;
+
+        int columns = _nx + 1;
+        double[] nodes = new double[columns * (_ny + 1) * 2];
+        for (int j = 0, k = 0; j <= _ny; j++) {
+            for (int i = 0; i <= _nx; i++, k += 2) {
+                nodes[k] = i == _nx ? _xMax : _xMin + i * _cellWidth;
+                nodes[k + 1] = j == _ny ? _yMax : _yMin + j * _cellHeight;
+            }
+        }
+        _exact.transform(nodes, 0, nodes, 0, nodes.length / 2, 2, null, 0);
+
+        double[] samples = new double[10];
+        for (int j = 0; j < _ny; j++) {
+            for (int i = 0; i < _nx; i++) {
+                int cell = j * _nx + i;
+                int sw = (j * columns + i) * 2;
+                int nw = sw + columns * 2;
+                System.arraycopy(nodes, sw, _corners, cell * 8, 4);
+                System.arraycopy(nodes, nw, _corners, cell * 8 + 4, 4);
+                double x0 = _xMin + i * _cellWidth;
+                double y0 = _yMin + j * _cellHeight;
+                refine(cell, x0, y0, i == _nx - 1 ? _xMax : x0 + _cellWidth, j == _ny - 1 ? _yMax : y0 + _cellHeight, 0, samples);
+            }
+        }
+        _children = Arrays.copyOf(_children, _cellCount);
+        _corners = Arrays.copyOf(_corners, _cellCount * 8);
+    }
+
+    /**
+     * Checks the interpolation of a cell against the exact transform and splits the cell if needed.
+     *
+     * @param cell    index of the cell, whose corners are set
+     * @param samples scratch array of 10 ordinates, for the sample points
+     */
+    private void refine(int cell, double x0, double y0, double x1, double y1, int depth, double[] samples) {
+        double xm = 0.5 * (x0 + x1);
+        double ym = 0.5 * (y0 + y1);
+        //South, west, center, east and north middles
+        samples[0] = xm;
+        samples[1] = y0;
+        samples[2] = x0;
+        samples[3] = ym;
+        samples[4] = xm;
+        samples[5] = ym;
+        samples[6] = x1;
+        samples[7] = ym;
+        samples[8] = xm;
+        samples[9] = y1;
+        _exact.transform(samples, 0, samples, 0, 5, 2, null, 0);
+
+        int c = cell * 8;
+        double swX = _corners[c], swY = _corners[c + 1];
+        double seX = _corners[c + 2], seY = _corners[c + 3];
+        double nwX = _corners[c + 4], nwY = _corners[c + 5];
+        double neX = _corners[c + 6], neY = _corners[c + 7];
+        double error = Math.max(Math.abs(samples[0] - 0.5 * (swX + seX)), Math.abs(samples[1] - 0.5 * (swY + seY)));
+        error = Math.max(error, Math.max(Math.abs(samples[2] - 0.5 * (swX + nwX)), Math.abs(samples[3] - 0.5 * (swY + nwY))));
+        error = Math.max(error, Math.max(Math.abs(samples[4] - 0.25 * (swX + seX + nwX + neX)), Math.abs(samples[5] - 0.25 * (swY + seY + nwY + neY))));
+        error = Math.max(error, Math.max(Math.abs(samples[6] - 0.5 * (seX + neX)), Math.abs(samples[7] - 0.5 * (seY + neY))));
+        error = Math.max(error, Math.max(Math.abs(samples[8] - 0.5 * (nwX + neX)), Math.abs(samples[9] - 0.5 * (nwY + neY))));
+        if (error <= _tolerance) {
+            _children[cell] = LEAF;
+            return;
+        }
+        //A corner or a sample failed and is NaN, or is at infinity: splitting would not converge
+        if (depth == _maxDepth || Double.isNaN(error) || Double.isInfinite(error)) {
+            _children[cell] = EXACT;
+            return;
+        }
+
+        int first = _cellCount;
+        _cellCount += 4;
+        if (_children.length < _cellCount) {
+            _children = Arrays.copyOf(_children, _children.length * 2);
+            _corners = Arrays.copyOf(_corners, _children.length * 8);
+        }
+        _children[cell] = first;
+        double sX = samples[0], sY = samples[1];
+        double wX = samples[2], wY = samples[3];
+        double mX = samples[4], mY = samples[5];
+        double eX = samples[6], eY = samples[7];
+        double nX = samples[8], nY = samples[9];
+        setCorners(first, swX, swY, sX, sY, wX, wY, mX, mY);
+        setCorners(first + 1, sX, sY, seX, seY, mX, mY, eX, eY);
+        setCorners(first + 2, wX, wY, mX, mY, nwX, nwY, nX, nY);
+        setCorners(first + 3, mX, mY, eX, eY, nX, nY, neX, neY);
+        refine(first, x0, y0, xm, ym, depth + 1, samples);
+        refine(first + 1, xm, y0, x1, ym, depth + 1, samples);
+        refine(first + 2, x0, ym, xm, y1, depth + 1, samples);
+        refine(first + 3, xm, ym, x1, y1, depth + 1, samples);
+    }
+
+    private void setCorners(int cell, double swX, double swY, double seX, double seY, double nwX, double nwY, double neX, double neY) {
+        int c = cell * 8;
+        _corners[c] = swX;
+        _corners[c + 1] = swY;
+        _corners[c + 2] = seX;
+        _corners[c + 3] = seY;
+        _corners[c + 4] = nwX;
+        _corners[c + 5] = nwY;
+        _corners[c + 6] = neX;
+        _corners[c + 7] = neY;
+    }
+
+    /**
+     * Interpolates a point in place.
+     *
+     * @return false if the point must be transformed with the exact transform
+     */
+    private boolean interpolate(double[] p, int off) {
+        double x = p[off];
+        double y = p[off + 1];
+        //Also false for NaN
+        if (!(x >= _xMin && x <= _xMax && y >= _yMin && y <= _yMax)) {
+            return false;
+        }
+        double u = (x - _xMin) * _xScale;
+        double v = (y - _yMin) * _yScale;
+        int i = Math.min((int) u, _nx - 1);
+        int j = Math.min((int) v, _ny - 1);
+        u -= i;
+        v -= j;
+        int cell = j * _nx + i;
+        int child = _children[cell];
+        while (child >= 0) {
+            u *= 2;
+            v *= 2;
+            if (u >= 1) {
+                u -= 1;
+                child++;
+            }
+            if (v >= 1) {
+                v -= 1;
+                child += 2;
+            }
+            cell = child;
+            child = _children[cell];
+        }
+        if (child == EXACT) {
+            return false;
+        }
+        double[] c = _corners;
+        int k = cell * 8;
+        double su = 1 - u, sv = 1 - v;
+        p[off] = sv * (su * c[k] + u * c[k + 2]) + v * (su * c[k + 4] + u * c[k + 6]);
+        p[off + 1] = sv * (su * c[k + 1] + u * c[k + 3]) + v * (su * c[k + 5] + u * c[k + 7]);
+        return true;
+    }
+
+    /**
+     * Gets the transform being approximated.
+     */
+    public IMathTransform getExactTransform() {
+        return _exact;
+    }
+
+    /**
+     * Gets the largest difference allowed between an interpolated and an exact ordinate, in target units.
+     */
+    public double getTolerance() {
+        return _tolerance;
+    }
+
+    /**
+     * Gets the number of cells of the mesh, including the cells which were split.
+     */
+    public int getCellCount() {
+        return _cellCount;
+    }
+
+    @Override
+    public int getDimSource() {
+        return 2;
+    }
+
+    @Override
+    public int getDimTarget() {
+        return 2;
+    }
+
+    @Override
+    public boolean getIdentity() {
+        return false;
+    }
+
+    /**
+     * Gets the inverse of the exact transform. The inverse is not approximated, since the rectangle
+     * it would cover is not known.
+     *
+     * @return the inverse of the exact transform
+     */
+    @Override
+    public IMathTransform inverse() {
+        return _exact.inverse();
+    }
+
+    /**
+     * Transforms a coordinate point.
+     *
+     * @param point
+     * @return the transformed point
+     */
+    @Override
+    public double[] transform(double[] point) {
+        double[] result = point.clone();
+        if (!interpolate(result, 0)) {
+            double[] exact = _exact.transform(point);
+            System.arraycopy(exact, 0, result, 0, 2);
+        }
+        return result;
+    }
+
+    /**
+     * Transforms a packed array of coordinate points. The points the mesh does not cover are gathered
+     * into blocks and transformed with the batch method of the exact transform.
+     *
+     * @param src    array holding the source points
+     * @param srcOff offset of the first ordinate in the source array
+     * @param dst    array receiving the transformed points
+     * @param dstOff offset of the first ordinate in the destination array
+     * @param numPts number of points to transform
+     * @param dim    number of ordinates per point, at least 2
+     */
+    @Override
+    public void transform(double[] src, int srcOff, double[] dst, int dstOff, int numPts, int dim) {
+        preparePacked(src, srcOff, dst, dstOff, numPts, dim);
+        int[] pending = null;
+        double[] block = null;
+        int count = 0;
+        for (int i = 0, off = dstOff; i < numPts; i++, off += dim) {
+            if (interpolate(dst, off)) {
+                continue;
+            }
+            if (pending == null) {
+                pending = new int[BLOCK_SIZE];
+                block = new double[BLOCK_SIZE * 2];
+            }
+            pending[count] = off;
+            block[count * 2] = dst[off];
+            block[count * 2 + 1] = dst[off + 1];
+            if (++count == BLOCK_SIZE) {
+                transformExact(pending, block, count, dst);
+                count = 0;
+            }
+        }
+        if (count > 0) {
+            transformExact(pending, block, count, dst);
+        }
+    }
+
+    /**
+     * Transforms gathered points with the exact transform and scatters them back.
+     */
+    private void transformExact(int[] pending, double[] block, int count, double[] dst) {
+        _exact.transform(block, 0, block, 0, count, 2);
+        for (int i = 0; i < count; i++) {
+            dst[pending[i]] = block[i * 2];
+            dst[pending[i] + 1] = block[i * 2 + 1];
+        }
+    }
+
+    /**
+     * Transforms coordinate points stored as separate arrays of ordinates, in place. The zs are left unchanged.
+     *
+     * @param xs  first ordinates of the points
+     * @param ys  second ordinates of the points
+     * @param zs  third ordinates of the points, or null
+     * @param off index of the first point
+     * @param n   number of points to transform
+     */
+    @Override
+    public void transform(double[] xs, double[] ys, double[] zs, int off, int n) {
+        checkColumns(xs, ys, zs, off, n);
+        double[] block = new double[Math.min(n, BLOCK_SIZE) * 2];
+        for (int first = off, end = off + n; first < end; first += BLOCK_SIZE) {
+            int count = Math.min(BLOCK_SIZE, end - first);
+            for (int i = 0, j = first; i < count; i++, j++) {
+                block[i * 2] = xs[j];
+                block[i * 2 + 1] = ys[j];
+            }
+            transform(block, 0, block, 0, count, 2);
+            for (int i = 0, j = first; i < count; i++, j++) {
+                xs[j] = block[i * 2];
+                ys[j] = block[i * 2 + 1];
+            }
+        }
+    }
+
+    /**
+     * Transforms a list of coordinate point ordinal values.
+     *
+     * @param points
+     * @return the transformed points
+     */
+    @Override
+    public ArrayList<double[]> transformList(ArrayList<double[]> points) {
+        ArrayList<double[]> pnts = new ArrayList<>(points.size());
+        for (double[] p : points) {
+            pnts.add(transform(p));
+        }
+        return pnts;
+    }
+
+    /**
+     * Gets the Well-known text of the exact transform.
+     */
+    @Override
+    public String getWKT() {
+        return _exact.getWKT();
+    }
+
+    /**
+     * Gets the XML representation of the exact transform.
+     */
+    @Override
+    public String getXML() {
+        return _exact.getXML();
+    }
+}
\ No newline at end of file
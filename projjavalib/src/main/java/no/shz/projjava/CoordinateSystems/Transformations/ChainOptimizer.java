@@ -0,0 +1,112 @@
+package no.shz.projjava.coordinateSystems.transformations;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import no.shz.projjava.coordinateSystems.projections.MapProjection;
+
+/**
+ * Simplifies the steps of a compiled transformation chain before it is run.
+ * <p>
+ * The chains built by the CoordinateTransformationFactory often hold steps that undo each other, such as
+ * a conversion to geocentric coordinates directly followed by the conversion back on the same ellipsoid,
+ * or several affine steps in a row (datum shifts, prime meridian shifts, unit and axis changes). The
+ * optimizer rewrites the steps with these rules, applied until none of them matches:
+ * <ul>
+ * <li>a step directly followed by its inverse is removed together with it;</li>
+ * <li>consecutive affine transforms are merged into a single one;</li>
+ * <li>an affine transform scaling both projected coordinates by the same factor, after a projection or
+ * before an inverse projection, is folded into the unit and false origin of the projection;</li>
+ * <li>affine transforms that do not move any points, such as a GeographicTransform between coordinate
+ * systems with the same prime meridian, are removed.</li>
+ * </ul>
+ * A datum shift and its inverse cancel exactly, even though the inverse of a DatumTransform only
+ * approximates the exact inverse of the Helmert transformation.
+ */
+final class ChainOptimizer {
+    private ChainOptimizer() {
+    }
+
+    /**
+     * Simplifies a list of steps.
+     *
+     * @param steps the steps, in the order they are applied
+     * @return the simplified steps, in the order they are applied
+     */
+    static IMathTransform[] optimize(List<IMathTransform> steps) {
+        ArrayList<IMathTransform> result = new ArrayList<>(steps.size());
+        for (IMathTransform step : steps) {
+            add(result, step);
+        }
+        return result.toArray(new IMathTransform[result.size()]);
+    }
+
+    /**
+     * Appends a step to the simplified steps, simplifying it with the last one.
+     */
+    private static void add(ArrayList<IMathTransform> result, IMathTransform step) {
+        if (step instanceof AffineTransform && step.getIdentity()) {
+            return;
+        }
+        int last = result.size() - 1;
+        if (last >= 0) {
+            IMathTransform previous = result.get(last);
+            if (isInverse(previous, step)) {
+                result.remove(last);
+                return;
+            }
+            IMathTransform merged = merge(previous, step);
+            if (merged != null) {
+                result.remove(last);
+                add(result, merged);
+                return;
+            }
+        }
+        result.add(step);
+    }
+
+    /**
+     * Tests whether the second step undoes the first one.
+     */
+    private static boolean isInverse(IMathTransform first, IMathTransform second) {
+        if (first instanceof AffineTransform && second instanceof AffineTransform) {
+            return ((AffineTransform) first).isInverseOf((AffineTransform) second);
+        }
+        if (first instanceof GeocentricTransform && second instanceof GeocentricTransform) {
+            return ((GeocentricTransform) first).isInverseOf((GeocentricTransform) second);
+        }
+        if (first instanceof MapProjection && second instanceof MapProjection && first.getClass() == second.getClass()) {
+            MapProjection a = (MapProjection) first;
+            MapProjection b = (MapProjection) second;
+            return a.getIsInverse() != b.getIsInverse() && a.equalParameterValues(b);
+        }
+        return false;
+    }
+
+    /**
+     * Creates a single step doing the work of two consecutive steps.
+     *
+     * @return the merged step, or null if the steps can not be merged
+     */
+    private static IMathTransform merge(IMathTransform first, IMathTransform second) {
+        if (first instanceof AffineTransform && second instanceof AffineTransform) {
+            AffineTransform a = (AffineTransform) first;
+            AffineTransform b = (AffineTransform) second;
+            boolean square = a.getDimSource() == a.getDimTarget() && b.getDimSource() == b.getDimTarget();
+            if (square || a.getDimTarget() == b.getDimSource()) {
+                return a.concatenate(b);
+            }
+            return null;
+        }
+        if (first instanceof MapProjection && !((MapProjection) first).getIsInverse() && second instanceof AffineTransform && ((AffineTransform) second).isUniformScale2D()) {
+            AffineTransform b = (AffineTransform) second;
+            return ((MapProjection) first).scaleProjected(b.getElement(0, 0), b.getElement(0, 2), b.getElement(1, 2));
+        }
+        if (first instanceof AffineTransform && ((AffineTransform) first).isUniformScale2D() && second instanceof MapProjection && ((MapProjection) second).getIsInverse()) {
+            AffineTransform a = (AffineTransform) first;
+            double scale = a.getElement(0, 0);
+            return ((MapProjection) second).scaleProjected(1 / scale, -a.getElement(0, 2) / scale, -a.getElement(1, 2) / scale);
+        }
+        return null;
+    }
+}
\ No newline at end of file
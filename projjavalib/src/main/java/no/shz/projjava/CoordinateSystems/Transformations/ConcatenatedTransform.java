@@ -1,7 +1,9 @@
 package no.shz.projjava.coordinateSystems.transformations;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 /**
  * Copyright 2005 - 2009 - Morten Nielsen (www.sharpgis.net)
@@ -36,39 +38,109 @@ import java.util.Collections;
  */
 
 /**
-
+ * Runs a chain of transformations one after the other.
+ * <p>
+ * The chain can not be changed once created, and the batch methods take their scratch buffers from a
+ * thread local, so a ConcatenatedTransform can be shared between threads.
  */
 public class ConcatenatedTransform extends MathTransform {
     /**
 
      */
-    protected IMathTransform _inverse;
-    private ArrayList<ICoordinateTransformation> _coordinateTransformationList;
+    private volatile ConcatenatedTransform _inverse;
+    private final List<ICoordinateTransformation> _coordinateTransformationList;
+
+    /**
+     * The compiled chain: the math transforms of all steps, with nested ConcatenatedTransforms replaced
+     * by their own steps, so that the batch transforms run each elementary step directly. The steps are
+     * simplified by the ChainOptimizer, so steps undoing each other are not run at all.
+     */
+    private final IMathTransform[] _steps;
 
     /**
+     * Whether a 2D point comes out of the compiled chain with a height, as from {@link #transform(double[])}.
+     */
+    private final boolean _widensPlanarPoints;
 
+    /**
+     * Scratch buffers of the batch transforms, one set per thread. A buffer set is taken out of the
+     * thread local while in use, so a step that itself runs a ConcatenatedTransform gets its own set.
      */
-    public ConcatenatedTransform() {
-        this(new ArrayList<ICoordinateTransformation>());
+    private static final ThreadLocal<Scratch> SCRATCH = new ThreadLocal<>();
+
+    private static final class Scratch {
+        final double[] packed = new double[BLOCK_SIZE * 3];
+        final double[] xs = new double[BLOCK_SIZE];
+        final double[] ys = new double[BLOCK_SIZE];
+        final double[] zs = new double[BLOCK_SIZE];
+        final byte[] status = new byte[BLOCK_SIZE];
+        final byte[] stepStatus = new byte[BLOCK_SIZE];
     }
 
     /**
-     * @param transformlist ArrayList
+     * Creates a transform running the given transformations one after the other.
+     * The list is copied, so later changes to it do not affect this transform.
+     *
+     * @param transformlist List
      */
-    public ConcatenatedTransform(ArrayList<ICoordinateTransformation> transformlist) {
-        _coordinateTransformationList = transformlist;
+    public ConcatenatedTransform(List<ICoordinateTransformation> transformlist) {
+        _coordinateTransformationList = Collections.unmodifiableList(new ArrayList<>(transformlist));
+        ArrayList<IMathTransform> steps = new ArrayList<>(_coordinateTransformationList.size());
+        compile(this, steps);
+        _steps = ChainOptimizer.optimize(steps);
+        _widensPlanarPoints = widensPlanarPoints(_steps);
+    }
+
+    private static void compile(ConcatenatedTransform transform, ArrayList<IMathTransform> steps) {
+        for (ICoordinateTransformation ct : transform._coordinateTransformationList) {
+            IMathTransform mt = ct.getMathTransform();
+            if (mt instanceof ConcatenatedTransform) {
+                steps.addAll(Arrays.asList(((ConcatenatedTransform) mt)._steps));
+            } else {
+                steps.add(mt);
+            }
+        }
     }
 
     /**
+     * Tests whether a 2D point comes out of the steps with a height, as from a geocentric conversion or a
+     * 3D affine step such as a datum shift.
+     */
+    private static boolean widensPlanarPoints(IMathTransform[] steps) {
+        for (IMathTransform step : steps) {
+            if (step instanceof GeocentricTransform || (step instanceof AffineTransform && step.getDimTarget() > 2)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
+    private static Scratch acquireScratch() {
+        Scratch scratch = SCRATCH.get();
+        if (scratch == null) {
+            return new Scratch();
+        }
+        SCRATCH.set(null);
+        return scratch;
+    }
+
+    private static void releaseScratch(Scratch scratch) {
+        SCRATCH.set(scratch);
+    }
+
+    /**
+     * Gets the transformations of the chain, in the order they are applied. The returned list can not be modified.
      */
-    public final ArrayList<ICoordinateTransformation> getCoordinateTransformationList() {
+    public final List<ICoordinateTransformation> getCoordinateTransformationList() {
         return _coordinateTransformationList;
     }
 
-    public final void setCoordinateTransformationList(ArrayList<ICoordinateTransformation> value) {
-        _coordinateTransformationList = value;
-        _inverse = null;
+    /**
+     * Gets the number of steps run for each point, once the steps undoing each other are removed and the
+     * others merged. A chain whose steps all cancel has none.
+     */
+    public final int getStepCount() {
+        return _steps.length;
     }
 
     /**
@@ -79,59 +151,270 @@ public class ConcatenatedTransform extends MathTransform {
      */
     @Override
     public double[] transform(double[] point) {
-        for (ICoordinateTransformation ct : _coordinateTransformationList) {
-            point = ct.getMathTransform().transform(point);
+        if (_steps.length == 0) {
+            return point.clone();
+        }
+        for (IMathTransform step : _steps) {
+            point = step.transform(point);
         }
         return point;
     }
 
     /**
      * Transforms a list point
+     * <p>
+     * The points run through the compiled chain in blocks, as by the packed transform, so they get the
+     * same results as from {@link #transform(double[])}. Each point is returned in a new array with the
+     * number of ordinates that method would return: a 2D point gets a height when the chain goes through
+     * geocentric coordinates or a 3D affine step.
      *
      * @param points ArrayList
      * @return ArrayList
      */
     @Override
     public ArrayList<double[]> transformList(ArrayList<double[]> points) {
-        ArrayList<double[]> pnts = new ArrayList<>(points.size());
-        pnts.addAll(points);
-        for (ICoordinateTransformation ct : _coordinateTransformationList) {
-            pnts = ct.getMathTransform().transformList(pnts);
+        int n = points.size();
+        ArrayList<double[]> pnts = new ArrayList<>(n);
+        IMathTransform[] steps = _steps;
+        Scratch scratch = acquireScratch();
+        double[] block = scratch.packed;
+        for (int first = 0; first < n; first += BLOCK_SIZE) {
+            int count = Math.min(BLOCK_SIZE, n - first);
+            for (int i = 0; i < count; i++) {
+                double[] p = points.get(first + i);
+                block[i * 3] = p[0];
+                block[i * 3 + 1] = p[1];
+                block[i * 3 + 2] = p.length > 2 ? p[2] : 0;
+            }
+            for (IMathTransform step : steps) {
+                step.transform(block, 0, block, 0, count, 3);
+            }
+            for (int i = 0; i < count; i++) {
+                double[] p = points.get(first + i);
+                double[] result = Arrays.copyOf(p, p.length == 2 && _widensPlanarPoints ? 3 : p.length);
+                result[0] = block[i * 3];
+                result[1] = block[i * 3 + 1];
+                if (result.length > 2) {
+                    result[2] = block[i * 3 + 2];
+                }
+                pnts.add(result);
+            }
         }
+        releaseScratch(scratch);
         return pnts;
     }
 
     /**
-     * Returns the inverse of this conversion.
+     * Transforms a packed array of coordinate points.
+     * <p>
+     * The points are processed in blocks of a fixed size, running every step of the compiled chain
+     * over a block before moving on to the next block, so a block stays in the CPU cache for the whole
+     * chain. Points with 2 ordinates are widened to 3 ordinates (with z = 0) in a reused scratch block,
+     * so that steps through geocentric space keep their height, the same way a single 2D point does.
      *
-     * @return IMathTransform that is the reverse of the current conversion.
+     * @param src    array holding the source points
+     * @param srcOff offset of the first ordinate in the source array
+     * @param dst    array receiving the transformed points
+     * @param dstOff offset of the first ordinate in the destination array
+     * @param numPts number of points to transform
+     * @param dim    number of ordinates per point, at least 2
      */
     @Override
-    public IMathTransform inverse() {
-        if (_inverse == null) {
-            _inverse = this.clone();
-            _inverse.invert();
+    public void transform(double[] src, int srcOff, double[] dst, int dstOff, int numPts, int dim) {
+        preparePacked(src, srcOff, dst, dstOff, numPts, dim);
+        IMathTransform[] steps = _steps;
+        if (dim > 2) {
+            for (int first = 0; first < numPts; first += BLOCK_SIZE) {
+                int count = Math.min(BLOCK_SIZE, numPts - first);
+                int blockOff = dstOff + first * dim;
+                for (IMathTransform step : steps) {
+                    step.transform(dst, blockOff, dst, blockOff, count, dim);
+                }
+            }
+            return;
+        }
+
+        Scratch scratch = acquireScratch();
+        double[] block = scratch.packed;
+        for (int first = 0; first < numPts; first += BLOCK_SIZE) {
+            int count = Math.min(BLOCK_SIZE, numPts - first);
+            for (int i = 0, off = dstOff + first * dim; i < count; i++, off += dim) {
+                block[i * 3] = dst[off];
+                block[i * 3 + 1] = dst[off + 1];
+                block[i * 3 + 2] = 0;
+            }
+            for (IMathTransform step : steps) {
+                step.transform(block, 0, block, 0, count, 3);
+            }
+            for (int i = 0, off = dstOff + first * dim; i < count; i++, off += dim) {
+                dst[off] = block[i * 3];
+                dst[off + 1] = block[i * 3 + 1];
+            }
+        }
+        releaseScratch(scratch);
+    }
+
+    /**
+     * Transforms a packed array of coordinate points, setting the points that can not be transformed to NaN
+     * and reporting them in a status array.
+     * <p>
+     * The blocks are processed as by {@link #transform(double[], int, double[], int, int, int)}, with the
+     * status variant of each step. A point keeps the status of the first step it failed in; the later steps
+     * only see its NaN ordinates.
+     *
+     * @param src       array holding the source points
+     * @param srcOff    offset of the first ordinate in the source array
+     * @param dst       array receiving the transformed points
+     * @param dstOff    offset of the first ordinate in the destination array
+     * @param numPts    number of points to transform
+     * @param dim       number of ordinates per point, at least 2
+     * @param status    array receiving the {@link PointStatus} of each point, or null
+     * @param statusOff index of the status of the first point
+     * @return the number of points that could not be transformed
+     */
+    @Override
+    public int transform(double[] src, int srcOff, double[] dst, int dstOff, int numPts, int dim, byte[] status, int statusOff) {
+        preparePacked(src, srcOff, dst, dstOff, numPts, dim);
+        checkStatus(status, statusOff, numPts);
+        IMathTransform[] steps = _steps;
+        Scratch scratch = acquireScratch();
+        byte[] blockStatus = scratch.status;
+        byte[] stepStatus = scratch.stepStatus;
+        int failures = 0;
+        for (int first = 0; first < numPts; first += BLOCK_SIZE) {
+            int count = Math.min(BLOCK_SIZE, numPts - first);
+            int blockOff = dstOff + first * dim;
+            double[] block = dst;
+            int off = blockOff;
+            int blockDim = dim;
+            if (dim == 2) {
+                block = scratch.packed;
+                off = 0;
+                blockDim = 3;
+                for (int i = 0, j = blockOff; i < count; i++, j += 2) {
+                    block[i * 3] = dst[j];
+                    block[i * 3 + 1] = dst[j + 1];
+                    block[i * 3 + 2] = 0;
+                }
+            }
+            Arrays.fill(blockStatus, 0, count, PointStatus.OK);
+            for (IMathTransform step : steps) {
+                if (step.transform(block, off, block, off, count, blockDim, stepStatus, 0) > 0) {
+                    for (int i = 0; i < count; i++) {
+                        if (blockStatus[i] == PointStatus.OK) {
+                            blockStatus[i] = stepStatus[i];
+                        }
+                    }
+                }
+            }
+            failures += markFailures(block, off, count, blockDim, blockStatus, 0);
+            if (dim == 2) {
+                for (int i = 0, j = blockOff; i < count; i++, j += 2) {
+                    dst[j] = block[i * 3];
+                    dst[j + 1] = block[i * 3 + 1];
+                }
+            }
+            if (status != null) {
+                System.arraycopy(blockStatus, 0, status, statusOff + first, count);
+            }
+        }
+        releaseScratch(scratch);
+        return failures;
+    }
+
+    /**
+     * Transforms coordinate points stored as separate arrays of ordinates, in place.
+     * <p>
+     * The points are processed in blocks of a fixed size, running every step of the compiled chain
+     * over a block before moving on to the next block. When zs is null each block is copied into
+     * reused scratch columns with z set to 0, the same way a single 2D point is widened.
+     *
+     * @param xs  first ordinates of the points
+     * @param ys  second ordinates of the points
+     * @param zs  third ordinates of the points, or null
+     * @param off index of the first point
+     * @param n   number of points to transform
+     */
+    @Override
+    public void transform(double[] xs, double[] ys, double[] zs, int off, int n) {
+        checkColumns(xs, ys, zs, off, n);
+        IMathTransform[] steps = _steps;
+        if (zs != null) {
+            for (int first = off, end = off + n; first < end; first += BLOCK_SIZE) {
+                int count = Math.min(BLOCK_SIZE, end - first);
+                for (IMathTransform step : steps) {
+                    step.transform(xs, ys, zs, first, count);
+                }
+            }
+            return;
+        }
+
+        Scratch scratch = acquireScratch();
+        double[] bx = scratch.xs;
+        double[] by = scratch.ys;
+        double[] bz = scratch.zs;
+        for (int first = off, end = off + n; first < end; first += BLOCK_SIZE) {
+            int count = Math.min(BLOCK_SIZE, end - first);
+            System.arraycopy(xs, first, bx, 0, count);
+            System.arraycopy(ys, first, by, 0, count);
+            Arrays.fill(bz, 0, count, 0);
+            for (IMathTransform step : steps) {
+                step.transform(bx, by, bz, 0, count);
+            }
+            System.arraycopy(bx, 0, xs, first, count);
+            System.arraycopy(by, 0, ys, first, count);
         }
-        return _inverse;
+        releaseScratch(scratch);
     }
 
     /**
-     * Reverses the transformation
+     * Tests whether all the steps are separable.
      */
     @Override
-    public void invert() {
-        Collections.reverse(_coordinateTransformationList);
-        for (ICoordinateTransformation ic : _coordinateTransformationList) {
-            ic.getMathTransform().invert();
+    protected boolean isSeparable() {
+        for (IMathTransform step : _steps) {
+            if (!(step instanceof MathTransform) || !((MathTransform) step).isSeparable()) {
+                return false;
+            }
         }
+        return true;
     }
 
-    public final ConcatenatedTransform clone() {
-        ArrayList<ICoordinateTransformation> clonedList = new ArrayList<ICoordinateTransformation>(_coordinateTransformationList.size());
-        for (ICoordinateTransformation ct : _coordinateTransformationList) {
-            clonedList.add(ct);
+    /**
+     * Runs the x and y values through the separable transform of each step.
+     */
+    @Override
+    protected void transformSeparable(double[] xs, double[] ys) {
+        if (!isSeparable()) {
+            throw new UnsupportedOperationException("The transform is not separable");
+        }
+        for (IMathTransform step : _steps) {
+            ((MathTransform) step).transformSeparable(xs, ys);
+        }
+    }
+
+    /**
+     * Returns the inverse of this conversion.
+     * <p>
+     * The inverse is a separate transform running the inverse of each step in reverse order.
+     * It is created once and cached, and its own inverse is this transform.
+     *
+     * @return IMathTransform that is the reverse of the current conversion.
+     */
+    @Override
+    public IMathTransform inverse() {
+        ConcatenatedTransform inverse = _inverse;
+        if (inverse == null) {
+            ArrayList<ICoordinateTransformation> reversed = new ArrayList<>(_coordinateTransformationList.size());
+            for (int i = _coordinateTransformationList.size() - 1; i >= 0; i--) {
+                ICoordinateTransformation ct = _coordinateTransformationList.get(i);
+                reversed.add(new CoordinateTransformation(ct.getTargetCS(), ct.getSourceCS(), ct.getTransformType(), ct.getMathTransform().inverse(), ct.getName(), ct.getAuthority(), ct.getAuthorityCode(), ct.getAreaOfUse(), ct.getRemarks()));
+            }
+            inverse = new ConcatenatedTransform(reversed);
+            inverse._inverse = this;
+            _inverse = inverse;
         }
-        return new ConcatenatedTransform(clonedList);
+        return inverse;
     }
 
     /**
@@ -0,0 +1,134 @@
+package no.shz.projjava.coordinateSystems.transformations;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import no.shz.projjava.coordinateSystems.ICoordinateSystem;
+import no.shz.projjava.coordinateSystems.IEllipsoid;
+import no.shz.projjava.coordinateSystems.IGeocentricCoordinateSystem;
+import no.shz.projjava.coordinateSystems.IGeographicCoordinateSystem;
+import no.shz.projjava.coordinateSystems.IHorizontalDatum;
+import no.shz.projjava.coordinateSystems.IPrimeMeridian;
+import no.shz.projjava.coordinateSystems.IProjectedCoordinateSystem;
+import no.shz.projjava.coordinateSystems.IProjection;
+import no.shz.projjava.coordinateSystems.ProjectionParameter;
+import no.shz.projjava.coordinateSystems.Wgs84ConversionInfo;
+
+/**
+ * Structural identity of a pair of coordinate systems, used as key when caching transformations.
+ * <p>
+ * The key holds every value the transformation factory reads from the coordinate systems (datum,
+ * ellipsoid, Helmert parameters, prime meridian, units, axes, projection name and parameters), but
+ * no names or authority codes. Two pairs with equal keys therefore get equal transformations. The
+ * key is built from the values directly, which is much cheaper than formatting the Well-Known Text.
+ */
+final class CoordinateSystemPairKey {
+    private final Object[] _values;
+    private final int _hash;
+
+    private CoordinateSystemPairKey(Object[] values) {
+        _values = values;
+        _hash = Arrays.hashCode(values);
+    }
+
+    /**
+     * Creates the key of a pair of coordinate systems.
+     *
+     * @param source  Source coordinate system
+     * @param target  Target coordinate system
+     * @param options settings of the factory changing the transformation it builds, such as the Transverse Mercator method
+     * @return the key, or null if one of the coordinate systems is of a kind the key does not describe
+     */
+    static CoordinateSystemPairKey create(ICoordinateSystem source, ICoordinateSystem target, Object... options) {
+        ArrayList<Object> values = new ArrayList<>(64);
+        if (!append(values, source) || !append(values, target)) {
+            return null;
+        }
+        values.addAll(Arrays.asList(options));
+        return new CoordinateSystemPairKey(values.toArray());
+    }
+
+    private static boolean append(ArrayList<Object> values, ICoordinateSystem cs) {
+        if (cs instanceof IProjectedCoordinateSystem) {
+            IProjectedCoordinateSystem pcs = (IProjectedCoordinateSystem) cs;
+            values.add("PROJCS");
+            appendAxes(values, pcs);
+            appendGeographic(values, pcs.getGeographicCoordinateSystem());
+            values.add(pcs.getLinearUnit().getMetersPerUnit());
+            IProjection projection = pcs.getProjection();
+            values.add(projection.getClassName());
+            values.add(projection.getNumParameters());
+            for (int i = 0; i < projection.getNumParameters(); i++) {
+                ProjectionParameter parameter = projection.getParameter(i);
+                values.add(parameter.getName());
+                values.add(parameter.getValue());
+            }
+        } else if (cs instanceof IGeographicCoordinateSystem) {
+            values.add("GEOGCS");
+            appendGeographic(values, (IGeographicCoordinateSystem) cs);
+        } else if (cs instanceof IGeocentricCoordinateSystem) {
+            IGeocentricCoordinateSystem gcc = (IGeocentricCoordinateSystem) cs;
+            values.add("GEOCCS");
+            appendAxes(values, gcc);
+            appendDatum(values, gcc.getHorizontalDatum());
+            appendPrimeMeridian(values, gcc.getPrimeMeridian());
+            values.add(gcc.getLinearUnit().getMetersPerUnit());
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    private static void appendGeographic(ArrayList<Object> values, IGeographicCoordinateSystem gcs) {
+        appendAxes(values, gcs);
+        appendDatum(values, gcs.getHorizontalDatum());
+        appendPrimeMeridian(values, gcs.getPrimeMeridian());
+        values.add(gcs.getAngularUnit().getRadiansPerUnit());
+    }
+
+    private static void appendAxes(ArrayList<Object> values, ICoordinateSystem cs) {
+        values.add(cs.getDimension());
+        for (int i = 0; i < cs.getDimension(); i++) {
+            values.add(cs.getAxis(i).getOrientation());
+        }
+    }
+
+    private static void appendDatum(ArrayList<Object> values, IHorizontalDatum datum) {
+        values.add(datum.getDatumType());
+        IEllipsoid ellipsoid = datum.getEllipsoid();
+        values.add(ellipsoid.getSemiMajorAxis());
+        values.add(ellipsoid.getSemiMinorAxis());
+        values.add(ellipsoid.getInverseFlattening());
+        values.add(ellipsoid.getAxisUnit().getMetersPerUnit());
+        Wgs84ConversionInfo towgs84 = datum.getWgs84Parameters();
+        if (towgs84 == null) {
+            values.add(null);
+        } else {
+            for (double v : towgs84.GetAffineTransform()) {
+                values.add(v);
+            }
+        }
+    }
+
+    private static void appendPrimeMeridian(ArrayList<Object> values, IPrimeMeridian primeMeridian) {
+        values.add(primeMeridian.getLongitude());
+        values.add(primeMeridian.getAngularUnit().getRadiansPerUnit());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof CoordinateSystemPairKey)) {
+            return false;
+        }
+        CoordinateSystemPairKey other = (CoordinateSystemPairKey) obj;
+        return _hash == other._hash && Arrays.equals(_values, other._values);
+    }
+
+    @Override
+    public int hashCode() {
+        return _hash;
+    }
+}
\ No newline at end of file
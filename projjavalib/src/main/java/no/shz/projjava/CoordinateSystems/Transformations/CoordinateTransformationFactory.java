@@ -3,6 +3,7 @@ package no.shz.projjava.coordinateSystems.transformations;
 import java.util.ArrayList;
 import java.util.Locale;
 
+import no.shz.projjava.coordinateSystems.AxisOrientationEnum;
 import no.shz.projjava.coordinateSystems.CoordinateSystemFactory;
 import no.shz.projjava.coordinateSystems.GeocentricCoordinateSystem;
 import no.shz.projjava.coordinateSystems.ICoordinateSystem;
@@ -16,10 +17,12 @@ import no.shz.projjava.coordinateSystems.LinearUnit;
 import no.shz.projjava.coordinateSystems.ProjectionParameter;
 import no.shz.projjava.coordinateSystems.projections.AlbersProjection;
 import no.shz.projjava.coordinateSystems.projections.KrovakProjection;
+import no.shz.projjava.coordinateSystems.projections.KrugerTransverseMercator;
 import no.shz.projjava.coordinateSystems.projections.LambertConformalConic2SP;
 import no.shz.projjava.coordinateSystems.projections.Mercator;
+import no.shz.projjava.coordinateSystems.projections.PseudoMercator;
 import no.shz.projjava.coordinateSystems.projections.TransverseMercator;
-import no.shz.utilities.Ref;
+import no.shz.utilities.LruCache;
 
 /**
  * Copyright 2005 - 2009 - Morten Nielsen (www.sharpgis.net)
@@ -57,60 +60,146 @@ import no.shz.utilities.Ref;
  * Creates coordinate transformations.
  */
 public class CoordinateTransformationFactory implements ICoordinateTransformationFactory {
+    /**
+     * Default maximum number of transformations kept in the cache.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 256;
 
-    private static void simplifyTrans(ConcatenatedTransform mtrans, Ref<ArrayList<ICoordinateTransformation>> MTs) {
-        for (ICoordinateTransformation t : mtrans.getCoordinateTransformationList()) {
-            if (t instanceof ConcatenatedTransform) {
-                simplifyTrans(((t instanceof ConcatenatedTransform) ? (ConcatenatedTransform) t : null), MTs);
-            } else {
-                MTs.value.add(t);
-            }
+    private static final LruCache<CoordinateSystemPairKey, ICoordinateTransformation> CACHE = new LruCache<>(DEFAULT_CACHE_SIZE);
+
+    private TransverseMercatorMethod _transverseMercatorMethod = TransverseMercatorMethod.SNYDER;
+    private double _precision;
+
+    /**
+     * Sets the maximum number of transformations kept in the cache shared by all factories.
+     * The least recently used transformations are evicted when the cache is full.
+     *
+     * @param maxSize maximum number of transformations, at least 1
+     */
+    public static void setCacheSize(int maxSize) {
+        CACHE.setMaxSize(maxSize);
+    }
+
+    /**
+     * Gets the maximum number of transformations kept in the cache.
+     */
+    public static int getCacheSize() {
+        return CACHE.getMaxSize();
+    }
+
+    /**
+     * Gets the number of calls to {@link #createFromCoordinateSystems} answered from the cache.
+     */
+    public static long getCacheHitCount() {
+        return CACHE.getHitCount();
+    }
+
+    /**
+     * Gets the number of calls to {@link #createFromCoordinateSystems} that had to build a new transformation.
+     */
+    public static long getCacheMissCount() {
+        return CACHE.getMissCount();
+    }
+
+    /**
+     * Gets the number of transformations evicted from the cache because it was full.
+     */
+    public static long getCacheEvictionCount() {
+        return CACHE.getEvictionCount();
+    }
+
+    /**
+     * Removes all transformations from the cache.
+     */
+    public static void clearCache() {
+        CACHE.clear();
+    }
+
+    /**
+     * Gets the algorithm used for the Transverse Mercator projections, {@link TransverseMercatorMethod#SNYDER} by default.
+     */
+    public final TransverseMercatorMethod getTransverseMercatorMethod() {
+        return _transverseMercatorMethod;
+    }
+
+    /**
+     * Sets the algorithm used for the Transverse Mercator projections of the transformations created afterwards.
+     * Transformations built with different methods are cached separately.
+     *
+     * @param method the algorithm
+     */
+    public final void setTransverseMercatorMethod(TransverseMercatorMethod method) {
+        if (method == null) {
+            throw new IllegalArgumentException("The Transverse Mercator method can not be null");
         }
+        _transverseMercatorMethod = method;
+    }
+
+    /**
+     * Gets the accuracy wanted on the ground, in meters, from the transformations created afterwards, 0 by
+     * default for the full accuracy of each transformation.
+     */
+    public final double getPrecision() {
+        return _precision;
     }
 
-    private static ICoordinateTransformation geog2Geoc(IGeographicCoordinateSystem source, IGeocentricCoordinateSystem target) {
+    /**
+     * Sets the accuracy wanted on the ground, in meters, from the transformations created afterwards. The
+     * projections and geocentric conversions derive the tolerances of their iterations and the number of
+     * terms of their series from it, so a coarse precision, such as 0.01 for display, saves work, and a fine
+     * one, such as 0.0001 for survey data, adds work where the default falls short of it. The precision is
+     * passed to their constructors, not as a projection parameter, so it does not show in their WKT.
+     * Transformations built with different precisions are cached separately.
+     *
+     * @param precision the accuracy in meters, or 0 for the full accuracy of each transformation
+     */
+    public final void setPrecision(double precision) {
+        if (!(precision >= 0) || Double.isInfinite(precision)) {
+            throw new IllegalArgumentException("The precision must be a positive number of meters or 0, got " + precision);
+        }
+        _precision = precision;
+    }
+
+    private ICoordinateTransformation geog2Geoc(IGeographicCoordinateSystem source, IGeocentricCoordinateSystem target) {
         IMathTransform geocMathTransform = createCoordinateOperation(target);
         return new CoordinateTransformation(source, target, TransformType.Conversion, geocMathTransform, "", "", -1, "", "");
     }
 
-    private static ICoordinateTransformation geoc2Geog(IGeocentricCoordinateSystem source, IGeographicCoordinateSystem target) {
+    private ICoordinateTransformation geoc2Geog(IGeocentricCoordinateSystem source, IGeographicCoordinateSystem target) {
         IMathTransform geocMathTransform = createCoordinateOperation(source).inverse();
         return new CoordinateTransformation(source, target, TransformType.Conversion, geocMathTransform, "", "", -1, "", "");
     }
 
-    private static ICoordinateTransformation proj2Proj(IProjectedCoordinateSystem source, IProjectedCoordinateSystem target) {
-        ConcatenatedTransform ct = new ConcatenatedTransform();
-        CoordinateTransformationFactory ctFac = new CoordinateTransformationFactory();
-        ct.getCoordinateTransformationList().add(ctFac.createFromCoordinateSystems(source, source.getGeographicCoordinateSystem()));
-        ct.getCoordinateTransformationList().add(ctFac.createFromCoordinateSystems(source.getGeographicCoordinateSystem(), target.getGeographicCoordinateSystem()));
-        ct.getCoordinateTransformationList().add(ctFac.createFromCoordinateSystems(target.getGeographicCoordinateSystem(), target));
+    private ICoordinateTransformation proj2Proj(IProjectedCoordinateSystem source, IProjectedCoordinateSystem target) {
+        ArrayList<ICoordinateTransformation> transforms = new ArrayList<>();
+        transforms.add(createTransformation(source, source.getGeographicCoordinateSystem()));
+        transforms.add(createTransformation(source.getGeographicCoordinateSystem(), target.getGeographicCoordinateSystem()));
+        transforms.add(createTransformation(target.getGeographicCoordinateSystem(), target));
 
-        return new CoordinateTransformation(source, target, TransformType.Transformation, ct, "", "", -1, "", "");
+        return new CoordinateTransformation(source, target, TransformType.Transformation, new ConcatenatedTransform(transforms), "", "", -1, "", "");
     }
 
-    private static ICoordinateTransformation geog2Proj(IGeographicCoordinateSystem source, IProjectedCoordinateSystem target) {
+    private ICoordinateTransformation geog2Proj(IGeographicCoordinateSystem source, IProjectedCoordinateSystem target) {
         if (source.equalParams(target.getGeographicCoordinateSystem())) {
             IMathTransform mathTransform = createCoordinateOperation(target.getProjection(), target.getGeographicCoordinateSystem().getHorizontalDatum().getEllipsoid(), target.getLinearUnit());
             return new CoordinateTransformation(source, target, TransformType.Transformation, mathTransform, "", "", -1, "", "");
         } else {
-            ConcatenatedTransform ct = new ConcatenatedTransform();
-            CoordinateTransformationFactory ctFac = new CoordinateTransformationFactory();
-            ct.getCoordinateTransformationList().add(ctFac.createFromCoordinateSystems(source, target.getGeographicCoordinateSystem()));
-            ct.getCoordinateTransformationList().add(ctFac.createFromCoordinateSystems(target.getGeographicCoordinateSystem(), target));
-            return new CoordinateTransformation(source, target, TransformType.Transformation, ct, "", "", -1, "", "");
+            ArrayList<ICoordinateTransformation> transforms = new ArrayList<>();
+            transforms.add(createTransformation(source, target.getGeographicCoordinateSystem()));
+            transforms.add(createTransformation(target.getGeographicCoordinateSystem(), target));
+            return new CoordinateTransformation(source, target, TransformType.Transformation, new ConcatenatedTransform(transforms), "", "", -1, "", "");
         }
     }
 
-    private static ICoordinateTransformation proj2Geog(IProjectedCoordinateSystem source, IGeographicCoordinateSystem target) {
+    private ICoordinateTransformation proj2Geog(IProjectedCoordinateSystem source, IGeographicCoordinateSystem target) {
         if (source.getGeographicCoordinateSystem().equalParams(target)) {
             IMathTransform mathTransform = createCoordinateOperation(source.getProjection(), source.getGeographicCoordinateSystem().getHorizontalDatum().getEllipsoid(), source.getLinearUnit()).inverse();
             return new CoordinateTransformation(source, target, TransformType.Transformation, mathTransform, "", "", -1, "", "");
         } else {
-            ConcatenatedTransform ct = new ConcatenatedTransform();
-            CoordinateTransformationFactory ctFac = new CoordinateTransformationFactory();
-            ct.getCoordinateTransformationList().add(ctFac.createFromCoordinateSystems(source, source.getGeographicCoordinateSystem()));
-            ct.getCoordinateTransformationList().add(ctFac.createFromCoordinateSystems(source.getGeographicCoordinateSystem(), target));
-            return new CoordinateTransformation(source, target, TransformType.Transformation, ct, "", "", -1, "", "");
+            ArrayList<ICoordinateTransformation> transforms = new ArrayList<>();
+            transforms.add(createTransformation(source, source.getGeographicCoordinateSystem()));
+            transforms.add(createTransformation(source.getGeographicCoordinateSystem(), target));
+            return new CoordinateTransformation(source, target, TransformType.Transformation, new ConcatenatedTransform(transforms), "", "", -1, "", "");
         }
     }
 
@@ -121,33 +210,33 @@ public class CoordinateTransformationFactory implements ICoordinateTransformatio
      * @param target
      * @return
      */
-    private static ICoordinateTransformation createGeoc2Geoc(IGeocentricCoordinateSystem source, IGeocentricCoordinateSystem target) {
-        ConcatenatedTransform ct = new ConcatenatedTransform();
+    private ICoordinateTransformation createGeoc2Geoc(IGeocentricCoordinateSystem source, IGeocentricCoordinateSystem target) {
+        ArrayList<ICoordinateTransformation> transforms = new ArrayList<>();
 
         if (source.getHorizontalDatum().getWgs84Parameters() != null && !source.getHorizontalDatum().getWgs84Parameters().getHasZeroValuesOnly()) {
-            ct.getCoordinateTransformationList().add(new CoordinateTransformation(((target.getHorizontalDatum().getWgs84Parameters() == null || target.getHorizontalDatum().getWgs84Parameters().getHasZeroValuesOnly()) ? target : GeocentricCoordinateSystem.getWGS84()), source, TransformType.Transformation, new DatumTransform(source.getHorizontalDatum().getWgs84Parameters()), "", "", -1, "", ""));
+            transforms.add(new CoordinateTransformation(((target.getHorizontalDatum().getWgs84Parameters() == null || target.getHorizontalDatum().getWgs84Parameters().getHasZeroValuesOnly()) ? target : GeocentricCoordinateSystem.getWGS84()), source, TransformType.Transformation, new DatumTransform(source.getHorizontalDatum().getWgs84Parameters()), "", "", -1, "", ""));
         }
 
         if (target.getHorizontalDatum().getWgs84Parameters() != null && !target.getHorizontalDatum().getWgs84Parameters().getHasZeroValuesOnly()) {
-            ct.getCoordinateTransformationList().add(new CoordinateTransformation(((source.getHorizontalDatum().getWgs84Parameters() == null || source.getHorizontalDatum().getWgs84Parameters().getHasZeroValuesOnly()) ? source : GeocentricCoordinateSystem.getWGS84()), target, TransformType.Transformation, (new DatumTransform(target.getHorizontalDatum().getWgs84Parameters())).inverse(), "", "", -1, "", ""));
+            transforms.add(new CoordinateTransformation(((source.getHorizontalDatum().getWgs84Parameters() == null || source.getHorizontalDatum().getWgs84Parameters().getHasZeroValuesOnly()) ? source : GeocentricCoordinateSystem.getWGS84()), target, TransformType.Transformation, (new DatumTransform(target.getHorizontalDatum().getWgs84Parameters())).inverse(), "", "", -1, "", ""));
         }
 
-        if (ct.getCoordinateTransformationList().size() == 1)
+        if (transforms.size() == 1)
         {
-            return new CoordinateTransformation(source, target, TransformType.ConversionAndTransformation, ct.getCoordinateTransformationList().get(0).getMathTransform(), "", "", -1, "", "");
+            return new CoordinateTransformation(source, target, TransformType.ConversionAndTransformation, transforms.get(0).getMathTransform(), "", "", -1, "", "");
         } else {
-            return new CoordinateTransformation(source, target, TransformType.ConversionAndTransformation, ct, "", "", -1, "", "");
+            return new CoordinateTransformation(source, target, TransformType.ConversionAndTransformation, new ConcatenatedTransform(transforms), "", "", -1, "", "");
         }
     }
 
-    private static IMathTransform createCoordinateOperation(IGeocentricCoordinateSystem geo) {
-        ArrayList<ProjectionParameter> parameterList = new ArrayList<>(2);
+    private IMathTransform createCoordinateOperation(IGeocentricCoordinateSystem geo) {
+        ArrayList<ProjectionParameter> parameterList = new ArrayList<>(3);
         parameterList.add(new ProjectionParameter("semi_major", geo.getHorizontalDatum().getEllipsoid().getSemiMajorAxis()));
         parameterList.add(new ProjectionParameter("semi_minor", geo.getHorizontalDatum().getEllipsoid().getSemiMinorAxis()));
-        return new GeocentricTransform(parameterList);
+        return new GeocentricTransform(parameterList, false, _precision);
     }
 
-    private static IMathTransform createCoordinateOperation(IProjection projection, IEllipsoid ellipsoid, ILinearUnit unit) {
+    private IMathTransform createCoordinateOperation(IProjection projection, IEllipsoid ellipsoid, ILinearUnit unit) {
         ArrayList<ProjectionParameter> parameterList = new ArrayList<>(projection.getNumParameters());
         for (int i = 0; i < projection.getNumParameters(); i++) {
             parameterList.add(projection.getParameter(i));
@@ -162,22 +251,30 @@ public class CoordinateTransformationFactory implements ICoordinateTransformatio
             case "mercator_1sp":
             case "mercator_2sp":
                 //1SP
-                transform = new Mercator(parameterList);
+                transform = new Mercator(parameterList, false, _precision);
+                break;
+            case "popular_visualisation_pseudo_mercator":
+            case "popular_visualization_pseudo_mercator":
+                transform = new PseudoMercator(parameterList, false, _precision);
                 break;
             case "transverse_mercator":
-                transform = new TransverseMercator(parameterList);
+                if (_transverseMercatorMethod == TransverseMercatorMethod.KRUGER) {
+                    transform = new KrugerTransverseMercator(parameterList, false, _precision);
+                } else {
+                    transform = new TransverseMercator(parameterList, false, _precision);
+                }
                 break;
             case "albers":
             case "albers_conic_equal_area":
-                transform = new AlbersProjection(parameterList);
+                transform = new AlbersProjection(parameterList, false, _precision);
                 break;
             case "krovak":
-                transform = new KrovakProjection(parameterList);
+                transform = new KrovakProjection(parameterList, false, _precision);
                 break;
             case "lambert_conformal_conic":
             case "lambert_conformal_conic_2sp":
             case "lambert_conic_conformal_(2sp)":
-                transform = new LambertConformalConic2SP(parameterList);
+                transform = new LambertConformalConic2SP(parameterList, false, _precision);
                 break;
             default:
                 throw new UnsupportedOperationException(String.format("Projection %1$s is not supported.", projection.getClassName()));
@@ -193,12 +290,102 @@ public class CoordinateTransformationFactory implements ICoordinateTransformatio
      * a transformation between them. This method may fail if no path between
      * the coordinate systems is found, using the normal failing behavior of
      * the DCP (e.g. throwing an exception).
+     * <p>
+     * Transformations are cached by the structure of the two coordinate systems, so asking again for
+     * the same pair, or for a pair with equal parameters, returns the math transform already built.
      *
      * @param sourceCS Source coordinate system
      * @param targetCS Target coordinate system
      * @return
      */
     public final ICoordinateTransformation createFromCoordinateSystems(ICoordinateSystem sourceCS, ICoordinateSystem targetCS) {
+        CoordinateSystemPairKey key = CoordinateSystemPairKey.create(sourceCS, targetCS, _transverseMercatorMethod, _precision);
+        if (key == null) {
+            return createAxisTransformation(sourceCS, targetCS);
+        }
+        ICoordinateTransformation trans = CACHE.get(key);
+        if (trans == null) {
+            trans = CACHE.getOrPut(key, createAxisTransformation(sourceCS, targetCS));
+        }
+        if (trans.getSourceCS() == sourceCS && trans.getTargetCS() == targetCS) {
+            return trans;
+        }
+        return new CoordinateTransformation(sourceCS, targetCS, trans.getTransformType(), trans.getMathTransform(), trans.getName(), trans.getAuthority(), trans.getAuthorityCode(), trans.getAreaOfUse(), trans.getRemarks());
+    }
+
+    /**
+     * Builds a new transformation between two coordinate systems, converting the points from the axis order
+     * of the source coordinate system and to the axis order of the target coordinate system.
+     *
+     * @param sourceCS Source coordinate system
+     * @param targetCS Target coordinate system
+     * @return
+     */
+    private ICoordinateTransformation createAxisTransformation(ICoordinateSystem sourceCS, ICoordinateSystem targetCS) {
+        ICoordinateTransformation trans = createTransformation(sourceCS, targetCS);
+        AffineTransform sourceAxes = createAxisTransform(sourceCS);
+        AffineTransform targetAxes = createAxisTransform(targetCS);
+        if (sourceAxes == null && targetAxes == null) {
+            return trans;
+        }
+        ArrayList<ICoordinateTransformation> transforms = new ArrayList<>(3);
+        if (sourceAxes != null) {
+            transforms.add(new CoordinateTransformation(sourceCS, sourceCS, TransformType.Conversion, sourceAxes, "", "", -1, "", ""));
+        }
+        transforms.add(trans);
+        if (targetAxes != null) {
+            transforms.add(new CoordinateTransformation(targetCS, targetCS, TransformType.Conversion, targetAxes.inverse(), "", "", -1, "", ""));
+        }
+        return new CoordinateTransformation(sourceCS, targetCS, trans.getTransformType(), new ConcatenatedTransform(transforms), "", "", -1, "", "");
+    }
+
+    /**
+     * Creates the affine step swapping and flipping the axes of a geographic or projected coordinate system
+     * into the east, north, up order the math transforms work in.
+     *
+     * @param cs Coordinate system
+     * @return the step, or null if the coordinate system already uses that order or its axes can not be mapped
+     */
+    private static AffineTransform createAxisTransform(ICoordinateSystem cs) {
+        if (!(cs instanceof IGeographicCoordinateSystem || cs instanceof IProjectedCoordinateSystem) || cs.getDimension() < 2) {
+            return null;
+        }
+        int dim = cs.getDimension();
+        double[] elements = new double[dim * (dim + 1)];
+        boolean[] used = new boolean[dim];
+        boolean identity = true;
+        for (int i = 0; i < dim; i++) {
+            AxisOrientationEnum orientation = cs.getAxis(i).getOrientation();
+            int target = i;
+            double sign = 1;
+            if (orientation == AxisOrientationEnum.East || orientation == AxisOrientationEnum.West) {
+                target = 0;
+            } else if (orientation == AxisOrientationEnum.North || orientation == AxisOrientationEnum.South) {
+                target = 1;
+            } else if (orientation == AxisOrientationEnum.Up || orientation == AxisOrientationEnum.Down) {
+                target = 2;
+            }
+            if (orientation == AxisOrientationEnum.West || orientation == AxisOrientationEnum.South || orientation == AxisOrientationEnum.Down) {
+                sign = -1;
+            }
+            if (target >= dim || used[target]) {
+                return null;
+            }
+            used[target] = true;
+            elements[target * (dim + 1) + i] = sign;
+            identity &= target == i && sign == 1;
+        }
+        return identity ? null : new AffineTransform(dim, dim, elements);
+    }
+
+    /**
+     * Builds a new transformation between two coordinate systems, without looking in the cache.
+     *
+     * @param sourceCS Source coordinate system
+     * @param targetCS Target coordinate system
+     * @return
+     */
+    private ICoordinateTransformation createTransformation(ICoordinateSystem sourceCS, ICoordinateSystem targetCS) {
         ICoordinateTransformation trans;
         if (sourceCS instanceof IProjectedCoordinateSystem && targetCS instanceof IGeographicCoordinateSystem)
         {
@@ -240,15 +427,14 @@ public class CoordinateTransformationFactory implements ICoordinateTransformatio
         if (source.getHorizontalDatum().equalParams(target.getHorizontalDatum())) {
             return new CoordinateTransformation(source, target, TransformType.Conversion, new GeographicTransform(source, target), "", "", -1, "", "");
         } else {
-            CoordinateTransformationFactory ctFac = new CoordinateTransformationFactory();
             CoordinateSystemFactory cFac = new CoordinateSystemFactory();
             IGeocentricCoordinateSystem sourceCentric = cFac.createGeocentricCoordinateSystem(source.getHorizontalDatum().getName() + " Geocentric", source.getHorizontalDatum(), LinearUnit.getMetre(), source.getPrimeMeridian());
             IGeocentricCoordinateSystem targetCentric = cFac.createGeocentricCoordinateSystem(target.getHorizontalDatum().getName() + " Geocentric", target.getHorizontalDatum(), LinearUnit.getMetre(), source.getPrimeMeridian());
-            ConcatenatedTransform ct = new ConcatenatedTransform();
-            ct.getCoordinateTransformationList().add(ctFac.createFromCoordinateSystems(source, sourceCentric));
-            ct.getCoordinateTransformationList().add(ctFac.createFromCoordinateSystems(sourceCentric, targetCentric));
-            ct.getCoordinateTransformationList().add(ctFac.createFromCoordinateSystems(targetCentric, target));
-            return new CoordinateTransformation(source, target, TransformType.Transformation, ct, "", "", -1, "", "");
+            ArrayList<ICoordinateTransformation> transforms = new ArrayList<>();
+            transforms.add(createTransformation(source, sourceCentric));
+            transforms.add(createTransformation(sourceCentric, targetCentric));
+            transforms.add(createTransformation(targetCentric, target));
+            return new CoordinateTransformation(source, target, TransformType.Transformation, new ConcatenatedTransform(transforms), "", "", -1, "", "");
         }
     }
 }
\ No newline at end of file
@@ -1,7 +1,5 @@
 package no.shz.projjava.coordinateSystems.transformations;
 
-import java.util.ArrayList;
-
 import no.shz.projjava.coordinateSystems.Wgs84ConversionInfo;
 
 /**
@@ -37,14 +35,13 @@ import no.shz.projjava.coordinateSystems.Wgs84ConversionInfo;
  */
 
 /**
- * Transformation for applying
+ * Transformation for applying a Helmert datum shift to geocentric coordinates.
+ * <p>
+ * Instances do not change once created and can be shared between threads.
  */
-public class DatumTransform extends MathTransform {
-    protected IMathTransform _inverse;
-    private Wgs84ConversionInfo _ToWgs94;
-    private double[] v;
-
-    private boolean _isInverse = false;
+public class DatumTransform extends AffineTransform {
+    private final Wgs84ConversionInfo _ToWgs94;
+    private final boolean _isInverse;
 
     /**
      * Initializes a new instance of the <see cref="DatumTransform"/> class.
@@ -56,11 +53,24 @@ public class DatumTransform extends MathTransform {
     }
 
     private DatumTransform(Wgs84ConversionInfo towgs84, boolean isInverse) {
+        super(3, 3, createMatrix(towgs84, isInverse));
         _ToWgs94 = towgs84;
-        v = _ToWgs94.GetAffineTransform();
         _isInverse = isInverse;
     }
 
+    /**
+     * Creates the matrix of the Helmert transformation, stored by rows. The inverse negates the parameters,
+     * which approximates the exact inverse for the small rotations of a datum shift.
+     */
+    private static double[] createMatrix(Wgs84ConversionInfo towgs84, boolean isInverse) {
+        double[] v = towgs84.GetAffineTransform();
+        if (!isInverse) {
+            return new double[]{v[0], -v[3], v[2], v[4], v[3], v[0], -v[1], v[5], -v[2], v[1], v[0], v[6]};
+        } else {
+            return new double[]{v[0], v[3], -v[2], -v[4], -v[3], v[0], v[1], -v[5], v[2], -v[1], v[0], -v[6]};
+        }
+    }
+
     /**
      * Gets a Well-Known text representation of this object.
      * <p>
@@ -82,70 +92,28 @@ public class DatumTransform extends MathTransform {
     }
 
     /**
-     * Creates the inverse transform of this object.
+     * Creates the inverse transform of this object, applying the same parameters in the opposite direction.
      *
      * @return This method may fail if the transform is not one to one. However, all cartographic projections should succeed.
      */
     @Override
-    public IMathTransform inverse() {
-        if (_inverse == null) {
-            _inverse = new DatumTransform(_ToWgs94, !_isInverse);
-        }
-        return _inverse;
-    }
-
-    private double[] apply(double[] p) {
-        return new double[]{v[0] * p[0] - v[3] * p[1] + v[2] * p[2] + v[4], v[3] * p[0] + v[0] * p[1] - v[1] * p[2] + v[5], -v[2] * p[0] + v[1] * p[1] + v[0] * p[2] + v[6]};
-    }
-
-    private double[] applyInverted(double[] p) {
-        return new double[]{v[0] * p[0] + v[3] * p[1] - v[2] * p[2] - v[4], -v[3] * p[0] + v[0] * p[1] + v[1] * p[2] - v[5], v[2] * p[0] - v[1] * p[1] + v[0] * p[2] - v[6]};
+    protected AffineTransform createInverse() {
+        return new DatumTransform(_ToWgs94, !_isInverse);
     }
 
     /**
-     * Transforms a coordinate point. The passed parameter point should not be modified.
-     *
-     * @param point
-     * @return
+     * Tests whether another transform undoes this one: either it is the inverse of this transform,
+     * or it applies the same Helmert parameters in the opposite direction.
      */
     @Override
-    public double[] transform(double[] point) {
-        if (!_isInverse) {
-            return apply(point);
-        } else {
-            return applyInverted(point);
+    boolean isInverseOf(AffineTransform other) {
+        if (super.isInverseOf(other)) {
+            return true;
         }
-    }
-
-    /**
-     * Transforms a list of coordinate point ordinal values.
-     *
-     * @param points
-     * @return This method is provided for efficiently transforming many points. The supplied array
-     * of ordinal values will contain packed ordinal values. For example, if the source
-     * dimension is 3, then the ordinals will be packed in this order (x0,y0,z0,x1,y1,z1 ...).
-     * The size of the passed array must be an integer multiple of DimSource. The returned
-     * ordinal values are packed in a similar way. In some DCPs. the ordinals may be
-     * transformed in-place, and the returned array may be the same as the passed array.
-     * So any client code should not attempt to reuse the passed ordinal values (although
-     * they can certainly reuse the passed array). If there is any problem then the server
-     * implementation will throw an exception. If this happens then the client should not
-     * make any assumptions about the state of the ordinal values.
-     */
-    @Override
-    public ArrayList<double[]> transformList(ArrayList<double[]> points) {
-        ArrayList<double[]> pnts = new ArrayList<>(points.size());
-        for (double[] p : points) {
-            pnts.add(transform(p));
+        if (!(other instanceof DatumTransform)) {
+            return false;
         }
-        return pnts;
-    }
-
-    /**
-     * Reverses the transformation
-     */
-    @Override
-    public void invert() {
-        _isInverse = !_isInverse;
+        DatumTransform datum = (DatumTransform) other;
+        return _isInverse != datum._isInverse && _ToWgs94.equals(datum._ToWgs94);
     }
 }
\ No newline at end of file
@@ -50,19 +50,31 @@ import no.shz.projjava.coordinateSystems.ProjectionParameter;
  * the units of the ellipsoid axes (a and b). As it is conventional for X, Y and Z to be in metres,
  * if the ellipsoid axis dimensions are given in another linear unit they should first be converted
  * to metres.</p>
+ * <p>Instances do not change once created and can be shared between threads.</p>
  */
 public class GeocentricTransform extends MathTransform {
-    private static final double COS_67P5 = 0.38268343236508977;
-    private static final double AD_C = 1.0026000;
+    static final double COS_67P5 = 0.38268343236508977;
+    static final double AD_C = 1.0026000;
+    /**
+     * Accuracy on the ground, in meters, of a single Bowring step from the initial estimate, for points less
+     * than 100 km from the surface of the Earth: the error is about 6 mm on the WGS 84 ellipsoid.
+     */
+    static final double BOWRING_STEP_ACCURACY = 0.01;
 
-    protected boolean _isInverse = false;
-    protected ArrayList<ProjectionParameter> _parameters;
-    protected MathTransform _inverse;
+    protected final boolean _isInverse;
+    protected final ArrayList<ProjectionParameter> _parameters;
+    private volatile GeocentricTransform _inverse;
 
-    private double _es;
-    private double _semiMajor;
-    private double _semiMinor;
-    private double _ses;
+    private final double _es;
+    private final double _semiMajor;
+    private final double _semiMinor;
+    private final double _ses;
+    private final double _precision;
+    /**
+     * Number of Bowring steps of the conversion to geographic coordinates: 2 when the precision, the
+     * accuracy wanted on the ground in meters, is finer than a single step, otherwise 1.
+     */
+    private final int _bowringSteps;
 
     /**
      * Initializes a geocentric projection object
@@ -71,82 +83,141 @@ public class GeocentricTransform extends MathTransform {
      * @param isInverse  Indicates whether the projection forward (meters to degrees or degrees to meters).
      */
     public GeocentricTransform(ArrayList<ProjectionParameter> parameters, boolean isInverse) {
-        this(parameters);
-        _isInverse = isInverse;
+        this(parameters, isInverse, 0);
     }
 
     /**
      * Initializes a geocentric projection object
      *
      * @param parameters List of parameters to initialize the projection.
+     * @param isInverse  Indicates whether the projection forward (meters to degrees or degrees to meters).
+     * @param precision  Accuracy wanted on the ground in meters, or 0 for the full accuracy of the conversion.
      */
-    public GeocentricTransform(ArrayList<ProjectionParameter> parameters) {
+    public GeocentricTransform(ArrayList<ProjectionParameter> parameters, boolean isInverse, double precision) {
+        if (!(precision >= 0) || Double.isInfinite(precision)) {
+            throw new IllegalArgumentException("The precision must be a finite number of meters, at least 0, got " + precision);
+        }
+        _isInverse = isInverse;
         _parameters = parameters;
+        _precision = precision;
 
+        double semiMajor = 0;
+        double semiMinor = 0;
         for (ProjectionParameter pp : _parameters) {
             if (pp.getName().equalsIgnoreCase("semi_major")) {
-                _semiMajor = pp.getValue();
+                semiMajor = pp.getValue();
             } else if (pp.getName().equalsIgnoreCase("semi_minor")) {
-                _semiMinor = pp.getValue();
+                semiMinor = pp.getValue();
             }
         }
+        _semiMajor = semiMajor;
+        _semiMinor = semiMinor;
+        _bowringSteps = precision > 0 && precision < BOWRING_STEP_ACCURACY ? 2 : 1;
 
         _es = 1.0 - (_semiMinor * _semiMinor) / (_semiMajor * _semiMajor); //e^2
-        _ses = (Math.pow(_semiMajor, 2) - Math.pow(_semiMinor, 2)) / Math.pow(_semiMinor, 2);
-        double ba = _semiMinor / _semiMajor;
-        double ab = _semiMajor / _semiMinor;
+        _ses = (_semiMajor * _semiMajor - _semiMinor * _semiMinor) / (_semiMinor * _semiMinor);
+    }
+
+    /**
+     * Initializes a geocentric projection object
+     *
+     * @param parameters List of parameters to initialize the projection.
+     */
+    public GeocentricTransform(ArrayList<ProjectionParameter> parameters) {
+        this(parameters, false);
     }
 
 
     /**
      * Returns the inverse of this conversion.
+     * <p>
+     * The inverse is created once and cached, and its own inverse is this transform.
      *
      * @return IMathTransform that is the reverse of the current conversion.
      */
     @Override
     public IMathTransform inverse() {
-        if (_inverse == null) {
-            _inverse = new GeocentricTransform(this._parameters, !_isInverse);
+        GeocentricTransform inverse = _inverse;
+        if (inverse == null) {
+            inverse = new GeocentricTransform(this._parameters, !_isInverse, _precision);
+            inverse._inverse = this;
+            _inverse = inverse;
         }
-        return _inverse;
+        return inverse;
+    }
+
+    /**
+     * Gets the accuracy wanted on the ground, in meters, or 0 for the full accuracy of the conversion.
+     */
+    public final double getPrecision() {
+        return _precision;
     }
 
     /**
-     * Converts coordinates in decimal degrees to projected meters.
+     * Tests whether another geocentric transform undoes this one: it uses the same ellipsoid
+     * and runs in the opposite direction.
+     */
+    boolean isInverseOf(GeocentricTransform other) {
+        return _isInverse != other._isInverse && _semiMajor == other._semiMajor && _semiMinor == other._semiMinor;
+    }
+
+    /**
+     * Converts coordinates in decimal degrees to geocentric meters, in place.
+     * A missing or NaN height is taken as 0. The z ordinate is only written when dim is at least 3.
+     * A latitude past a pole gives NaN ordinates.
      *
-     * @param lonlat The point in decimal degrees.
-     * @return Point in projected meters
+     * @param p      Array holding the point in decimal degrees.
+     * @param offset Offset of the point in the array
+     * @param dim    Number of ordinates of the point
      */
-    private double[] degreesToMeters(double[] lonlat) {
-        double lon = degrees2Radians(lonlat[0]);
-        double lat = degrees2Radians(lonlat[1]);
-        double h = lonlat.length < 3 ? 0 : (new Double(lonlat[2])).equals(Double.NaN) ? 0 : lonlat[2];
-        double v = _semiMajor / Math.sqrt(1 - _es * Math.pow(Math.sin(lat), 2));
-        double x = (v + h) * Math.cos(lat) * Math.cos(lon);
-        double y = (v + h) * Math.cos(lat) * Math.sin(lon);
-        double z = ((1 - _es) * v + h) * Math.sin(lat);
-        return new double[]{x, y, z};
+    private void degreesToMeters(double[] p, int offset, int dim) {
+        if (Math.abs(p[offset + 1]) > 90) {
+            p[offset] = Double.NaN;
+            p[offset + 1] = Double.NaN;
+            if (dim > 2) {
+                p[offset + 2] = Double.NaN;
+            }
+            return;
+        }
+        double lon = degrees2Radians(p[offset]);
+        double lat = degrees2Radians(p[offset + 1]);
+        double h = dim < 3 || Double.isNaN(p[offset + 2]) ? 0 : p[offset + 2];
+        double sinLat = Math.sin(lat);
+        double cosLat = Math.cos(lat);
+        double v = _semiMajor / Math.sqrt(1 - _es * sinLat * sinLat);
+        double x = (v + h) * cosLat * Math.cos(lon);
+        double y = (v + h) * cosLat * Math.sin(lon);
+        double z = ((1 - _es) * v + h) * sinLat;
+        p[offset] = x;
+        p[offset + 1] = y;
+        if (dim > 2) {
+            p[offset + 2] = z;
+        }
     }
 
     /**
-     * Converts coordinates in projected meters to decimal degrees.
+     * Converts coordinates in geocentric meters to decimal degrees, in place.
+     * A missing or NaN z is taken as 0. The height is only written when dim is at least 3.
      *
-     * @param pnt Point in meters
-     * @return Transformed point in decimal degrees
+     * @param p      Array holding the point in meters
+     * @param offset Offset of the point in the array
+     * @param dim    Number of ordinates of the point
      */
-    private double[] metersToDegrees(double[] pnt) {
+    private void metersToDegrees(double[] p, int offset, int dim) {
         boolean At_Pole = false;
-        double Z = pnt.length < 3 ? 0 : (new Double(pnt[2])).equals(Double.NaN) ? 0 : pnt[2];
+        double X = p[offset];
+        double Y = p[offset + 1];
+        double Z = dim < 3 || Double.isNaN(p[offset + 2]) ? 0 : p[offset + 2];
 
         double lon = 0;
         double lat = 0;
         double Height = 0;
-        if (pnt[0] != 0.0) {
-            lon = Math.atan2(pnt[1], pnt[0]);
+        if (X != 0.0) {
+            lon = Math.atan2(Y, X);
         } else {
-            if (pnt[1] > 0) {
+            if (Y > 0) {
                 lon = Math.PI / 2;
-            } else if (pnt[1] < 0) {
+            } else if (Y < 0) {
                 lon = -Math.PI * 0.5;
             } else {
                 At_Pole = true;
@@ -156,23 +227,41 @@ public class GeocentricTransform extends MathTransform {
                 } else if (Z < 0.0) {
                     lat = -Math.PI * 0.5;
                 } else {
-                    return new double[]{radians2Degrees(lon), radians2Degrees(Math.PI * 0.5), -_semiMinor};
+                    p[offset] = radians2Degrees(lon);
+                    p[offset + 1] = radians2Degrees(Math.PI * 0.5);
+                    if (dim > 2) {
+                        p[offset + 2] = -_semiMinor;
+                    }
+                    return;
                 }
             }
         }
 
-        double W2 = pnt[0] * pnt[0] + pnt[1] * pnt[1]; // Square of distance from Z axis
+        double W2 = X * X + Y * Y; // Square of distance from Z axis
         double W = Math.sqrt(W2); // distance from Z axis
         double T0 = Z * AD_C; // initial estimate of vertical component
         double S0 = Math.sqrt(T0 * T0 + W2); //initial estimate of horizontal component
         double Sin_B0 = T0 / S0; //sin(B0), B0 is estimate of Bowring aux variable
         double Cos_B0 = W / S0; //cos(B0)
-        double Sin3_B0 = Math.pow(Sin_B0, 3);
+        double Sin3_B0 = Sin_B0 * Sin_B0 * Sin_B0;
         double T1 = Z + _semiMinor * _ses * Sin3_B0; //corrected estimate of vertical component
         double Sum = W - _semiMajor * _es * Cos_B0 * Cos_B0 * Cos_B0; //numerator of cos(phi1)
         double S1 = Math.sqrt(T1 * T1 + Sum * Sum); //corrected estimate of horizontal component
         double Sin_p1 = T1 / S1; //sin(phi1), phi1 is estimated latitude
         double Cos_p1 = Sum / S1; //cos(phi1)
+        for (int step = 1; step < _bowringSteps; step++) {
+            //Next step from the parametric latitude B of the estimate, tan(B) = b / a * tan(phi1)
+            double Tb = _semiMinor * Sin_p1;
+            double Sb = _semiMajor * Cos_p1;
+            double Rb = Math.sqrt(Tb * Tb + Sb * Sb);
+            Sin_B0 = Tb / Rb;
+            Cos_B0 = Sb / Rb;
+            T1 = Z + _semiMinor * _ses * Sin_B0 * Sin_B0 * Sin_B0;
+            Sum = W - _semiMajor * _es * Cos_B0 * Cos_B0 * Cos_B0;
+            S1 = Math.sqrt(T1 * T1 + Sum * Sum);
+            Sin_p1 = T1 / S1;
+            Cos_p1 = Sum / S1;
+        }
         double Rn = _semiMajor / Math.sqrt(1.0 - _es * Sin_p1 * Sin_p1); //Earth radius at location
         if (Cos_p1 >= COS_67P5) {
             Height = W / Cos_p1 - Rn;
@@ -184,7 +273,11 @@ public class GeocentricTransform extends MathTransform {
         if (!At_Pole) {
             lat = Math.atan(Sin_p1 / Cos_p1);
         }
-        return new double[]{radians2Degrees(lon), radians2Degrees(lat), Height};
+        p[offset] = radians2Degrees(lon);
+        p[offset + 1] = radians2Degrees(lat);
+        if (dim > 2) {
+            p[offset + 2] = Height;
+        }
     }
 
     /**
@@ -195,10 +288,84 @@ public class GeocentricTransform extends MathTransform {
      */
     @Override
     public double[] transform(double[] point) {
+        double[] result = new double[]{point[0], point[1], point.length < 3 ? 0 : point[2]};
         if (!_isInverse) {
-            return this.degreesToMeters(point);
+            this.degreesToMeters(result, 0, 3);
         } else {
-            return this.metersToDegrees(point);
+            this.metersToDegrees(result, 0, 3);
+        }
+        return result;
+    }
+
+    /**
+     * Transforms a packed array of coordinate points without allocating per point.
+     * With 2 ordinates per point the height (or geocentric z) is taken as 0 and not written.
+     *
+     * @param src    array holding the source points
+     * @param srcOff offset of the first ordinate in the source array
+     * @param dst    array receiving the transformed points
+     * @param dstOff offset of the first ordinate in the destination array
+     * @param numPts number of points to transform
+     * @param dim    number of ordinates per point, at least 2
+     */
+    @Override
+    public void transform(double[] src, int srcOff, double[] dst, int dstOff, int numPts, int dim) {
+        preparePacked(src, srcOff, dst, dstOff, numPts, dim);
+        int end = dstOff + numPts * dim;
+        if (!_isInverse) {
+            for (int off = dstOff; off < end; off += dim) {
+                degreesToMeters(dst, off, dim);
+            }
+        } else {
+            for (int off = dstOff; off < end; off += dim) {
+                metersToDegrees(dst, off, dim);
+            }
+        }
+    }
+
+    /**
+     * Transforms coordinate points stored as separate arrays of ordinates, in place.
+     * When zs is null the height (or geocentric z) is taken as 0 and not written.
+     * <p>
+     * The points are handed to the {@link VectorKernels} first, unless the conversion to geographic coordinates
+     * takes more than one Bowring step; the points they leave are transformed one by one.
+     *
+     * @param xs  first ordinates of the points
+     * @param ys  second ordinates of the points
+     * @param zs  third ordinates of the points, or null
+     * @param off index of the first point
+     * @param n   number of points to transform
+     */
+    @Override
+    public void transform(double[] xs, double[] ys, double[] zs, int off, int n) {
+        checkColumns(xs, ys, zs, off, n);
+        VectorKernels kernels = VectorKernels.getInstance();
+        int dim = zs == null ? 2 : 3;
+        double[] p = new double[dim];
+        for (int i = off, end = off + n; i < end; i++) {
+            if (!_isInverse) {
+                i += kernels.geographicToGeocentric(_semiMajor, _es, xs, ys, zs, i, end - i);
+            } else if (_bowringSteps == 1) {
+                i += kernels.geocentricToGeographic(_semiMajor, _semiMinor, _es, _ses, xs, ys, zs, i, end - i);
+            }
+            if (i == end) {
+                break;
+            }
+            p[0] = xs[i];
+            p[1] = ys[i];
+            if (zs != null) {
+                p[2] = zs[i];
+            }
+            if (!_isInverse) {
+                degreesToMeters(p, 0, dim);
+            } else {
+                metersToDegrees(p, 0, dim);
+            }
+            xs[i] = p[0];
+            ys[i] = p[1];
+            if (zs != null) {
+                zs[i] = p[2];
+            }
         }
     }
 
@@ -227,13 +394,6 @@ public class GeocentricTransform extends MathTransform {
         return result;
     }
 
-    /**
-     * Reverses the transformation
-     */
-    @Override
-    public void invert() {
-        _isInverse = !_isInverse;
-    }
 
     /**
      * Gets a Well-Known text representation of this object.
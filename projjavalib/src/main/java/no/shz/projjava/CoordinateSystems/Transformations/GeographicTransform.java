@@ -1,7 +1,5 @@
 package no.shz.projjava.coordinateSystems.transformations;
 
-import java.util.ArrayList;
-
 import no.shz.projjava.coordinateSystems.IGeographicCoordinateSystem;
 
 /**
@@ -39,38 +37,45 @@ import no.shz.projjava.coordinateSystems.IGeographicCoordinateSystem;
 /**
  * The GeographicTransform class is implemented on geographic transformation objects and
  * implements datum transformations between geographic coordinate systems.
+ * <p>
+ * The prime meridians are read when the transform is created, so later changes to the coordinate
+ * systems are not seen. Instances can be shared between threads.
  */
-public class GeographicTransform extends MathTransform {
-    private IGeographicCoordinateSystem _SourceGCS;
-    private IGeographicCoordinateSystem _TargetGCS;
+public class GeographicTransform extends AffineTransform {
+    private final IGeographicCoordinateSystem _SourceGCS;
+    private final IGeographicCoordinateSystem _TargetGCS;
 
     public GeographicTransform(IGeographicCoordinateSystem sourceGCS, IGeographicCoordinateSystem targetGCS) {
+        super(2, 2, createMatrix(sourceGCS, targetGCS));
         _SourceGCS = sourceGCS;
         _TargetGCS = targetGCS;
     }
 
     /**
-     * Gets or sets the source geographic coordinate system for the transformation.
+     * Creates the matrix shifting the longitude from the source to the target prime meridian. The shift is
+     * computed once here, instead of going through the coordinate systems for every point.
      */
-    public final IGeographicCoordinateSystem getSourceGCS() {
-        return _SourceGCS;
+    private static double[] createMatrix(IGeographicCoordinateSystem sourceGCS, IGeographicCoordinateSystem targetGCS) {
+        double radiansPerUnit = sourceGCS.getAngularUnit().getRadiansPerUnit();
+        double sourceMeridian = sourceGCS.getPrimeMeridian().getLongitude() / sourceGCS.getPrimeMeridian().getAngularUnit().getRadiansPerUnit();
+        double targetMeridian = targetGCS.getPrimeMeridian().getLongitude() / targetGCS.getPrimeMeridian().getAngularUnit().getRadiansPerUnit();
+        return new double[]{1, 0, (targetMeridian - sourceMeridian) * radiansPerUnit, 0, 1, 0};
     }
 
-    public final void setSourceGCS(IGeographicCoordinateSystem value) {
-        _SourceGCS = value;
+    /**
+     * Gets the source geographic coordinate system for the transformation.
+     */
+    public final IGeographicCoordinateSystem getSourceGCS() {
+        return _SourceGCS;
     }
 
     /**
-     * Gets or sets the target geographic coordinate system for the transformation.
+     * Gets the target geographic coordinate system for the transformation.
      */
     public final IGeographicCoordinateSystem getTargetGCS() {
         return _TargetGCS;
     }
 
-    public final void setTargetGCS(IGeographicCoordinateSystem value) {
-        _TargetGCS = value;
-    }
-
     /**
      * Returns the Well-known text for this object
      * as defined in the simple features specification. [NOT IMPLEMENTED].
@@ -89,65 +94,12 @@ public class GeographicTransform extends MathTransform {
     }
 
     /**
-     * Creates the inverse transform of this object.
-     * <p>
-     * This method may fail if the transform is not one to one. However, all cartographic projections should succeed.
-     *
-     * @return
-     */
-    @Override
-    public IMathTransform inverse() {
-        throw new UnsupportedOperationException();
-    }
-
-    /**
-     * Transforms a coordinate point. The passed parameter point should not be modified.
+     * Creates the inverse transform of this object, from the target to the source coordinate system.
      *
-     * @param point
      * @return
      */
     @Override
-    public double[] transform(double[] point) {
-        double[] pOut = point.clone();
-        pOut[0] /= getSourceGCS().getAngularUnit().getRadiansPerUnit();
-        pOut[0] -= getSourceGCS().getPrimeMeridian().getLongitude() / getSourceGCS().getPrimeMeridian().getAngularUnit().getRadiansPerUnit();
-        pOut[0] += getTargetGCS().getPrimeMeridian().getLongitude() / getTargetGCS().getPrimeMeridian().getAngularUnit().getRadiansPerUnit();
-        pOut[0] *= getSourceGCS().getAngularUnit().getRadiansPerUnit();
-        return pOut;
-    }
-
-    /**
-     * Transforms a list of coordinate point ordinal values.
-     * <p>
-     * <p>
-     * This method is provided for efficiently transforming many points. The supplied array
-     * of ordinal values will contain packed ordinal values. For example, if the source
-     * dimension is 3, then the ordinals will be packed in this order (x0,y0,z0,x1,y1,z1 ...).
-     * The size of the passed array must be an integer multiple of DimSource. The returned
-     * ordinal values are packed in a similar way. In some DCPs. the ordinals may be
-     * transformed in-place, and the returned array may be the same as the passed array.
-     * So any client code should not attempt to reuse the passed ordinal values (although
-     * they can certainly reuse the passed array). If there is any problem then the server
-     * implementation will throw an exception. If this happens then the client should not
-     * make any assumptions about the state of the ordinal values.
-     *
-     * @param points
-     * @return
-     */
-    @Override
-    public ArrayList<double[]> transformList(ArrayList<double[]> points) {
-        ArrayList<double[]> trans = new ArrayList<>(points.size());
-        for (double[] p : points) {
-            trans.add(transform(p));
-        }
-        return trans;
-    }
-
-    /**
-     * Reverses the transformation
-     */
-    @Override
-    public void invert() {
-        throw new UnsupportedOperationException();
+    protected AffineTransform createInverse() {
+        return new GeographicTransform(_TargetGCS, _SourceGCS);
     }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package no.shz.projjava.coordinateSystems.transformations;
 
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
 
 /**
@@ -41,6 +43,8 @@ import java.util.ArrayList;
  * systems of a transformation, then it should keep hold of the
  * <see cref="ICoordinateTransformation"/> interface, and use the contained
  * math transform object whenever it wishes to perform a transform.
+ * <p>
+ * The implementations of this library can be shared between threads, see {@link MathTransform}.
  */
 public interface IMathTransform {
     /**
@@ -165,7 +169,126 @@ public interface IMathTransform {
     ArrayList<double[]> transformList(ArrayList<double[]> points);
 
     /**
-     * Reverses the transformation
+     * Transforms a packed array of coordinate points.
+     * <p>
+     * <p>
+     * The points are read from src starting at srcOff and written to dst starting at dstOff. Both
+     * arrays hold the ordinates packed with dim values per point (x0,y0,z0,x1,y1,z1 ...). Ordinates the
+     * transform does not use are copied through unchanged. The source and destination may be the same
+     * array, in which case the points are transformed in place, and no arrays are allocated per point.
+     *
+     * @param src    array holding the source points
+     * @param srcOff offset of the first ordinate in the source array
+     * @param dst    array receiving the transformed points
+     * @param dstOff offset of the first ordinate in the destination array
+     * @param numPts number of points to transform
+     * @param dim    number of ordinates per point, at least 2
+     */
+    void transform(double[] src, int srcOff, double[] dst, int dstOff, int numPts, int dim);
+
+    /**
+     * Transforms coordinate points stored as separate arrays of ordinates, in place.
+     * <p>
+     * <p>
+     * The i'th point is (xs[i], ys[i], zs[i]) for i = off .. off + n - 1, and the transformed point is
+     * written back to the same positions. When zs is null the points are treated as 2D points, the
+     * same way a 2 element point is treated by {@link #transform(double[])}.
+     *
+     * @param xs  first ordinates of the points
+     * @param ys  second ordinates of the points
+     * @param zs  third ordinates of the points, or null
+     * @param off index of the first point
+     * @param n   number of points to transform
+     */
+    void transform(double[] xs, double[] ys, double[] zs, int off, int n);
+
+    /**
+     * Transforms a packed array of coordinate points like {@link #transform(double[], int, double[], int, int, int)},
+     * without stopping at points that can not be transformed.
+     * <p>
+     * <p>
+     * All the ordinates of a point that can not be transformed, or whose transformed x or y is NaN, are set
+     * to NaN, and its {@link PointStatus} code is written to the status array. The status of the other points
+     * is set to {@link PointStatus#OK}. No exception is thrown for a single point; invalid arguments are
+     * still reported by an IllegalArgumentException.
+     *
+     * @param src       array holding the source points
+     * @param srcOff    offset of the first ordinate in the source array
+     * @param dst       array receiving the transformed points
+     * @param dstOff    offset of the first ordinate in the destination array
+     * @param numPts    number of points to transform
+     * @param dim       number of ordinates per point, at least 2
+     * @param status    array receiving the status of each point, or null if only the count is needed
+     * @param statusOff index of the status of the first point
+     * @return the number of points that could not be transformed
+     */
+    int transform(double[] src, int srcOff, double[] dst, int dstOff, int numPts, int dim, byte[] status, int statusOff);
+
+    /**
+     * Transforms coordinate points stored as separate arrays of ordinates, in place, like
+     * {@link #transform(double[], double[], double[], int, int)}, without stopping at points that can not
+     * be transformed. Failed points are handled as in {@link #transform(double[], int, double[], int, int, int, byte[], int)}.
+     *
+     * @param xs        first ordinates of the points
+     * @param ys        second ordinates of the points
+     * @param zs        third ordinates of the points, or null
+     * @param off       index of the first point
+     * @param n         number of points to transform
+     * @param status    array receiving the status of each point, or null if only the count is needed
+     * @param statusOff index of the status of the first point
+     * @return the number of points that could not be transformed
+     */
+    int transform(double[] xs, double[] ys, double[] zs, int off, int n, byte[] status, int statusOff);
+
+    /**
+     * Transforms the points of a regular grid, such as the pixel centers of a raster.
+     * <p>
+     * <p>
+     * The grid has nx columns and ny rows; the point of column i and row j is (x0 + i * dx, y0 + j * dy).
+     * The transformed points are written to out as packed 2-dimensional points, row after row, the point
+     * of column i and row j at index 2 * (j * nx + i). Points that can not be transformed are set to NaN,
+     * as in {@link #transform(double[], int, double[], int, int, int, byte[], int)}.
+     * <p>
+     * Transforms whose x only depends on x and y only on y, such as the Mercator projection and affine
+     * steps without rotation, transform each column and each row once instead of every point.
+     *
+     * @param x0  x of the first column
+     * @param y0  y of the first row
+     * @param dx  step between the columns
+     * @param dy  step between the rows
+     * @param nx  number of columns
+     * @param ny  number of rows
+     * @param out array receiving the 2 * nx * ny transformed ordinates
+     * @return the number of points that could not be transformed
+     */
+    int transformGrid(double x0, double y0, double dx, double dy, int nx, int ny, double[] out);
+
+    /**
+     * Transforms the points between the position and the limit of a buffer of packed ordinates.
+     * <p>
+     * <p>
+     * The points are read from in and written to out starting at its position, and the position of
+     * both buffers is advanced past the points, like a bulk get and put. Direct buffers are not copied
+     * onto the heap as a whole. The two buffers may be the same buffer, in which case the points are
+     * transformed in place.
+     *
+     * @param in  buffer holding the source points, with dim values per point
+     * @param out buffer receiving the transformed points
+     * @param dim number of ordinates per point, at least 2
+     */
+    void transform(DoubleBuffer in, DoubleBuffer out, int dim);
+
+    /**
+     * Transforms the points between the position and the limit of a buffer of packed ordinates stored
+     * as 8 byte doubles, in the byte order of each buffer.
+     * <p>
+     * <p>
+     * This behaves as {@link #transform(DoubleBuffer, DoubleBuffer, int)}. Set the order of the
+     * buffers with {@link ByteBuffer#order(java.nio.ByteOrder)} to read and write little or big-endian data.
+     *
+     * @param in  buffer holding the source points, with dim values per point
+     * @param out buffer receiving the transformed points
+     * @param dim number of ordinates per point, at least 2
      */
-    void invert();
+    void transform(ByteBuffer in, ByteBuffer out, int dim);
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package no.shz.projjava.coordinateSystems.transformations;
 
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Copyright 2005 - 2009 - Morten Nielsen (www.sharpgis.net)
@@ -41,12 +44,22 @@ import java.util.ArrayList;
  * systems of a transformation, then it should keep hold of the
  * <see cref="ICoordinateTransformation"/> interface, and use the contained
  * math transform object whenever it wishes to perform a transform.
+ * <p>
+ * Thread safety: the math transforms of this library do not change once created and keep no state
+ * between calls, so one instance can be used by several threads at the same time, for example by a
+ * {@link ParallelTransformer}. The buffers the batch methods need are allocated per call or taken
+ * from a thread local. Subclasses written outside the library should follow the same rule.
  */
 public abstract class MathTransform implements IMathTransform {
 
     protected static final double R2D = 180 / Math.PI;
     protected static final double D2R = Math.PI / 180;
 
+    /**
+     * Number of points copied into a scratch buffer at a time by the batch transforms.
+     */
+    protected static final int BLOCK_SIZE = 256;
+
     /**
      * To convert degrees to radians, multiply degrees by pi/180.
      */
@@ -197,7 +210,443 @@ public abstract class MathTransform implements IMathTransform {
     public abstract ArrayList<double[]> transformList(ArrayList<double[]> points);
 
     /**
-     * Reverses the transformation
+     * Transforms a packed array of coordinate points.
+     * <p>
+     * This default implementation transforms one point at a time through {@link #transform(double[])}.
+     * Transforms that can work directly on the packed ordinates override it.
+     *
+     * @param src    array holding the source points
+     * @param srcOff offset of the first ordinate in the source array
+     * @param dst    array receiving the transformed points
+     * @param dstOff offset of the first ordinate in the destination array
+     * @param numPts number of points to transform
+     * @param dim    number of ordinates per point, at least 2
+     */
+    public void transform(double[] src, int srcOff, double[] dst, int dstOff, int numPts, int dim) {
+        preparePacked(src, srcOff, dst, dstOff, numPts, dim);
+        double[] point = new double[dim];
+        for (int i = 0, off = dstOff; i < numPts; i++, off += dim) {
+            System.arraycopy(dst, off, point, 0, dim);
+            double[] result = transform(point);
+            System.arraycopy(result, 0, dst, off, Math.min(dim, result.length));
+        }
+    }
+
+    /**
+     * Transforms coordinate points stored as separate arrays of ordinates, in place.
+     * <p>
+     * This default implementation copies the points into a packed scratch buffer in blocks of
+     * {@link #BLOCK_SIZE} points and runs {@link #transform(double[], int, double[], int, int, int)}
+     * on each block, so transforms with a packed implementation get a column version for free.
+     *
+     * @param xs  first ordinates of the points
+     * @param ys  second ordinates of the points
+     * @param zs  third ordinates of the points, or null
+     * @param off index of the first point
+     * @param n   number of points to transform
+     */
+    public void transform(double[] xs, double[] ys, double[] zs, int off, int n) {
+        checkColumns(xs, ys, zs, off, n);
+        int dim = zs == null ? 2 : 3;
+        double[] block = new double[Math.min(n, BLOCK_SIZE) * dim];
+        for (int first = off, end = off + n; first < end; first += BLOCK_SIZE) {
+            int count = Math.min(BLOCK_SIZE, end - first);
+            for (int i = 0, j = first; i < count; i++, j++) {
+                block[i * dim] = xs[j];
+                block[i * dim + 1] = ys[j];
+                if (zs != null) {
+                    block[i * dim + 2] = zs[j];
+                }
+            }
+            transform(block, 0, block, 0, count, dim);
+            for (int i = 0, j = first; i < count; i++, j++) {
+                xs[j] = block[i * dim];
+                ys[j] = block[i * dim + 1];
+                if (zs != null) {
+                    zs[j] = block[i * dim + 2];
+                }
+            }
+        }
+    }
+
+    /**
+     * Transforms a packed array of coordinate points, setting the points that can not be transformed to NaN
+     * and reporting them in a status array.
+     * <p>
+     * This default implementation transforms blocks of {@link #BLOCK_SIZE} points with
+     * {@link #transform(double[], int, double[], int, int, int)}. Only a block in which a point throws
+     * is transformed again point by point, to find the points that fail. Transforms that can report a
+     * failed point without throwing override it.
+     *
+     * @param src       array holding the source points
+     * @param srcOff    offset of the first ordinate in the source array
+     * @param dst       array receiving the transformed points
+     * @param dstOff    offset of the first ordinate in the destination array
+     * @param numPts    number of points to transform
+     * @param dim       number of ordinates per point, at least 2
+     * @param status    array receiving the {@link PointStatus} of each point, or null
+     * @param statusOff index of the status of the first point
+     * @return the number of points that could not be transformed
+     */
+    public int transform(double[] src, int srcOff, double[] dst, int dstOff, int numPts, int dim, byte[] status, int statusOff) {
+        preparePacked(src, srcOff, dst, dstOff, numPts, dim);
+        checkStatus(status, statusOff, numPts);
+        double[] saved = new double[Math.min(numPts, BLOCK_SIZE) * dim];
+        int failures = 0;
+        for (int first = 0; first < numPts; first += BLOCK_SIZE) {
+            int count = Math.min(BLOCK_SIZE, numPts - first);
+            int blockOff = dstOff + first * dim;
+            if (status != null) {
+                Arrays.fill(status, statusOff + first, statusOff + first + count, PointStatus.OK);
+            }
+            System.arraycopy(dst, blockOff, saved, 0, count * dim);
+            try {
+                transform(dst, blockOff, dst, blockOff, count, dim);
+            } catch (IllegalArgumentException e) {
+                System.arraycopy(saved, 0, dst, blockOff, count * dim);
+                double[] point = new double[dim];
+                for (int i = 0, off = blockOff; i < count; i++, off += dim) {
+                    System.arraycopy(dst, off, point, 0, dim);
+                    try {
+                        double[] result = transform(point);
+                        System.arraycopy(result, 0, dst, off, Math.min(dim, result.length));
+                    } catch (IllegalArgumentException ex) {
+                        Arrays.fill(dst, off, off + dim, Double.NaN);
+                        if (status != null) {
+                            status[statusOff + first + i] = PointStatus.FAILED;
+                        }
+                    }
+                }
+            }
+            failures += markFailures(dst, blockOff, count, dim, status, statusOff + first);
+        }
+        return failures;
+    }
+
+    /**
+     * Transforms coordinate points stored as separate arrays of ordinates, in place, setting the points
+     * that can not be transformed to NaN and reporting them in a status array.
+     * <p>
+     * This default implementation copies the points into a packed scratch buffer in blocks of
+     * {@link #BLOCK_SIZE} points and runs {@link #transform(double[], int, double[], int, int, int, byte[], int)}
+     * on each block.
+     *
+     * @param xs        first ordinates of the points
+     * @param ys        second ordinates of the points
+     * @param zs        third ordinates of the points, or null
+     * @param off       index of the first point
+     * @param n         number of points to transform
+     * @param status    array receiving the {@link PointStatus} of each point, or null
+     * @param statusOff index of the status of the first point
+     * @return the number of points that could not be transformed
+     */
+    public int transform(double[] xs, double[] ys, double[] zs, int off, int n, byte[] status, int statusOff) {
+        checkColumns(xs, ys, zs, off, n);
+        checkStatus(status, statusOff, n);
+        int dim = zs == null ? 2 : 3;
+        double[] block = new double[Math.min(n, BLOCK_SIZE) * dim];
+        int failures = 0;
+        for (int first = off, end = off + n; first < end; first += BLOCK_SIZE) {
+            int count = Math.min(BLOCK_SIZE, end - first);
+            for (int i = 0, j = first; i < count; i++, j++) {
+                block[i * dim] = xs[j];
+                block[i * dim + 1] = ys[j];
+                if (zs != null) {
+                    block[i * dim + 2] = zs[j];
+                }
+            }
+            failures += transform(block, 0, block, 0, count, dim, status, statusOff + first - off);
+            for (int i = 0, j = first; i < count; i++, j++) {
+                xs[j] = block[i * dim];
+                ys[j] = block[i * dim + 1];
+                if (zs != null) {
+                    zs[j] = block[i * dim + 2];
+                }
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Transforms the points of a regular grid, writing them to out as packed 2-dimensional points, row after row.
+     * <p>
+     * When the transform is {@link #isSeparable() separable} the columns and the rows are transformed once
+     * with {@link #transformSeparable(double[], double[])} and combined. Otherwise every point is transformed
+     * with {@link #transform(double[], int, double[], int, int, int, byte[], int)}.
+     *
+     * @param x0  x of the first column
+     * @param y0  y of the first row
+     * @param dx  step between the columns
+     * @param dy  step between the rows
+     * @param nx  number of columns
+     * @param ny  number of rows
+     * @param out array receiving the 2 * nx * ny transformed ordinates
+     * @return the number of points that could not be transformed
+     */
+    public int transformGrid(double x0, double y0, double dx, double dy, int nx, int ny, double[] out) {
+        if (nx < 0 || ny < 0 || 2L * nx * ny > out.length) {
+            throw new IllegalArgumentException("A grid of " + nx + "x" + ny + " points does not fit into the array");
+        }
+        if (isSeparable()) {
+            double[] xs = new double[nx];
+            double[] ys = new double[ny];
+            for (int i = 0; i < nx; i++) {
+                xs[i] = x0 + i * dx;
+            }
+            for (int j = 0; j < ny; j++) {
+                ys[j] = y0 + j * dy;
+            }
+            transformSeparable(xs, ys);
+            int failures = 0;
+            for (int j = 0, k = 0; j < ny; j++) {
+                double y = ys[j];
+                for (int i = 0; i < nx; i++, k += 2) {
+                    double x = xs[i];
+                    if (Double.isNaN(x) || Double.isNaN(y)) {
+                        out[k] = Double.NaN;
+                        out[k + 1] = Double.NaN;
+                        failures++;
+                    } else {
+                        out[k] = x;
+                        out[k + 1] = y;
+                    }
+                }
+            }
+            return failures;
+        }
+        for (int j = 0, k = 0; j < ny; j++) {
+            double y = y0 + j * dy;
+            for (int i = 0; i < nx; i++, k += 2) {
+                out[k] = x0 + i * dx;
+                out[k + 1] = y;
+            }
+        }
+        return transform(out, 0, out, 0, nx * ny, 2, null, 0);
+    }
+
+    /**
+     * Tests whether the transformed x of a 2-dimensional point only depends on its x, and the transformed
+     * y only on its y. Separable transforms implement {@link #transformSeparable(double[], double[])}.
+     *
+     * @return false by default
+     */
+    protected boolean isSeparable() {
+        return false;
+    }
+
+    /**
+     * Transforms the x and the y of a separable transform independently, in place. A value that can not
+     * be transformed is set to NaN.
+     *
+     * @param xs x values, replaced by the transformed x
+     * @param ys y values, replaced by the transformed y
+     * @throws UnsupportedOperationException if the transform is not separable
+     */
+    protected void transformSeparable(double[] xs, double[] ys) {
+        throw new UnsupportedOperationException("The transform is not separable");
+    }
+
+    /**
+     * Sets the points of a transformed block whose x or y is NaN entirely to NaN and counts them. Their
+     * status is set to {@link PointStatus#OUT_OF_DOMAIN}, unless another failure was already reported.
+     *
+     * @param p         array holding the packed points
+     * @param off       offset of the first point
+     * @param numPts    number of points
+     * @param dim       number of ordinates per point
+     * @param status    status of the points, or null
+     * @param statusOff index of the status of the first point
+     * @return the number of failed points
+     */
+    protected static int markFailures(double[] p, int off, int numPts, int dim, byte[] status, int statusOff) {
+        int failures = 0;
+        for (int i = 0; i < numPts; i++, off += dim) {
+            if (Double.isNaN(p[off]) || Double.isNaN(p[off + 1])) {
+                Arrays.fill(p, off, off + dim, Double.NaN);
+                if (status != null && status[statusOff + i] == PointStatus.OK) {
+                    status[statusOff + i] = PointStatus.OUT_OF_DOMAIN;
+                }
+                failures++;
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Transforms the points between the position and the limit of a buffer of packed ordinates.
+     * <p>
+     * Buffers backed by accessible arrays are transformed directly in their arrays. Other buffers,
+     * such as direct buffers, are streamed through a scratch array of {@link #BLOCK_SIZE} points, so
+     * the heap use does not grow with the number of points. Each block is read before it is written,
+     * so the output may overlap the input as long as it does not start after it.
+     *
+     * @param in  buffer holding the source points, with dim values per point
+     * @param out buffer receiving the transformed points
+     * @param dim number of ordinates per point, at least 2
+     */
+    public void transform(DoubleBuffer in, DoubleBuffer out, int dim) {
+        if (dim < 2) {
+            throw new IllegalArgumentException("A packed point must have at least 2 ordinates, got " + dim);
+        }
+        int length = in.remaining();
+        if (length % dim != 0) {
+            throw new IllegalArgumentException("The buffer holds " + length + " values, which is not a multiple of " + dim);
+        }
+        if (out.remaining() < length) {
+            throw new IllegalArgumentException("The output buffer has room for " + out.remaining() + " values, " + length + " are needed");
+        }
+        int numPts = length / dim;
+        if (in.hasArray() && out.hasArray()) {
+            transform(in.array(), in.arrayOffset() + in.position(), out.array(), out.arrayOffset() + out.position(), numPts, dim);
+            in.position(in.position() + length);
+            if (in != out) {
+                out.position(out.position() + length);
+            }
+            return;
+        }
+
+        DoubleBuffer source = in == out ? in.duplicate() : in;
+        double[] block = new double[Math.min(numPts, BLOCK_SIZE) * dim];
+        for (int first = 0; first < numPts; first += BLOCK_SIZE) {
+            int count = Math.min(BLOCK_SIZE, numPts - first) * dim;
+            source.get(block, 0, count);
+            transform(block, 0, block, 0, count / dim, dim);
+            out.put(block, 0, count);
+        }
+    }
+
+    /**
+     * Transforms the points between the position and the limit of a buffer of packed ordinates stored
+     * as 8 byte doubles, in the byte order of each buffer.
+     * <p>
+     * The bytes are read and written through double views of the buffers, and the position of both
+     * buffers is advanced past the points.
+     *
+     * @param in  buffer holding the source points, with dim values per point
+     * @param out buffer receiving the transformed points
+     * @param dim number of ordinates per point, at least 2
+     */
+    public void transform(ByteBuffer in, ByteBuffer out, int dim) {
+        if (in.remaining() % 8 != 0) {
+            throw new IllegalArgumentException("The buffer holds " + in.remaining() + " bytes, which is not a whole number of doubles");
+        }
+        DoubleBuffer source = in.asDoubleBuffer();
+        DoubleBuffer target = in == out ? source : out.asDoubleBuffer();
+        int bytes = in.remaining();
+        transform(source, target, dim);
+        in.position(in.position() + bytes);
+        if (in != out) {
+            out.position(out.position() + bytes);
+        }
+    }
+
+    /**
+     * Validates the arguments of a column transform.
+     *
+     * @param xs  first ordinates of the points
+     * @param ys  second ordinates of the points
+     * @param zs  third ordinates of the points, or null
+     * @param off index of the first point
+     * @param n   number of points to transform
+     */
+    protected static void checkColumns(double[] xs, double[] ys, double[] zs, int off, int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Negative number of points: " + n);
+        }
+        if (off < 0 || off + n > xs.length || off + n > ys.length || (zs != null && off + n > zs.length)) {
+            throw new IllegalArgumentException("Points " + off + " to " + (off + n) + " are outside the ordinate arrays");
+        }
+    }
+
+    /**
+     * Validates the status array of a batch transform.
+     *
+     * @param status    array receiving the status of each point, or null
+     * @param statusOff index of the status of the first point
+     * @param numPts    number of points to transform
      */
-    public abstract void invert();
+    protected static void checkStatus(byte[] status, int statusOff, int numPts) {
+        if (status != null && (statusOff < 0 || statusOff + numPts > status.length)) {
+            throw new IllegalArgumentException("The status array has no room for " + numPts + " points at " + statusOff);
+        }
+    }
+
+    /**
+     * Validates the arguments of a packed transform and copies the source points to the destination,
+     * so that the transform can be carried out in place on the destination array.
+     * Overlapping source and destination ranges are handled.
+     *
+     * @param src    array holding the source points
+     * @param srcOff offset of the first ordinate in the source array
+     * @param dst    array receiving the transformed points
+     * @param dstOff offset of the first ordinate in the destination array
+     * @param numPts number of points to transform
+     * @param dim    number of ordinates per point
+     */
+    protected static void preparePacked(double[] src, int srcOff, double[] dst, int dstOff, int numPts, int dim) {
+        if (dim < 2) {
+            throw new IllegalArgumentException("A packed point must have at least 2 ordinates, got " + dim);
+        }
+        if (numPts < 0) {
+            throw new IllegalArgumentException("Negative number of points: " + numPts);
+        }
+        if (src != dst || srcOff != dstOff) {
+            System.arraycopy(src, srcOff, dst, dstOff, numPts * dim);
+        }
+    }
+
+    /**
+     * Packs the constants of a Transverse Mercator projection for {@link #transverseMercatorKernel}.
+     *
+     * @param semiMajor       semi major axis of the ellipsoid, in metres
+     * @param scaleFactor     scale factor on the central meridian
+     * @param centralMeridian central meridian, in radians
+     * @param es              squared eccentricity
+     * @param esp             second squared eccentricity
+     * @param e0              first meridian distance coefficient
+     * @param e1              second meridian distance coefficient
+     * @param e2              third meridian distance coefficient
+     * @param e3              fourth meridian distance coefficient
+     * @param ml0             meridian distance of the latitude of origin, in metres
+     * @param falseEasting    false easting, in metres
+     * @param falseNorthing   false northing, in metres
+     * @param metersPerUnit   number of metres per projected unit
+     * @param tolerance       tolerance, in radians, of the footpoint latitude iteration
+     * @return the constants of the kernel
+     */
+    protected static double[] transverseMercatorConstants(double semiMajor, double scaleFactor, double centralMeridian, double es, double esp, double e0, double e1, double e2, double e3, double ml0, double falseEasting, double falseNorthing, double metersPerUnit, double tolerance) {
+        double[] c = new double[VectorKernels.TM_CONSTANTS];
+        c[VectorKernels.TM_SEMI_MAJOR] = semiMajor;
+        c[VectorKernels.TM_SCALE_FACTOR] = scaleFactor;
+        c[VectorKernels.TM_CENTRAL_MERIDIAN] = centralMeridian;
+        c[VectorKernels.TM_ES] = es;
+        c[VectorKernels.TM_ESP] = esp;
+        c[VectorKernels.TM_E0] = e0;
+        c[VectorKernels.TM_E0 + 1] = e1;
+        c[VectorKernels.TM_E0 + 2] = e2;
+        c[VectorKernels.TM_E0 + 3] = e3;
+        c[VectorKernels.TM_ML0] = ml0;
+        c[VectorKernels.TM_FALSE_EASTING] = falseEasting;
+        c[VectorKernels.TM_FALSE_NORTHING] = falseNorthing;
+        c[VectorKernels.TM_METERS_PER_UNIT] = metersPerUnit;
+        c[VectorKernels.TM_TOLERANCE] = tolerance;
+        return c;
+    }
+
+    /**
+     * Transforms columns of points with the Transverse Mercator kernel selected for this runtime, in place.
+     * The kernel stops before the first point it leaves to the scalar code, see {@link VectorKernels}.
+     *
+     * @param c       constants of the projection, from {@link #transverseMercatorConstants}
+     * @param inverse whether the points are projected coordinates converted back to decimal degrees
+     * @param xs      longitudes or eastings
+     * @param ys      latitudes or northings
+     * @param off     index of the first point
+     * @param n       number of points
+     * @return the number of points transformed
+     */
+    protected static int transverseMercatorKernel(double[] c, boolean inverse, double[] xs, double[] ys, int off, int n) {
+        VectorKernels kernels = VectorKernels.getInstance();
+        return inverse ? kernels.transverseMercatorInverse(c, xs, ys, off, n) : kernels.transverseMercatorForward(c, xs, ys, off, n);
+    }
 }
\ No newline at end of file
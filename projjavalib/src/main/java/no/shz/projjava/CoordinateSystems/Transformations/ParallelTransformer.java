@@ -0,0 +1,230 @@
+package no.shz.projjava.coordinateSystems.transformations;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs the batch transforms of a math transform on several threads of a ForkJoinPool.
+ * <p>
+ * The points are split into chunks which are transformed in parallel with the batch methods of the
+ * transform. The size of the chunks adapts to the cost of the transform: the first points are transformed
+ * on the calling thread while timing them, and the chunks are then sized so that each one takes about
+ * {@link #TASK_NANOS} nanoseconds, large enough to outweigh the cost of scheduling it and small enough to
+ * share the work evenly between the threads. Batches smaller than the threshold are transformed on the
+ * calling thread only.
+ * <p>
+ * All the math transforms of this library can be shared between threads, see {@link MathTransform}. A
+ * ParallelTransformer holds no state besides its configuration, so it can be shared between threads too.
+ */
+public final class ParallelTransformer {
+    /**
+     * Default number of points below which a batch is transformed on the calling thread.
+     */
+    public static final int DEFAULT_THRESHOLD = 16384;
+
+    /**
+     * Time a chunk of points should take to transform, in nanoseconds.
+     */
+    public static final long TASK_NANOS = 500000;
+
+    /**
+     * Number of points transformed on the calling thread to measure the cost of the transform.
+     */
+    private static final int SAMPLE_SIZE = 2 * MathTransform.BLOCK_SIZE;
+
+    private final ForkJoinPool _pool;
+    private final int _threshold;
+
+    private static final class Holder {
+        static final ForkJoinPool POOL = new ForkJoinPool();
+    }
+
+    /**
+     * Creates a transformer running on a pool shared by all transformers, with one thread per processor.
+     */
+    public ParallelTransformer() {
+        this(Holder.POOL, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Creates a transformer running on the given pool.
+     *
+     * @param pool pool running the chunks
+     */
+    public ParallelTransformer(ForkJoinPool pool) {
+        this(pool, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Creates a transformer running on the given pool.
+     *
+     * @param pool      pool running the chunks
+     * @param threshold number of points below which a batch is transformed on the calling thread
+     */
+    public ParallelTransformer(ForkJoinPool pool, int threshold) {
+        if (pool == null) {
+            throw new IllegalArgumentException("The pool can not be null");
+        }
+        if (threshold < 0) {
+            throw new IllegalArgumentException("Negative threshold: " + threshold);
+        }
+        _pool = pool;
+        _threshold = threshold;
+    }
+
+    /**
+     * Gets the pool running the chunks.
+     */
+    public ForkJoinPool getPool() {
+        return _pool;
+    }
+
+    /**
+     * Gets the number of points below which a batch is transformed on the calling thread.
+     */
+    public int getThreshold() {
+        return _threshold;
+    }
+
+    /**
+     * Transforms a packed array of coordinate points, as {@link IMathTransform#transform(double[], int, double[], int, int, int)}.
+     *
+     * @param transform the transform to run
+     * @param src       array holding the source points
+     * @param srcOff    offset of the first ordinate in the source array
+     * @param dst       array receiving the transformed points
+     * @param dstOff    offset of the first ordinate in the destination array
+     * @param numPts    number of points to transform
+     * @param dim       number of ordinates per point, at least 2
+     */
+    public void transform(IMathTransform transform, double[] src, int srcOff, double[] dst, int dstOff, int numPts, int dim) {
+        if (numPts < _threshold || numPts <= SAMPLE_SIZE || _pool.getParallelism() < 2) {
+            transform.transform(src, srcOff, dst, dstOff, numPts, dim);
+            return;
+        }
+        if (dim < 2) {
+            throw new IllegalArgumentException("A packed point must have at least 2 ordinates, got " + dim);
+        }
+        long length = (long) numPts * dim;
+        if (srcOff < 0 || dstOff < 0 || srcOff + length > src.length || dstOff + length > dst.length) {
+            throw new IllegalArgumentException(numPts + " points of " + dim + " ordinates do not fit into the arrays");
+        }
+        if (src == dst && srcOff != dstOff) {
+            //The chunks would overwrite source points of each other
+            System.arraycopy(src, srcOff, dst, dstOff, numPts * dim);
+            src = dst;
+            srcOff = dstOff;
+        }
+        long start = System.nanoTime();
+        transform.transform(src, srcOff, dst, dstOff, SAMPLE_SIZE, dim);
+        int chunk = chunkSize(System.nanoTime() - start, numPts - SAMPLE_SIZE);
+        _pool.invoke(new PackedTask(transform, src, srcOff, dst, dstOff, dim, SAMPLE_SIZE, numPts, chunk));
+    }
+
+    /**
+     * Transforms coordinate points stored as separate arrays of ordinates, in place, as
+     * {@link IMathTransform#transform(double[], double[], double[], int, int)}.
+     *
+     * @param transform the transform to run
+     * @param xs        first ordinates of the points
+     * @param ys        second ordinates of the points
+     * @param zs        third ordinates of the points, or null
+     * @param off       index of the first point
+     * @param n         number of points to transform
+     */
+    public void transform(IMathTransform transform, double[] xs, double[] ys, double[] zs, int off, int n) {
+        if (n < _threshold || n <= SAMPLE_SIZE || _pool.getParallelism() < 2) {
+            transform.transform(xs, ys, zs, off, n);
+            return;
+        }
+        MathTransform.checkColumns(xs, ys, zs, off, n);
+        long start = System.nanoTime();
+        transform.transform(xs, ys, zs, off, SAMPLE_SIZE);
+        int chunk = chunkSize(System.nanoTime() - start, n - SAMPLE_SIZE);
+        _pool.invoke(new ColumnTask(transform, xs, ys, zs, off + SAMPLE_SIZE, off + n, chunk));
+    }
+
+    /**
+     * Computes the number of points of a chunk from the time taken by the sample points.
+     */
+    private int chunkSize(long sampleNanos, int remaining) {
+        double nanosPerPoint = Math.max(sampleNanos, 1) / (double) SAMPLE_SIZE;
+        long chunk = (long) (TASK_NANOS / nanosPerPoint);
+        //At least a few chunks per thread, so a slow thread does not hold up the others
+        chunk = Math.min(chunk, remaining / (4L * _pool.getParallelism()) + 1);
+        chunk = (chunk + MathTransform.BLOCK_SIZE - 1) / MathTransform.BLOCK_SIZE * MathTransform.BLOCK_SIZE;
+        return (int) Math.max(chunk, MathTransform.BLOCK_SIZE);
+    }
+
+    private static final class PackedTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IMathTransform _transform;
+        private final double[] _src;
+        private final int _srcOff;
+        private final double[] _dst;
+        private final int _dstOff;
+        private final int _dim;
+        private final int _from;
+        private final int _to;
+        private final int _chunk;
+
+        PackedTask(IMathTransform transform, double[] src, int srcOff, double[] dst, int dstOff, int dim, int from, int to, int chunk) {
+            _transform = transform;
+            _src = src;
+            _srcOff = srcOff;
+            _dst = dst;
+            _dstOff = dstOff;
+            _dim = dim;
+            _from = from;
+            _to = to;
+            _chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            int count = _to - _from;
+            if (count <= _chunk) {
+                _transform.transform(_src, _srcOff + _from * _dim, _dst, _dstOff + _from * _dim, count, _dim);
+                return;
+            }
+            int middle = _from + (count / 2 + _chunk - 1) / _chunk * _chunk;
+            invokeAll(new PackedTask(_transform, _src, _srcOff, _dst, _dstOff, _dim, _from, middle, _chunk),
+                    new PackedTask(_transform, _src, _srcOff, _dst, _dstOff, _dim, middle, _to, _chunk));
+        }
+    }
+
+    private static final class ColumnTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final IMathTransform _transform;
+        private final double[] _xs;
+        private final double[] _ys;
+        private final double[] _zs;
+        private final int _from;
+        private final int _to;
+        private final int _chunk;
+
+        ColumnTask(IMathTransform transform, double[] xs, double[] ys, double[] zs, int from, int to, int chunk) {
+            _transform = transform;
+            _xs = xs;
+            _ys = ys;
+            _zs = zs;
+            _from = from;
+            _to = to;
+            _chunk = chunk;
+        }
+
+        @Override
+        protected void compute() {
+            int count = _to - _from;
+            if (count <= _chunk) {
+                _transform.transform(_xs, _ys, _zs, _from, count);
+                return;
+            }
+            int middle = _from + (count / 2 + _chunk - 1) / _chunk * _chunk;
+            invokeAll(new ColumnTask(_transform, _xs, _ys, _zs, _from, middle, _chunk),
+                    new ColumnTask(_transform, _xs, _ys, _zs, middle, _to, _chunk));
+        }
+    }
+}
\ No newline at end of file
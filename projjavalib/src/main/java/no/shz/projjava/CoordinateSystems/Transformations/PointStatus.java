@@ -0,0 +1,54 @@
+package no.shz.projjava.coordinateSystems.transformations;
+
+/**
+ * Status codes of the points of a batch transform with a status array, see
+ * {@link IMathTransform#transform(double[], int, double[], int, int, int, byte[], int)}.
+ * <p>
+ * A point that can not be transformed does not stop the batch: its ordinates are set to NaN and its
+ * status tells why it failed.
+ */
+public final class PointStatus {
+    /**
+     * The point was transformed.
+     */
+    public static final byte OK = 0;
+
+    /**
+     * The point is outside the domain of the transform, such as a pole in the Mercator projection, or
+     * one of its ordinates is NaN.
+     */
+    public static final byte OUT_OF_DOMAIN = 1;
+
+    /**
+     * An iterative computation did not converge for the point.
+     */
+    public static final byte NO_CONVERGENCE = 2;
+
+    /**
+     * The transform failed on the point for another reason.
+     */
+    public static final byte FAILED = 3;
+
+    private PointStatus() {
+    }
+
+    /**
+     * Gets a description of a status code, used as the message of the exception thrown when a single
+     * point can not be transformed.
+     *
+     * @param status the status code
+     * @return the description
+     */
+    public static String getMessage(int status) {
+        switch (status) {
+            case OK:
+                return "The point was transformed";
+            case OUT_OF_DOMAIN:
+                return "The point is outside the domain of the transform";
+            case NO_CONVERGENCE:
+                return "The transformation failed to converge";
+            default:
+                return "The transformation failed";
+        }
+    }
+}
\ No newline at end of file
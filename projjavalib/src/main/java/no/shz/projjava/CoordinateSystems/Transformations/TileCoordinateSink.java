@@ -0,0 +1,336 @@
+package no.shz.projjava.coordinateSystems.transformations;
+
+import java.util.Arrays;
+
+/**
+ * Writes transformed points as the integer coordinates of a map tile, such as the coordinates of a Mapbox
+ * vector tile, optionally delta encoded.
+ * <p>
+ * The points are transformed to the coordinate system of the tile matrix, mapped to the tile, scaled to its
+ * extent and rounded, in one pass: the points are transformed in blocks of {@link MathTransform#BLOCK_SIZE}
+ * points into a scratch block owned by the sink, and each block is converted to integers while it is still
+ * in the cache, so no array of projected coordinates is ever built. When the transform is an identity
+ * {@link AffineTransform}, as between two equal coordinate systems, the source points are read directly.
+ * <p>
+ * The tile matrix is a square grid of 2^zoom by 2^zoom tiles covering a square of the target coordinate
+ * system, with the tile (0, 0) at the top left corner. The tile coordinates go from 0 to the extent, with
+ * the origin at the top left corner of the tile and y growing downwards; the points outside of the tile get
+ * coordinates outside of this range. The default matrix is the one of the web map tiles, in EPSG:3857.
+ * <p>
+ * A point that can not be transformed, or whose tile coordinates are NaN or beyond
+ * {@link #MAX_COORDINATE}, is skipped: nothing is written for it and the cursor of the delta encoding does
+ * not move, so the index returned by a write is short of two coordinates per skipped point. The writes with
+ * a status array tell which points were skipped and why. The room left in the destination array is checked
+ * before anything is written.
+ * <p>
+ * A sink keeps its scratch block and the cursor of the delta encoding between calls, so it must not be
+ * shared between threads: use one sink per tile being encoded.
+ */
+public final class TileCoordinateSink {
+    /**
+     * Default extent of the tiles, that of the Mapbox vector tiles.
+     */
+    public static final int DEFAULT_EXTENT = 4096;
+
+    /**
+     * Half the width of the web map in EPSG:3857 meters, pi times the semi-major axis of WGS 84.
+     */
+    public static final double WEB_MERCATOR_HALF_SIZE = Math.PI * 6378137.0;
+
+    /**
+     * Deepest zoom level of the tile matrix.
+     */
+    public static final int MAX_ZOOM = 30;
+
+    /**
+     * Largest absolute value of a tile coordinate, so that the difference of two of them fits in an int.
+     */
+    public static final int MAX_COORDINATE = 1 << 30;
+
+    private final IMathTransform _transform;
+    private final boolean _identity;
+    private final int _zoom;
+    private final int _tileX;
+    private final int _tileY;
+    private final int _extent;
+
+    /**
+     * Tile coordinates: x * _scale + _offsetX and _offsetY - y * _scale.
+     */
+    private final double _scale;
+    private final double _offsetX;
+    private final double _offsetY;
+
+    private double[] _block;
+    private int _cursorX;
+    private int _cursorY;
+
+    /**
+     * Creates a sink for a tile of the web map tile matrix, with the extent of the Mapbox vector tiles.
+     *
+     * @param transform transform from the coordinates of the points to EPSG:3857
+     * @param zoom      zoom level, from 0 to {@link #MAX_ZOOM}
+     * @param tileX     column of the tile, from the west
+     * @param tileY     row of the tile, from the north
+     */
+    public TileCoordinateSink(IMathTransform transform, int zoom, int tileX, int tileY) {
+        this(transform, zoom, tileX, tileY, DEFAULT_EXTENT);
+    }
+
+    /**
+     * Creates a sink for a tile of the web map tile matrix.
+     *
+     * @param transform transform from the coordinates of the points to EPSG:3857
+     * @param zoom      zoom level, from 0 to {@link #MAX_ZOOM}
+     * @param tileX     column of the tile, from the west
+     * @param tileY     row of the tile, from the north
+     * @param extent    size of the tile in tile coordinates
+     */
+    public TileCoordinateSink(IMathTransform transform, int zoom, int tileX, int tileY, int extent) {
+        this(transform, -WEB_MERCATOR_HALF_SIZE, WEB_MERCATOR_HALF_SIZE, 2 * WEB_MERCATOR_HALF_SIZE, zoom, tileX, tileY, extent);
+    }
+
+    /**
+     * Creates a sink for a tile of any square tile matrix.
+     *
+     * @param transform transform from the coordinates of the points to the coordinate system of the matrix
+     * @param originX   x of the top left corner of the matrix
+     * @param originY   y of the top left corner of the matrix
+     * @param size      width and height of the matrix, that is of its single tile at zoom 0
+     * @param zoom      zoom level, from 0 to {@link #MAX_ZOOM}
+     * @param tileX     column of the tile, from the left
+     * @param tileY     row of the tile, from the top
+     * @param extent    size of the tile in tile coordinates
+     */
+    public TileCoordinateSink(IMathTransform transform, double originX, double originY, double size, int zoom, int tileX, int tileY, int extent) {
+        if (transform == null) {
+            throw new IllegalArgumentException("The transform can not be null");
+        }
+        if (!(size > 0) || Double.isInfinite(size)) {
+            throw new IllegalArgumentException("The size of the tile matrix must be a positive number, got " + size);
+        }
+        if (zoom < 0 || zoom > MAX_ZOOM) {
+            throw new IllegalArgumentException("The zoom level must be between 0 and " + MAX_ZOOM + ", got " + zoom);
+        }
+        if (tileX < 0 || tileX >= 1 << zoom || tileY < 0 || tileY >= 1 << zoom) {
+            throw new IllegalArgumentException(String.format("No tile (%1$s, %2$s) at zoom level %3$s", tileX, tileY, zoom));
+        }
+        if (extent < 1) {
+            throw new IllegalArgumentException("The extent must be positive, got " + extent);
+        }
+        _transform = transform;
+        _identity = transform instanceof AffineTransform && transform.getIdentity();
+        _zoom = zoom;
+        _tileX = tileX;
+        _tileY = tileY;
+        _extent = extent;
+        _scale = (double) extent * (1L << zoom) / size;
+        _offsetX = -originX * _scale - (double) tileX * extent;
+        _offsetY = originY * _scale - (double) tileY * extent;
+    }
+
+    /**
+     * Gets the transform applied to the points.
+     */
+    public IMathTransform getTransform() {
+        return _transform;
+    }
+
+    /**
+     * Gets the zoom level of the tile.
+     */
+    public int getZoom() {
+        return _zoom;
+    }
+
+    /**
+     * Gets the column of the tile.
+     */
+    public int getTileX() {
+        return _tileX;
+    }
+
+    /**
+     * Gets the row of the tile.
+     */
+    public int getTileY() {
+        return _tileY;
+    }
+
+    /**
+     * Gets the size of the tile in tile coordinates.
+     */
+    public int getExtent() {
+        return _extent;
+    }
+
+    /**
+     * Writes the tile coordinates of points, skipping the points that fail.
+     *
+     * @param src    array holding the points, which is not modified
+     * @param srcOff offset of the first ordinate in the source array
+     * @param numPts number of points
+     * @param dim    number of ordinates per point, at least 2
+     * @param dst    array receiving the x and y tile coordinates of each point
+     * @param dstOff index of the first tile coordinate
+     * @return the index following the last tile coordinate written
+     */
+    public int write(double[] src, int srcOff, int numPts, int dim, int[] dst, int dstOff) {
+        return write(src, srcOff, numPts, dim, dst, dstOff, false, false, null, 0);
+    }
+
+    /**
+     * Writes the tile coordinates of points, skipping the points that fail and reporting them in a status
+     * array.
+     *
+     * @param src       array holding the points, which is not modified
+     * @param srcOff    offset of the first ordinate in the source array
+     * @param numPts    number of points
+     * @param dim       number of ordinates per point, at least 2
+     * @param dst       array receiving the x and y tile coordinates of each point
+     * @param dstOff    index of the first tile coordinate
+     * @param status    array receiving the {@link PointStatus} of each point, or null
+     * @param statusOff index of the status of the first point
+     * @return the index following the last tile coordinate written
+     */
+    public int write(double[] src, int srcOff, int numPts, int dim, int[] dst, int dstOff, byte[] status, int statusOff) {
+        return write(src, srcOff, numPts, dim, dst, dstOff, false, false, status, statusOff);
+    }
+
+    /**
+     * Writes the tile coordinates of points as differences with the previous point, the first one with the
+     * cursor, which is then moved to the last point. This is the encoding of the geometries of the Mapbox
+     * vector tiles, whose parameter integers are also zigzag encoded: {@code (n << 1) ^ (n >> 31)}. The
+     * points that fail are skipped.
+     *
+     * @param src    array holding the points, which is not modified
+     * @param srcOff offset of the first ordinate in the source array
+     * @param numPts number of points
+     * @param dim    number of ordinates per point, at least 2
+     * @param dst    array receiving the x and y differences of each point
+     * @param dstOff index of the first difference
+     * @param zigZag whether the differences are zigzag encoded
+     * @return the index following the last difference written
+     */
+    public int writeDeltas(double[] src, int srcOff, int numPts, int dim, int[] dst, int dstOff, boolean zigZag) {
+        return write(src, srcOff, numPts, dim, dst, dstOff, true, zigZag, null, 0);
+    }
+
+    /**
+     * Writes the tile coordinates of points as differences with the previous point, as
+     * {@link #writeDeltas(double[], int, int, int, int[], int, boolean)} does, reporting the points that
+     * fail in a status array.
+     *
+     * @param src       array holding the points, which is not modified
+     * @param srcOff    offset of the first ordinate in the source array
+     * @param numPts    number of points
+     * @param dim       number of ordinates per point, at least 2
+     * @param dst       array receiving the x and y differences of each point
+     * @param dstOff    index of the first difference
+     * @param zigZag    whether the differences are zigzag encoded
+     * @param status    array receiving the {@link PointStatus} of each point, or null
+     * @param statusOff index of the status of the first point
+     * @return the index following the last difference written
+     */
+    public int writeDeltas(double[] src, int srcOff, int numPts, int dim, int[] dst, int dstOff, boolean zigZag, byte[] status, int statusOff) {
+        return write(src, srcOff, numPts, dim, dst, dstOff, true, zigZag, status, statusOff);
+    }
+
+    /**
+     * Moves the cursor of the delta encoding back to the origin of the tile, as at the start of each feature.
+     */
+    public void resetCursor() {
+        _cursorX = 0;
+        _cursorY = 0;
+    }
+
+    /**
+     * Gets the x tile coordinate of the cursor of the delta encoding.
+     */
+    public int getCursorX() {
+        return _cursorX;
+    }
+
+    /**
+     * Gets the y tile coordinate of the cursor of the delta encoding.
+     */
+    public int getCursorY() {
+        return _cursorY;
+    }
+
+    private int write(double[] src, int srcOff, int numPts, int dim, int[] dst, int dstOff, boolean deltas, boolean zigZag, byte[] status, int statusOff) {
+        if (dim < 2) {
+            throw new IllegalArgumentException("A packed point must have at least 2 ordinates, got " + dim);
+        }
+        if (numPts < 0) {
+            throw new IllegalArgumentException("Negative number of points: " + numPts);
+        }
+        if (srcOff < 0 || srcOff + (long) numPts * dim > src.length) {
+            throw new IllegalArgumentException("The source array has no room for " + numPts + " points at " + srcOff);
+        }
+        if (dstOff < 0 || dstOff + 2L * numPts > dst.length) {
+            throw new IllegalArgumentException("The destination array has no room for " + numPts + " points at " + dstOff);
+        }
+        MathTransform.checkStatus(status, statusOff, numPts);
+        if (_identity) {
+            if (status != null) {
+                Arrays.fill(status, statusOff, statusOff + numPts, PointStatus.OK);
+            }
+            return quantize(src, srcOff, numPts, dim, dst, dstOff, deltas, zigZag, status, statusOff);
+        }
+        int blockSize = Math.min(numPts, MathTransform.BLOCK_SIZE) * dim;
+        if (_block == null || _block.length < blockSize) {
+            _block = new double[blockSize];
+        }
+        for (int first = 0; first < numPts; first += MathTransform.BLOCK_SIZE) {
+            int count = Math.min(MathTransform.BLOCK_SIZE, numPts - first);
+            //The points that fail are set to NaN, and skipped by quantize
+            _transform.transform(src, srcOff + first * dim, _block, 0, count, dim, status, statusOff + first);
+            dstOff = quantize(_block, 0, count, dim, dst, dstOff, deltas, zigZag, status, statusOff + first);
+        }
+        return dstOff;
+    }
+
+    /**
+     * Converts points in the coordinate system of the tile matrix to tile coordinates, skipping the points
+     * with a NaN ordinate or beyond {@link #MAX_COORDINATE}. Those still reported as transformed in the
+     * status array are reported as out of domain.
+     */
+    private int quantize(double[] p, int off, int numPts, int dim, int[] dst, int dstOff, boolean deltas, boolean zigZag, byte[] status, int statusOff) {
+        int cursorX = _cursorX;
+        int cursorY = _cursorY;
+        for (int i = off, k = statusOff, end = off + numPts * dim; i < end; i += dim, k++) {
+            double fx = Math.floor(p[i] * _scale + _offsetX + 0.5);
+            double fy = Math.floor(_offsetY - p[i + 1] * _scale + 0.5);
+            //Also false for NaN
+            if (!(Math.abs(fx) <= MAX_COORDINATE && Math.abs(fy) <= MAX_COORDINATE)) {
+                if (status != null && status[k] == PointStatus.OK) {
+                    status[k] = PointStatus.OUT_OF_DOMAIN;
+                }
+                continue;
+            }
+            int x = (int) fx;
+            int y = (int) fy;
+            if (!deltas) {
+                dst[dstOff++] = x;
+                dst[dstOff++] = y;
+                continue;
+            }
+            int dx = x - cursorX;
+            int dy = y - cursorY;
+            if (zigZag) {
+                dx = (dx << 1) ^ (dx >> 31);
+                dy = (dy << 1) ^ (dy >> 31);
+            }
+            dst[dstOff++] = dx;
+            dst[dstOff++] = dy;
+            cursorX = x;
+            cursorY = y;
+        }
+        if (deltas) {
+            _cursorX = cursorX;
+            _cursorY = cursorY;
+        }
+        return dstOff;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,19 @@
+package no.shz.projjava.coordinateSystems.transformations;
+
+/**
+ * Algorithm used for the Transverse Mercator projections created by a {@link CoordinateTransformationFactory}.
+ */
+public enum TransverseMercatorMethod {
+    /**
+     * The Snyder series of {@link no.shz.projjava.coordinateSystems.projections.TransverseMercator}, accurate
+     * within a few degrees of the central meridian, with an iterative inverse. The column transforms run on
+     * the {@link VectorKernels}.
+     */
+    SNYDER,
+
+    /**
+     * The 6th order Kruger series of {@link no.shz.projjava.coordinateSystems.projections.KrugerTransverseMercator},
+     * accurate far from the central meridian and closed-form in both directions.
+     */
+    KRUGER
+}
\ No newline at end of file
@@ -0,0 +1,187 @@
+package no.shz.projjava.coordinateSystems.transformations;
+
+/**
+ * Batch kernels of the transforms whose arithmetic is the same for every point, working on columns of
+ * ordinates in place.
+ * <p>
+ * This class holds the scalar versions, which transform nothing and leave all the points to the scalar
+ * loops of the transforms. On Java 17 and later, with the jdk.incubator.vector module added to the
+ * runtime (--add-modules jdk.incubator.vector), the multi-release part of the library jar provides
+ * kernels built on the Vector API, which transform several points per instruction. They are selected
+ * once, when this class is loaded, and can be turned off with the system property
+ * {@code projjava.vector=false}.
+ * <p>
+ * Each kernel transforms whole vectors of points, starting at the first point, and stops before the
+ * first vector holding a point it can not handle the way the scalar code does (such as a longitude
+ * outside of [-2&pi;, 2&pi;] or a point on the axis of the ellipsoid). It returns the number of points it
+ * transformed; the caller transforms the next point with its scalar code and calls the kernel again
+ * for the rest. The results may differ from the scalar ones in the last bits, as the Vector API
+ * computes the trigonometric functions with its own routines.
+ * <p>
+ * The transforms of other packages, such as the projections, reach the kernels through the protected
+ * methods of {@link MathTransform}.
+ */
+class VectorKernels {
+    /**
+     * Index of the semi major axis in the constants of a Transverse Mercator kernel.
+     */
+    static final int TM_SEMI_MAJOR = 0;
+    /**
+     * Index of the scale factor in the constants of a Transverse Mercator kernel.
+     */
+    static final int TM_SCALE_FACTOR = 1;
+    /**
+     * Index of the central meridian, in radians, in the constants of a Transverse Mercator kernel.
+     */
+    static final int TM_CENTRAL_MERIDIAN = 2;
+    /**
+     * Index of the squared eccentricity in the constants of a Transverse Mercator kernel.
+     */
+    static final int TM_ES = 3;
+    /**
+     * Index of the second squared eccentricity in the constants of a Transverse Mercator kernel.
+     */
+    static final int TM_ESP = 4;
+    /**
+     * Index of the first of the four meridian distance coefficients e0 to e3 in the constants of a
+     * Transverse Mercator kernel.
+     */
+    static final int TM_E0 = 5;
+    /**
+     * Index of the meridian distance of the latitude of origin in the constants of a Transverse Mercator kernel.
+     */
+    static final int TM_ML0 = 9;
+    /**
+     * Index of the false easting, in metres, in the constants of a Transverse Mercator kernel.
+     */
+    static final int TM_FALSE_EASTING = 10;
+    /**
+     * Index of the false northing, in metres, in the constants of a Transverse Mercator kernel.
+     */
+    static final int TM_FALSE_NORTHING = 11;
+    /**
+     * Index of the number of metres per projected unit in the constants of a Transverse Mercator kernel.
+     */
+    static final int TM_METERS_PER_UNIT = 12;
+    /**
+     * Index of the tolerance, in radians, of the footpoint latitude iteration in the constants of a Transverse
+     * Mercator kernel.
+     */
+    static final int TM_TOLERANCE = 13;
+    /**
+     * Number of constants of a Transverse Mercator kernel.
+     */
+    static final int TM_CONSTANTS = 14;
+
+    private static final String VECTOR_KERNELS = "no.shz.projjava.coordinateSystems.transformations.SimdKernels";
+
+    private static final VectorKernels INSTANCE = create();
+
+    VectorKernels() {
+    }
+
+    /**
+     * Gets the kernels selected for this runtime.
+     */
+    static VectorKernels getInstance() {
+        return INSTANCE;
+    }
+
+    private static VectorKernels create() {
+        if (!"false".equalsIgnoreCase(System.getProperty("projjava.vector"))) {
+            try {
+                return (VectorKernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+            } catch (Exception e) {
+                //Not a Java 17 runtime, or the library is not loaded from its jar
+            } catch (LinkageError e) {
+                //The jdk.incubator.vector module is not available
+            }
+        }
+        return new VectorKernels();
+    }
+
+    /**
+     * Returns true if the kernels transform several points per instruction.
+     */
+    boolean isVectorized() {
+        return false;
+    }
+
+    /**
+     * Projects geographic coordinates, in decimal degrees, with the Transverse Mercator projection.
+     *
+     * @param c   constants of the projection, see {@link #TM_CONSTANTS}
+     * @param xs  longitudes, replaced by eastings in projected units
+     * @param ys  latitudes, replaced by northings in projected units
+     * @param off index of the first point
+     * @param n   number of points
+     * @return the number of points transformed
+     */
+    int transverseMercatorForward(double[] c, double[] xs, double[] ys, int off, int n) {
+        return 0;
+    }
+
+    /**
+     * Converts Transverse Mercator coordinates, in projected units, back to decimal degrees.
+     *
+     * @param c   constants of the projection, see {@link #TM_CONSTANTS}
+     * @param xs  eastings, replaced by longitudes
+     * @param ys  northings, replaced by latitudes
+     * @param off index of the first point
+     * @param n   number of points
+     * @return the number of points transformed
+     */
+    int transverseMercatorInverse(double[] c, double[] xs, double[] ys, int off, int n) {
+        return 0;
+    }
+
+    /**
+     * Converts geographic coordinates, in decimal degrees, to geocentric coordinates. A NaN height is
+     * taken as 0.
+     *
+     * @param semiMajor semi major axis of the ellipsoid
+     * @param es        squared eccentricity of the ellipsoid
+     * @param xs        longitudes, replaced by geocentric x
+     * @param ys        latitudes, replaced by geocentric y
+     * @param zs        heights, replaced by geocentric z, or null to take the heights as 0
+     * @param off       index of the first point
+     * @param n         number of points
+     * @return the number of points transformed
+     */
+    int geographicToGeocentric(double semiMajor, double es, double[] xs, double[] ys, double[] zs, int off, int n) {
+        return 0;
+    }
+
+    /**
+     * Converts geocentric coordinates to geographic coordinates in decimal degrees. A NaN z is taken as 0.
+     *
+     * @param semiMajor semi major axis of the ellipsoid
+     * @param semiMinor semi minor axis of the ellipsoid
+     * @param es        squared eccentricity of the ellipsoid
+     * @param ses       second squared eccentricity of the ellipsoid
+     * @param xs        geocentric x, replaced by longitudes
+     * @param ys        geocentric y, replaced by latitudes
+     * @param zs        geocentric z, replaced by heights, or null to take z as 0
+     * @param off       index of the first point
+     * @param n         number of points
+     * @return the number of points transformed
+     */
+    int geocentricToGeographic(double semiMajor, double semiMinor, double es, double ses, double[] xs, double[] ys, double[] zs, int off, int n) {
+        return 0;
+    }
+
+    /**
+     * Applies a 3-dimensional affine transform.
+     *
+     * @param m   the first 3 rows of the matrix, row by row
+     * @param xs  first ordinates of the points
+     * @param ys  second ordinates of the points
+     * @param zs  third ordinates of the points, or null to take them as 0 and not write them
+     * @param off index of the first point
+     * @param n   number of points
+     * @return the number of points transformed
+     */
+    int affine3D(double[] m, double[] xs, double[] ys, double[] zs, int off, int n) {
+        return 0;
+    }
+}
\ No newline at end of file
@@ -86,7 +86,7 @@ public class Unit extends Info implements IUnit {
     @Override
     public String getWKT() {
         StringBuilder sb = new StringBuilder();
-        sb.append(String.format(Locale.US, "UNIT[\"%1$s\", %2$s", getName(), _nfi.format(_conversionFactor)));
+        sb.append(String.format(Locale.US, "UNIT[\"%1$s\", %2$s", getName(), StringUtility.formatNumber(_conversionFactor)));
         if (!StringUtility.isNullOrEmpty(getAuthority()) && getAuthorityCode() > 0) {
             sb.append(String.format(", AUTHORITY[\"%1$s\", \"%2$s\"]", getAuthority(), getAuthorityCode()));
         }
@@ -32,10 +32,10 @@ package no.shz.projjava.coordinateSystems;
  * restrictions as the original project.
  */
 
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.util.Locale;
 
+import no.shz.utilities.StringUtility;
+
 /**
  * Parameters for a geographic transformation into WGS84. The Bursa Wolf parameters should be applied
  * to geocentric coordinates, where the X axis points towards the Greenwich Prime Meridian, the Y axis
@@ -58,8 +58,6 @@ import java.util.Locale;
  * WGS84.</p>
  */
 public class Wgs84ConversionInfo {
-    protected DecimalFormat _nfi = new DecimalFormat("0.################", new DecimalFormatSymbols(Locale.US));
-
     private static final double SEC_TO_RAD = 4.84813681109535993589914102357e-6;
     /**
      * Bursa Wolf shift in meters.
@@ -192,14 +190,14 @@ public class Wgs84ConversionInfo {
      * @return WKT representaion
      */
     public final String getWKT() {
-        return String.format(Locale.US, "TOWGS84[%1$s, %2$s, %3$s, %4$s, %5$s, %6$s, %7$s]", _nfi.format(Dx), _nfi.format(Dy), _nfi.format(Dz), _nfi.format(Ex), _nfi.format(Ey), _nfi.format(Ez), _nfi.format(Ppm));
+        return String.format(Locale.US, "TOWGS84[%1$s, %2$s, %3$s, %4$s, %5$s, %6$s, %7$s]", StringUtility.formatNumber(Dx), StringUtility.formatNumber(Dy), StringUtility.formatNumber(Dz), StringUtility.formatNumber(Ex), StringUtility.formatNumber(Ey), StringUtility.formatNumber(Ez), StringUtility.formatNumber(Ppm));
     }
 
     /**
      * Gets an XML representation of this object
      */
     public final String getXML() {
-        return String.format(Locale.US, "<CS_WGS84ConversionInfo Dx=\"%1$s\" Dy=\"%2$s\" Dz=\"%3$s\" Ex=\"%4$s\" Ey=\"%5$s\" Ez=\"%6$s\" Ppm=\"%7$s\" />", _nfi.format(Dx), _nfi.format(Dy), _nfi.format(Dz), _nfi.format(Ex), _nfi.format(Ey), _nfi.format(Ez), _nfi.format(Ppm));
+        return String.format(Locale.US, "<CS_WGS84ConversionInfo Dx=\"%1$s\" Dy=\"%2$s\" Dz=\"%3$s\" Ex=\"%4$s\" Ey=\"%5$s\" Ez=\"%6$s\" Ppm=\"%7$s\" />", StringUtility.formatNumber(Dx), StringUtility.formatNumber(Dy), StringUtility.formatNumber(Dz), StringUtility.formatNumber(Ex), StringUtility.formatNumber(Ey), StringUtility.formatNumber(Ez), StringUtility.formatNumber(Ppm));
     }
 
     /**
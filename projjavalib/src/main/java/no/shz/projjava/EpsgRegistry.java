@@ -0,0 +1,331 @@
+package no.shz.projjava;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.AbstractCollection;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Read-only registry of the Well-Known Text of the EPSG coordinate systems, backed by the packaged
+ * resource {@code epsg.dat}.
+ * <p>
+ * The resource holds a sorted index of the codes, the offset of each definition, and the definitions
+ * themselves, each deflated on its own against a shared preset dictionary. The resource is read the
+ * first time the registry is used, but only the definitions that are asked for are inflated.
+ * <p>
+ * The resource is generated from the text source {@code src/main/epsg/epsg.wkt} of the project, which is
+ * where the definitions are reviewed and edited: one definition per line, the EPSG code, a space and the
+ * Well-Known Text, with blank lines and lines starting with '#' ignored. After editing the source, run
+ * the {@code generateEpsgRegistry} Gradle task, or the {@link #main} method of this class, and check in
+ * both files.
+ * <p>
+ * Layout of the resource (big-endian, as written by {@link DataOutputStream}):
+ * <pre>
+ * int     magic ('EPSG')
+ * int     version (1)
+ * int     dictionary length, followed by the dictionary bytes
+ * int     number of definitions n
+ * int[n]  codes, ascending
+ * int[n+1] offsets of the deflated definitions in the data block
+ * int     data length, followed by the data block
+ * </pre>
+ */
+final class EpsgRegistry {
+    static final String RESOURCE = "epsg.dat";
+
+    private static final int MAGIC = 0x45505347;
+    private static final int VERSION = 1;
+    private static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final byte[] _dictionary;
+    private final int[] _codes;
+    private final int[] _offsets;
+    private final byte[] _data;
+
+    private EpsgRegistry(byte[] dictionary, int[] codes, int[] offsets, byte[] data) {
+        _dictionary = dictionary;
+        _codes = codes;
+        _offsets = offsets;
+        _data = data;
+    }
+
+    /**
+     * Holder of the packaged registry, loaded when first used.
+     */
+    private static final class Holder {
+        static final EpsgRegistry INSTANCE = load();
+
+        private static EpsgRegistry load() {
+            InputStream in = EpsgRegistry.class.getResourceAsStream(RESOURCE);
+            if (in == null) {
+                throw new IllegalStateException("Missing resource " + RESOURCE);
+            }
+            try {
+                try {
+                    return read(in);
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read resource " + RESOURCE, e);
+            }
+        }
+    }
+
+    /**
+     * Gets the registry packaged with the library.
+     */
+    static EpsgRegistry getDefault() {
+        return Holder.INSTANCE;
+    }
+
+    /**
+     * Reads a registry written by {@link #write(SortedMap, OutputStream)}.
+     *
+     * @param in stream holding the registry
+     * @return the registry
+     * @throws IOException if the stream cannot be read or does not hold a registry
+     */
+    static EpsgRegistry read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not an EPSG registry");
+        }
+        int version = data.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported EPSG registry version " + version);
+        }
+        byte[] dictionary = new byte[data.readInt()];
+        data.readFully(dictionary);
+        int count = data.readInt();
+        int[] codes = new int[count];
+        for (int i = 0; i < count; i++) {
+            codes[i] = data.readInt();
+        }
+        int[] offsets = new int[count + 1];
+        for (int i = 0; i <= count; i++) {
+            offsets[i] = data.readInt();
+        }
+        byte[] definitions = new byte[data.readInt()];
+        data.readFully(definitions);
+        return new EpsgRegistry(dictionary, codes, offsets, definitions);
+    }
+
+    /**
+     * Writes a registry. This is how the packaged resource is generated, see {@link #main}.
+     * <p>
+     * The preset dictionary is made of definitions sampled evenly over the codes, so that the common
+     * parts of the Well-Known Text (datums, ellipsoids, units and authorities) are not stored again
+     * for every definition.
+     *
+     * @param definitions Well-Known Text by EPSG code
+     * @param out         stream receiving the registry
+     * @throws IOException if the stream cannot be written
+     */
+    static void write(SortedMap<Integer, String> definitions, OutputStream out) throws IOException {
+        String[] wkts = definitions.values().toArray(new String[definitions.size()]);
+        ByteArrayOutputStream dictionary = new ByteArrayOutputStream(MAX_DICTIONARY_SIZE);
+        int step = Math.max(1, wkts.length / 64);
+        for (int i = 0; i < wkts.length; i += step) {
+            byte[] bytes = wkts[i].getBytes(UTF8);
+            if (dictionary.size() + bytes.length > MAX_DICTIONARY_SIZE) {
+                break;
+            }
+            dictionary.write(bytes);
+        }
+        byte[] dictionaryBytes = dictionary.toByteArray();
+
+        ByteArrayOutputStream block = new ByteArrayOutputStream();
+        int[] offsets = new int[wkts.length + 1];
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION, true);
+        byte[] buffer = new byte[4096];
+        try {
+            for (int i = 0; i < wkts.length; i++) {
+                offsets[i] = block.size();
+                deflater.reset();
+                deflater.setDictionary(dictionaryBytes);
+                deflater.setInput(wkts[i].getBytes(UTF8));
+                deflater.finish();
+                while (!deflater.finished()) {
+                    block.write(buffer, 0, deflater.deflate(buffer));
+                }
+            }
+        } finally {
+            deflater.end();
+        }
+        offsets[wkts.length] = block.size();
+
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(dictionaryBytes.length);
+        data.write(dictionaryBytes);
+        data.writeInt(wkts.length);
+        for (Map.Entry<Integer, String> entry : definitions.entrySet()) {
+            data.writeInt(entry.getKey());
+        }
+        for (int offset : offsets) {
+            data.writeInt(offset);
+        }
+        data.writeInt(block.size());
+        block.writeTo(data);
+        data.flush();
+    }
+
+    /**
+     * Reads the text source of the definitions: one definition per line, the EPSG code, a space and the
+     * Well-Known Text. Blank lines and lines starting with '#' are ignored.
+     *
+     * @param in reader of the text source
+     * @return Well-Known Text by EPSG code
+     * @throws IOException if the source cannot be read, or a line is not a definition or repeats a code
+     */
+    static SortedMap<Integer, String> readSource(Reader in) throws IOException {
+        SortedMap<Integer, String> definitions = new TreeMap<>();
+        BufferedReader reader = new BufferedReader(in);
+        String line;
+        for (int number = 1; (line = reader.readLine()) != null; number++) {
+            line = line.trim();
+            if (line.isEmpty() || line.charAt(0) == '#') {
+                continue;
+            }
+            int space = line.indexOf(' ');
+            int code;
+            try {
+                code = space < 0 ? -1 : Integer.parseInt(line.substring(0, space));
+            } catch (NumberFormatException e) {
+                code = -1;
+            }
+            if (code < 0) {
+                throw new IOException("Line " + number + " is not an EPSG code followed by a Well-Known Text");
+            }
+            if (definitions.put(code, line.substring(space + 1).trim()) != null) {
+                throw new IOException("EPSG code " + code + " defined again on line " + number);
+            }
+        }
+        return definitions;
+    }
+
+    /**
+     * Generates the registry resource from the text source of the definitions.
+     *
+     * @param args the path of the text source and the path of the resource to write
+     * @throws IOException if the source cannot be read or the resource cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: EpsgRegistry <epsg.wkt> <epsg.dat>");
+        }
+        SortedMap<Integer, String> definitions;
+        Reader in = new InputStreamReader(new FileInputStream(args[0]), UTF8);
+        try {
+            definitions = readSource(in);
+        } finally {
+            in.close();
+        }
+        OutputStream out = new FileOutputStream(args[1]);
+        try {
+            write(definitions, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Gets the number of definitions.
+     */
+    int size() {
+        return _codes.length;
+    }
+
+    /**
+     * Gets the Well-Known Text of an EPSG code.
+     *
+     * @param code EPSG code
+     * @return the Well-Known Text, or null if the code is unknown
+     */
+    String getWkt(int code) {
+        int index = Arrays.binarySearch(_codes, code);
+        return index < 0 ? null : decode(index);
+    }
+
+    /**
+     * Gets the Well-Known Text of all definitions, ordered by code. The definitions are inflated one
+     * by one while iterating.
+     */
+    Collection<String> getAllWkt() {
+        return new AbstractCollection<String>() {
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    private int _next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return _next < _codes.length;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (_next >= _codes.length) {
+                            throw new NoSuchElementException();
+                        }
+                        return decode(_next++);
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException("The EPSG registry is read-only");
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return _codes.length;
+            }
+        };
+    }
+
+    private String decode(int index) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(_data, _offsets[index], _offsets[index + 1] - _offsets[index]);
+            inflater.setDictionary(_dictionary);
+            ByteArrayOutputStream wkt = new ByteArrayOutputStream(1024);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated definition of EPSG code " + _codes[index]);
+                }
+                wkt.write(buffer, 0, n);
+            }
+            return new String(wkt.toByteArray(), UTF8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt definition of EPSG code " + _codes[index], e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,207 @@
+package no.shz.utilities;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A thread-safe cache holding at most a given number of entries. When the cache is full, the
+ * least recently used entry is evicted. The cache counts hits, misses and evictions.
+ * <p>
+ * The entries are kept in a {@link ConcurrentHashMap}, so lookups take no lock. Instead of moving
+ * the entry in a list, a lookup stamps it from a clock that only stores advance, and the eviction
+ * removes the entry with the oldest stamp: the entries used since the last store rank above it, but
+ * equally recent among themselves. Only the stores that overflow the cache take a lock, to scan the
+ * entries for the oldest one, which is cheap next to building the value that missed.
+ */
+public final class LruCache<K, V> {
+    private final ConcurrentHashMap<K, Entry<V>> _map = new ConcurrentHashMap<>();
+    private final AtomicLong _clock = new AtomicLong();
+    private final Object _evictionLock = new Object();
+    private volatile int _maxSize;
+    private final Counter _hits = new Counter();
+    private final Counter _misses = new Counter();
+    private final AtomicLong _evictions = new AtomicLong();
+
+    private static final class Entry<V> {
+        final V value;
+        volatile long stamp;
+
+        Entry(V value, long stamp) {
+            this.value = value;
+            this.stamp = stamp;
+        }
+    }
+
+    /**
+     * A counter striped by thread, so that threads counting at the same time do not all write the
+     * same memory.
+     */
+    private static final class Counter {
+        //Cells 16 longs apart, so that no two are on the same cache line
+        private static final int SPACING = 16;
+        private static final int STRIPES = Integer.highestOneBit(Math.min(64, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+        private final AtomicLongArray _cells = new AtomicLongArray(STRIPES * SPACING);
+
+        void increment() {
+            _cells.incrementAndGet(((int) Thread.currentThread().getId() & (STRIPES - 1)) * SPACING);
+        }
+
+        long sum() {
+            long sum = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                sum += _cells.get(i * SPACING);
+            }
+            return sum;
+        }
+    }
+
+    /**
+     * @param maxSize maximum number of entries, at least 1
+     */
+    public LruCache(int maxSize) {
+        checkMaxSize(maxSize);
+        _maxSize = maxSize;
+    }
+
+    private static void checkMaxSize(int maxSize) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("The maximum size of a cache must be at least 1, got " + maxSize);
+        }
+    }
+
+    /**
+     * Returns the value stored for a key and marks it as recently used, or returns null if there is none.
+     *
+     * @param key the key
+     * @return the cached value, or null
+     */
+    public V get(K key) {
+        Entry<V> entry = _map.get(key);
+        if (entry == null) {
+            _misses.increment();
+            return null;
+        }
+        _hits.increment();
+        touch(entry);
+        return entry.value;
+    }
+
+    private void touch(Entry<V> entry) {
+        //Stores advance the clock by 2, so an entry used after the last store ranks above it
+        long now = _clock.get() + 1;
+        //Only write when the stamp changes, so that concurrent hits on an entry mostly read it
+        if (entry.stamp != now) {
+            entry.stamp = now;
+        }
+    }
+
+    /**
+     * Returns the value stored for a key, storing the given value first if there is none.
+     * Callers racing to fill the same key therefore all end up with the same value. Unlike
+     * {@link Map#putIfAbsent}, this returns the value stored, never null.
+     *
+     * @param key   the key
+     * @param value the value
+     * @return the value now stored for the key
+     */
+    public V getOrPut(K key, V value) {
+        Entry<V> existing = _map.putIfAbsent(key, new Entry<>(value, _clock.addAndGet(2)));
+        if (existing != null) {
+            touch(existing);
+            return existing.value;
+        }
+        evictOverflow();
+        return value;
+    }
+
+    /**
+     * Stores a value for a key, replacing any value stored for it.
+     *
+     * @param key   the key
+     * @param value the value
+     */
+    public void put(K key, V value) {
+        if (_map.put(key, new Entry<>(value, _clock.addAndGet(2))) == null) {
+            evictOverflow();
+        }
+    }
+
+    private void evictOverflow() {
+        if (_map.size() <= _maxSize) {
+            return;
+        }
+        synchronized (_evictionLock) {
+            while (_map.size() > _maxSize) {
+                K oldestKey = null;
+                Entry<V> oldest = null;
+                for (Map.Entry<K, Entry<V>> candidate : _map.entrySet()) {
+                    if (oldest == null || candidate.getValue().stamp < oldest.stamp) {
+                        oldestKey = candidate.getKey();
+                        oldest = candidate.getValue();
+                    }
+                }
+                if (oldest == null) {
+                    return;
+                }
+                if (_map.remove(oldestKey, oldest)) {
+                    _evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all entries. The statistics are kept.
+     */
+    public void clear() {
+        _map.clear();
+    }
+
+    /**
+     * Gets the number of entries in the cache.
+     */
+    public int size() {
+        return _map.size();
+    }
+
+    /**
+     * Gets the maximum number of entries in the cache.
+     */
+    public int getMaxSize() {
+        return _maxSize;
+    }
+
+    /**
+     * Sets the maximum number of entries in the cache, evicting the least recently used entries if needed.
+     *
+     * @param maxSize maximum number of entries, at least 1
+     */
+    public void setMaxSize(int maxSize) {
+        checkMaxSize(maxSize);
+        _maxSize = maxSize;
+        evictOverflow();
+    }
+
+    /**
+     * Gets the number of lookups that found a value.
+     */
+    public long getHitCount() {
+        return _hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that found no value.
+     */
+    public long getMissCount() {
+        return _misses.sum();
+    }
+
+    /**
+     * Gets the number of entries evicted because the cache was full.
+     */
+    public long getEvictionCount() {
+        return _evictions.get();
+    }
+}
\ No newline at end of file
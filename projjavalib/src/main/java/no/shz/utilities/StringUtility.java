@@ -1,11 +1,36 @@
 package no.shz.utilities;
 
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
 /**
  * Created by imshz on 12.12.2016.
  */
 
 public class StringUtility {
+    /**
+     * DecimalFormat is not thread-safe and expensive to create, so each thread keeps one.
+     */
+    private static final ThreadLocal<DecimalFormat> NUMBER_FORMAT = new ThreadLocal<DecimalFormat>() {
+        @Override
+        protected DecimalFormat initialValue() {
+            return new DecimalFormat("0.################", new DecimalFormatSymbols(Locale.US));
+        }
+    };
+
     public static boolean isNullOrEmpty(String string) {
         return string == null || string.length() == 0;
     }
-}
+
+    /**
+     * Formats a number the way it is written in Well-Known Text and XML: invariant culture, no grouping,
+     * and up to 16 decimals.
+     *
+     * @param value the number
+     * @return the formatted number
+     */
+    public static String formatNumber(double value) {
+        return NUMBER_FORMAT.get().format(value);
+    }
+}
\ No newline at end of file
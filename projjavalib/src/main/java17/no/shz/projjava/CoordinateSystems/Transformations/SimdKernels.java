@@ -0,0 +1,253 @@
+package no.shz.projjava.coordinateSystems.transformations;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Kernels built on the Vector API, loaded by {@link VectorKernels} on Java 17 and later when the
+ * jdk.incubator.vector module is available.
+ * <p>
+ * Each kernel follows the arithmetic of the scalar code of its transform operation by operation, so the
+ * results only differ where the Vector API computes a trigonometric function differently. The branches of
+ * the scalar code are computed for every lane and blended; the rare cases with iterations or special
+ * values are left to the scalar code by stopping before the vector holding them.
+ * <p>
+ * The kernels call no helper methods of their own: past a size the JIT compiler only inlines the methods
+ * of the Vector API, and the vectors handed to a method that is not inlined are allocated on the heap.
+ */
+final class SimdKernels extends VectorKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final int LANES = SPECIES.length();
+
+    private static final double PI = Math.PI;
+    private static final double HALF_PI = PI * 0.5;
+    private static final double TWO_PI = PI * 2.0;
+    private static final int TM_MAX_ITER = 6;
+
+    SimdKernels() {
+        if (LANES < 2) {
+            throw new UnsupportedOperationException("The processor has no vector registers for doubles");
+        }
+    }
+
+    @Override
+    boolean isVectorized() {
+        return true;
+    }
+
+    @Override
+    int transverseMercatorForward(double[] c, double[] xs, double[] ys, int off, int n) {
+        double a = c[TM_SEMI_MAJOR];
+        double k0 = c[TM_SCALE_FACTOR];
+        double es = c[TM_ES];
+        double esp = c[TM_ESP];
+        double e0 = c[TM_E0], e1 = c[TM_E0 + 1], e2 = c[TM_E0 + 2], e3 = c[TM_E0 + 3];
+        double ml0 = c[TM_ML0];
+        double mpu = c[TM_METERS_PER_UNIT];
+        int end = off + n - n % LANES;
+        int i = off;
+        for (; i < end; i += LANES) {
+            DoubleVector lon = DoubleVector.fromArray(SPECIES, xs, i).mul(MathTransform.D2R);
+            DoubleVector lat = DoubleVector.fromArray(SPECIES, ys, i).mul(MathTransform.D2R);
+            DoubleVector deltaLon = lon.sub(c[TM_CENTRAL_MERIDIAN]);
+            //adjustLon, for the longitudes within (-2 pi, 2 pi)
+            if (!deltaLon.abs().compare(VectorOperators.LT, TWO_PI).allTrue()) {
+                break;
+            }
+            deltaLon = deltaLon.blend(deltaLon.sub(TWO_PI), deltaLon.compare(VectorOperators.GT, PI)).blend(deltaLon.add(TWO_PI), deltaLon.compare(VectorOperators.LT, -PI));
+            DoubleVector sinPhi = lat.lanewise(VectorOperators.SIN);
+            DoubleVector cosPhi = lat.lanewise(VectorOperators.COS);
+
+            DoubleVector al = cosPhi.mul(deltaLon);
+            DoubleVector als = al.mul(al);
+            DoubleVector cc = cosPhi.mul(esp).mul(cosPhi);
+            DoubleVector tq = lat.lanewise(VectorOperators.TAN);
+            DoubleVector t = tq.mul(tq);
+            DoubleVector con = sinPhi.mul(es).mul(sinPhi).neg().add(1.0);
+            DoubleVector nn = DoubleVector.broadcast(SPECIES, a).div(con.sqrt());
+            DoubleVector ml = lat.mul(e0).sub(lat.mul(2.0).lanewise(VectorOperators.SIN).mul(e1)).add(lat.mul(4.0).lanewise(VectorOperators.SIN).mul(e2)).sub(lat.mul(6.0).lanewise(VectorOperators.SIN).mul(e3)).mul(a);
+
+            //x = k0 * n * al * (1 + als / 6 * (1 - t + c + als / 20 * (5 - 18 t + t t + 72 c - 58 esp))) + fe
+            DoubleVector inner = t.mul(-18.0).add(5.0).add(t.mul(t)).add(cc.mul(72.0)).sub(58.0 * esp);
+            DoubleVector bracket = t.neg().add(1.0).add(cc).add(als.div(20.0).mul(inner));
+            DoubleVector x = nn.mul(k0).mul(al).mul(als.div(6.0).mul(bracket).add(1.0)).add(c[TM_FALSE_EASTING]);
+
+            //y = k0 * (ml - ml0 + n tq (als (0.5 + als / 24 (5 - t + 9 c + 4 c c + als / 30 (61 - 58 t + t t + 600 c - 330 esp))))) + fn
+            DoubleVector inner2 = t.mul(-58.0).add(61.0).add(t.mul(t)).add(cc.mul(600.0)).sub(330.0 * esp);
+            DoubleVector bracket2 = t.neg().add(5.0).add(cc.mul(9.0)).add(cc.mul(4.0).mul(cc)).add(als.div(30.0).mul(inner2));
+            DoubleVector series = als.mul(als.div(24.0).mul(bracket2).add(0.5));
+            DoubleVector y = ml.sub(ml0).add(nn.mul(tq).mul(series)).mul(k0).add(c[TM_FALSE_NORTHING]);
+
+            x.div(mpu).intoArray(xs, i);
+            y.div(mpu).intoArray(ys, i);
+        }
+        return i - off;
+    }
+
+    @Override
+    int transverseMercatorInverse(double[] c, double[] xs, double[] ys, int off, int n) {
+        double a = c[TM_SEMI_MAJOR];
+        double k0 = c[TM_SCALE_FACTOR];
+        double es = c[TM_ES];
+        double esp = c[TM_ESP];
+        double e0 = c[TM_E0], e1 = c[TM_E0 + 1], e2 = c[TM_E0 + 2], e3 = c[TM_E0 + 3];
+        double mpu = c[TM_METERS_PER_UNIT];
+        double tolerance = c[TM_TOLERANCE];
+        int end = off + n - n % LANES;
+        int i = off;
+        loop:
+        for (; i < end; i += LANES) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, xs, i).mul(mpu).sub(c[TM_FALSE_EASTING]);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, ys, i).mul(mpu).sub(c[TM_FALSE_NORTHING]);
+
+            DoubleVector con = y.div(k0).add(c[TM_ML0]).div(a);
+            DoubleVector phi = con;
+            VectorMask<Double> active = SPECIES.maskAll(true);
+            for (int iter = 0; ; iter++) {
+                DoubleVector deltaPhi = con.add(phi.mul(2.0).lanewise(VectorOperators.SIN).mul(e1)).sub(phi.mul(4.0).lanewise(VectorOperators.SIN).mul(e2)).add(phi.mul(6.0).lanewise(VectorOperators.SIN).mul(e3)).div(e0).sub(phi);
+                phi = phi.add(deltaPhi, active);
+                active = active.and(deltaPhi.abs().compare(VectorOperators.LE, tolerance).not());
+                if (!active.anyTrue()) {
+                    break;
+                }
+                if (iter >= TM_MAX_ITER) {
+                    break loop;
+                }
+            }
+            if (!phi.abs().compare(VectorOperators.LT, HALF_PI).allTrue()) {
+                break;
+            }
+            DoubleVector sinPhi = phi.lanewise(VectorOperators.SIN);
+            DoubleVector cosPhi = phi.lanewise(VectorOperators.COS);
+            DoubleVector tanPhi = phi.lanewise(VectorOperators.TAN);
+            DoubleVector cc = cosPhi.mul(esp).mul(cosPhi);
+            DoubleVector cs = cc.mul(cc);
+            DoubleVector t = tanPhi.mul(tanPhi);
+            DoubleVector ts = t.mul(t);
+            con = sinPhi.mul(es).mul(sinPhi).neg().add(1.0);
+            DoubleVector nn = DoubleVector.broadcast(SPECIES, a).div(con.sqrt());
+            DoubleVector r = nn.mul(1.0 - es).div(con);
+            DoubleVector d = x.div(nn.mul(k0));
+            DoubleVector ds = d.mul(d);
+
+            //lat = phi - (n tan ds / r) (0.5 - ds / 24 (5 + 3 t + 10 c - 4 cs - 9 esp - ds / 30 (61 + 90 t + 298 c + 45 ts - 252 esp - 3 cs)))
+            DoubleVector inner = t.mul(90.0).add(61.0).add(cc.mul(298.0)).add(ts.mul(45.0)).sub(252.0 * esp).sub(cs.mul(3.0));
+            DoubleVector bracket = t.mul(3.0).add(5.0).add(cc.mul(10.0)).sub(cs.mul(4.0)).sub(9.0 * esp).sub(ds.div(30.0).mul(inner));
+            DoubleVector lat = phi.sub(nn.mul(tanPhi).mul(ds).div(r).mul(ds.div(24.0).mul(bracket).neg().add(0.5)));
+
+            //lon = cm + d (1 - ds / 6 (1 + 2 t + c - ds / 20 (5 - 2 c + 28 t - 3 cs + 8 esp + 24 ts))) / cos
+            DoubleVector inner2 = cc.mul(-2.0).add(5.0).add(t.mul(28.0)).sub(cs.mul(3.0)).add(8.0 * esp).add(ts.mul(24.0));
+            DoubleVector bracket2 = t.mul(2.0).add(1.0).add(cc).sub(ds.div(20.0).mul(inner2));
+            DoubleVector lon = d.mul(ds.div(6.0).mul(bracket2).neg().add(1.0)).div(cosPhi).add(c[TM_CENTRAL_MERIDIAN]);
+            //adjustLon, for the longitudes within (-2 pi, 2 pi)
+            if (!lon.abs().compare(VectorOperators.LT, TWO_PI).allTrue()) {
+                break;
+            }
+            lon = lon.blend(lon.sub(TWO_PI), lon.compare(VectorOperators.GT, PI)).blend(lon.add(TWO_PI), lon.compare(VectorOperators.LT, -PI));
+            lon.mul(MathTransform.R2D).intoArray(xs, i);
+            lat.mul(MathTransform.R2D).intoArray(ys, i);
+        }
+        return i - off;
+    }
+
+    @Override
+    int geographicToGeocentric(double semiMajor, double es, double[] xs, double[] ys, double[] zs, int off, int n) {
+        int end = off + n - n % LANES;
+        int i = off;
+        for (; i < end; i += LANES) {
+            DoubleVector lon = DoubleVector.fromArray(SPECIES, xs, i).mul(MathTransform.D2R);
+            DoubleVector lat = DoubleVector.fromArray(SPECIES, ys, i).mul(MathTransform.D2R);
+            DoubleVector h;
+            if (zs == null) {
+                h = DoubleVector.zero(SPECIES);
+            } else {
+                h = DoubleVector.fromArray(SPECIES, zs, i);
+                h = h.blend(0.0, h.test(VectorOperators.IS_NAN));
+            }
+            DoubleVector sinLat = lat.lanewise(VectorOperators.SIN);
+            DoubleVector cosLat = lat.lanewise(VectorOperators.COS);
+            DoubleVector v = DoubleVector.broadcast(SPECIES, semiMajor).div(sinLat.mul(es).mul(sinLat).neg().add(1.0).sqrt());
+            DoubleVector vh = v.add(h).mul(cosLat);
+            vh.mul(lon.lanewise(VectorOperators.COS)).intoArray(xs, i);
+            vh.mul(lon.lanewise(VectorOperators.SIN)).intoArray(ys, i);
+            if (zs != null) {
+                v.mul(1.0 - es).add(h).mul(sinLat).intoArray(zs, i);
+            }
+        }
+        return i - off;
+    }
+
+    @Override
+    int geocentricToGeographic(double semiMajor, double semiMinor, double es, double ses, double[] xs, double[] ys, double[] zs, int off, int n) {
+        int end = off + n - n % LANES;
+        int i = off;
+        for (; i < end; i += LANES) {
+            DoubleVector x = DoubleVector.fromArray(SPECIES, xs, i);
+            DoubleVector y = DoubleVector.fromArray(SPECIES, ys, i);
+            //Points with x = 0 take a special path in the scalar code
+            if (x.compare(VectorOperators.EQ, 0.0).anyTrue()) {
+                break;
+            }
+            DoubleVector z;
+            if (zs == null) {
+                z = DoubleVector.zero(SPECIES);
+            } else {
+                z = DoubleVector.fromArray(SPECIES, zs, i);
+                z = z.blend(0.0, z.test(VectorOperators.IS_NAN));
+            }
+            DoubleVector lon = y.lanewise(VectorOperators.ATAN2, x);
+
+            DoubleVector w2 = x.mul(x).add(y.mul(y));
+            DoubleVector w = w2.sqrt();
+            DoubleVector t0 = z.mul(GeocentricTransform.AD_C);
+            DoubleVector s0 = t0.mul(t0).add(w2).sqrt();
+            DoubleVector sinB0 = t0.div(s0);
+            DoubleVector cosB0 = w.div(s0);
+            DoubleVector sin3B0 = sinB0.mul(sinB0).mul(sinB0);
+            DoubleVector t1 = z.add(sin3B0.mul(semiMinor * ses));
+            DoubleVector sum = w.sub(cosB0.mul(semiMajor * es).mul(cosB0).mul(cosB0));
+            DoubleVector s1 = t1.mul(t1).add(sum.mul(sum)).sqrt();
+            DoubleVector sinP1 = t1.div(s1);
+            DoubleVector cosP1 = sum.div(s1);
+            DoubleVector rn = DoubleVector.broadcast(SPECIES, semiMajor).div(sinP1.mul(es).mul(sinP1).neg().add(1.0).sqrt());
+
+            DoubleVector height = z.div(sinP1).add(rn.mul(es - 1.0));
+            height = height.blend(w.div(cosP1.neg()).sub(rn), cosP1.compare(VectorOperators.LE, -GeocentricTransform.COS_67P5));
+            height = height.blend(w.div(cosP1).sub(rn), cosP1.compare(VectorOperators.GE, GeocentricTransform.COS_67P5));
+            DoubleVector lat = sinP1.div(cosP1).lanewise(VectorOperators.ATAN);
+
+            lon.mul(MathTransform.R2D).intoArray(xs, i);
+            lat.mul(MathTransform.R2D).intoArray(ys, i);
+            if (zs != null) {
+                height.intoArray(zs, i);
+            }
+        }
+        return i - off;
+    }
+
+    @Override
+    int affine3D(double[] m, double[] xs, double[] ys, double[] zs, int off, int n) {
+        int end = off + n - n % LANES;
+        int i = off;
+        if (zs == null) {
+            for (; i < end; i += LANES) {
+                DoubleVector x = DoubleVector.fromArray(SPECIES, xs, i);
+                DoubleVector y = DoubleVector.fromArray(SPECIES, ys, i);
+                x.mul(m[0]).add(y.mul(m[1])).add(m[3]).intoArray(xs, i);
+                x.mul(m[4]).add(y.mul(m[5])).add(m[7]).intoArray(ys, i);
+            }
+        } else {
+            for (; i < end; i += LANES) {
+                DoubleVector x = DoubleVector.fromArray(SPECIES, xs, i);
+                DoubleVector y = DoubleVector.fromArray(SPECIES, ys, i);
+                DoubleVector z = DoubleVector.fromArray(SPECIES, zs, i);
+                x.mul(m[0]).add(y.mul(m[1])).add(z.mul(m[2])).add(m[3]).intoArray(xs, i);
+                x.mul(m[4]).add(y.mul(m[5])).add(z.mul(m[6])).add(m[7]).intoArray(ys, i);
+                x.mul(m[8]).add(y.mul(m[9])).add(z.mul(m[10])).add(m[11]).intoArray(zs, i);
+            }
+        }
+        return i - off;
+    }
+}
\ No newline at end of file
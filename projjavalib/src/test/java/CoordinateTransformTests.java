@@ -1,7 +1,14 @@
+import org.junit.Assume;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
 
 import no.shz.projjava.SpatialReferences;
 import no.shz.projjava.coordinateSystems.AngularUnit;
@@ -9,6 +16,7 @@ import no.shz.projjava.coordinateSystems.AxisInfo;
 import no.shz.projjava.coordinateSystems.AxisOrientationEnum;
 import no.shz.projjava.coordinateSystems.CoordinateSystemFactory;
 import no.shz.projjava.coordinateSystems.DatumType;
+import no.shz.projjava.coordinateSystems.Ellipsoid;
 import no.shz.projjava.coordinateSystems.HorizontalDatum;
 import no.shz.projjava.coordinateSystems.ICoordinateSystem;
 import no.shz.projjava.coordinateSystems.IEllipsoid;
@@ -21,10 +29,27 @@ import no.shz.projjava.coordinateSystems.LinearUnit;
 import no.shz.projjava.coordinateSystems.PrimeMeridian;
 import no.shz.projjava.coordinateSystems.ProjectionParameter;
 import no.shz.projjava.coordinateSystems.Wgs84ConversionInfo;
+import no.shz.projjava.coordinateSystems.projections.KrugerTransverseMercator;
+import no.shz.projjava.coordinateSystems.projections.MapProjection;
+import no.shz.projjava.coordinateSystems.projections.PseudoMercator;
+import no.shz.projjava.coordinateSystems.transformations.AffineTransform;
+import no.shz.projjava.coordinateSystems.transformations.ApproximateTransform;
+import no.shz.projjava.coordinateSystems.transformations.ConcatenatedTransform;
+import no.shz.projjava.coordinateSystems.transformations.CoordinateTransformation;
 import no.shz.projjava.coordinateSystems.transformations.CoordinateTransformationFactory;
+import no.shz.projjava.coordinateSystems.transformations.GeocentricTransform;
 import no.shz.projjava.coordinateSystems.transformations.ICoordinateTransformation;
-
+import no.shz.projjava.coordinateSystems.transformations.IMathTransform;
+import no.shz.projjava.coordinateSystems.transformations.MathTransform;
+import no.shz.projjava.coordinateSystems.transformations.ParallelTransformer;
+import no.shz.projjava.coordinateSystems.transformations.PointStatus;
+import no.shz.projjava.coordinateSystems.transformations.TransformType;
+import no.shz.projjava.coordinateSystems.transformations.TileCoordinateSink;
+import no.shz.projjava.coordinateSystems.transformations.TransverseMercatorMethod;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class CoordinateTransformTests {
 
@@ -215,6 +240,53 @@ public class CoordinateTransformTests {
         assertTrue(String.format("TransverseMercator reverse transformation outside tolerance, Expected %1$s, got %2$s", pGeo.toString(), pGeo2.toString()), ToleranceLessThan(pGeo, pGeo2, 0.0000001));
     }
 
+    @Test
+    public final void TestKrugerTransverseMercator_Projection() throws IOException
+    {
+        CoordinateSystemFactory cFac = new CoordinateSystemFactory();
+
+        IEllipsoid ellipsoid = cFac.createFlattenedSphere("Airy 1830", 6377563.396, 299.32496, LinearUnit.getMetre());
+
+        IHorizontalDatum datum = cFac.createHorizontalDatum("Airy 1830", DatumType.HD_Geocentric, ellipsoid, null);
+        IGeographicCoordinateSystem gcs = cFac.createGeographicCoordinateSystem("Airy 1830", AngularUnit.getDegrees(), datum, PrimeMeridian.getGreenwich(), new AxisInfo("Lon", AxisOrientationEnum.East), new AxisInfo("Lat", AxisOrientationEnum.North));
+        ArrayList<ProjectionParameter> parameters = new ArrayList<ProjectionParameter>(5);
+        parameters.add(new ProjectionParameter("latitude_of_origin", 49));
+        parameters.add(new ProjectionParameter("central_meridian", -2));
+        parameters.add(new ProjectionParameter("scale_factor", 0.9996012717));
+        parameters.add(new ProjectionParameter("false_easting", 400000));
+        parameters.add(new ProjectionParameter("false_northing", -100000));
+        IProjection projection = cFac.createProjection("Transverse Mercator", "Transverse_Mercator", parameters);
+
+        IProjectedCoordinateSystem coordsys = cFac.createProjectedCoordinateSystem("OSGB 1936 / British National Grid", gcs, projection, LinearUnit.getMetre(), new AxisInfo("East", AxisOrientationEnum.East), new AxisInfo("North", AxisOrientationEnum.North));
+
+        CoordinateTransformationFactory ctFac = new CoordinateTransformationFactory();
+        ctFac.setTransverseMercatorMethod(TransverseMercatorMethod.KRUGER);
+        IMathTransform transform = ctFac.createFromCoordinateSystems(gcs, coordsys).getMathTransform();
+        assertTrue(transform instanceof KrugerTransverseMercator);
+
+        double[] pGeo = new double[] {0.5, 50.5};
+        double[] pUtm = transform.transform(pGeo);
+        double[] pGeo2 = transform.inverse().transform(pUtm);
+
+        double[] expected = new double[] {577274.99, 69740.50};
+
+        assertTrue(String.format("KrugerTransverseMercator forward transformation outside tolerance, Expected %1$s, got %2$s", Arrays.toString(expected), Arrays.toString(pUtm)), ToleranceLessThan(pUtm, expected, 0.02));
+        assertTrue(String.format("KrugerTransverseMercator reverse transformation outside tolerance, Expected %1$s, got %2$s", Arrays.toString(pGeo), Arrays.toString(pGeo2)), ToleranceLessThan(pGeo, pGeo2, 0.0000001));
+
+        //Close to the central meridian the Snyder series agrees within a millimeter, far from it the series round trips
+        ICoordinateSystem wgs84 = SpatialReferences.getByEpsg(4326);
+        ICoordinateSystem utm = SpatialReferences.getByEpsg(32633);
+        IMathTransform snyder = new CoordinateTransformationFactory().createFromCoordinateSystems(wgs84, utm).getMathTransform();
+        IMathTransform kruger = ctFac.createFromCoordinateSystems(wgs84, utm).getMathTransform();
+        assertTrue(snyder != kruger);
+        for (double lat = -80; lat <= 80; lat += 10) {
+            double[] point = new double[] {17.5, lat};
+            assertTrue(ToleranceLessThan(snyder.transform(point), kruger.transform(point), 0.001));
+            point = new double[] {15 + 40, lat};
+            assertTrue(ToleranceLessThan(kruger.inverse().transform(kruger.transform(point)), point, 1e-9));
+        }
+    }
+
     @Test
     public final void TestLambertConicConformal2SP_Projection()
     {
@@ -389,6 +461,13 @@ public class CoordinateTransformTests {
         }
     }
 
+    private static ConcatenatedTransform concatenate(IMathTransform first, IMathTransform second) {
+        ArrayList<ICoordinateTransformation> transforms = new ArrayList<>(2);
+        transforms.add(new CoordinateTransformation(null, null, TransformType.Other, first, "", "", -1, "", ""));
+        transforms.add(new CoordinateTransformation(null, null, TransformType.Other, second, "", "", -1, "", ""));
+        return new ConcatenatedTransform(transforms);
+    }
+
 
     @Test
     public final void TestUnitTransforms() throws IOException {
@@ -407,4 +486,980 @@ public class CoordinateTransformTests {
         assertTrue(String.format("Transformation outside tolerance, Expected [%1$s,%2$s], got [%3$s,%4$s]", p0[0], p0[1], p2[0], p2[1]), ToleranceLessThan(p0, p2, 0.0000001));
     }
 
-}
+    @Test
+    public final void TestPackedTransform() throws IOException {
+        ICoordinateSystem antigua = SpatialReferences.getByEpsg(2001); //Antigua 1943 / British West Indies Grid, with TOWGS84
+        ICoordinateSystem wgs84GCS = SpatialReferences.getByEpsg(4326);
+        IMathTransform mt = (new CoordinateTransformationFactory()).createFromCoordinateSystems(antigua, wgs84GCS).getMathTransform();
+
+        double[][] points = new double[][] {{400000, 1900000, 10}, {420000, 1910000, 20}, {380000, 1890000, 30}};
+        for (int dim = 2; dim <= 3; dim++) {
+            double[] packed = new double[points.length * dim + 1];
+            for (int i = 0; i < points.length; i++) {
+                System.arraycopy(points[i], 0, packed, 1 + i * dim, dim);
+            }
+            double[] out = new double[points.length * dim];
+            mt.transform(packed, 1, out, 0, points.length, dim);
+            mt.transform(packed, 1, packed, 1, points.length, dim);
+
+            for (int i = 0; i < points.length; i++) {
+                double[] expected = mt.transform(dim == 2 ? new double[] {points[i][0], points[i][1]} : points[i]);
+                double[] actual = new double[dim];
+                System.arraycopy(out, i * dim, actual, 0, dim);
+                assertTrue(String.format("Packed transformation differs, Expected [%1$s,%2$s], got [%3$s,%4$s]", expected[0], expected[1], actual[0], actual[1]), ToleranceLessThan(expected, actual, 1e-9));
+                System.arraycopy(packed, 1 + i * dim, actual, 0, dim);
+                assertTrue(String.format("In-place transformation differs, Expected [%1$s,%2$s], got [%3$s,%4$s]", expected[0], expected[1], actual[0], actual[1]), ToleranceLessThan(expected, actual, 1e-9));
+            }
+        }
+    }
+
+    @Test
+    public final void TestColumnTransform() throws IOException {
+        ICoordinateSystem antigua = SpatialReferences.getByEpsg(2001); //Antigua 1943 / British West Indies Grid, with TOWGS84
+        ICoordinateSystem wgs84GCS = SpatialReferences.getByEpsg(4326);
+        IMathTransform mt = (new CoordinateTransformationFactory()).createFromCoordinateSystems(antigua, wgs84GCS).getMathTransform();
+
+        double[][] points = new double[][] {{400000, 1900000, 10}, {420000, 1910000, 20}, {380000, 1890000, 30}};
+        double[] xs = new double[points.length + 1];
+        double[] ys = new double[points.length + 1];
+        double[] zs = new double[points.length + 1];
+        for (int i = 0; i < points.length; i++) {
+            xs[i + 1] = points[i][0];
+            ys[i + 1] = points[i][1];
+            zs[i + 1] = points[i][2];
+        }
+        double[] xs2 = xs.clone();
+        double[] ys2 = ys.clone();
+        mt.transform(xs, ys, zs, 1, points.length);
+        mt.transform(xs2, ys2, null, 1, points.length);
+
+        for (int i = 0; i < points.length; i++) {
+            double[] expected = mt.transform(points[i]);
+            double[] actual = new double[] {xs[i + 1], ys[i + 1], zs[i + 1]};
+            assertTrue(String.format("Column transformation differs, Expected [%1$s,%2$s], got [%3$s,%4$s]", expected[0], expected[1], actual[0], actual[1]), ToleranceLessThan(expected, actual, 1e-9));
+            expected = mt.transform(new double[] {points[i][0], points[i][1]});
+            actual = new double[] {xs2[i + 1], ys2[i + 1]};
+            assertTrue(String.format("2D column transformation differs, Expected [%1$s,%2$s], got [%3$s,%4$s]", expected[0], expected[1], actual[0], actual[1]), ToleranceLessThan(expected, actual, 1e-9));
+        }
+    }
+
+    @Test
+    public final void TestBufferTransform() throws IOException {
+        ICoordinateSystem antigua = SpatialReferences.getByEpsg(2001); //Antigua 1943 / British West Indies Grid, with TOWGS84
+        ICoordinateSystem wgs84GCS = SpatialReferences.getByEpsg(4326);
+        IMathTransform mt = (new CoordinateTransformationFactory()).createFromCoordinateSystems(antigua, wgs84GCS).getMathTransform();
+
+        double[] points = new double[] {400000, 1900000, 10, 420000, 1910000, 20, 380000, 1890000, 30};
+        double[] expected = points.clone();
+        mt.transform(expected, 0, expected, 0, 3, 3);
+
+        DoubleBuffer heapIn = DoubleBuffer.wrap(points.clone());
+        DoubleBuffer heapOut = DoubleBuffer.allocate(points.length);
+        mt.transform(heapIn, heapOut, 3);
+        assertEquals(0, heapIn.remaining());
+        assertEquals(0, heapOut.remaining());
+
+        ByteBuffer directIn = ByteBuffer.allocateDirect(points.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer directOut = ByteBuffer.allocateDirect(points.length * 8).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer inPlace = ByteBuffer.allocateDirect(points.length * 8).order(ByteOrder.BIG_ENDIAN);
+        for (double value : points) {
+            directIn.putDouble(value);
+            inPlace.putDouble(value);
+        }
+        directIn.flip();
+        inPlace.flip();
+        mt.transform(directIn, directOut, 3);
+        mt.transform(inPlace, inPlace, 3);
+        assertEquals(0, directOut.remaining());
+        assertEquals(0, inPlace.remaining());
+
+        for (int i = 0; i < points.length; i++) {
+            assertEquals(expected[i], heapOut.get(i), 1e-9);
+            assertEquals(expected[i], directOut.getDouble(i * 8), 1e-9);
+            assertEquals(expected[i], inPlace.getDouble(i * 8), 1e-9);
+        }
+    }
+
+    @Test
+    public final void TestProjectionKernelsDoNotAllocate() throws IOException {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        Assume.assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        Assume.assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        // Transverse Mercator, Mercator, Lambert Conformal Conic, Albers, Krovak, Pseudo Mercator and Kruger's Transverse Mercator
+        int[] codes = new int[] {32633, 3001, 2154, 3005, 2065, 3857, 32633};
+        double[][] lonlats = new double[][] {{15, 50}, {110, -2}, {3, 46}, {-125, 53}, {32.5, 49.5}, {10, 60}, {15, 50}};
+        int numPts = 10000;
+        //Whatever a batch allocates, it must not grow with the number of points
+        long maxBytes = 1024;
+        long threadId = Thread.currentThread().getId();
+        CoordinateTransformationFactory ctFac = new CoordinateTransformationFactory();
+        CoordinateTransformationFactory krugerFac = new CoordinateTransformationFactory();
+        krugerFac.setTransverseMercatorMethod(TransverseMercatorMethod.KRUGER);
+        for (int c = 0; c < codes.length; c++) {
+            CoordinateTransformationFactory fac = c == codes.length - 1 ? krugerFac : ctFac;
+            IProjectedCoordinateSystem pcs = (IProjectedCoordinateSystem) SpatialReferences.getByEpsg(codes[c]);
+            IMathTransform forward = fac.createFromCoordinateSystems(pcs.getGeographicCoordinateSystem(), pcs).getMathTransform();
+            IMathTransform reverse = fac.createFromCoordinateSystems(pcs, pcs.getGeographicCoordinateSystem()).getMathTransform();
+            String name = "EPSG:" + codes[c] + (fac == krugerFac ? " (Kruger)" : "");
+            assertTrue(fac != krugerFac || forward instanceof KrugerTransverseMercator);
+
+            double[] source = new double[numPts * 2];
+            double[] xs = new double[numPts];
+            double[] ys = new double[numPts];
+            for (int i = 0; i < numPts; i++) {
+                source[i * 2] = lonlats[c][0] + (i % 100) * 0.001;
+                source[i * 2 + 1] = lonlats[c][1] + (i / 100) * 0.001;
+            }
+            double[] projected = new double[source.length];
+            double[] lonlat = new double[source.length];
+            //Until the JIT compiler has compiled the kernels, the interpreter and the Vector API allocate:
+            //go on until a round allocates no more than the bound, or the round limit is reached
+            long packedBytes = 0;
+            long columnBytes = 0;
+            for (int round = 0; round < 500; round++) {
+                long before = threadBean.getThreadAllocatedBytes(threadId);
+                forward.transform(source, 0, projected, 0, numPts, 2);
+                reverse.transform(projected, 0, lonlat, 0, numPts, 2);
+                packedBytes = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+                for (int i = 0; i < numPts; i++) {
+                    xs[i] = source[i * 2];
+                    ys[i] = source[i * 2 + 1];
+                }
+                before = threadBean.getThreadAllocatedBytes(threadId);
+                forward.transform(xs, ys, null, 0, numPts);
+                reverse.transform(xs, ys, null, 0, numPts);
+                columnBytes = threadBean.getThreadAllocatedBytes(threadId) - before;
+                if (round >= 20 && packedBytes < maxBytes && columnBytes < maxBytes) {
+                    break;
+                }
+            }
+            assertTrue("Bytes allocated by the packed transforms of " + name + ": " + packedBytes, packedBytes < maxBytes);
+            assertTrue("Bytes allocated by the column transforms of " + name + ": " + columnBytes, columnBytes < maxBytes);
+            assertEquals(source[numPts - 1], lonlat[numPts - 1], 1e-6);
+            assertEquals(source[numPts * 2 - 1], ys[numPts - 1], 1e-6);
+        }
+    }
+
+    @Test
+    public final void TestInverseIsSeparateInstance() throws IOException {
+        ICoordinateSystem antigua = SpatialReferences.getByEpsg(2001); //Antigua 1943 / British West Indies Grid, with TOWGS84
+        ICoordinateSystem wgs84GCS = SpatialReferences.getByEpsg(4326);
+        IMathTransform mt = (new CoordinateTransformationFactory()).createFromCoordinateSystems(antigua, wgs84GCS).getMathTransform();
+
+        double[] point = new double[] {400000, 1900000};
+        double[] expected = mt.transform(point);
+        IMathTransform inverse = mt.inverse();
+        assertTrue(inverse != mt);
+        assertTrue(inverse == mt.inverse());
+        assertTrue(inverse.inverse() == mt);
+
+        double[] forward = mt.transform(point);
+        double[] back = inverse.transform(forward);
+        assertTrue(String.format("Forward transformation changed by inverse(), Expected [%1$s,%2$s], got [%3$s,%4$s]", expected[0], expected[1], forward[0], forward[1]), ToleranceLessThan(expected, forward, 1e-12));
+        assertTrue(String.format("Round trip failed, Expected [%1$s,%2$s], got [%3$s,%4$s]", point[0], point[1], back[0], back[1]), ToleranceLessThan(point, back, 0.01));
+    }
+
+    @Test
+    public final void TestTransformationCache() throws IOException {
+        CoordinateTransformationFactory ctFac = new CoordinateTransformationFactory();
+        ICoordinateSystem wgs84GCS = SpatialReferences.getByEpsg(4326);
+        ICoordinateSystem utm33 = SpatialReferences.getByEpsg(32633);
+        //A copy of the cached instance: equal but distinct
+        ICoordinateSystem utm33Again = SpatialReferences.getByEpsg(32633);
+        assertTrue(utm33 != utm33Again);
+        ICoordinateSystem utm32 = SpatialReferences.getByEpsg(32632);
+
+        ICoordinateTransformation first = ctFac.createFromCoordinateSystems(wgs84GCS, utm33);
+        long hits = CoordinateTransformationFactory.getCacheHitCount();
+        long misses = CoordinateTransformationFactory.getCacheMissCount();
+        ICoordinateTransformation second = (new CoordinateTransformationFactory()).createFromCoordinateSystems(wgs84GCS, utm33Again);
+        assertEquals(hits + 1, CoordinateTransformationFactory.getCacheHitCount());
+        assertEquals(misses, CoordinateTransformationFactory.getCacheMissCount());
+        assertTrue(first.getMathTransform() == second.getMathTransform());
+        assertTrue(second.getTargetCS() == utm33Again);
+
+        ICoordinateTransformation other = ctFac.createFromCoordinateSystems(wgs84GCS, utm32);
+        assertEquals(misses + 1, CoordinateTransformationFactory.getCacheMissCount());
+        assertTrue(other.getMathTransform() != first.getMathTransform());
+
+        int size = CoordinateTransformationFactory.getCacheSize();
+        long evictions = CoordinateTransformationFactory.getCacheEvictionCount();
+        try {
+            CoordinateTransformationFactory.setCacheSize(1);
+            ctFac.createFromCoordinateSystems(wgs84GCS, utm33);
+            ctFac.createFromCoordinateSystems(wgs84GCS, utm32);
+            assertTrue(CoordinateTransformationFactory.getCacheEvictionCount() > evictions);
+        } finally {
+            CoordinateTransformationFactory.setCacheSize(size);
+        }
+    }
+
+    @Test
+    public final void TestSpatialReferenceCache() throws IOException {
+        //By default every caller gets its own copy of the cached instance, which it may modify
+        SpatialReferences.clearCache();
+        long misses = SpatialReferences.getCacheMissCount();
+        assertEquals(2, SpatialReferences.preload(4326, 1, 32633));
+        assertEquals(misses + 3, SpatialReferences.getCacheMissCount());
+        IProjectedCoordinateSystem own = (IProjectedCoordinateSystem) SpatialReferences.getByEpsg(32633);
+        ICoordinateSystem other = SpatialReferences.getByEpsg(32633);
+        assertEquals(misses + 3, SpatialReferences.getCacheMissCount());
+        assertTrue(other != own);
+        assertEquals(own.getWKT(), other.getWKT());
+        CoordinateSystemFactory csFac = new CoordinateSystemFactory();
+        for (String wkt : SpatialReferences.getAllWkt()) {
+            ICoordinateSystem parsed = csFac.createFromWkt(wkt);
+            ICoordinateSystem copy = SpatialReferences.getByEpsg((int) parsed.getAuthorityCode());
+            assertEquals(parsed.getWKT(), copy.getWKT());
+            assertEquals(parsed.getXML(), copy.getXML());
+        }
+        own.getHorizontalDatum().setWgs84Parameters(new Wgs84ConversionInfo(1, 2, 3, 0, 0, 0, 0));
+        assertTrue(((IProjectedCoordinateSystem) SpatialReferences.getByEpsg(32633)).getHorizontalDatum().getWgs84Parameters() != own.getHorizontalDatum().getWgs84Parameters());
+        assertTrue(SpatialReferences.getByEpsg(1) == null);
+
+        int size = SpatialReferences.getCacheSize();
+        try {
+            SpatialReferences.setSharedInstances(true);
+            ICoordinateSystem utm33 = SpatialReferences.getByEpsg(32633);
+            assertTrue(SpatialReferences.getByEpsg(32633) == utm33);
+            assertTrue(SpatialReferences.getByEpsg(1) == null);
+
+            SpatialReferences.setSoftReferences(true);
+            ICoordinateSystem soft = SpatialReferences.getByEpsg(32633);
+            assertTrue(soft != utm33);
+            assertTrue(SpatialReferences.getByEpsg(32633) == soft);
+
+            SpatialReferences.setCacheSize(1);
+            assertEquals(2, SpatialReferences.preload(4326, 1, 32632));
+            ICoordinateSystem utm32 = SpatialReferences.getByEpsg(32632);
+            assertTrue(SpatialReferences.getByEpsg(32632) == utm32);
+            assertTrue(SpatialReferences.getByEpsg(4326) != null);
+            assertTrue(SpatialReferences.getByEpsg(32632) != utm32);
+        } finally {
+            SpatialReferences.setSharedInstances(false);
+            SpatialReferences.setSoftReferences(false);
+            SpatialReferences.setCacheSize(size);
+        }
+    }
+
+    @Test
+    public final void TestCompiledChain() throws IOException {
+        //Antigua grid with TOWGS84 to WGS84 UTM zone 20N: projection, datum shift through geocentric space and projection
+        ICoordinateSystem antigua = SpatialReferences.getByEpsg(2001);
+        ICoordinateSystem utm20 = SpatialReferences.getByEpsg(32620);
+        IMathTransform transform = new CoordinateTransformationFactory().createFromCoordinateSystems(antigua, utm20).getMathTransform();
+
+        int numPts = 1000; //Several blocks and a partial one
+        double[] xs = new double[numPts];
+        double[] ys = new double[numPts];
+        double[] zs = new double[numPts];
+        double[][] expected2d = new double[numPts][];
+        double[][] expected3d = new double[numPts][];
+        for (int i = 0; i < numPts; i++) {
+            xs[i] = 400000 + 61 * i;
+            ys[i] = 1880000 + 37 * i;
+            zs[i] = i % 100;
+            expected2d[i] = transform.transform(new double[] {xs[i], ys[i]});
+            expected3d[i] = transform.transform(new double[] {xs[i], ys[i], zs[i]});
+        }
+
+        double[] packed2 = new double[numPts * 2];
+        double[] packed3 = new double[numPts * 3];
+        for (int i = 0; i < numPts; i++) {
+            packed2[i * 2] = xs[i];
+            packed2[i * 2 + 1] = ys[i];
+            packed3[i * 3] = xs[i];
+            packed3[i * 3 + 1] = ys[i];
+            packed3[i * 3 + 2] = zs[i];
+        }
+        transform.transform(packed2, 0, packed2, 0, numPts, 2);
+        transform.transform(packed3, 0, packed3, 0, numPts, 3);
+        double[] cx2 = xs.clone();
+        double[] cy2 = ys.clone();
+        transform.transform(cx2, cy2, null, 0, numPts);
+        transform.transform(xs, ys, zs, 0, numPts);
+
+        for (int i = 0; i < numPts; i++) {
+            assertTrue(ToleranceLessThan(expected2d[i], new double[] {packed2[i * 2], packed2[i * 2 + 1]}, 1e-6));
+            assertTrue(ToleranceLessThan(expected2d[i], new double[] {cx2[i], cy2[i]}, 1e-6));
+            assertTrue(ToleranceLessThan(expected3d[i], new double[] {packed3[i * 3], packed3[i * 3 + 1]}, 1e-6));
+            assertEquals(expected3d[i][2], packed3[i * 3 + 2], 1e-6);
+            assertTrue(ToleranceLessThan(expected3d[i], new double[] {xs[i], ys[i]}, 1e-6));
+            assertEquals(expected3d[i][2], zs[i], 1e-6);
+        }
+    }
+
+    @Test
+    public final void TestChainSimplification() throws IOException {
+        CoordinateSystemFactory cFac = new CoordinateSystemFactory();
+        HorizontalDatum wgs72 = HorizontalDatum.getWGS72();
+        HorizontalDatum ed50 = HorizontalDatum.getED50();
+        wgs72.setWgs84Parameters(new Wgs84ConversionInfo(0, 0, 4.5, 0, 0, 0.554, 0.219));
+        ed50.setWgs84Parameters(new Wgs84ConversionInfo(-81.0703, -89.3603, -115.7526, -0.48488, -0.02436, -0.41321, -0.540645));
+        IGeographicCoordinateSystem gcsWGS72 = cFac.createGeographicCoordinateSystem("WGS72 Geographic", AngularUnit.getDegrees(), wgs72, PrimeMeridian.getGreenwich(), new AxisInfo("East", AxisOrientationEnum.East), new AxisInfo("North", AxisOrientationEnum.North));
+        IGeographicCoordinateSystem gcsWGS84 = cFac.createGeographicCoordinateSystem("WGS84 Geographic", AngularUnit.getDegrees(), HorizontalDatum.getWGS84(), PrimeMeridian.getGreenwich(), new AxisInfo("East", AxisOrientationEnum.East), new AxisInfo("North", AxisOrientationEnum.North));
+        IGeographicCoordinateSystem gcsED50 = cFac.createGeographicCoordinateSystem("ED50 Geographic", AngularUnit.getDegrees(), ed50, PrimeMeridian.getGreenwich(), new AxisInfo("East", AxisOrientationEnum.East), new AxisInfo("North", AxisOrientationEnum.North));
+
+        CoordinateTransformationFactory ctFac = new CoordinateTransformationFactory();
+        ICoordinateTransformation ed50ToWgs84 = ctFac.createFromCoordinateSystems(gcsED50, gcsWGS84);
+        ICoordinateTransformation wgs84ToWgs72 = ctFac.createFromCoordinateSystems(gcsWGS84, gcsWGS72);
+        ICoordinateTransformation wgs84ToEd50 = ctFac.createFromCoordinateSystems(gcsWGS84, gcsED50);
+
+        //The geocentric round trip through WGS84 is removed and the two datum shifts are merged. The
+        //round trip was only accurate to a few millimetres, so the results differ by that much
+        ArrayList<ICoordinateTransformation> viaWgs84 = new ArrayList<>(2);
+        viaWgs84.add(ed50ToWgs84);
+        viaWgs84.add(wgs84ToWgs72);
+        IMathTransform merged = new ConcatenatedTransform(viaWgs84);
+
+        //Every step is undone by the following one, so nothing is left to run
+        ArrayList<ICoordinateTransformation> roundTrip = new ArrayList<>(2);
+        roundTrip.add(ed50ToWgs84);
+        roundTrip.add(wgs84ToEd50);
+        IMathTransform identity = new ConcatenatedTransform(roundTrip);
+
+        for (int i = 0; i < 100; i++) {
+            double[] point = new double[] {8 + 0.05 * i, 54 + 0.03 * i, i};
+            double[] expected = wgs84ToWgs72.getMathTransform().transform(ed50ToWgs84.getMathTransform().transform(point));
+            double[] result = merged.transform(point);
+            assertTrue(ToleranceLessThan(expected, new double[] {result[0], result[1]}, 1e-6));
+            assertEquals(expected[2], result[2], 0.01);
+            double[] unchanged = identity.transform(point);
+            assertTrue(unchanged != point);
+            assertTrue(java.util.Arrays.equals(point, unchanged));
+        }
+        assertEquals(0, ((ConcatenatedTransform) identity).getStepCount());
+
+        //The list transform runs the simplified chain too, so it agrees with the single point transform
+        ArrayList<double[]> points = new ArrayList<>(600);
+        for (int i = 0; i < 600; i++) {
+            points.add(i % 2 == 0 ? new double[] {8 + 0.005 * i, 54 + 0.003 * i} : new double[] {8 + 0.005 * i, 54 + 0.003 * i, i});
+        }
+        for (IMathTransform chain : new IMathTransform[] {merged, identity}) {
+            ArrayList<double[]> results = chain.transformList(points);
+            assertEquals(points.size(), results.size());
+            for (int i = 0; i < points.size(); i++) {
+                double[] expected = chain.transform(points.get(i));
+                assertTrue(results.get(i) != points.get(i));
+                assertEquals(expected.length, results.get(i).length);
+                for (int k = 0; k < expected.length; k++) {
+                    assertEquals(expected[k], results.get(i)[k], 1e-9);
+                }
+            }
+        }
+
+        //A projection followed by its inverse
+        IProjectedCoordinateSystem utm = (IProjectedCoordinateSystem) SpatialReferences.getByEpsg(32633);
+        ArrayList<ICoordinateTransformation> projectAndBack = new ArrayList<>(2);
+        projectAndBack.add(ctFac.createFromCoordinateSystems(utm.getGeographicCoordinateSystem(), utm));
+        projectAndBack.add(ctFac.createFromCoordinateSystems(utm, utm.getGeographicCoordinateSystem()));
+        ConcatenatedTransform projectionRoundTrip = new ConcatenatedTransform(projectAndBack);
+        assertEquals(0, projectionRoundTrip.getStepCount());
+        double[] point = new double[] {15, 50};
+        double[] unchanged = projectionRoundTrip.transform(point);
+        assertTrue(unchanged != point);
+        assertTrue(java.util.Arrays.equals(point, unchanged));
+    }
+
+    @Test
+    public final void TestAffineTransform() {
+        //Rotation by 30 degrees, scaling by 2 and translation
+        double c = 2 * Math.cos(Math.PI / 6);
+        double s = 2 * Math.sin(Math.PI / 6);
+        MathTransform affine = new AffineTransform(new double[][] {{c, -s, 100}, {s, c, -50}, {0, 0, 1}});
+        double[] point = affine.transform(new double[] {10, 20, 5});
+        assertEquals(c * 10 - s * 20 + 100, point[0], 1e-12);
+        assertEquals(s * 10 + c * 20 - 50, point[1], 1e-12);
+        assertEquals(5, point[2], 0);
+
+        double[] back = affine.inverse().transform(point);
+        assertTrue(ToleranceLessThan(new double[] {10, 20, 5}, back, 1e-12));
+
+        double[] packed = new double[] {10, 20, 30, 40};
+        affine.transform(packed, 0, packed, 0, 2, 2);
+        double[] xs = new double[] {10, 30};
+        double[] ys = new double[] {20, 40};
+        affine.transform(xs, ys, null, 0, 2);
+        assertTrue(ToleranceLessThan(point, new double[] {packed[0], packed[1]}, 1e-12));
+        assertTrue(ToleranceLessThan(new double[] {packed[2], packed[3]}, new double[] {xs[1], ys[1]}, 1e-12));
+
+        //An affine transform followed by its inverse leaves nothing to run
+        MathTransform identity = concatenate(affine, affine.inverse());
+        assertTrue(java.util.Arrays.equals(new double[] {10, 20}, identity.transform(new double[] {10, 20})));
+        assertEquals(3, ((AffineTransform) affine).getMatrix().length);
+    }
+
+    @Test
+    public final void TestAxisOrderAndUnitFolding() throws IOException {
+        CoordinateSystemFactory cFac = new CoordinateSystemFactory();
+        IGeographicCoordinateSystem lonLat = (IGeographicCoordinateSystem) SpatialReferences.getByEpsg(4326);
+        IGeographicCoordinateSystem latLon = cFac.createGeographicCoordinateSystem("WGS84 lat/lon", AngularUnit.getDegrees(), HorizontalDatum.getWGS84(), PrimeMeridian.getGreenwich(), new AxisInfo("Lat", AxisOrientationEnum.North), new AxisInfo("Lon", AxisOrientationEnum.East));
+        ICoordinateSystem utm33 = SpatialReferences.getByEpsg(32633);
+
+        CoordinateTransformationFactory ctFac = new CoordinateTransformationFactory();
+        IMathTransform fromLonLat = ctFac.createFromCoordinateSystems(lonLat, utm33).getMathTransform();
+        IMathTransform fromLatLon = ctFac.createFromCoordinateSystems(latLon, utm33).getMathTransform();
+        double[] expected = fromLonLat.transform(new double[] {15, 55});
+        assertTrue(ToleranceLessThan(expected, fromLatLon.transform(new double[] {55, 15}), 1e-9));
+
+        //Projected metres to kilometres, folded into the unit of the projection
+        MathTransform toKm = new AffineTransform(new double[][] {{0.001, 0, 0}, {0, 0.001, 0}, {0, 0, 1}});
+        MathTransform km = concatenate(fromLonLat, toKm);
+        assertTrue(ToleranceLessThan(new double[] {expected[0] / 1000, expected[1] / 1000}, km.transform(new double[] {15, 55}), 1e-9));
+        assertTrue(ToleranceLessThan(new double[] {15, 55}, km.inverse().transform(new double[] {expected[0] / 1000, expected[1] / 1000}), 1e-9));
+    }
+
+    @Test
+    public final void TestParallelTransformer() throws IOException {
+        ICoordinateSystem antigua = SpatialReferences.getByEpsg(2001); //Antigua 1943 / British West Indies Grid, with TOWGS84
+        ICoordinateSystem wgs84GCS = SpatialReferences.getByEpsg(4326);
+        IMathTransform transform = new CoordinateTransformationFactory().createFromCoordinateSystems(antigua, wgs84GCS).getMathTransform();
+
+        int n = 50000;
+        double[] packed = new double[3 * n];
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        double[] zs = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = packed[3 * i] = 400000 + (i % 250) * 200;
+            ys[i] = packed[3 * i + 1] = 1860000 + (i / 250) * 300;
+            zs[i] = packed[3 * i + 2] = i % 100;
+        }
+        double[] expected = new double[3 * n];
+        transform.transform(packed, 0, expected, 0, n, 3);
+
+        //Threshold 0 so that every batch is split, even on a single processor
+        ParallelTransformer parallel = new ParallelTransformer(new ForkJoinPool(4), 0);
+        double[] result = new double[3 * n];
+        parallel.transform(transform, packed, 0, result, 0, n, 3);
+        assertTrue(Arrays.equals(expected, result));
+
+        parallel.transform(transform, packed, 0, packed, 0, n, 3);
+        assertTrue(Arrays.equals(expected, packed));
+
+        parallel.transform(transform, xs, ys, zs, 0, n);
+        for (int i = 0; i < n; i++) {
+            assertTrue(xs[i] == expected[3 * i] && ys[i] == expected[3 * i + 1] && zs[i] == expected[3 * i + 2]);
+        }
+    }
+
+    /**
+     * Compares the column transforms, which run on the vector kernels when they are available, with
+     * transforming each point on its own. The odd points fall back to the scalar code.
+     */
+    @Test
+    public final void TestColumnKernels() throws IOException {
+        CoordinateTransformationFactory ctFac = new CoordinateTransformationFactory();
+        IMathTransform toUtm = ctFac.createFromCoordinateSystems(SpatialReferences.getByEpsg(4326), SpatialReferences.getByEpsg(32632)).getMathTransform();
+        IMathTransform antigua = ctFac.createFromCoordinateSystems(SpatialReferences.getByEpsg(2001), SpatialReferences.getByEpsg(4326)).getMathTransform();
+        ArrayList<ProjectionParameter> parameters = new ArrayList<>(2);
+        parameters.add(new ProjectionParameter("semi_major", 6378137));
+        parameters.add(new ProjectionParameter("semi_minor", 6356752.314245179));
+        IMathTransform fromGeocentric = new GeocentricTransform(parameters, true);
+
+        int n = 1000;
+        double[][] sources = new double[][] {new double[3 * n], new double[3 * n], new double[3 * n]};
+        for (int i = 0; i < n; i++) {
+            sources[0][3 * i] = 5 + (i % 40) * 0.2;
+            sources[0][3 * i + 1] = 40 + (i / 40) * 0.5;
+            sources[1][3 * i] = 400000 + (i % 40) * 1000;
+            sources[1][3 * i + 1] = 1860000 + (i / 40) * 1000;
+            sources[1][3 * i + 2] = i % 7;
+            sources[2][3 * i] = 3000000 + (i % 40) * 10000;
+            sources[2][3 * i + 1] = 2000000 - (i / 40) * 10000;
+            sources[2][3 * i + 2] = 5000000;
+        }
+        //Points left to the scalar code: a longitude to wrap twice, a NaN height and a point with x = 0
+        sources[0][3 * 501] = 725;
+        sources[0][3 * 502] = 200;
+        sources[1][3 * 503 + 2] = Double.NaN;
+        sources[2][3 * 504] = 0;
+
+        IMathTransform[] transforms = new IMathTransform[] {toUtm, toUtm.inverse(), antigua, fromGeocentric};
+        double[] projected = new double[3 * n];
+        toUtm.transform(sources[0], 0, projected, 0, n, 3);
+        double[][] inputs = new double[][] {sources[0], projected, sources[1], sources[2]};
+        double[] tolerances = new double[] {1e-6, 1e-9, 1e-9, 1e-9};
+        for (int t = 0; t < transforms.length; t++) {
+            double[] input = inputs[t];
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            double[] zs = new double[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = input[3 * i];
+                ys[i] = input[3 * i + 1];
+                zs[i] = input[3 * i + 2];
+            }
+            transforms[t].transform(xs, ys, zs, 0, n);
+            for (int i = 0; i < n; i++) {
+                double[] expected = transforms[t].transform(new double[] {input[3 * i], input[3 * i + 1], input[3 * i + 2]});
+                assertEquals(expected[0], xs[i], tolerances[t]);
+                assertEquals(expected[1], ys[i], tolerances[t]);
+                assertEquals(expected[2], zs[i], 1e-6);
+            }
+        }
+    }
+
+    @Test
+    public final void TestBatchStatus() throws IOException {
+        CoordinateSystemFactory cFac = new CoordinateSystemFactory();
+        IGeographicCoordinateSystem wgs84 = (IGeographicCoordinateSystem) SpatialReferences.getByEpsg(4326);
+        ArrayList<ProjectionParameter> parameters = new ArrayList<>(5);
+        parameters.add(new ProjectionParameter("latitude_of_origin", 0));
+        parameters.add(new ProjectionParameter("central_meridian", 0));
+        parameters.add(new ProjectionParameter("scale_factor", 1));
+        parameters.add(new ProjectionParameter("false_easting", 0));
+        parameters.add(new ProjectionParameter("false_northing", 0));
+        IProjection projection = cFac.createProjection("Mercator_1SP", "Mercator_1SP", parameters);
+        IProjectedCoordinateSystem mercator = cFac.createProjectedCoordinateSystem("WGS 84 / World Mercator", wgs84, projection, LinearUnit.getMetre(), new AxisInfo("East", AxisOrientationEnum.East), new AxisInfo("North", AxisOrientationEnum.North));
+        CoordinateTransformationFactory ctFac = new CoordinateTransformationFactory();
+        IMathTransform transform = ctFac.createFromCoordinateSystems(wgs84, mercator).getMathTransform();
+
+        //The pole and the NaN longitude are reported, the other points are transformed
+        double[] points = new double[] {120, -3, 10, 90, Double.NaN, 5, -30, 60};
+        double[] result = new double[points.length];
+        byte[] status = new byte[5];
+        assertEquals(2, transform.transform(points, 0, result, 0, 4, 2, status, 1));
+        assertTrue(Arrays.equals(new byte[] {0, PointStatus.OK, PointStatus.OUT_OF_DOMAIN, PointStatus.OUT_OF_DOMAIN, PointStatus.OK}, status));
+        assertTrue(Arrays.equals(transform.transform(new double[] {120, -3}), new double[] {result[0], result[1]}));
+        assertTrue(Arrays.equals(transform.transform(new double[] {-30, 60}), new double[] {result[6], result[7]}));
+        assertTrue(Double.isNaN(result[2]) && Double.isNaN(result[3]) && Double.isNaN(result[4]) && Double.isNaN(result[5]));
+
+        double[] xs = new double[] {120, 10, Double.NaN, -30};
+        double[] ys = new double[] {-3, 90, 5, 60};
+        assertEquals(2, transform.transform(xs, ys, null, 0, 4, null, 0));
+        assertTrue(xs[3] == result[6] && ys[3] == result[7] && Double.isNaN(xs[1]) && Double.isNaN(ys[1]));
+
+        try {
+            transform.transform(new double[] {10, 90});
+            fail("A single point at the pole must throw");
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+
+        //In a chain a point keeps the status of the first step it failed in
+        IMathTransform chain = ctFac.createFromCoordinateSystems(SpatialReferences.getByEpsg(2001), mercator).getMathTransform();
+        double[] grid = new double[] {430000, 1890000, 0, 430000, Double.NaN, 0};
+        status = new byte[2];
+        assertEquals(1, chain.transform(grid, 0, grid, 0, 2, 3, status, 0));
+        assertEquals(PointStatus.OK, status[0]);
+        assertEquals(PointStatus.NO_CONVERGENCE, status[1]);
+        assertTrue(ToleranceLessThan(chain.transform(new double[] {430000, 1890000, 0}), grid, 1e-6));
+    }
+
+    /**
+     * Transforms a grid of pixel centers with an approximate transform and compares them with the exact
+     * transform. The mesh is refined until the interpolation meets the tolerance.
+     */
+    @Test
+    public final void TestApproximateTransform() throws IOException {
+        IMathTransform exact = new CoordinateTransformationFactory().createFromCoordinateSystems(SpatialReferences.getByEpsg(4326), SpatialReferences.getByEpsg(32633)).getMathTransform();
+        double tolerance = 0.125; //1/8 of a 1 m pixel
+        ApproximateTransform approximate = new ApproximateTransform(exact, 10, 50, 20, 60, tolerance);
+        assertTrue(approximate.getCellCount() > ApproximateTransform.DEFAULT_MESH_SIZE * ApproximateTransform.DEFAULT_MESH_SIZE);
+
+        int n = 300;
+        double[] points = new double[2 * n * n];
+        for (int j = 0, k = 0; j < n; j++) {
+            for (int i = 0; i < n; i++, k += 2) {
+                points[k] = 10 + (i + 0.5) * 10.0 / n;
+                points[k + 1] = 50 + (j + 0.5) * 10.0 / n;
+            }
+        }
+        double[] expected = new double[points.length];
+        exact.transform(points, 0, expected, 0, n * n, 2);
+        double[] result = new double[points.length];
+        approximate.transform(points, 0, result, 0, n * n, 2);
+        for (int k = 0; k < points.length; k++) {
+            assertEquals(expected[k], result[k], tolerance);
+        }
+
+        //Outside the rectangle the exact transform is used
+        double[] outside = new double[] {9, 55, 21, 52.5, 15, 49.5};
+        double[] outsideExpected = new double[outside.length];
+        exact.transform(outside, 0, outsideExpected, 0, 3, 2);
+        approximate.transform(outside, 0, outside, 0, 3, 2);
+        assertTrue(Arrays.equals(outsideExpected, outside));
+        assertTrue(Arrays.equals(exact.transform(new double[] {9, 55}), approximate.transform(new double[] {9, 55})));
+
+        double[] xs = new double[] {12.34, 20, 9};
+        double[] ys = new double[] {56.78, 60, 55};
+        approximate.transform(xs, ys, null, 0, 3);
+        for (int i = 0; i < 3; i++) {
+            double[] point = exact.transform(new double[] {i == 0 ? 12.34 : i == 1 ? 20 : 9, i == 0 ? 56.78 : i == 1 ? 60 : 55});
+            assertEquals(point[0], xs[i], tolerance);
+            assertEquals(point[1], ys[i], tolerance);
+        }
+    }
+
+    /**
+     * Approximates a Mercator over a rectangle crossing the pole, where the exact transform fails: the cells
+     * it fails in are left to the exact transform instead of being split down to the maximum depth, which
+     * built four million cells.
+     */
+    @Test
+    public final void TestApproximateTransformOutsideDomain() throws IOException {
+        IMathTransform exact = new CoordinateTransformationFactory().createFromCoordinateSystems(SpatialReferences.getByEpsg(4326), SpatialReferences.getByEpsg(3001)).getMathTransform();
+        double tolerance = 200;
+        ApproximateTransform approximate = new ApproximateTransform(exact, 100, 80, 120, 95, tolerance);
+        assertTrue(approximate.getCellCount() < 500000);
+
+        double[] points = new double[] {110.5, 80.25, 101, 85, 119.9, 89, 110, 91.5, 105, 95};
+        double[] expected = new double[points.length];
+        exact.transform(points, 0, expected, 0, 5, 2, null, 0);
+        double[] result = new double[points.length];
+        approximate.transform(points, 0, result, 0, 5, 2);
+        for (int k = 0; k < 6; k++) {
+            assertEquals(expected[k], result[k], tolerance);
+        }
+        for (int k = 6; k < points.length; k++) {
+            assertTrue(Double.isNaN(expected[k]));
+            assertTrue(Double.isNaN(result[k]));
+        }
+    }
+
+    /**
+     * Transforms grids through a separable Mercator chain, in both directions, and through a transverse
+     * Mercator which is not separable, and compares them with transforming each point.
+     */
+    @Test
+    public final void TestTransformGrid() throws IOException {
+        CoordinateSystemFactory cFac = new CoordinateSystemFactory();
+        IGeographicCoordinateSystem wgs84 = (IGeographicCoordinateSystem) SpatialReferences.getByEpsg(4326);
+        ArrayList<ProjectionParameter> parameters = new ArrayList<>(5);
+        parameters.add(new ProjectionParameter("latitude_of_origin", 0));
+        parameters.add(new ProjectionParameter("central_meridian", 10));
+        parameters.add(new ProjectionParameter("scale_factor", 0.9996));
+        parameters.add(new ProjectionParameter("false_easting", 500000));
+        parameters.add(new ProjectionParameter("false_northing", 0));
+        IProjection projection = cFac.createProjection("Mercator_1SP", "Mercator_1SP", parameters);
+        IProjectedCoordinateSystem mercator = cFac.createProjectedCoordinateSystem("Mercator", wgs84, projection, LinearUnit.getUSSurveyFoot(), new AxisInfo("East", AxisOrientationEnum.East), new AxisInfo("North", AxisOrientationEnum.North));
+        CoordinateTransformationFactory ctFac = new CoordinateTransformationFactory();
+        IMathTransform forward = ctFac.createFromCoordinateSystems(wgs84, mercator).getMathTransform();
+        IMathTransform utm = ctFac.createFromCoordinateSystems(wgs84, SpatialReferences.getByEpsg(32633)).getMathTransform();
+
+        //The last row is at the pole
+        int nx = 37, ny = 31;
+        double[] grid = new double[2 * nx * ny];
+        assertEquals(nx, forward.transformGrid(-5, 0, 1.25, 3, nx, ny, grid));
+        for (int j = 0, k = 0; j < ny; j++) {
+            for (int i = 0; i < nx; i++, k += 2) {
+                if (j == ny - 1) {
+                    assertTrue(Double.isNaN(grid[k]) && Double.isNaN(grid[k + 1]));
+                } else {
+                    assertTrue(Arrays.equals(forward.transform(new double[] {-5 + i * 1.25, j * 3}), new double[] {grid[k], grid[k + 1]}));
+                }
+            }
+        }
+
+        IMathTransform inverse = forward.inverse();
+        double x0 = grid[0];
+        double y0 = grid[1];
+        assertEquals(0, inverse.transformGrid(x0, y0, 1000, 2000, nx, ny, grid));
+        for (int j = 0, k = 0; j < ny; j++) {
+            for (int i = 0; i < nx; i++, k += 2) {
+                double[] point = new double[] {x0 + i * 1000.0, y0 + j * 2000.0};
+                assertTrue(ToleranceLessThan(inverse.transform(point), new double[] {grid[k], grid[k + 1]}, 1e-12));
+            }
+        }
+
+        double[] points = new double[2 * nx * ny];
+        for (int j = 0, k = 0; j < ny; j++) {
+            for (int i = 0; i < nx; i++, k += 2) {
+                points[k] = 10 + i * 0.25;
+                points[k + 1] = 40 + j * 0.5;
+            }
+        }
+        utm.transform(points, 0, points, 0, nx * ny, 2);
+        assertEquals(0, utm.transformGrid(10, 40, 0.25, 0.5, nx, ny, grid));
+        assertTrue(Arrays.equals(points, grid));
+    }
+
+    /**
+     * Checks the inverses of the conformal projections, which convert the conformal latitude to the
+     * geodetic latitude with a series, by round trips over wide latitude ranges.
+     */
+    @Test
+    public final void TestConformalLatitudeInverses() throws IOException {
+        // Mercator, Lambert Conformal Conic and Krovak
+        int[] codes = new int[] {3001, 2154, 2065};
+        double[][] boxes = new double[][] {{60, 160, -85, 85}, {-10, 15, 0, 85}, {12, 19, 47, 52}};
+        int n = 100;
+        CoordinateTransformationFactory ctFac = new CoordinateTransformationFactory();
+        for (int c = 0; c < codes.length; c++) {
+            IProjectedCoordinateSystem pcs = (IProjectedCoordinateSystem) SpatialReferences.getByEpsg(codes[c]);
+            IMathTransform forward = ctFac.createFromCoordinateSystems(pcs.getGeographicCoordinateSystem(), pcs).getMathTransform();
+            IMathTransform reverse = forward.inverse();
+
+            double[] source = new double[n * n * 2];
+            for (int i = 0, k = 0; i < n * n; i++, k += 2) {
+                source[k] = boxes[c][0] + (i % n) * (boxes[c][1] - boxes[c][0]) / (n - 1);
+                source[k + 1] = boxes[c][2] + (i / n) * (boxes[c][3] - boxes[c][2]) / (n - 1);
+            }
+            double[] lonlat = new double[source.length];
+            forward.transform(source, 0, lonlat, 0, n * n, 2);
+            assertEquals(0, reverse.transform(lonlat, 0, lonlat, 0, n * n, 2, null, 0));
+            for (int k = 0; k < source.length; k++) {
+                assertEquals("EPSG:" + codes[c], source[k], lonlat[k], 1e-11);
+            }
+        }
+    }
+
+    /**
+     * Builds transformations for display and survey precisions and checks they are cached apart and reach
+     * the precision asked for, including the geocentric conversion, whose default single step does not reach
+     * a tenth of a millimeter.
+     */
+    @Test
+    public final void TestPrecision() throws IOException {
+        CoordinateSystemFactory cFac = new CoordinateSystemFactory();
+        IGeographicCoordinateSystem gcs = cFac.createGeographicCoordinateSystem("ETRF89 Geographic", AngularUnit.getDegrees(), HorizontalDatum.getETRF89(), PrimeMeridian.getGreenwich(), new AxisInfo("East", AxisOrientationEnum.East), new AxisInfo("North", AxisOrientationEnum.North));
+        IGeocentricCoordinateSystem gcenCs = cFac.createGeocentricCoordinateSystem("ETRF89 Geocentric", HorizontalDatum.getETRF89(), LinearUnit.getMetre(), PrimeMeridian.getGreenwich());
+        ICoordinateSystem wgs84 = SpatialReferences.getByEpsg(4326);
+        // Mercator, Lambert Conformal Conic and Albers
+        ICoordinateSystem[] projected = new ICoordinateSystem[] {SpatialReferences.getByEpsg(3001), SpatialReferences.getByEpsg(2154), SpatialReferences.getByEpsg(3005)};
+        double[][] lonlats = new double[][] {{110, -2}, {3, 46}, {-125, 53}};
+
+        CoordinateTransformationFactory defaultFac = new CoordinateTransformationFactory();
+        CoordinateTransformationFactory displayFac = new CoordinateTransformationFactory();
+        displayFac.setPrecision(0.01);
+        CoordinateTransformationFactory surveyFac = new CoordinateTransformationFactory();
+        surveyFac.setPrecision(0.0001);
+        assertEquals(0, defaultFac.getPrecision(), 0);
+        try {
+            surveyFac.setPrecision(-1);
+            fail("A negative precision must be rejected");
+        } catch (IllegalArgumentException e) {
+            assertEquals(0.0001, surveyFac.getPrecision(), 0);
+        }
+
+        for (int c = 0; c < projected.length; c++) {
+            IMathTransform exact = defaultFac.createFromCoordinateSystems(wgs84, projected[c]).getMathTransform();
+            IMathTransform display = displayFac.createFromCoordinateSystems(wgs84, projected[c]).getMathTransform();
+            assertTrue(display != exact);
+            for (int i = 0; i < 100; i++) {
+                double[] lonlat = new double[] {lonlats[c][0] + (i % 10) * 1.5, lonlats[c][1] + (i / 10) * 3.0};
+                double[] xy = exact.transform(lonlat);
+                double[] lonlat2 = display.inverse().transform(xy);
+                assertEquals(lonlat[0], lonlat2[0], 0.01 / 111000);
+                assertEquals(lonlat[1], lonlat2[1], 0.01 / 111000);
+            }
+
+            //The precision is not a projection parameter, so it leaves the WKT and the parameter list alone
+            IProjectedCoordinateSystem pcs = (IProjectedCoordinateSystem) projected[c];
+            MapProjection exactProjection = (MapProjection) defaultFac.createFromCoordinateSystems(pcs.getGeographicCoordinateSystem(), pcs).getMathTransform();
+            MapProjection displayProjection = (MapProjection) displayFac.createFromCoordinateSystems(pcs.getGeographicCoordinateSystem(), pcs).getMathTransform();
+            assertEquals(0, exactProjection.getPrecision(), 0);
+            assertEquals(0.01, displayProjection.getPrecision(), 0);
+            assertEquals(0.01, ((MapProjection) displayProjection.inverse()).getPrecision(), 0);
+            assertEquals(exactProjection.getNumParameters(), displayProjection.getNumParameters());
+            assertEquals(exactProjection.getWKT(), displayProjection.getWKT());
+            assertTrue(!displayProjection.getWKT().contains("precision"));
+        }
+
+        double[] point = new double[] {2 + 7.0 / 60 + 46.38 / 3600, 53 + 48.0 / 60 + 33.82 / 3600, 73.0};
+        double[] xyz = defaultFac.createFromCoordinateSystems(gcs, gcenCs).getMathTransform().transform(point);
+        double[] single = defaultFac.createFromCoordinateSystems(gcenCs, gcs).getMathTransform().transform(xyz);
+        double[] survey = surveyFac.createFromCoordinateSystems(gcenCs, gcs).getMathTransform().transform(xyz);
+        assertTrue(Math.abs(single[2] - point[2]) > 0.0001);
+        assertEquals(point[1], survey[1], 0.0001 / 111000);
+        assertEquals(point[2], survey[2], 0.0001);
+        GeocentricTransform surveyGeocentric = (GeocentricTransform) surveyFac.createFromCoordinateSystems(gcs, gcenCs).getMathTransform();
+        assertEquals(0.0001, surveyGeocentric.getPrecision(), 0);
+        assertEquals(0.0001, ((GeocentricTransform) surveyGeocentric.inverse()).getPrecision(), 0);
+    }
+
+    /**
+     * Checks the spherical formulas, used when the ellipsoid is a sphere, against the numerical examples for
+     * the sphere in Snyder, Map Projections - A Working Manual, scaled to the radius, and by round trips.
+     */
+    @Test
+    public final void TestSphericalProjections() {
+        CoordinateSystemFactory cFac = new CoordinateSystemFactory();
+        IHorizontalDatum datum = cFac.createHorizontalDatum("Sphere", DatumType.HD_Geocentric, Ellipsoid.getSphere(), null);
+        IGeographicCoordinateSystem gcs = cFac.createGeographicCoordinateSystem("Sphere", AngularUnit.getDegrees(), datum, PrimeMeridian.getGreenwich(), new AxisInfo("Lon", AxisOrientationEnum.East), new AxisInfo("Lat", AxisOrientationEnum.North));
+        double r = Ellipsoid.getSphere().getSemiMajorAxis();
+
+        String[] classes = new String[] {"albers", "lambert_conformal_conic_2sp", "mercator_1sp", "transverse_mercator"};
+        String[][] names = new String[][] {
+                {"latitude_of_center", "longitude_of_center", "standard_parallel_1", "standard_parallel_2"},
+                {"latitude_of_origin", "central_meridian", "standard_parallel_1", "standard_parallel_2"},
+                {"latitude_of_origin", "central_meridian", "scale_factor"},
+                {"latitude_of_origin", "central_meridian", "scale_factor"}};
+        double[][] values = new double[][] {{23, -96, 29.5, 45.5}, {23, -96, 33, 45}, {0, -180, 1}, {0, -75, 1}};
+        double[][] points = new double[][] {{-75, 35}, {-75, 35}, {-75, 35}, {-73.5, 40.5}};
+        double[][] expected = new double[][] {{0.2952720, 0.2416774}, {0.2966785, 0.2462112}, {1.8325957, 0.6528366}, {0.0199077, 0.7070276}};
+        for (int c = 0; c < classes.length; c++) {
+            ArrayList<ProjectionParameter> parameters = new ArrayList<ProjectionParameter>();
+            for (int i = 0; i < names[c].length; i++) {
+                parameters.add(new ProjectionParameter(names[c][i], values[c][i]));
+            }
+            parameters.add(new ProjectionParameter("false_easting", 0));
+            parameters.add(new ProjectionParameter("false_northing", 0));
+            IProjection projection = cFac.createProjection(classes[c], classes[c], parameters);
+            IProjectedCoordinateSystem coordsys = cFac.createProjectedCoordinateSystem(classes[c], gcs, projection, LinearUnit.getMetre(), new AxisInfo("East", AxisOrientationEnum.East), new AxisInfo("North", AxisOrientationEnum.North));
+            IMathTransform trans = new CoordinateTransformationFactory().createFromCoordinateSystems(gcs, coordsys).getMathTransform();
+
+            double[] p = trans.transform(points[c]);
+            assertEquals(classes[c], expected[c][0] * r, p[0], 1e-7 * r);
+            assertEquals(classes[c], expected[c][1] * r, p[1], 1e-7 * r);
+            double[] p2 = trans.inverse().transform(p);
+            assertEquals(classes[c], points[c][0], p2[0], 1e-10);
+            assertEquals(classes[c], points[c][1], p2[1], 1e-10);
+        }
+    }
+
+    /**
+     * Checks the web map projection of EPSG:3857 and EPSG:900913 against known values, and its pixel and
+     * quadkey outputs against the tiling scheme of Bing Maps.
+     */
+    @Test
+    public final void TestPseudoMercator() throws IOException {
+        CoordinateTransformationFactory ctFac = new CoordinateTransformationFactory();
+        ICoordinateSystem wgs84 = SpatialReferences.getByEpsg(4326);
+        for (int code : new int[] {3857, 900913}) {
+            IMathTransform forward = ctFac.createFromCoordinateSystems(wgs84, SpatialReferences.getByEpsg(code)).getMathTransform();
+            double[] points = new double[] {10, 60, -180, -85.05112877980659, 0, 0};
+            double[] expected = new double[] {1113194.9079327357, 8399737.889818357, -20037508.342789244, -20037508.342789244, 0, 0};
+            double[] projected = new double[points.length];
+            forward.transform(points, 0, projected, 0, 3, 2);
+            for (int k = 0; k < points.length; k++) {
+                assertEquals("EPSG:" + code, expected[k], projected[k], 1e-6);
+                assertEquals("EPSG:" + code, expected[k], forward.transform(new double[] {points[k & ~1], points[k | 1]})[k & 1], 1e-6);
+            }
+            double[] back = new double[points.length];
+            forward.inverse().transform(projected, 0, back, 0, 3, 2);
+            for (int k = 0; k < points.length; k++) {
+                assertEquals("EPSG:" + code, points[k], back[k], 1e-11);
+            }
+        }
+
+        ArrayList<ProjectionParameter> parameters = new ArrayList<ProjectionParameter>();
+        parameters.add(new ProjectionParameter("central_meridian", 0));
+        parameters.add(new ProjectionParameter("false_easting", 0));
+        parameters.add(new ProjectionParameter("false_northing", 0));
+        parameters.add(new ProjectionParameter("semi_major", 6378137));
+        parameters.add(new ProjectionParameter("semi_minor", 6356752.314245179));
+        parameters.add(new ProjectionParameter("unit", 1));
+        PseudoMercator projection = new PseudoMercator(parameters);
+
+        // The center and the corners of the map, at zoom 1 and 3
+        double[] lonlats = new double[] {0, 0, -180, 90, 180, -90};
+        double[] pixels = new double[lonlats.length];
+        projection.toPixels(lonlats, 0, pixels, 0, 3, 2, 1, PseudoMercator.DEFAULT_TILE_SIZE);
+        double[] expectedPixels = new double[] {256, 256, 0, 0, 512, 512};
+        for (int k = 0; k < pixels.length; k++) {
+            assertEquals(expectedPixels[k], pixels[k], 1e-9);
+        }
+        long[] keys = new long[3];
+        projection.toQuadKeys(lonlats, 0, 3, 2, 3, keys, 0);
+        assertEquals("300", PseudoMercator.quadKeyToString(keys[0], 3));
+        assertEquals("000", PseudoMercator.quadKeyToString(keys[1], 3));
+        assertEquals("333", PseudoMercator.quadKeyToString(keys[2], 3));
+        assertEquals("213", PseudoMercator.quadKeyToString(PseudoMercator.quadKey(3, 5, 3), 3));
+        assertEquals("", PseudoMercator.quadKeyToString(PseudoMercator.quadKey(0, 0, 0), 0));
+    }
+
+    /**
+     * Writes the tile coordinates of points from WGS 84, plain and delta encoded, and compares them with the
+     * projected points mapped to the tile in a separate pass.
+     */
+    @Test
+    public final void TestTileCoordinateSink() throws IOException {
+        IMathTransform transform = new CoordinateTransformationFactory().createFromCoordinateSystems(SpatialReferences.getByEpsg(4326), SpatialReferences.getByEpsg(3857)).getMathTransform();
+
+        // Center and corners of the world tile, and a point of the tile (1, 0) at zoom 1
+        int[] tile = new int[8];
+        assertEquals(6, new TileCoordinateSink(transform, 0, 0, 0).write(new double[] {0, 0, -180, 85.05112877980659, 180, -85.05112877980659}, 0, 3, 2, tile, 0));
+        assertTrue(Arrays.toString(tile), Arrays.equals(new int[] {2048, 2048, 0, 0, 4096, 4096, 0, 0}, tile));
+        new TileCoordinateSink(transform, 1, 1, 0, 512).write(new double[] {90, 0}, 0, 1, 2, tile, 6);
+        assertEquals(256, tile[6]);
+        assertEquals(512, tile[7]);
+        try {
+            new TileCoordinateSink(transform, 1, 2, 0);
+            fail("A tile outside of the matrix must be rejected");
+        } catch (IllegalArgumentException e) {
+        }
+
+        int zoom = 12, tileX = 2154, tileY = 1231;
+        int n = 1000;
+        double[] lonlats = new double[n * 3];
+        for (int i = 0; i < n; i++) {
+            lonlats[i * 3] = 9.3 + (i % 40) * 0.003;
+            lonlats[i * 3 + 1] = 48.8 - (i / 40) * 0.002;
+            lonlats[i * 3 + 2] = i;
+        }
+        double[] projected = new double[lonlats.length];
+        transform.transform(lonlats, 0, projected, 0, n, 3);
+        double tileSize = 2 * TileCoordinateSink.WEB_MERCATOR_HALF_SIZE / (1 << zoom);
+        int[] expected = new int[n * 2];
+        for (int i = 0; i < n; i++) {
+            expected[i * 2] = (int) Math.round(((projected[i * 3] + TileCoordinateSink.WEB_MERCATOR_HALF_SIZE) / tileSize - tileX) * 4096);
+            expected[i * 2 + 1] = (int) Math.round(((TileCoordinateSink.WEB_MERCATOR_HALF_SIZE - projected[i * 3 + 1]) / tileSize - tileY) * 4096);
+        }
+
+        TileCoordinateSink sink = new TileCoordinateSink(transform, zoom, tileX, tileY);
+        int[] coords = new int[n * 2];
+        assertEquals(n * 2, sink.write(lonlats, 0, n, 3, coords, 0));
+        assertTrue(Arrays.equals(expected, coords));
+
+        // Points already in EPSG:3857
+        IMathTransform identity = new CoordinateTransformationFactory().createFromCoordinateSystems(SpatialReferences.getByEpsg(3857), SpatialReferences.getByEpsg(3857)).getMathTransform();
+        new TileCoordinateSink(identity, zoom, tileX, tileY).write(projected, 0, n, 3, coords, 0);
+        assertTrue(Arrays.equals(expected, coords));
+
+        // Two geometries of the same feature, delta encoded with a shared cursor
+        int[] deltas = new int[n * 2];
+        int end = sink.writeDeltas(lonlats, 0, 300, 3, deltas, 0, false);
+        assertEquals(n * 2, sink.writeDeltas(lonlats, 900, n - 300, 3, deltas, end, true));
+        assertEquals(expected[n * 2 - 2], sink.getCursorX());
+        assertEquals(expected[n * 2 - 1], sink.getCursorY());
+        int x = 0, y = 0;
+        for (int i = 0; i < n; i++) {
+            int dx = deltas[i * 2], dy = deltas[i * 2 + 1];
+            if (i >= 300) {
+                dx = (dx >>> 1) ^ -(dx & 1);
+                dy = (dy >>> 1) ^ -(dy & 1);
+            }
+            x += dx;
+            y += dy;
+            assertEquals(expected[i * 2], x);
+            assertEquals(expected[i * 2 + 1], y);
+        }
+        sink.resetCursor();
+        assertEquals(0, sink.getCursorX());
+
+        // Points that fail are skipped and reported: the pole, at infinity, and a NaN longitude
+        TileCoordinateSink world = new TileCoordinateSink(transform, 0, 0, 0);
+        byte[] status = new byte[5];
+        int[] written = new int[10];
+        Arrays.fill(written, -1);
+        assertEquals(5, world.writeDeltas(new double[] {0, 0, 0, 90, Double.NaN, 0, 90, 0}, 0, 4, 2, written, 1, false, status, 1));
+        assertTrue(Arrays.toString(written), Arrays.equals(new int[] {-1, 2048, 2048, 1024, 0, -1, -1, -1, -1, -1}, written));
+        assertTrue(Arrays.toString(status), Arrays.equals(new byte[] {0, PointStatus.OK, PointStatus.OUT_OF_DOMAIN, PointStatus.OUT_OF_DOMAIN, PointStatus.OK}, status));
+        assertEquals(3072, world.getCursorX());
+        assertEquals(2, world.write(new double[] {0, 90, 0, 0}, 0, 2, 2, written, 0));
+        assertEquals(2048, written[0]);
+
+        // On the identity path, NaN and coordinates too far from the tile for an int
+        TileCoordinateSink worldIdentity = new TileCoordinateSink(identity, 0, 0, 0);
+        assertEquals(2, worldIdentity.write(new double[] {Double.NaN, 0, 1e300, 0, 0, 0}, 0, 3, 2, written, 0, status, 0));
+        assertTrue(Arrays.toString(status), Arrays.equals(new byte[] {PointStatus.OUT_OF_DOMAIN, PointStatus.OUT_OF_DOMAIN, PointStatus.OK, PointStatus.OUT_OF_DOMAIN, PointStatus.OK}, status));
+        assertEquals(2048, written[0]);
+
+        // No room for all the points: nothing is written
+        Arrays.fill(written, -1);
+        try {
+            world.writeDeltas(lonlats, 0, 6, 3, written, 0, true);
+            fail("A destination array without room for all the points must be rejected");
+        } catch (IllegalArgumentException e) {
+        }
+        assertEquals(-1, written[0]);
+        assertEquals(3072, world.getCursorX());
+    }
+
+}
\ No newline at end of file
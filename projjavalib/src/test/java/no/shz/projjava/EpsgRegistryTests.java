@@ -0,0 +1,78 @@
+package no.shz.projjava;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.Map;
+import java.util.SortedMap;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+public class EpsgRegistryTests {
+    /**
+     * Text source of the definitions, relative to the project directory.
+     */
+    private static final String SOURCE = "src/main/epsg/epsg.wkt";
+
+    private static SortedMap<Integer, String> readSource() throws IOException {
+        Reader in = new InputStreamReader(new FileInputStream(SOURCE), "UTF-8");
+        try {
+            return EpsgRegistry.readSource(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static void assertSameDefinitions(SortedMap<Integer, String> expected, EpsgRegistry registry) {
+        assertEquals(expected.size(), registry.size());
+        for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+            assertEquals("EPSG:" + entry.getKey(), entry.getValue(), registry.getWkt(entry.getKey()));
+        }
+    }
+
+    /**
+     * The packaged resource holds the definitions of the text source, no more and no less. If this fails
+     * after an edit of the source, regenerate the resource with the generateEpsgRegistry task.
+     */
+    @Test
+    public final void packagedRegistryMatchesSource() throws IOException {
+        SortedMap<Integer, String> source = readSource();
+        assertSameDefinitions(source, EpsgRegistry.getDefault());
+        assertNull(EpsgRegistry.getDefault().getWkt(1));
+    }
+
+    @Test
+    public final void writeAndReadRoundTrip() throws IOException {
+        SortedMap<Integer, String> source = readSource();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        EpsgRegistry.write(source, out);
+        assertSameDefinitions(source, EpsgRegistry.read(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test
+    public final void readSourceSkipsCommentsAndRejectsBadLines() throws IOException {
+        SortedMap<Integer, String> definitions = EpsgRegistry.readSource(new StringReader("# comment\n\n4326 GEOGCS[\"WGS 84\"]\n"));
+        assertEquals(1, definitions.size());
+        assertEquals("GEOGCS[\"WGS 84\"]", definitions.get(4326));
+        try {
+            EpsgRegistry.readSource(new StringReader("GEOGCS[\"WGS 84\"]\n"));
+            fail("A line without a code was read");
+        } catch (IOException e) {
+            //Expected
+        }
+        try {
+            EpsgRegistry.readSource(new StringReader("4326 GEOGCS[\"WGS 84\"]\n4326 GEOGCS[\"WGS 84\"]\n"));
+            fail("A repeated code was read");
+        } catch (IOException e) {
+            //Expected
+        }
+    }
+}
\ No newline at end of file
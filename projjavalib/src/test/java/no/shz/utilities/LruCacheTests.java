@@ -0,0 +1,76 @@
+package no.shz.utilities;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class LruCacheTests {
+    @Test
+    public void getOrPutReturnsTheStoredValue() {
+        LruCache<String, String> cache = new LruCache<>(4);
+        assertEquals("a", cache.getOrPut("key", "a"));
+        assertEquals("a", cache.getOrPut("key", "b"));
+        assertEquals("a", cache.get("key"));
+        cache.put("key", "c");
+        assertEquals("c", cache.get("key"));
+        assertNull(cache.get("other"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedEntry() {
+        LruCache<Integer, Integer> cache = new LruCache<>(3);
+        cache.getOrPut(1, 1);
+        cache.getOrPut(2, 2);
+        cache.getOrPut(3, 3);
+        cache.get(1);
+        cache.getOrPut(4, 4);
+        assertEquals(3, cache.size());
+        assertNull(cache.get(2));
+        assertEquals(Integer.valueOf(1), cache.get(1));
+        assertEquals(Integer.valueOf(4), cache.get(4));
+        assertEquals(1, cache.getEvictionCount());
+
+        cache.setMaxSize(1);
+        assertEquals(1, cache.size());
+        assertEquals(3, cache.getEvictionCount());
+    }
+
+    @Test
+    public void concurrentCallersShareOneValuePerKey() throws InterruptedException {
+        final LruCache<Integer, Object> cache = new LruCache<>(64);
+        final AtomicInteger failures = new AtomicInteger();
+        ArrayList<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            Thread thread = new Thread() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        Integer key = i % 128;
+                        Object value = cache.get(key);
+                        if (value == null) {
+                            value = cache.getOrPut(key, new Object());
+                        }
+                        if (value == null || cache.size() > 64 + 8) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                }
+            };
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, failures.get());
+        assertTrue(cache.size() <= 64);
+        assertEquals(800000, cache.getHitCount() + cache.getMissCount());
+    }
+}
\ No newline at end of file
@@ -3,9 +3,13 @@ package wkt;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.io.StringReader;
 
 import no.shz.projjava.SpatialReferences;
 import no.shz.projjava.converters.wellKnownText.CoordinateSystemWktReader;
+import no.shz.projjava.converters.wellKnownText.TokenType;
+import no.shz.projjava.converters.wellKnownText.io.StreamTokenizer;
+import no.shz.projjava.converters.wellKnownText.io.WktLexer;
 import no.shz.projjava.coordinateSystems.CoordinateSystemFactory;
 import no.shz.projjava.coordinateSystems.GeographicCoordinateSystem;
 import no.shz.projjava.coordinateSystems.ICoordinateSystem;
@@ -15,6 +19,7 @@ import no.shz.projjava.coordinateSystems.ProjectionParameter;
 import no.shz.projjava.coordinateSystems.Wgs84ConversionInfo;
 import no.shz.projjava.coordinateSystems.transformations.CoordinateTransformationFactory;
 import no.shz.projjava.coordinateSystems.transformations.ICoordinateTransformation;
+import no.shz.utilities.TextReader;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -82,7 +87,7 @@ public class WKTCoordSysParserTests {
     }
 
     /**
-     * This test reads in a file with 2671 pre-defined coordinate systems and projections,
+     * This test reads in a file with 2673 pre-defined coordinate systems and projections,
      * and tries to parse them.
      */
     @Test
@@ -97,7 +102,41 @@ public class WKTCoordSysParserTests {
             parsecount++;
         }
 
-        assertEquals("Not all WKT was parsed", parsecount, 2672);
+        assertEquals("Not all WKT was parsed", parsecount, 2673);
+    }
+
+    /**
+     * Checks that the WktLexer returns the same tokens and numbers as the StreamTokenizer it replaces.
+     */
+    @Test
+    public final void lexerMatchesStreamTokenizer() throws IOException {
+        for (String wkt : SpatialReferences.getAllWkt()) {
+            StreamTokenizer expected = new StreamTokenizer(new TextReader(new StringReader(wkt)), true);
+            WktLexer lexer = new WktLexer(wkt.toCharArray(), 0, wkt.length());
+            TokenType type;
+            do {
+                type = expected.nextToken();
+                assertEquals(wkt, type, lexer.nextToken());
+                assertEquals(wkt, expected.getStringValue(), lexer.getStringValue());
+                if (type == TokenType.Number) {
+                    assertEquals(wkt, expected.getNumericValue(), lexer.getNumericValue(), 0);
+                }
+            } while (type != TokenType.Eof);
+        }
+
+        WktLexer lexer = new WktLexer("1.5E-3,-42,123456789012345678901234,0.01745329251994328");
+        lexer.nextToken();
+        assertEquals(1.5E-3, lexer.getNumericValue(), 0);
+        lexer.nextToken();
+        lexer.nextToken();
+        assertEquals(-42, lexer.getNumericValue(), 0);
+        lexer.nextToken();
+        lexer.nextToken();
+        assertEquals(123456789012345678901234d, lexer.getNumericValue(), 0);
+        lexer.nextToken();
+        lexer.nextToken();
+        assertEquals(0.01745329251994328, lexer.getNumericValue(), 0);
+        assertEquals(TokenType.Eof, lexer.nextToken());
     }
 
     @Test
@@ -149,7 +188,7 @@ public class WKTCoordSysParserTests {
             parseCount++;
         }
 
-        assertEquals("Not all WKT was processed", parseCount, 2537);
+        assertEquals("Not all WKT was processed", parseCount, 2538);
     }
 
     private boolean toleranceLessThan(double[] p1, double[] p2, double tolerance)
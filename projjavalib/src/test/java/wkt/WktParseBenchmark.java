@@ -0,0 +1,103 @@
+package wkt;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Locale;
+
+import no.shz.projjava.SpatialReferences;
+import no.shz.projjava.converters.wellKnownText.CoordinateSystemWktReader;
+import no.shz.projjava.converters.wellKnownText.TokenType;
+import no.shz.projjava.converters.wellKnownText.io.StreamTokenizer;
+import no.shz.projjava.converters.wellKnownText.io.WktLexer;
+import no.shz.utilities.TextReader;
+
+/**
+ * Compares the StreamTokenizer with the WktLexer by tokenizing all of SpatialReferences.getAllWkt(),
+ * and times a full parse of the same definitions. Reports time and bytes allocated per round.
+ * <p>
+ * Run with {@code java -cp <classpath> wkt.WktParseBenchmark [rounds]}.
+ */
+public class WktParseBenchmark {
+    private interface Task {
+        double run(ArrayList<String> wkts) throws IOException;
+    }
+
+    private static final Task STREAM_TOKENIZER = new Task() {
+        @Override
+        public double run(ArrayList<String> wkts) throws IOException {
+            double sum = 0;
+            for (String wkt : wkts) {
+                StreamTokenizer tokenizer = new StreamTokenizer(new TextReader(new StringReader(wkt)), true);
+                TokenType type;
+                while ((type = tokenizer.nextToken()) != TokenType.Eof) {
+                    if (type == TokenType.Number) {
+                        sum += tokenizer.getNumericValue();
+                    }
+                }
+            }
+            return sum;
+        }
+    };
+
+    private static final Task WKT_LEXER = new Task() {
+        @Override
+        public double run(ArrayList<String> wkts) {
+            double sum = 0;
+            for (String wkt : wkts) {
+                WktLexer lexer = new WktLexer(wkt);
+                TokenType type;
+                while ((type = lexer.nextToken()) != TokenType.Eof) {
+                    if (type == TokenType.Number) {
+                        sum += lexer.getNumericValue();
+                    }
+                }
+            }
+            return sum;
+        }
+    };
+
+    private static final Task PARSE = new Task() {
+        @Override
+        public double run(ArrayList<String> wkts) throws IOException {
+            double sum = 0;
+            for (String wkt : wkts) {
+                sum += CoordinateSystemWktReader.parse(wkt).getAuthorityCode();
+            }
+            return sum;
+        }
+    };
+
+    public static void main(String[] args) throws IOException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        ArrayList<String> wkts = new ArrayList<>(SpatialReferences.getAllWkt());
+        System.out.println(String.format(Locale.US, "%d definitions, %d rounds", wkts.size(), rounds));
+        measure("StreamTokenizer (before)", STREAM_TOKENIZER, wkts, rounds);
+        measure("WktLexer (after)", WKT_LEXER, wkts, rounds);
+        measure("CoordinateSystemWktReader.parse", PARSE, wkts, rounds);
+    }
+
+    private static void measure(String name, Task task, ArrayList<String> wkts, int rounds) throws IOException {
+        double blackhole = 0;
+        for (int i = 0; i < rounds; i++) {
+            blackhole += task.run(wkts);
+        }
+        long bytes = allocatedBytes();
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            blackhole += task.run(wkts);
+        }
+        double ms = (System.nanoTime() - start) / 1e6 / rounds;
+        double mb = bytes < 0 ? Double.NaN : (allocatedBytes() - bytes) / 1e6 / rounds;
+        System.out.println(String.format(Locale.US, "%-32s %9.2f ms/round %9.2f MB allocated/round (%s)", name, ms, mb, blackhole != 0));
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
\ No newline at end of file